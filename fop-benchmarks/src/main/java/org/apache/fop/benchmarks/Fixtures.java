@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.fo.FOEventHandler;
+import org.apache.fop.fo.FOText;
+import org.apache.fop.fo.flow.Block;
+import org.apache.fop.fo.pagination.Flow;
+import org.apache.fop.fo.pagination.PageSequence;
+import org.apache.fop.fonts.FontSetup;
+
+/**
+ * Provides the fixtures shared by the benchmarks. The documents are generated from a fixed
+ * seed so that every run processes exactly the same content.
+ */
+public final class Fixtures {
+
+    /** The name of the TrueType font used by the font benchmarks. */
+    public static final String TRUETYPE_FONT = "DejaVuLGCSerif.ttf";
+
+    private static final long SEED = 20170401L;
+
+    private static final String[] WORDS = {
+        "the", "of", "and", "a", "to", "in", "is", "formatting", "objects", "processor",
+        "page", "layout", "area", "tree", "block", "inline", "table", "column", "hyphenation",
+        "property", "inheritance", "specification", "rendering", "document", "output", "font",
+        "glyph", "kerning", "justification", "paragraph", "knuth", "plass", "algorithm", "line",
+        "breaking", "penalty", "stretch", "shrink", "footnote", "marker", "region", "body",
+        "before", "after", "start", "end", "extensible", "stylesheet", "language", "transformation",
+        "with", "for", "that", "which", "are", "be", "as", "on", "by", "this", "an", "from",
+        "internationalization", "bidirectional", "typographic", "characteristics", "measurement"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns a new factory resolving relative URIs against the working directory.
+     * @return the factory
+     */
+    public static FopFactory createFopFactory() {
+        return FopFactory.newInstance(new File(".").toURI());
+    }
+
+    /**
+     * Creates an FO document with a mix of justified paragraphs with inline formatting,
+     * tables and lists, typical of a business report.
+     * @param paragraphs the number of paragraphs in the flow
+     * @return the document, encoded in UTF-8
+     */
+    public static byte[] createDocument(int paragraphs) {
+        Random random = new Random(SEED);
+        StringBuilder fo = new StringBuilder();
+        fo.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        fo.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\" font-family=\"sans-serif\"");
+        fo.append(" font-size=\"10pt\" line-height=\"1.3\">\n");
+        fo.append("<fo:layout-master-set>\n");
+        fo.append("<fo:simple-page-master master-name=\"A4\" page-width=\"210mm\" page-height=\"297mm\"");
+        fo.append(" margin=\"15mm 20mm\">\n");
+        fo.append("<fo:region-body margin-top=\"15mm\" margin-bottom=\"15mm\"/>\n");
+        fo.append("<fo:region-before extent=\"10mm\"/>\n");
+        fo.append("<fo:region-after extent=\"10mm\"/>\n");
+        fo.append("</fo:simple-page-master>\n");
+        fo.append("</fo:layout-master-set>\n");
+        fo.append("<fo:page-sequence master-reference=\"A4\">\n");
+        fo.append("<fo:static-content flow-name=\"xsl-region-before\">\n");
+        fo.append("<fo:block text-align=\"end\" font-size=\"8pt\" border-bottom=\"0.5pt solid black\">");
+        fo.append("Benchmark report</fo:block>\n");
+        fo.append("</fo:static-content>\n");
+        fo.append("<fo:static-content flow-name=\"xsl-region-after\">\n");
+        fo.append("<fo:block text-align=\"center\" font-size=\"8pt\">Page <fo:page-number/></fo:block>\n");
+        fo.append("</fo:static-content>\n");
+        fo.append("<fo:flow flow-name=\"xsl-region-body\">\n");
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 10 == 0) {
+                fo.append("<fo:block font-size=\"14pt\" font-weight=\"bold\" space-before=\"12pt\"");
+                fo.append(" space-after=\"6pt\" keep-with-next=\"always\">Section ").append(i / 10 + 1);
+                fo.append(' ');
+                appendWords(fo, random, 4);
+                fo.append("</fo:block>\n");
+            }
+            fo.append("<fo:block text-align=\"justify\" space-after=\"6pt\" text-indent=\"1em\">");
+            int words = 60 + random.nextInt(80);
+            for (int w = 0; w < words; w += 10) {
+                if (random.nextInt(4) == 0) {
+                    fo.append("<fo:inline font-weight=\"bold\">");
+                    appendWords(fo, random, 3);
+                    fo.append("</fo:inline> ");
+                }
+                appendWords(fo, random, 10);
+                fo.append(' ');
+            }
+            fo.append("</fo:block>\n");
+            if (i % 10 == 4) {
+                appendTable(fo, random);
+            } else if (i % 10 == 8) {
+                appendList(fo, random);
+            }
+        }
+        fo.append("</fo:flow>\n");
+        fo.append("</fo:page-sequence>\n");
+        fo.append("</fo:root>\n");
+        try {
+            return fo.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a text made of the same words as the generated documents.
+     * @param words the number of words
+     * @return the text
+     */
+    public static String createText(int words) {
+        StringBuilder sb = new StringBuilder();
+        appendWords(sb, new Random(SEED), words);
+        return sb.toString();
+    }
+
+    private static void appendWords(StringBuilder sb, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    private static void appendTable(StringBuilder fo, Random random) {
+        fo.append("<fo:table table-layout=\"fixed\" width=\"100%\" space-after=\"6pt\">\n");
+        fo.append("<fo:table-column column-width=\"proportional-column-width(2)\"/>\n");
+        fo.append("<fo:table-column column-width=\"proportional-column-width(1)\"/>\n");
+        fo.append("<fo:table-column column-width=\"proportional-column-width(1)\"/>\n");
+        fo.append("<fo:table-body>\n");
+        for (int row = 0; row < 6; row++) {
+            fo.append("<fo:table-row>\n");
+            for (int col = 0; col < 3; col++) {
+                fo.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\">");
+                fo.append("<fo:block>");
+                if (col == 0) {
+                    appendWords(fo, random, 5);
+                } else {
+                    fo.append(random.nextInt(100000) / 100.0);
+                }
+                fo.append("</fo:block></fo:table-cell>\n");
+            }
+            fo.append("</fo:table-row>\n");
+        }
+        fo.append("</fo:table-body>\n");
+        fo.append("</fo:table>\n");
+    }
+
+    private static void appendList(StringBuilder fo, Random random) {
+        fo.append("<fo:list-block provisional-distance-between-starts=\"1.5em\" space-after=\"6pt\">\n");
+        for (int item = 0; item < 4; item++) {
+            fo.append("<fo:list-item><fo:list-item-label end-indent=\"label-end()\">");
+            fo.append("<fo:block>&#x2022;</fo:block></fo:list-item-label>");
+            fo.append("<fo:list-item-body start-indent=\"body-start()\"><fo:block>");
+            appendWords(fo, random, 15);
+            fo.append("</fo:block></fo:list-item-body></fo:list-item>\n");
+        }
+        fo.append("</fo:list-block>\n");
+    }
+
+    /**
+     * Runs the given FO document through a {@link Fop} instance.
+     * @param fop the processor
+     * @param document the FO document
+     * @throws Exception if the document cannot be processed
+     */
+    public static void process(Fop fop, byte[] document) throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.newSAXParser().parse(new ByteArrayInputStream(document), fop.getDefaultHandler());
+    }
+
+    /**
+     * Builds the FO tree of the given document without laying it out.
+     * @param fopFactory the factory
+     * @param document the FO document
+     * @return the event handler that collected the formatting objects of the document
+     * @throws Exception if the document cannot be processed
+     */
+    public static CollectingFOEventHandler buildFOTree(FopFactory fopFactory, byte[] document)
+            throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        CollectingFOEventHandler handler = new CollectingFOEventHandler(userAgent);
+        userAgent.setFOEventHandlerOverride(handler);
+        process(fopFactory.newFop(userAgent), document);
+        return handler;
+    }
+
+    /**
+     * Renders the given FO document to the specified output format.
+     * @param fopFactory the factory
+     * @param outputFormat the MIME type of the output format
+     * @param document the FO document
+     * @return the rendered document
+     * @throws Exception if the document cannot be processed
+     */
+    public static byte[] render(FopFactory fopFactory, String outputFormat, byte[] document)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        process(fopFactory.newFop(outputFormat, out), document);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the TrueType font used by the font benchmarks.
+     * @return the font file contents
+     * @throws IOException if the font cannot be read
+     */
+    public static byte[] loadTrueTypeFont() throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream(TRUETYPE_FONT);
+        if (in == null) {
+            throw new IOException("Font " + TRUETYPE_FONT + " not found in the class path");
+        }
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes the TrueType font used by the font benchmarks to a temporary file, for the APIs
+     * that load fonts by URI.
+     * @return the temporary file, deleted when the VM exits
+     * @throws IOException if the font cannot be written
+     */
+    public static File createTrueTypeFontFile() throws IOException {
+        File file = File.createTempFile("fop-benchmark", ".ttf");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(loadTrueTypeFont());
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        return file;
+    }
+
+    /**
+     * FOEventHandler that only builds the FO tree, using the base 14 fonts, and keeps
+     * references to the formatting objects the benchmarks work on.
+     */
+    public static class CollectingFOEventHandler extends FOEventHandler {
+
+        private PageSequence pageSequence;
+
+        private Flow flow;
+
+        private final List<Block> blocks = new ArrayList<Block>();
+
+        private final List<FOText> texts = new ArrayList<FOText>();
+
+        /**
+         * Creates a new handler.
+         * @param userAgent the user agent
+         */
+        public CollectingFOEventHandler(FOUserAgent userAgent) {
+            super(userAgent);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startDocument() {
+            FontSetup.setup(fontInfo, true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startPageSequence(PageSequence pageSeq) {
+            if (pageSequence == null) {
+                pageSequence = pageSeq;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startFlow(Flow fl) {
+            if (flow == null) {
+                flow = fl;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startBlock(Block bl) {
+            blocks.add(bl);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void characters(FOText foText) {
+            texts.add(foText);
+        }
+
+        /** @return the first page-sequence of the document */
+        public PageSequence getPageSequence() {
+            return pageSequence;
+        }
+
+        /** @return the first flow of the document */
+        public Flow getFlow() {
+            return flow;
+        }
+
+        /** @return the blocks of the document, in document order */
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        /** @return the text nodes of the document, in document order */
+        public List<FOText> getTexts() {
+            return texts;
+        }
+    }
+
+    /**
+     * Checks that a fixture was set up as expected.
+     * @param condition the condition to check
+     * @param message the message of the exception thrown if the condition is false
+     * @throws FOPException if the condition is false
+     */
+    public static void check(boolean condition, String message) throws FOPException {
+        if (!condition) {
+            throw new FOPException(message);
+        }
+    }
+}
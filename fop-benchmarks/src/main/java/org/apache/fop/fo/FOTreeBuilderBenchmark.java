@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.benchmarks.Fixtures;
+
+/**
+ * Measures the construction of the FO tree by {@link FOTreeBuilder}, including the SAX parsing
+ * and the property resolution of every formatting object, but no layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FOTreeBuilderBenchmark {
+
+    @Param({ "50", "500" })
+    private int paragraphs;
+
+    private FopFactory fopFactory;
+
+    private byte[] document;
+
+    /** Generates the document. */
+    @Setup
+    public void setUp() {
+        fopFactory = Fixtures.createFopFactory();
+        document = Fixtures.createDocument(paragraphs);
+    }
+
+    /**
+     * Builds the FO tree of the document.
+     * @return the number of text nodes in the tree
+     * @throws Exception if the document cannot be processed
+     */
+    @Benchmark
+    public int buildFOTree() throws Exception {
+        return Fixtures.buildFOTree(fopFactory, document).getTexts().size();
+    }
+}
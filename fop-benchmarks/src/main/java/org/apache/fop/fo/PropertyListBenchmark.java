@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.benchmarks.Fixtures;
+import org.apache.fop.benchmarks.Fixtures.CollectingFOEventHandler;
+import org.apache.fop.fo.flow.Block;
+import org.apache.fop.fo.pagination.PageSequence;
+
+/**
+ * Measures the creation of the {@link PropertyList} of a block: conversion of the attributes
+ * to properties, then resolution of all the block's properties, including inherited and
+ * default values and expressions, when binding them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertyListBenchmark {
+
+    private Block block;
+
+    private PropertyList parentPropertyList;
+
+    private AttributesImpl simpleAttributes;
+
+    private AttributesImpl complexAttributes;
+
+    /**
+     * Builds the property lists of the ancestors of a block.
+     * @throws Exception if the fixture cannot be created
+     */
+    @Setup
+    public void setUp() throws Exception {
+        CollectingFOEventHandler handler = Fixtures.buildFOTree(Fixtures.createFopFactory(),
+                Fixtures.createDocument(1));
+        PageSequence pageSequence = handler.getPageSequence();
+        block = handler.getBlocks().get(handler.getBlocks().size() - 1);
+        Fixtures.check(block.getParent() == handler.getFlow(), "The block is not a child of the flow");
+
+        AttributesImpl rootAttributes = new AttributesImpl();
+        addAttribute(rootAttributes, "font-family", "sans-serif");
+        addAttribute(rootAttributes, "font-size", "10pt");
+        addAttribute(rootAttributes, "line-height", "1.3");
+        PropertyList rootList = new StaticPropertyList(pageSequence.getRoot(), null);
+        rootList.addAttributesToList(rootAttributes);
+        PropertyList pageSequenceList = new StaticPropertyList(pageSequence, rootList);
+        pageSequenceList.addAttributesToList(new AttributesImpl());
+        parentPropertyList = new StaticPropertyList(handler.getFlow(), pageSequenceList);
+        parentPropertyList.addAttributesToList(new AttributesImpl());
+
+        simpleAttributes = new AttributesImpl();
+        addAttribute(simpleAttributes, "text-align", "justify");
+
+        complexAttributes = new AttributesImpl();
+        addAttribute(complexAttributes, "font-size", "from-parent(font-size) * 1.2");
+        addAttribute(complexAttributes, "font-weight", "bold");
+        addAttribute(complexAttributes, "margin", "2mm 1cm");
+        addAttribute(complexAttributes, "space-before", "12pt");
+        addAttribute(complexAttributes, "space-after.optimum", "6pt");
+        addAttribute(complexAttributes, "border", "0.5pt solid rgb(128, 0, 0)");
+        addAttribute(complexAttributes, "padding", "2pt 4pt");
+        addAttribute(complexAttributes, "text-indent", "2em");
+        addAttribute(complexAttributes, "keep-with-next.within-page", "always");
+        addAttribute(complexAttributes, "color", "#336699");
+    }
+
+    private static void addAttribute(AttributesImpl attributes, String name, String value) {
+        attributes.addAttribute("", name, name, "CDATA", value);
+    }
+
+    private Block bind(AttributesImpl attributes) throws Exception {
+        PropertyList propertyList = new StaticPropertyList(block, parentPropertyList);
+        propertyList.addAttributesToList(attributes);
+        block.bind(propertyList);
+        return block;
+    }
+
+    /**
+     * Resolves the properties of a block with a single attribute.
+     * @return the block
+     * @throws Exception if a property cannot be resolved
+     */
+    @Benchmark
+    public Block bindSimpleBlock() throws Exception {
+        return bind(simpleAttributes);
+    }
+
+    /**
+     * Resolves the properties of a block with shorthands, compound properties and expressions.
+     * @return the block
+     * @throws Exception if a property cannot be resolved
+     */
+    @Benchmark
+    public Block bindComplexBlock() throws Exception {
+        return bind(complexAttributes);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts.truetype;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.benchmarks.Fixtures;
+
+/**
+ * Measures the creation of a font subset by {@link TTFSubSetFile}, as done when a TrueType
+ * font is embedded in a PDF document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TTFSubSetFileBenchmark {
+
+    @Param({ "100", "1000" })
+    private int glyphCount;
+
+    private byte[] font;
+
+    private Map<Integer, Integer> glyphs;
+
+    /**
+     * Loads the font and selects the glyphs of the subset.
+     * @throws IOException if the font cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        font = Fixtures.loadTrueTypeFont();
+        glyphs = new HashMap<Integer, Integer>();
+        //like MultiByteCIDFont, map the used glyphs to consecutive indices starting with .notdef
+        glyphs.put(0, 0);
+        for (int i = 1; i < glyphCount; i++) {
+            glyphs.put(i * 2, i);
+        }
+    }
+
+    /**
+     * Reads the font and creates the subset.
+     * @return the subset font file
+     * @throws IOException if the font cannot be read
+     */
+    @Benchmark
+    public byte[] createSubset() throws IOException {
+        FontFileReader reader = new FontFileReader(new ByteArrayInputStream(font));
+        String header = OFFontLoader.readHeader(reader);
+        TTFSubSetFile subset = new TTFSubSetFile();
+        subset.readFont(reader, "DejaVuLGCSerif", header, glyphs);
+        return subset.getFontSubset();
+    }
+}
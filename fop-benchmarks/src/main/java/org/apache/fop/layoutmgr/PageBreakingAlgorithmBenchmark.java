@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.layoutmgr.AbstractBreaker.BlockSequence;
+import org.apache.fop.traits.MinOptMax;
+
+/**
+ * Measures the page breaking of a flow by {@link PageBreakingAlgorithm}. The block list is
+ * shaped like the one the block-level layout managers create for a sequence of headings and
+ * paragraphs, with widow and orphan control, keeps and stretchable spaces between paragraphs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageBreakingAlgorithmBenchmark {
+
+    /** The height of the body region of an A4 page with 15mm + 15mm margins, in millipoints */
+    private static final int PAGE_BPD = 671811;
+
+    private static final int LINE_HEIGHT = 13000;
+
+    private static final int LINE_WIDTH = 481890;
+
+    @Param({ "100", "1000" })
+    private int paragraphs;
+
+    private BlockSequence blockList;
+
+    /** Creates the block list. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(paragraphs);
+        blockList = new BlockSequence(Constants.EN_ANY, Constants.EN_BEFORE);
+        blockList.add(new KnuthPenalty(0, 0, false, null, true));
+        for (int i = 0; i < paragraphs; i++) {
+            if (i > 0) {
+                blockList.add(new KnuthPenalty(0, 0, false, null, false));
+                blockList.add(new KnuthGlue(6000, 2000, 1000, null, false));
+            }
+            if (i % 10 == 0) {
+                addLines(1, 18000);
+                blockList.add(new KnuthPenalty(0, KnuthElement.INFINITE, false, null, false));
+                blockList.add(new KnuthGlue(6000, 0, 0, null, false));
+            }
+            addLines(3 + random.nextInt(10), LINE_HEIGHT);
+        }
+        blockList.endSequence();
+    }
+
+    private void addLines(int count, int lineHeight) {
+        for (int line = 0; line < count; line++) {
+            if (line > 0) {
+                //widows and orphans = 2
+                boolean allowed = line > 1 && line < count - 1;
+                blockList.add(new KnuthPenalty(0, allowed ? 0 : KnuthElement.INFINITE,
+                        false, null, false));
+            }
+            blockList.add(new KnuthBlockBox(lineHeight, MinOptMax.getInstance(LINE_WIDTH), LINE_WIDTH,
+                    null, false));
+        }
+    }
+
+    /**
+     * Finds the optimal page breaks of the block list.
+     * @return the number of pages
+     */
+    @Benchmark
+    public int findBreakingPoints() {
+        PageBreakingAlgorithm algorithm = new PageBreakingAlgorithm(null, null, null,
+                Constants.EN_START, Constants.EN_START, MinOptMax.ZERO, true, false, false);
+        algorithm.setConstantLineWidth(PAGE_BPD);
+        return algorithm.findBreakingPoints(blockList, 1, 1, true, BreakingAlgorithm.ALL_BREAKS);
+    }
+}
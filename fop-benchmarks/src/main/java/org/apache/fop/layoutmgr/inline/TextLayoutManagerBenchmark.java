@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr.inline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.benchmarks.Fixtures;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FOText;
+import org.apache.fop.layoutmgr.KnuthSequence;
+import org.apache.fop.layoutmgr.LayoutContext;
+
+/**
+ * Measures {@link TextLayoutManager#getNextKnuthElements(LayoutContext, int)}, which turns
+ * the text of a document into Knuth boxes, glues and penalties for the line breaker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextLayoutManagerBenchmark {
+
+    private static final int PARAGRAPHS = 50;
+
+    private final List<FOText> texts = new ArrayList<FOText>();
+
+    /**
+     * Builds the FO tree of the document and keeps its text nodes.
+     * @throws Exception if the document cannot be processed
+     */
+    @Setup
+    public void setUp() throws Exception {
+        for (FOText text : Fixtures.buildFOTree(Fixtures.createFopFactory(),
+                Fixtures.createDocument(PARAGRAPHS)).getTexts()) {
+            if (text.length() > 0) {
+                texts.add(text);
+            }
+        }
+        Fixtures.check(!texts.isEmpty(), "The document has no text");
+    }
+
+    /**
+     * Creates the Knuth elements of all the text nodes of the document.
+     * @return the number of elements created
+     */
+    @Benchmark
+    public int getNextKnuthElements() {
+        int count = 0;
+        for (FOText text : texts) {
+            TextLayoutManager textLM = new TextLayoutManager(text);
+            textLM.initialize();
+            List sequences = textLM.getNextKnuthElements(LayoutContext.newInstance(), Constants.EN_JUSTIFY);
+            for (Object sequence : sequences) {
+                count += ((KnuthSequence) sequence).size();
+            }
+        }
+        return count;
+    }
+}
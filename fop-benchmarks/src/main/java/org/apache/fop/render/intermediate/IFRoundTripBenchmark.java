@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.benchmarks.Fixtures;
+
+/**
+ * Measures a round-trip through the intermediate format: the IF document is parsed by
+ * {@link IFParser} and written again by {@link IFSerializer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IFRoundTripBenchmark {
+
+    private static final int PARAGRAPHS = 100;
+
+    private FopFactory fopFactory;
+
+    private byte[] intermediateFormat;
+
+    /**
+     * Lays out the document into the intermediate format.
+     * @throws Exception if the document cannot be processed
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = Fixtures.createFopFactory();
+        intermediateFormat = Fixtures.render(fopFactory, MimeConstants.MIME_FOP_IF,
+                Fixtures.createDocument(PARAGRAPHS));
+    }
+
+    /**
+     * Parses the intermediate format and serializes it again.
+     * @return the serialized document
+     * @throws Exception if the document cannot be parsed
+     */
+    @Benchmark
+    public byte[] parseAndSerialize() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        IFSerializer serializer = new IFSerializer(new IFContext(userAgent));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(intermediateFormat.length);
+        serializer.setResult(new StreamResult(out));
+        new IFParser().parse(new StreamSource(new ByteArrayInputStream(intermediateFormat)),
+                serializer, userAgent);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.pdf;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.benchmarks.Fixtures;
+import org.apache.fop.fonts.EmbedFontInfo;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.fonts.FontSetup;
+import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.fonts.FontUris;
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFPainter;
+
+/**
+ * Measures {@link PDFPainter#drawText(int, int, int, int, int[][], String)} by drawing a page
+ * of text, with a base 14 font and with an embedded TrueType font.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PDFPainterBenchmark {
+
+    private static final String TRUETYPE_FAMILY = "DejaVu";
+
+    private static final int LINES_PER_PAGE = 50;
+
+    private static final int WORDS_PER_LINE = 12;
+
+    private static final Dimension PAGE_SIZE = new Dimension(595275, 841889);
+
+    @Param({ "Helvetica", TRUETYPE_FAMILY })
+    private String fontFamily;
+
+    private String[] lines;
+
+    private PDFDocumentHandler documentHandler;
+
+    private int pageIndex;
+
+    /**
+     * Sets up the fonts and starts the PDF document.
+     * @throws Exception if the document cannot be started
+     */
+    @Setup
+    public void setUp() throws Exception {
+        String text = Fixtures.createText(LINES_PER_PAGE * WORDS_PER_LINE);
+        lines = new String[LINES_PER_PAGE];
+        int start = 0;
+        for (int i = 0; i < LINES_PER_PAGE; i++) {
+            int end = start;
+            for (int w = 0; w < WORDS_PER_LINE && end >= 0; w++) {
+                end = text.indexOf(' ', end + 1);
+            }
+            lines[i] = (end < 0 ? text.substring(start) : text.substring(start, end));
+            start = end + 1;
+        }
+
+        File fontFile = Fixtures.createTrueTypeFontFile();
+        EmbedFontInfo fontInfo = new EmbedFontInfo(new FontUris(fontFile.toURI(), null), true, true,
+                Collections.singletonList(new FontTriplet(TRUETYPE_FAMILY, "normal", 400)), null);
+        FontInfo fonts = new FontInfo();
+        FontSetup.setup(fonts, Collections.singletonList(fontInfo),
+                ResourceResolverFactory.createDefaultInternalResourceResolver(fontFile.getParentFile().toURI()),
+                true);
+
+        documentHandler = new PDFDocumentHandler(new IFContext(
+                Fixtures.createFopFactory().newFOUserAgent()));
+        documentHandler.setResult(new StreamResult(new NullOutputStream()));
+        documentHandler.setFontInfo(fonts);
+        documentHandler.startDocument();
+        documentHandler.startPageSequence(null);
+    }
+
+    /**
+     * Ends the PDF document.
+     * @throws IFException if the document cannot be ended
+     */
+    @TearDown
+    public void tearDown() throws IFException {
+        documentHandler.endPageSequence();
+        documentHandler.endDocument();
+    }
+
+    /**
+     * Draws a page of text.
+     * @return the index of the page
+     * @throws IFException if the text cannot be drawn
+     */
+    @Benchmark
+    public int drawText() throws IFException {
+        documentHandler.startPage(pageIndex, "", "", PAGE_SIZE);
+        IFPainter painter = documentHandler.startPageContent();
+        painter.setFont(fontFamily, "normal", 400, "normal", 10000, Color.BLACK);
+        for (int i = 0; i < lines.length; i++) {
+            painter.drawText(56693, 56693 + i * 13000, 0, 0, null, lines[i]);
+        }
+        documentHandler.endPageContent();
+        documentHandler.endPage();
+        return pageIndex++;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.fop.apps;
 
 // Java
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
@@ -56,6 +57,8 @@ import org.apache.fop.events.LoggingEventListener;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fo.FOEventHandler;
 import org.apache.fop.fonts.FontManager;
+import org.apache.fop.fonts.FontSubsetCache;
+import org.apache.fop.image.ImagePrefetcher;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.Renderer;
@@ -104,6 +107,12 @@ public class FOUserAgent {
     private FOEventHandler foEventHandlerOverride;
     private boolean locatorEnabled = true; // true by default (for error messages).
     private boolean conserveMemoryPolicy;
+    private boolean pipelinedRendering;
+    private boolean deferredPageNumberCitations;
+    private int pageBreakingLookahead;
+    private int imagePrefetchThreads;
+    private ImagePrefetcher imagePrefetcher;
+    private RenderTemplate renderTemplate;
     private EventBroadcaster eventBroadcaster = new FOPEventBroadcaster();
     private StructureTreeEventHandler structureTreeEventHandler
             = DummyStructureTreeEventHandler.INSTANCE;
@@ -161,6 +170,21 @@ public class FOUserAgent {
             public Source resolveURI(String uri) {
                 return FOUserAgent.this.resolveURI(uri);
             }
+
+            //The session may be used by the layout and the rendering thread at the same
+            //time when rendering is pipelined.
+
+            public synchronized Source getSource(String uri) {
+                return super.getSource(uri);
+            }
+
+            public synchronized Source needSource(String uri) throws FileNotFoundException {
+                return super.needSource(uri);
+            }
+
+            public synchronized void returnSource(String uri, Source src) {
+                super.returnSource(uri, src);
+            }
         };
     }
 
@@ -615,7 +639,7 @@ public class FOUserAgent {
         }
 
         /** {@inheritDoc} */
-        public void broadcastEvent(Event event) {
+        public synchronized void broadcastEvent(Event event) {
             rootListener.processEvent(event);
         }
 
@@ -639,6 +663,129 @@ public class FOUserAgent {
         this.conserveMemoryPolicy = conserveMemoryPolicy;
     }
 
+    /**
+     * Check whether pipelined rendering is enabled.
+     *
+     * @return true if finished pages are rendered on a separate thread
+     */
+    public boolean isPipelinedRenderingEnabled() {
+        return this.pipelinedRendering;
+    }
+
+    /**
+     * Returns the template this user agent was created from.
+     * @return the render template, or null if this user agent wasn't created from a template
+     * @see FopFactory#newRenderTemplate(String)
+     */
+    public RenderTemplate getRenderTemplate() {
+        return this.renderTemplate;
+    }
+
+    void setRenderTemplate(RenderTemplate renderTemplate) {
+        this.renderTemplate = renderTemplate;
+    }
+
+    /**
+     * Control whether finished pages should be rendered on a separate thread while the
+     * layout engine continues with the following pages. The pages are still rendered one
+     * at a time and in order, but page breaking and output generation run concurrently.
+     * Event listeners registered with this user agent may then be called from the
+     * rendering thread. Pipelined rendering is not used if accessibility is enabled.
+     *
+     * @param pipelinedRendering true to enable pipelined rendering
+     */
+    public void setPipelinedRendering(boolean pipelinedRendering) {
+        this.pipelinedRendering = pipelinedRendering;
+    }
+
+    /**
+     * Check whether page number citations may be deferred.
+     *
+     * @return true if pages with unresolved page number citations may be rendered with
+     * placeholders for the page numbers
+     */
+    public boolean isDeferredPageNumberCitationsEnabled() {
+        return this.deferredPageNumberCitations;
+    }
+
+    /**
+     * Control whether a page whose only unresolved references are page number citations
+     * (for example to the last page of the document) may be rendered right away, with
+     * placeholders that are filled in with the page numbers at the end of the document.
+     * Otherwise the page is held in memory until the citations are resolved. The space
+     * reserved for a deferred page number is not adjusted to its actual width, so the text
+     * around it is not realigned. Deferral is only supported by the PDF output, and not with
+     * accessibility or linearization enabled.
+     *
+     * @param deferredPageNumberCitations true to defer page number citations
+     */
+    public void setDeferredPageNumberCitations(boolean deferredPageNumberCitations) {
+        this.deferredPageNumberCitations = deferredPageNumberCitations;
+    }
+
+    /**
+     * Returns the number of pages the page breaking may look ahead of the pages it has
+     * already laid out.
+     *
+     * @return the maximum lookahead in pages, 0 if it is not bounded
+     */
+    public int getPageBreakingLookahead() {
+        return this.pageBreakingLookahead;
+    }
+
+    /**
+     * Bounds the number of pages the page breaking may look ahead of the pages it has
+     * already laid out. By default, no page of a page-sequence is laid out before the breaks
+     * of the whole page-sequence have been determined. With a bounded lookahead, pages are
+     * laid out and passed on for rendering as soon as their breaks are settled, and the
+     * breaking algorithm only keeps the candidate breaks within the lookahead. The FO tree
+     * and the elements of the whole page-sequence are still built before its pages are
+     * broken. The breaks may differ slightly from the optimal ones. The lookahead is not
+     * bounded for a page-sequence with a last or only page-master, or with floats, or for
+     * column balancing.
+     *
+     * @param pageBreakingLookahead the maximum lookahead in pages, 0 not to bound it
+     */
+    public void setPageBreakingLookahead(int pageBreakingLookahead) {
+        this.pageBreakingLookahead = pageBreakingLookahead;
+    }
+
+    /**
+     * Returns the number of threads external graphics are preloaded on.
+     *
+     * @return the number of threads, 0 if external graphics are preloaded when they are
+     *          encountered
+     */
+    public int getImagePrefetchThreads() {
+        return this.imagePrefetchThreads;
+    }
+
+    /**
+     * Sets the number of threads external graphics are preloaded on. By default, the
+     * intrinsic size of an external graphic is determined as soon as the graphic is encountered
+     * in the FO document, which blocks the processing of the document while the image is being
+     * fetched. With prefetching enabled, the image is preloaded in the background while the
+     * document is being parsed, and the layout only waits for it if it isn't preloaded yet when
+     * its size is needed.
+     *
+     * @param imagePrefetchThreads the number of threads, 0 to disable prefetching
+     */
+    public void setImagePrefetchThreads(int imagePrefetchThreads) {
+        this.imagePrefetchThreads = imagePrefetchThreads;
+    }
+
+    /**
+     * Returns the image prefetcher for the rendering run of this user agent.
+     *
+     * @return the image prefetcher, or null if prefetching is disabled
+     */
+    public ImagePrefetcher getImagePrefetcher() {
+        if (imagePrefetcher == null && imagePrefetchThreads > 0) {
+            imagePrefetcher = new ImagePrefetcher(this, imagePrefetchThreads);
+        }
+        return this.imagePrefetcher;
+    }
+
     /**
      * Check whether complex script features are enabled.
      *
@@ -801,6 +948,11 @@ public class FOUserAgent {
         return factory.getColorSpaceCache();
     }
 
+    /** @see FopFactory#getFontSubsetCache() */
+    public FontSubsetCache getFontSubsetCache() {
+        return factory.getFontSubsetCache();
+    }
+
     /** @see FopFactory#getHyphenationPatternNames() */
     public Map<String, String> getHyphenationPatternNames() {
         return factory.getHyphenationPatternNames();
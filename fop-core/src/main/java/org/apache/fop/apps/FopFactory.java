@@ -44,6 +44,7 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.fo.ElementMapping;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fonts.FontManager;
+import org.apache.fop.fonts.FontSubsetCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.RendererConfig;
@@ -82,6 +83,8 @@ public final class FopFactory implements ImageContext {
 
     private final ColorSpaceCache colorSpaceCache;
 
+    private final FontSubsetCache fontSubsetCache;
+
     private final FopFactoryConfig config;
 
     private final InternalResourceResolver resolver;
@@ -94,6 +97,7 @@ public final class FopFactory implements ImageContext {
                 config.getResourceResolver());
         this.elementMappingRegistry = new ElementMappingRegistry(this);
         this.colorSpaceCache = new ColorSpaceCache(resolver);
+        this.fontSubsetCache = FontSubsetCache.createDefault();
         this.rendererFactory = new RendererFactory(config.preferRenderer());
         this.xmlHandlers = new XMLHandlerRegistry();
         this.imageHandlers = new ImageHandlerRegistry();
@@ -169,6 +173,18 @@ public final class FopFactory implements ImageContext {
         return userAgent;
     }
 
+    /**
+     * Returns a new template for rendering runs that all produce the given output format. The
+     * configuration shared by these rendering runs is set up once, when the template is created,
+     * instead of for every rendering run.
+     * @param outputFormat the MIME type of the output format to use (ex. "application/pdf").
+     * @return the new template
+     * @throws FOPException if the configuration for the output format cannot be set up
+     */
+    public RenderTemplate newRenderTemplate(String outputFormat) throws FOPException {
+        return new RenderTemplate(this, outputFormat);
+    }
+
     boolean isComplexScriptFeaturesEnabled() {
         return config.isComplexScriptFeaturesEnabled();
     }
@@ -436,4 +452,14 @@ public final class FopFactory implements ImageContext {
     public ColorSpaceCache getColorSpaceCache() {
         return this.colorSpaceCache;
     }
+
+    /**
+     * Returns the cache of the font subsets embedded in the documents created with this instance.
+     * <p>
+     * Note: this method should not be considered as part of FOP's external API.
+     * @return the font subset cache, or null if font subsets are not cached
+     */
+    public FontSubsetCache getFontSubsetCache() {
+        return this.fontSubsetCache;
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.fop.fonts.EmbedFontInfo;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.render.Renderer;
+import org.apache.fop.render.RendererFactory;
+
+/**
+ * A template for rendering runs that all produce the same output format with the same
+ * configuration. The work that only depends on the configuration, like the renderer
+ * configuration and the font configuration (which may involve the auto-detection of fonts
+ * and the scanning of font directories), is done once when the template is created and is
+ * then shared, read-only, by every {@link Fop} created from the template.
+ * <p>
+ * The fonts themselves are still instantiated for every rendering run, since they record the
+ * characters used by the document they are used in. Instances of this class are thread-safe
+ * and should be reused, like the {@link FopFactory} they are created from.
+ */
+public final class RenderTemplate {
+
+    private final FopFactory factory;
+
+    private final String outputFormat;
+
+    /** The configured font lists, per MIME type. Entries are never replaced once set. */
+    private final ConcurrentMap<String, List<EmbedFontInfo>> fontLists
+            = new ConcurrentHashMap<String, List<EmbedFontInfo>>();
+
+    /**
+     * Creates a new template and prepares the configuration for the given output format.
+     * @param factory the FOP factory
+     * @param outputFormat the MIME type of the output format
+     * @throws FOPException if the configuration cannot be set up
+     */
+    RenderTemplate(FopFactory factory, String outputFormat) throws FOPException {
+        this.factory = factory;
+        this.outputFormat = outputFormat;
+        prepare();
+    }
+
+    private void prepare() throws FOPException {
+        FOUserAgent userAgent = newFOUserAgent();
+        RendererFactory rendererFactory = factory.getRendererFactory();
+        if (rendererFactory.getFOEventHandlerMaker(outputFormat) != null) {
+            //The format doesn't use the area tree, so there's nothing to prepare
+            return;
+        }
+        //Setting up the fonts of a renderer builds the configuration the rendering runs need
+        Renderer renderer = rendererFactory.createRenderer(userAgent, outputFormat);
+        renderer.setupFontInfo(new FontInfo());
+    }
+
+    /** @return the FOP factory this template was created from */
+    public FopFactory getFopFactory() {
+        return factory;
+    }
+
+    /** @return the MIME type of the output format of this template */
+    public String getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Returns a new user agent for a rendering run using this template. The user agent may be
+     * used to set values particular to this rendering run, like the document metadata.
+     * @return the newly created user agent
+     */
+    public FOUserAgent newFOUserAgent() {
+        FOUserAgent userAgent = factory.newFOUserAgent();
+        userAgent.setRenderTemplate(this);
+        return userAgent;
+    }
+
+    /**
+     * Returns a new {@link Fop} instance for a rendering run using this template.
+     * @param stream the output stream
+     * @return the new Fop instance
+     * @throws FOPException when the constructor fails
+     */
+    public Fop newFop(OutputStream stream) throws FOPException {
+        return newFOUserAgent().newFop(outputFormat, stream);
+    }
+
+    /**
+     * Returns a new {@link Fop} instance for a rendering run using this template and the given
+     * user agent, which must have been created by {@link #newFOUserAgent()}.
+     * @param userAgent the user agent
+     * @param stream the output stream
+     * @return the new Fop instance
+     * @throws FOPException when the constructor fails
+     */
+    public Fop newFop(FOUserAgent userAgent, OutputStream stream) throws FOPException {
+        if (userAgent.getRenderTemplate() != this) {
+            throw new IllegalArgumentException("The user agent wasn't created by this template");
+        }
+        return userAgent.newFop(outputFormat, stream);
+    }
+
+    /**
+     * Returns the list of configured fonts for the given MIME type.
+     * @param mimeType the MIME type of the output format the fonts are configured for
+     * @return the font list, or null if it hasn't been configured yet
+     */
+    public List<EmbedFontInfo> getFontList(String mimeType) {
+        return fontLists.get(mimeType);
+    }
+
+    /**
+     * Records the list of configured fonts for the given MIME type, unless a list has already
+     * been recorded.
+     * @param mimeType the MIME type of the output format the fonts are configured for
+     * @param fontList the unmodifiable font list
+     * @return the font list that the rendering runs using this template must use
+     */
+    public List<EmbedFontInfo> putFontList(String mimeType, List<EmbedFontInfo> fontList) {
+        List<EmbedFontInfo> previous = fontLists.putIfAbsent(mimeType, fontList);
+        return previous != null ? previous : fontList;
+    }
+}
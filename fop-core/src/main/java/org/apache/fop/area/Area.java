@@ -21,7 +21,6 @@ package org.apache.fop.area;
 
 import java.io.Serializable;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -121,7 +120,7 @@ public class Area extends AreaTreeObject implements Serializable {
     /**
      * Traits for this area.
      */
-    protected TreeMap<Integer, Object> traits;
+    protected TraitMap traits;
 
     /**
      * logging instance
@@ -141,7 +140,7 @@ public class Area extends AreaTreeObject implements Serializable {
     public Object clone() throws CloneNotSupportedException {
         Area area = (Area) super.clone();
         if (traits != null) {
-            area.traits = (TreeMap<Integer, Object>) traits.clone();
+            area.traits = traits.clone();
         }
         return area;
     }
@@ -264,10 +263,7 @@ public class Area extends AreaTreeObject implements Serializable {
             margin = bps.width;
         }
 
-        Integer padWidth = (Integer) getTrait(Trait.PADDING_BEFORE);
-        if (padWidth != null) {
-            margin += padWidth;
-        }
+        margin += getTraitAsInteger(Trait.PADDING_BEFORE, 0);
 
         return margin;
     }
@@ -285,10 +281,7 @@ public class Area extends AreaTreeObject implements Serializable {
             margin = bps.width;
         }
 
-        Integer padWidth = (Integer) getTrait(Trait.PADDING_AFTER);
-        if (padWidth != null) {
-            margin += padWidth;
-        }
+        margin += getTraitAsInteger(Trait.PADDING_AFTER, 0);
 
         return margin;
     }
@@ -305,10 +298,7 @@ public class Area extends AreaTreeObject implements Serializable {
             margin = bps.width;
         }
 
-        Integer padWidth = (Integer) getTrait(Trait.PADDING_START);
-        if (padWidth != null) {
-            margin += padWidth;
-        }
+        margin += getTraitAsInteger(Trait.PADDING_START, 0);
 
         return margin;
     }
@@ -325,10 +315,7 @@ public class Area extends AreaTreeObject implements Serializable {
             margin = bps.width;
         }
 
-        Integer padWidth = (Integer) getTrait(Trait.PADDING_END);
-        if (padWidth != null) {
-            margin += padWidth;
-        }
+        margin += getTraitAsInteger(Trait.PADDING_END, 0);
 
         return margin;
     }
@@ -339,12 +326,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return width in millipoints
      */
     public int getSpaceBefore() {
-        int margin = 0;
-        Integer space = (Integer) getTrait(Trait.SPACE_BEFORE);
-        if (space != null) {
-            margin = space;
-        }
-        return margin;
+        return getTraitAsInteger(Trait.SPACE_BEFORE, 0);
     }
 
     /**
@@ -353,12 +335,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return width in millipoints
      */
     public int getSpaceAfter() {
-        int margin = 0;
-        Integer space = (Integer) getTrait(Trait.SPACE_AFTER);
-        if (space != null) {
-            margin = space;
-        }
-        return margin;
+        return getTraitAsInteger(Trait.SPACE_AFTER, 0);
     }
 
     /**
@@ -367,12 +344,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return width in millipoints
      */
     public int getSpaceStart() {
-        int margin = 0;
-        Integer space = (Integer) getTrait(Trait.SPACE_START);
-        if (space != null) {
-            margin = space;
-        }
-        return margin;
+        return getTraitAsInteger(Trait.SPACE_START, 0);
     }
 
     /**
@@ -381,12 +353,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return width in millipoints
      */
     public int getSpaceEnd() {
-        int margin = 0;
-        Integer space = (Integer) getTrait(Trait.SPACE_END);
-        if (space != null) {
-            margin = space;
-        }
-        return margin;
+        return getTraitAsInteger(Trait.SPACE_END, 0);
     }
 
     /**
@@ -406,11 +373,10 @@ public class Area extends AreaTreeObject implements Serializable {
      * @param prop the value of the trait
      */
     public void addTrait(Integer traitCode, Object prop) {
-        // use treemap since the typical number of traits are less than four
         if (traits == null) {
-            traits = new TreeMap<Integer, Object>();
+            traits = new TraitMap();
         }
-        traits.put(traitCode, prop);
+        traits.put(traitCode.intValue(), prop);
     }
 
     /**
@@ -420,7 +386,7 @@ public class Area extends AreaTreeObject implements Serializable {
      */
     public void setTraits(Map traits) {
         if (traits != null) {
-            this.traits = new TreeMap<Integer, Object>(traits);
+            this.traits = new TraitMap(traits);
         } else {
             this.traits = null;
         }
@@ -447,7 +413,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return the trait value
      */
     public Object getTrait(Integer traitCode) {
-        return (traits != null ? traits.get(traitCode) : null);
+        return (traits != null ? traits.get(traitCode.intValue()) : null);
     }
 
     /**
@@ -465,7 +431,7 @@ public class Area extends AreaTreeObject implements Serializable {
      * @return the trait value
      */
     public boolean getTraitAsBoolean(Integer traitCode) {
-        return Boolean.TRUE.equals(getTrait(traitCode));
+        return traits != null && traits.getBoolean(traitCode.intValue());
     }
 
     /**
@@ -485,6 +451,17 @@ public class Area extends AreaTreeObject implements Serializable {
         }
     }
 
+    /**
+     * Get a trait from this area as an integer.
+     *
+     * @param traitCode the trait key
+     * @param defaultValue the value returned if the trait is not set
+     * @return the trait value
+     */
+    public int getTraitAsInteger(Integer traitCode, int defaultValue) {
+        return (traits != null ? traits.getInt(traitCode.intValue(), defaultValue) : defaultValue);
+    }
+
     /**
      * Sets the writing mode traits for this area. Default implementation
      * does nothing.
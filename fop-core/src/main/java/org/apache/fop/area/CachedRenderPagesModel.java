@@ -97,8 +97,7 @@ public class CachedRenderPagesModel extends RenderPagesModel {
                     }
                 }
 
-                renderPage(pageViewport);
-                pageViewport.clear();
+                renderAndClearPage(pageViewport);
                 iter.remove();
             } else {
                 if (!renderer.supportsOutOfOrder()) {
@@ -106,7 +105,11 @@ public class CachedRenderPagesModel extends RenderPagesModel {
                 }
             }
         }
-        if (newpage != null && newpage.getPage() != null) {
+        // the new page is the last one in the list if it still has to wait for its
+        // references to be resolved; rendered pages may not have been cleared yet if
+        // rendering is pipelined
+        if (newpage != null && !prepared.isEmpty()
+                && prepared.get(prepared.size() - 1) == newpage) {
             savePage(newpage);
             newpage.clear();
         }
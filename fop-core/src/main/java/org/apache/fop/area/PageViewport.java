@@ -26,6 +26,7 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,6 +34,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.apps.FOPException;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
 import org.apache.fop.fo.flow.AbstractRetrieveMarker;
 import org.apache.fop.fo.flow.Marker;
 import org.apache.fop.fo.flow.Markers;
@@ -79,6 +81,9 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
 
     private Map<String, List<PageViewport>> pendingResolved;
 
+    // true if the page number citations on this page are resolved independently of the page
+    private boolean pageNumberCitationsDeferred;
+
     private Markers pageMarkers;
 
     /**
@@ -331,9 +336,38 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
                 new String[unresolvedIDRefs.keySet().size()]);
     }
 
+    /**
+     * Defers the page number citations on this page that are not resolved yet, so that the
+     * page can be rendered, with placeholders for the page numbers, and released before they
+     * are resolved. The citations are then resolved through
+     * {@link org.apache.fop.area.inline.DeferredPageNumber}s, which do not hold on to the
+     * contents of the page.
+     * @return true if the page can be rendered, i.e. if all the references on this page that
+     * are not resolved yet are page number citations, false if the page is left unchanged
+     */
+    public boolean deferPageNumberCitations() {
+        if (unresolvedIDRefs == null) {
+            return true;
+        }
+        for (List<Resolvable> resolvables : unresolvedIDRefs.values()) {
+            for (Resolvable res : resolvables) {
+                if (!(res instanceof UnresolvedPageNumber)) {
+                    return false;
+                }
+            }
+        }
+        for (List<Resolvable> resolvables : unresolvedIDRefs.values()) {
+            for (ListIterator<Resolvable> iter = resolvables.listIterator(); iter.hasNext();) {
+                iter.set(((UnresolvedPageNumber) iter.next()).defer());
+            }
+        }
+        pageNumberCitationsDeferred = true;
+        return true;
+    }
+
     /** {@inheritDoc} */
     public void resolveIDRef(String id, List<PageViewport> pages) {
-        if (page == null) {
+        if (page == null && !pageNumberCitationsDeferred) {
             if (pendingResolved == null) {
                 pendingResolved = new HashMap<String, List<PageViewport>>();
             }
@@ -22,6 +22,7 @@ package org.apache.fop.area;
 // Java
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -31,6 +32,7 @@ import org.xml.sax.SAXException;
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.render.DeferredPageNumberCitationRenderer;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererEventProducer;
 
@@ -41,8 +43,16 @@ import org.apache.fop.render.RendererEventProducer;
  * Once a page is rendered it is cleared to release the
  * contents but the PageViewport is retained. So even
  * though the pages are stored the contents are discarded.
+ * <p>
+ * If pipelined rendering is enabled on the user agent, all calls to the renderer are
+ * handed over to a dedicated rendering thread so the layout engine can continue with the
+ * next pages while the finished ones are being rendered.
  */
 public class RenderPagesModel extends AreaTreeModel {
+
+    /** Maximum number of renderer tasks that may be queued when rendering is pipelined. */
+    private static final int MAX_PENDING_RENDERER_TASKS = 8;
+
     /**
      * The renderer that will render the pages.
      */
@@ -56,6 +66,12 @@ public class RenderPagesModel extends AreaTreeModel {
     private List<OffDocumentItem> pendingODI = new java.util.ArrayList<OffDocumentItem>();
     private List<OffDocumentItem> endDocODI = new java.util.ArrayList<OffDocumentItem>();
 
+    /** Runs the renderer calls on the rendering thread, null if rendering isn't pipelined */
+    private RenderingPipeline pipeline;
+
+    /** True if pages may be rendered with placeholders for unresolved page number citations */
+    private boolean deferPageNumberCitations;
+
     /**
      * Create a new render pages model with the given renderer.
      * @param userAgent FOUserAgent object for process
@@ -82,11 +98,43 @@ public class RenderPagesModel extends AreaTreeModel {
         } catch (IOException e) {
             throw new FOPException(e);
         }
+
+        if (userAgent.isPipelinedRenderingEnabled()) {
+            if (userAgent.isAccessibilityEnabled()) {
+                //The structure tree is built into the output document while the FO tree
+                //is being processed, so the renderer must stay on the same thread.
+                log.warn("Pipelined rendering is not available with accessibility enabled."
+                        + " Pages will be rendered sequentially.");
+            } else {
+                pipeline = new RenderingPipeline(MAX_PENDING_RENDERER_TASKS);
+            }
+        }
+        deferPageNumberCitations = userAgent.isDeferredPageNumberCitationsEnabled()
+                && renderer instanceof DeferredPageNumberCitationRenderer
+                && ((DeferredPageNumberCitationRenderer) renderer).supportsDeferredPageNumberCitations();
+    }
+
+    /**
+     * Runs a task that calls the renderer. If rendering is pipelined, the task is queued for
+     * the rendering thread, otherwise it is run immediately. Tasks are always executed in the
+     * order they are submitted.
+     * @param task the task to run
+     */
+    protected void runRendererTask(Runnable task) {
+        if (pipeline != null) {
+            pipeline.execute(task);
+        } else {
+            task.run();
+        }
     }
 
     @Override
-    public void setDocumentLocale(Locale locale) {
-        renderer.setDocumentLocale(locale);
+    public void setDocumentLocale(final Locale locale) {
+        runRendererTask(new Runnable() {
+            public void run() {
+                renderer.setDocumentLocale(locale);
+            }
+        });
     }
 
     /** {@inheritDoc} */
@@ -94,10 +142,18 @@ public class RenderPagesModel extends AreaTreeModel {
     public void startPageSequence(PageSequence pageSequence) {
         super.startPageSequence(pageSequence);
         if (renderer.supportsOutOfOrder()) {
-            renderer.startPageSequence(getCurrentPageSequence());
+            startRendererPageSequence(getCurrentPageSequence());
         }
     }
 
+    private void startRendererPageSequence(final PageSequence pageSequence) {
+        runRendererTask(new Runnable() {
+            public void run() {
+                renderer.startPageSequence(pageSequence);
+            }
+        });
+    }
+
     /**
      * Add a page to the render page model.
      * If the page is finished it can be rendered immediately.
@@ -107,36 +163,25 @@ public class RenderPagesModel extends AreaTreeModel {
      * @param page the page to add to the model
      */
     @Override
-    public void addPage(PageViewport page) {
+    public void addPage(final PageViewport page) {
         super.addPage(page);
 
         // for links the renderer needs to prepare the page
         // it is more appropriate to do this after queued pages but
         // it will mean that the renderer has not prepared a page that
         // could be referenced
-        boolean ready = renderer.supportsOutOfOrder() && page.isResolved();
+        // a page that only waits for page number citations is rendered with placeholders
+        boolean ready = renderer.supportsOutOfOrder()
+                && (page.isResolved() || deferPageNumberCitations && page.deferPageNumberCitations());
         if (ready) {
             if (!renderer.supportsOutOfOrder() && page.getPageSequence().isFirstPage(page)) {
-                renderer.startPageSequence(getCurrentPageSequence());
+                startRendererPageSequence(getCurrentPageSequence());
             }
-            try {
-                renderer.renderPage(page);
-            } catch (RuntimeException re) {
-                String err = "Error while rendering page " + page.getPageNumberString();
-                log.error(err, re);
-                throw re;
-            } catch (IOException ioe) {
-                RendererEventProducer eventProducer = RendererEventProducer.Provider.get(
-                        renderer.getUserAgent().getEventBroadcaster());
-                eventProducer.ioError(this, ioe);
-            } catch (FOPException e) {
-                //TODO use error handler to handle this FOPException or propagate exception
-                String err = "Error while rendering page " + page.getPageNumberString();
-                log.error(err, e);
-                throw new IllegalStateException("Fatal error occurred. Cannot continue. "
-                        + e.getClass().getName() + ": " + err);
-            }
-            page.clear();
+            runRendererTask(new Runnable() {
+                public void run() {
+                    renderResolvedPage(page);
+                }
+            });
         } else {
             preparePage(page);
         }
@@ -151,6 +196,27 @@ public class RenderPagesModel extends AreaTreeModel {
         }
     }
 
+    private void renderResolvedPage(PageViewport page) {
+        try {
+            renderer.renderPage(page);
+        } catch (RuntimeException re) {
+            String err = "Error while rendering page " + page.getPageNumberString();
+            log.error(err, re);
+            throw re;
+        } catch (IOException ioe) {
+            RendererEventProducer eventProducer = RendererEventProducer.Provider.get(
+                    renderer.getUserAgent().getEventBroadcaster());
+            eventProducer.ioError(this, ioe);
+        } catch (FOPException e) {
+            //TODO use error handler to handle this FOPException or propagate exception
+            String err = "Error while rendering page " + page.getPageNumberString();
+            log.error(err, e);
+            throw new IllegalStateException("Fatal error occurred. Cannot continue. "
+                    + e.getClass().getName() + ": " + err);
+        }
+        page.clear();
+    }
+
     /**
      * Check prepared pages
      *
@@ -169,10 +235,9 @@ public class RenderPagesModel extends AreaTreeModel {
             if (pageViewport.isResolved() || renderUnresolved) {
                 if (!renderer.supportsOutOfOrder()
                         && pageViewport.getPageSequence().isFirstPage(pageViewport)) {
-                    renderer.startPageSequence(pageViewport.getPageSequence());
+                    startRendererPageSequence(pageViewport.getPageSequence());
                 }
-                renderPage(pageViewport);
-                pageViewport.clear();
+                renderAndClearPage(pageViewport);
                 iter.remove();
             } else {
                 // if keeping order then stop at first page not resolved
@@ -211,25 +276,48 @@ public class RenderPagesModel extends AreaTreeModel {
         }
     }
 
+    /**
+     * Renders the given page through {@link #renderPage(PageViewport)} and releases its
+     * contents afterwards. If rendering is pipelined, the page is only queued and its
+     * contents are released by the rendering thread.
+     * @param pageViewport the page to be rendered.
+     */
+    protected void renderAndClearPage(final PageViewport pageViewport) {
+        runRendererTask(new Runnable() {
+            public void run() {
+                renderPage(pageViewport);
+                pageViewport.clear();
+            }
+        });
+    }
+
     /**
      * Prepare a page.
      * An unresolved page can be prepared if the renderer supports
      * it and the page will be rendered later.
      * @param page the page to prepare
      */
-    protected void preparePage(PageViewport page) {
+    protected void preparePage(final PageViewport page) {
         if (renderer.supportsOutOfOrder()) {
-            renderer.preparePage(page);
+            runRendererTask(new Runnable() {
+                public void run() {
+                    renderer.preparePage(page);
+                }
+            });
         }
         prepared.add(page);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void handleOffDocumentItem(OffDocumentItem oDI) {
+    public void handleOffDocumentItem(final OffDocumentItem oDI) {
         switch(oDI.getWhenToProcess()) {
             case OffDocumentItem.IMMEDIATELY:
-                renderer.processOffDocumentItem(oDI);
+                runRendererTask(new Runnable() {
+                    public void run() {
+                        renderer.processOffDocumentItem(oDI);
+                    }
+                });
                 break;
             case OffDocumentItem.AFTER_PAGE:
                 pendingODI.add(oDI);
@@ -243,9 +331,18 @@ public class RenderPagesModel extends AreaTreeModel {
     }
 
     private void processOffDocumentItems(List<OffDocumentItem> list) {
-        for (OffDocumentItem oDI : list) {
-            renderer.processOffDocumentItem(oDI);
+        if (list.isEmpty()) {
+            return;
         }
+        //copy the list as the caller clears it before a pipelined task gets to run
+        final List<OffDocumentItem> items = new ArrayList<OffDocumentItem>(list);
+        runRendererTask(new Runnable() {
+            public void run() {
+                for (OffDocumentItem oDI : items) {
+                    renderer.processOffDocumentItem(oDI);
+                }
+            }
+        });
     }
 
     /**
@@ -261,6 +358,9 @@ public class RenderPagesModel extends AreaTreeModel {
         pendingODI.clear();
         processOffDocumentItems(endDocODI);
 
+        if (pipeline != null) {
+            pipeline.finish();
+        }
         try {
             renderer.stopRenderer();
         } catch (IOException ex) {
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the renderer calls of a {@link RenderPagesModel} on a dedicated rendering thread
+ * so page breaking and output generation can overlap. Tasks are run strictly in submission
+ * order on a single thread since renderers are not thread-safe. The number of queued tasks
+ * is bounded so finished pages don't pile up in memory when the renderer is slower than
+ * the layout engine.
+ */
+final class RenderingPipeline {
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore pendingTasks;
+
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new rendering pipeline.
+     * @param maxPendingTasks the maximum number of tasks waiting to be executed
+     */
+    RenderingPipeline(int maxPendingTasks) {
+        this.pendingTasks = new Semaphore(maxPendingTasks);
+        //No core thread, so the rendering thread goes away by itself if the
+        //document is aborted before endDocument() is reached.
+        this.executor = new ThreadPoolExecutor(0, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "FOP Rendering");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Queues a task for execution on the rendering thread. Blocks if too many tasks are
+     * already waiting.
+     * @param task the task
+     * @throws RuntimeException if a previously submitted task has failed
+     */
+    void execute(final Runnable task) {
+        checkFailure();
+        pendingTasks.acquireUninterruptibly();
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (failure == null) {
+                        task.run();
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    pendingTasks.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until all queued tasks have been executed and shuts the rendering thread down.
+     * All changes made by the tasks are visible to the calling thread after this method
+     * has returned.
+     * @throws RuntimeException if one of the tasks has failed
+     */
+    void finish() {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException("Rendering failed", t);
+        }
+    }
+}
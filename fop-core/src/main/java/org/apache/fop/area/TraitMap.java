@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>The traits of an area, mapped from their keys (see {@link Trait}). The map is backed by a
+ * bit mask of the keys present and an array holding the values in the order of their keys,
+ * which is also the iteration order of the map. Since the keys are small integers, this takes
+ * far less memory than a tree map with boxed keys and an entry object per trait.</p>
+ *
+ * <p>Keys must be between 0 and {@link #MAX_KEY}. The map is not thread-safe.</p>
+ */
+public final class TraitMap extends AbstractMap<Integer, Object> implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -5063960429364934813L;
+
+    /** The largest key supported */
+    public static final int MAX_KEY = 63;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /** Bit mask of the keys present */
+    private long keys;
+
+    /** The values, in the order of their keys */
+    private Object[] values = EMPTY;
+
+    private transient int modCount;
+
+    /** Creates an empty map. */
+    public TraitMap() {
+    }
+
+    /**
+     * Creates a map holding the traits of another map.
+     * @param traits the traits
+     */
+    public TraitMap(Map<Integer, ?> traits) {
+        putAll(traits);
+    }
+
+    private static long bit(int key) {
+        if (key < 0 || key > MAX_KEY) {
+            throw new IllegalArgumentException("Invalid trait key: " + key);
+        }
+        return 1L << key;
+    }
+
+    private int indexOf(long bit) {
+        return Long.bitCount(keys & (bit - 1));
+    }
+
+    /**
+     * Indicates whether a trait is present.
+     * @param key the trait key
+     * @return true if the trait is present, even if its value is null
+     */
+    public boolean contains(int key) {
+        return key >= 0 && key <= MAX_KEY && (keys & (1L << key)) != 0;
+    }
+
+    /**
+     * Returns the value of a trait.
+     * @param key the trait key
+     * @return the value, or null if the trait is not present
+     */
+    public Object get(int key) {
+        if (!contains(key)) {
+            return null;
+        }
+        return values[indexOf(1L << key)];
+    }
+
+    /**
+     * Returns the value of an integer trait.
+     * @param key the trait key
+     * @param defaultValue the value returned if the trait is not present
+     * @return the value of the trait
+     * @throws IllegalArgumentException if the value of the trait is not an integer
+     */
+    public int getInt(int key, int defaultValue) {
+        Object value = get(key);
+        if (value == null) {
+            return defaultValue;
+        } else if (value instanceof Integer) {
+            return (Integer) value;
+        } else {
+            throw new IllegalArgumentException("Trait " + key + " is not an integer: " + value);
+        }
+    }
+
+    /**
+     * Returns the value of a boolean trait.
+     * @param key the trait key
+     * @return true if the value of the trait is {@link Boolean#TRUE}, false otherwise
+     */
+    public boolean getBoolean(int key) {
+        return Boolean.TRUE.equals(get(key));
+    }
+
+    /**
+     * Sets the value of a trait.
+     * @param key the trait key
+     * @param value the value
+     * @return the previous value, or null if the trait was not present
+     */
+    public Object put(int key, Object value) {
+        long bit = bit(key);
+        int index = indexOf(bit);
+        if ((keys & bit) != 0) {
+            Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        int size = Long.bitCount(keys);
+        if (size == values.length) {
+            Object[] newValues = new Object[size < 4 ? size + 2 : size + (size >> 1)];
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index, newValues, index + 1, size - index);
+            values = newValues;
+        } else {
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        values[index] = value;
+        keys |= bit;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Sets the value of an integer trait.
+     * @param key the trait key
+     * @param value the value
+     */
+    public void putInt(int key, int value) {
+        put(key, Integer.valueOf(value));
+    }
+
+    /**
+     * Sets the value of a boolean trait.
+     * @param key the trait key
+     * @param value the value
+     */
+    public void putBoolean(int key, boolean value) {
+        put(key, Boolean.valueOf(value));
+    }
+
+    /**
+     * Removes a trait.
+     * @param key the trait key
+     * @return the previous value, or null if the trait was not present
+     */
+    public Object remove(int key) {
+        if (!contains(key)) {
+            return null;
+        }
+        long bit = 1L << key;
+        int index = indexOf(bit);
+        int size = Long.bitCount(keys);
+        Object previous = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        values[size - 1] = null;
+        keys &= ~bit;
+        modCount++;
+        return previous;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return Long.bitCount(keys);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return keys == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && contains((Integer) key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object put(Integer key, Object value) {
+        return put(key.intValue(), value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object remove(Object key) {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putAll(Map<? extends Integer, ?> traits) {
+        if (traits instanceof TraitMap && keys == 0) {
+            TraitMap other = (TraitMap) traits;
+            keys = other.keys;
+            values = other.values.clone();
+            modCount++;
+        } else {
+            for (Map.Entry<? extends Integer, ?> entry : traits.entrySet()) {
+                put(entry.getKey().intValue(), entry.getValue());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        keys = 0;
+        values = EMPTY;
+        modCount++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<Integer, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, Object>>() {
+
+            public Iterator<Map.Entry<Integer, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            public int size() {
+                return TraitMap.this.size();
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TraitMap clone() {
+        try {
+            TraitMap clone = (TraitMap) super.clone();
+            clone.values = values.clone();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Integer, Object>> {
+
+        /** The keys not iterated over yet */
+        private long remaining = keys;
+
+        private int lastKey = -1;
+
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return remaining != 0;
+        }
+
+        public Map.Entry<Integer, Object> next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastKey = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            return new Entry(lastKey);
+        }
+
+        public void remove() {
+            if (lastKey < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            TraitMap.this.remove(lastKey);
+            expectedModCount = modCount;
+            lastKey = -1;
+        }
+    }
+
+    private final class Entry implements Map.Entry<Integer, Object> {
+
+        private final int key;
+
+        Entry(int key) {
+            this.key = key;
+        }
+
+        public Integer getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return get(key);
+        }
+
+        public Object setValue(Object value) {
+            if (!contains(key)) {
+                throw new IllegalStateException("Trait " + key + " was removed");
+            }
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            Object value = getValue();
+            return getKey().equals(other.getKey())
+                    && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return key ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
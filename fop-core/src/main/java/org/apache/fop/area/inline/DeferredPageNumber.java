@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area.inline;
+
+import java.util.List;
+
+import org.apache.fop.area.PageViewport;
+import org.apache.fop.area.Resolvable;
+
+/**
+ * The page number of an {@link UnresolvedPageNumber} whose resolution is deferred, so that its
+ * page can be rendered, with a placeholder for the page number, and released before the
+ * page number is known. It is resolved in place of the area and holds nothing but the text of
+ * the page number. It may be resolved on another thread than the one the text is read on.
+ */
+public final class DeferredPageNumber implements Resolvable {
+
+    private final String pageIDRef;
+
+    private final boolean pageType;
+
+    private volatile String text;
+
+    /**
+     * Creates a new deferred page number.
+     * @param id the id reference to resolve
+     * @param type {@link UnresolvedPageNumber#FIRST} or {@link UnresolvedPageNumber#LAST}
+     */
+    DeferredPageNumber(String id, boolean type) {
+        this.pageIDRef = id;
+        this.pageType = type;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isResolved() {
+        return text != null;
+    }
+
+    /** {@inheritDoc} */
+    public String[] getIDRefs() {
+        return new String[] {pageIDRef};
+    }
+
+    /** {@inheritDoc} */
+    public void resolveIDRef(String id, List<PageViewport> pages) {
+        if (text == null && pageIDRef.equals(id) && pages != null) {
+            int pageIndex = pageType ? 0 : pages.size() - 1;
+            text = pages.get(pageIndex).getPageNumberString();
+        }
+    }
+
+    /**
+     * Returns the text of the page number.
+     * @return the page number, or null if it is not resolved (yet)
+     */
+    public String getText() {
+        return text;
+    }
+}
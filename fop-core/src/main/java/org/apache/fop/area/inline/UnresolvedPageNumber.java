@@ -50,6 +50,7 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
 
     //Transient fields
     private transient Font font;
+    private transient DeferredPageNumber deferred;
 
     public UnresolvedPageNumber() {
         this(null, null, FIRST);
@@ -148,6 +149,27 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
        return resolved;
     }
 
+    /**
+     * Defers the resolution of this page number. The returned object is to be resolved in
+     * place of this area, which keeps the text and the IPD it has now. Renderers then paint
+     * a placeholder that is filled in with the page number once it is known.
+     * @return the deferred page number
+     */
+    public DeferredPageNumber defer() {
+        if (deferred == null) {
+            deferred = new DeferredPageNumber(pageIDRef, pageType);
+        }
+        return deferred;
+    }
+
+    /**
+     * Returns the deferred page number if the resolution of this page number is deferred.
+     * @return the deferred page number, or null if it is not deferred
+     */
+    public DeferredPageNumber getDeferredPageNumber() {
+        return deferred;
+    }
+
     /**
      * recursively apply the variation factor to all descendant areas
      * @param variationFactor the variation factor that must be applied to adjustment ratios
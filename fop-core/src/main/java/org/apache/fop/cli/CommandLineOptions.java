@@ -122,6 +122,14 @@ public class CommandLineOptions {
     private boolean strictValidation = true;
     /* control memory-conservation policy */
     private boolean conserveMemoryPolicy;
+    /* render finished pages on a separate thread */
+    private boolean pipelinedRendering;
+    /* render page number citations as placeholders filled in at the end of the document */
+    private boolean deferredPageNumberCitations;
+    /* maximum number of pages the page breaking may look ahead, 0 if unbounded */
+    private int pageBreakingLookahead;
+    /* number of threads external graphics are preloaded on, 0 if disabled */
+    private int imagePrefetchThreads;
     /* true if a complex script features are enabled */
     private boolean useComplexScriptFeatures = true;
     /* set to true if -dpi used in command line */
@@ -180,6 +188,10 @@ public class CommandLineOptions {
                 addXSLTParameter("fop-output-format", getOutputFormat());
                 addXSLTParameter("fop-version", Version.getVersion());
                 foUserAgent.setConserveMemoryPolicy(conserveMemoryPolicy);
+                foUserAgent.setPipelinedRendering(pipelinedRendering);
+                foUserAgent.setDeferredPageNumberCitations(deferredPageNumberCitations);
+                foUserAgent.setPageBreakingLookahead(pageBreakingLookahead);
+                foUserAgent.setImagePrefetchThreads(imagePrefetchThreads);
                 // TODO: Handle this!!
                 //if (!useComplexScriptFeatures) {
                 //    foUserAgent.setComplexScriptFeaturesEnabled(false);
@@ -287,6 +299,14 @@ public class CommandLineOptions {
                 strictValidation = false;
             } else if (args[i].equals("-conserve")) {
                 conserveMemoryPolicy = true;
+            } else if (args[i].equals("-pipeline")) {
+                pipelinedRendering = true;
+            } else if (args[i].equals("-defercitations")) {
+                deferredPageNumberCitations = true;
+            } else if (args[i].equals("-lookahead")) {
+                i = i + parseLookaheadOption(args, i);
+            } else if (args[i].equals("-imageprefetch")) {
+                i = i + parseImagePrefetchOption(args, i);
             } else if (args[i].equals("-flush")) {
                 flushCache = true;
             } else if (args[i].equals("-cache")) {
@@ -450,6 +470,37 @@ public class CommandLineOptions {
         }
     }
 
+    private int parseLookaheadOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException(
+                    "if you use '-lookahead', you must specify a number of pages");
+        } else {
+            try {
+                this.pageBreakingLookahead = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new FOPException("Invalid number of pages for '-lookahead': " + args[i + 1]);
+            }
+            return 1;
+        }
+    }
+
+    private int parseImagePrefetchOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException(
+                    "if you use '-imageprefetch', you must specify a number of threads");
+        } else {
+            try {
+                this.imagePrefetchThreads = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new FOPException("Invalid number of threads for '-imageprefetch': "
+                        + args[i + 1]);
+            }
+            return 1;
+        }
+    }
+
     private int parseFOInputOption(String[] args, int i) throws FOPException {
         setInputFormat(FO_INPUT);
         if ((i + 1 == args.length)
@@ -1215,7 +1266,19 @@ public class CommandLineOptions {
             + "  -conserve         enable memory-conservation policy (trades memory-consumption"
             + " for disk I/O)\n"
             + "                    (Note: currently only influences whether the area tree is"
-            + " serialized.)\n\n"
+            + " serialized.)\n"
+            + "  -pipeline         render finished pages on a separate thread while the"
+            + " layout continues\n"
+            + "  -defercitations   render unresolved page number citations as placeholders filled"
+            + " in at the end\n"
+            + "                    of the document, so pages are not held until they are resolved"
+            + " (PDF only)\n"
+            + "  -lookahead pages  bound the page breaking lookahead to the given number of pages,"
+            + " laying out\n"
+            + "                    pages before the end of their page-sequence (breaks may be"
+            + " less than optimal)\n"
+            + "  -imageprefetch threads  preload external graphics on the given number of threads"
+            + " while parsing\n\n"
 
             + "  -cache            specifies a file/directory path location"
             + " for the font cache file\n"
@@ -1227,7 +1290,7 @@ public class CommandLineOptions {
             + "  -fo  infile       xsl:fo input file  \n"
             + "  -xml infile       xml input file, must be used together with -xsl \n"
             + "  -atin infile      area tree input file \n"
-            + "  -ifin infile      intermediate format input file \n"
+            + "  -ifin infile      intermediate format input file (XML or binary) \n"
             + "  -imagein infile   image input file (piping through stdin not supported)\n"
             + "  -xsl stylesheet   xslt stylesheet \n \n"
             + "  -param name value <value> to use for parameter <name> in xslt stylesheet\n"
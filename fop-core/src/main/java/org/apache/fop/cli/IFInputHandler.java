@@ -19,7 +19,11 @@
 
 package org.apache.fop.cli;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Vector;
 
@@ -27,15 +31,19 @@ import javax.xml.transform.Result;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.commons.io.IOUtils;
+
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.render.intermediate.IFBinaryParser;
 import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.render.intermediate.IFException;
 import org.apache.fop.render.intermediate.IFParser;
 import org.apache.fop.render.intermediate.IFUtil;
 
 /**
- * InputHandler for the intermediate format XML as input.
+ * InputHandler for the intermediate format XML as input. Files in the binary intermediate
+ * format are recognized by their signature.
  */
 public class IFInputHandler extends InputHandler {
 
@@ -68,6 +76,18 @@ public class IFInputHandler extends InputHandler {
             documentHandler.setResult(new StreamResult(out));
             IFUtil.setupFonts(documentHandler);
 
+            if (sourcefile != null) {
+                InputStream in = new BufferedInputStream(new FileInputStream(sourcefile));
+                try {
+                    if (IFBinaryParser.isBinaryIntermediateFormat(in)) {
+                        new IFBinaryParser().parse(in, documentHandler, userAgent);
+                        return;
+                    }
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+
             //Create IF parser
             IFParser parser = new IFParser();
 
@@ -77,6 +97,8 @@ public class IFInputHandler extends InputHandler {
             transformTo(res);
         } catch (IFException ife) {
             throw new FOPException(ife);
+        } catch (IOException ioe) {
+            throw new FOPException(ioe);
         }
     }
 
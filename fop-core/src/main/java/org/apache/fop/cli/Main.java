@@ -31,6 +31,7 @@ import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 
+import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.MimeConstants;
 
@@ -190,6 +191,12 @@ public final class Main {
             } finally {
                 IOUtils.closeQuietly(out);
             }
+            try {
+                // Store the metrics of the fonts loaded for the document
+                foUserAgent.getFontManager().saveCache();
+            } catch (FOPException fe) {
+                options.getLogger().warn("Could not save the font cache: " + fe.getMessage());
+            }
 
             // System.exit(0) called to close AWT/SVG-created threads, if any.
             // AWTRenderer closes with window shutdown, so exit() should not
@@ -19,6 +19,8 @@
 
 package org.apache.fop.complexscripts.bidi;
 
+import java.util.Arrays;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -40,6 +42,18 @@ public final class UnicodeBidiAlgorithm implements BidiConstants {
      */
     private static final Log log = LogFactory.getLog(UnicodeBidiAlgorithm.class);
 
+    /** Directionality of text that doesn't trigger bidirectional processing. */
+    public static final int LEFT_TO_RIGHT = 0;
+
+    /** Directionality of text whose characters all resolve to the right-to-left paragraph level. */
+    public static final int RIGHT_TO_LEFT = 1;
+
+    /** Directionality of text that requires full resolution. */
+    public static final int MIXED = -1;
+
+    /** Bidi classes of the characters of the basic multilingual plane, for the directionality pre-scan. */
+    private static final byte[] BMP_CLASSES = getBMPClasses();
+
     private UnicodeBidiAlgorithm() {
     }
 
@@ -55,6 +69,15 @@ public final class UnicodeBidiAlgorithm implements BidiConstants {
      * @param defaultLevel the default paragraph level, which must be zero (LR) or one (RL)
      */
     public static int[] resolveLevels(CharSequence cs, Direction defaultLevel) {
+        int directionality = getDirectionality(cs);
+        if ((directionality == LEFT_TO_RIGHT) && (defaultLevel != Direction.RL)) {
+            return null;
+        } else if ((directionality == RIGHT_TO_LEFT) && (defaultLevel == Direction.RL)) {
+            // every character takes the paragraph level
+            int[] levels = new int [ cs.length() ];
+            Arrays.fill(levels, 1);
+            return levels;
+        }
         int[] chars = new int [ cs.length() ];
         if (convertToScalar(cs, chars) || (defaultLevel == Direction.RL)) {
             return resolveLevels(chars, (defaultLevel == Direction.RL) ? 1 : 0, new int [ chars.length ]);
@@ -63,6 +86,74 @@ public final class UnicodeBidiAlgorithm implements BidiConstants {
         }
     }
 
+    /**
+     * Determine the directionality of a character sequence without resolving its levels, so
+     * that the resolution can be skipped for unidirectional text.
+     * @return {@link #LEFT_TO_RIGHT} if the sequence contains no character that triggers
+     * bidirectional processing, {@link #RIGHT_TO_LEFT} if it only contains right-to-left
+     * characters and characters that take the direction of their surroundings (neutrals,
+     * separators, terminators and non-spacing marks), and {@link #MIXED} otherwise
+     * @param cs input character sequence representing a UTF-16 encoded string
+     */
+    public static int getDirectionality(CharSequence cs) {
+        boolean ltr = true;
+        boolean rtl = true;
+        for (int i = 0, n = cs.length(); i < n; i++) {
+            int ch = cs.charAt(i);
+            int bc;
+            if ((ch >= 0xD800) && (ch < 0xE000)) {
+                if ((ch < 0xDC00) && ((i + 1) < n)) {
+                    int chLo = cs.charAt(i + 1);
+                    if ((chLo >= 0xDC00) && (chLo <= 0xDFFF)) {
+                        bc = BidiClass.getBidiClass(convertToScalar(ch, chLo));
+                        i++;
+                    } else {
+                        return MIXED;               // ill-formed, left to full resolution
+                    }
+                } else {
+                    return MIXED;                   // ill-formed, left to full resolution
+                }
+            } else {
+                bc = BMP_CLASSES [ ch ];
+            }
+            switch (bc) {
+            case R:
+            case AL:
+                ltr = false;
+                break;
+            case AN:
+            case RLE:
+            case RLO:
+                return MIXED;
+            case NSM:
+            case ES:
+            case ET:
+            case CS:
+            case BN:
+            case B:
+            case S:
+            case WS:
+            case ON:
+                break;
+            default:
+                rtl = false;
+                break;
+            }
+            if (!ltr && !rtl) {
+                return MIXED;
+            }
+        }
+        return ltr ? LEFT_TO_RIGHT : RIGHT_TO_LEFT;
+    }
+
+    private static byte[] getBMPClasses() {
+        byte[] classes = new byte [ 0x10000 ];
+        for (int ch = 0; ch < classes.length; ch++) {
+            classes [ ch ] = (byte) BidiClass.getBidiClass(ch);
+        }
+        return classes;
+    }
+
     /**
      * Resolve the directionality levels of each character in a character seqeunce.
      * @return null if bidirectional processing is not required; otherwise, returns an array
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.List;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.util.SegmentedLRUCache;
+
+/**
+ * <p>A bounded cache of the results of glyph substitution and glyph positioning for the
+ * character sequences (typically words) of one font, so that the lookups of the GSUB and GPOS
+ * tables are only performed once for repeated words. The results are keyed by the character
+ * sequence, the script and the language, which determine the features that apply, and for
+ * positioning by the font size, which device tables depend on. The least recently used results
+ * are evicted first.</p>
+ *
+ * <p>The cache is thread-safe, see {@link SegmentedLRUCache}. The results handed out are
+ * copies, so that callers may modify them.</p>
+ */
+public final class ShapingCache {
+
+    /** The default maximum number of results cached per font */
+    public static final int DEFAULT_SIZE = 2048;
+
+    /** Longer character sequences are not cached, they are rarely repeated. */
+    private static final int MAXIMUM_LENGTH = 64;
+
+    private static final byte SUBSTITUTION = 0;
+
+    private static final byte SUBSTITUTION_RETAINING_CONTROLS = 1;
+
+    private static final byte POSITIONING = 2;
+
+    private final SegmentedLRUCache<Key, Object> cache;
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of cached results
+     */
+    public ShapingCache(int maximumSize) {
+        cache = new SegmentedLRUCache<Key, Object>(maximumSize);
+    }
+
+    /**
+     * Creates a cache with the size given by the
+     * "org.apache.fop.complexscripts.fonts.shaping-cache-size" system property, which defaults
+     * to {@link #DEFAULT_SIZE}.
+     * @return the cache, or null if the system property is set to 0 to disable caching
+     */
+    public static ShapingCache createDefault() {
+        int size = SegmentedLRUCache.getSizeProperty(
+                "org.apache.fop.complexscripts.fonts.shaping-cache-size", DEFAULT_SIZE);
+        return size > 0 ? new ShapingCache(size) : null;
+    }
+
+    /**
+     * Looks up the result of a glyph substitution.
+     * @param cs the substituted character sequence
+     * @param script a script identifier
+     * @param language a language identifier
+     * @param retainControls true if the controls were retained
+     * @param associations a list that receives copies of the character associations of the
+     * result, if the result was found (may be null)
+     * @return the substitution result, or null if it is not in the cache
+     */
+    public CharSequence getSubstitution(CharSequence cs, String script, String language,
+            boolean retainControls, List associations) {
+        Object value = get(substitutionKey(cs, script, language, retainControls));
+        if (value == null) {
+            return null;
+        }
+        Substitution substitution = (Substitution) value;
+        if (associations != null) {
+            associations.clear();
+            for (CharAssociation ca : substitution.associations) {
+                associations.add(ca.clone());
+            }
+        }
+        return substitution.output;
+    }
+
+    /**
+     * Caches the result of a glyph substitution.
+     * @param cs the substituted character sequence
+     * @param script a script identifier
+     * @param language a language identifier
+     * @param retainControls true if the controls were retained
+     * @param output the substitution result
+     * @param associations the character associations of the result
+     */
+    public void putSubstitution(CharSequence cs, String script, String language,
+            boolean retainControls, CharSequence output, List associations) {
+        if (cs.length() <= MAXIMUM_LENGTH) {
+            CharAssociation[] copies = new CharAssociation[associations.size()];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = (CharAssociation) ((CharAssociation) associations.get(i)).clone();
+            }
+            cache.put(substitutionKey(cs, script, language, retainControls),
+                    new Substitution(output.toString(), copies));
+        }
+    }
+
+    /**
+     * Looks up the result of a glyph positioning.
+     * @param cs the positioned character sequence
+     * @param script a script identifier
+     * @param language a language identifier
+     * @param fontSize the font size
+     * @param adjustments receives a copy of the unscaled adjustments, if the result was found;
+     * its single element is set to the adjustments, or to null if no adjustment applies
+     * @return true if the result was found
+     */
+    public boolean getPositioning(CharSequence cs, String script, String language, int fontSize,
+            int[][][] adjustments) {
+        Object value = get(new Key(POSITIONING, script, language, fontSize, cs));
+        if (value == null) {
+            return false;
+        }
+        adjustments[0] = value == Positioning.NONE ? null : copy(((Positioning) value).adjustments);
+        return true;
+    }
+
+    /**
+     * Caches the result of a glyph positioning.
+     * @param cs the positioned character sequence
+     * @param script a script identifier
+     * @param language a language identifier
+     * @param fontSize the font size
+     * @param adjustments the unscaled adjustments, or null if no adjustment applies
+     */
+    public void putPositioning(CharSequence cs, String script, String language, int fontSize,
+            int[][] adjustments) {
+        if (cs.length() <= MAXIMUM_LENGTH) {
+            cache.put(new Key(POSITIONING, script, language, fontSize, cs),
+                    adjustments == null ? Positioning.NONE : new Positioning(copy(adjustments)));
+        }
+    }
+
+    private static Key substitutionKey(CharSequence cs, String script, String language,
+            boolean retainControls) {
+        return new Key(retainControls ? SUBSTITUTION_RETAINING_CONTROLS : SUBSTITUTION, script,
+                language, 0, cs);
+    }
+
+    private static int[][] copy(int[][] adjustments) {
+        int[][] copy = new int[adjustments.length][];
+        for (int i = 0; i < adjustments.length; i++) {
+            copy[i] = adjustments[i].clone();
+        }
+        return copy;
+    }
+
+    private Object get(Key key) {
+        if (key.text.length() > MAXIMUM_LENGTH) {
+            return null;
+        }
+        return cache.get(key);
+    }
+
+    /** @return the maximum number of results in this cache */
+    public int getMaximumSize() {
+        return cache.getMaximumSize();
+    }
+
+    /** @return the number of results in this cache */
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    /** @return the number of times a result was found in this cache */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    /** @return the number of times a result was not found in this cache */
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "ShapingCache[" + cache + "]";
+    }
+
+    private static final class Key {
+
+        private final byte operation;
+        private final String script;
+        private final String language;
+        private final int fontSize;
+        private final String text;
+        private final int hash;
+
+        Key(byte operation, String script, String language, int fontSize, CharSequence text) {
+            this.operation = operation;
+            this.script = script;
+            this.language = language;
+            this.fontSize = fontSize;
+            this.text = text.toString();
+            int h = operation * 31 + fontSize;
+            h = h * 31 + (script != null ? script.hashCode() : 0);
+            h = h * 31 + (language != null ? language.hashCode() : 0);
+            this.hash = h * 31 + this.text.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && operation == other.operation && fontSize == other.fontSize
+                    && text.equals(other.text)
+                    && eq(script, other.script) && eq(language, other.language);
+        }
+
+        private static boolean eq(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+
+    private static final class Substitution {
+
+        private final String output;
+        private final CharAssociation[] associations;
+
+        Substitution(String output, CharAssociation[] associations) {
+            this.output = output;
+            this.associations = associations;
+        }
+    }
+
+    private static final class Positioning {
+
+        private static final Positioning NONE = new Positioning(null);
+
+        private final int[][] adjustments;
+
+        Positioning(int[][] adjustments) {
+            this.adjustments = adjustments;
+        }
+    }
+}
@@ -19,16 +19,20 @@
 
 package org.apache.fop.fo;
 
+import java.util.Arrays;
+
 import org.apache.fop.fo.expr.PropertyException;
 import org.apache.fop.fo.properties.Property;
 
 /**
- * A very fast implementation of PropertyList that uses arrays to store
- * the explicit set properties and another array to store cached values.
+ * A fast implementation of PropertyList that stores the explicitly set properties and the
+ * cached values of the retrieved properties in compact arrays sorted by property ID. Most
+ * formatting objects only set or retrieve a small part of all properties, so this takes far
+ * less memory than arrays indexed by property ID, while the lookups remain cheap.
  */
 public class StaticPropertyList extends PropertyList {
-    private final Property[] explicit;
-    private final Property[] values;
+    private final SparsePropertyArray explicit = new SparsePropertyArray(4);
+    private final SparsePropertyArray values = new SparsePropertyArray(16);
 
     /**
      * Construct a StaticPropertyList.
@@ -37,8 +41,6 @@ public class StaticPropertyList extends PropertyList {
      */
     public StaticPropertyList(FObj fObjToAttach, PropertyList parentPropertyList) {
         super(fObjToAttach, parentPropertyList);
-        explicit = new Property[Constants.PROPERTY_COUNT + 1];
-        values = new Property[Constants.PROPERTY_COUNT + 1];
     }
 
     /**
@@ -47,7 +49,7 @@ public class StaticPropertyList extends PropertyList {
      * @return The value if the property is explicitly set, otherwise null.
      */
     public Property getExplicit(int propId) {
-        return explicit[propId];
+        return explicit.get(propId);
     }
 
     /**
@@ -56,10 +58,8 @@ public class StaticPropertyList extends PropertyList {
      * @param value The value of the property to set.
      */
     public void putExplicit(int propId, Property value) {
-        explicit[propId] = value;
-        if (values[propId] != null) { // if the cached value is set overwrite it
-            values[propId] = value;
-        }
+        explicit.put(propId, value);
+        values.replace(propId, value); // if the cached value is set overwrite it
     }
 
     /**
@@ -69,11 +69,59 @@ public class StaticPropertyList extends PropertyList {
      */
     public Property get(int propId, boolean bTryInherit, boolean bTryDefault)
         throws PropertyException {
-        Property p = values[propId];
+        Property p = values.get(propId);
         if (p == null) {
             p = super.get(propId, bTryInherit, bTryDefault);
-            values[propId] = p;
+            if (p != null) {
+                values.put(propId, p);
+            }
         }
         return p;
     }
+
+    /**
+     * Properties mapped from their IDs, kept in parallel arrays sorted by property ID and
+     * grown as needed.
+     */
+    private static final class SparsePropertyArray {
+
+        private int[] ids;
+        private Property[] properties;
+        private int size;
+
+        SparsePropertyArray(int initialCapacity) {
+            ids = new int[initialCapacity];
+            properties = new Property[initialCapacity];
+        }
+
+        Property get(int propId) {
+            int index = Arrays.binarySearch(ids, 0, size, propId);
+            return index >= 0 ? properties[index] : null;
+        }
+
+        void put(int propId, Property property) {
+            int index = Arrays.binarySearch(ids, 0, size, propId);
+            if (index >= 0) {
+                properties[index] = property;
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                properties = Arrays.copyOf(properties, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(properties, index, properties, index + 1, size - index);
+            ids[index] = propId;
+            properties[index] = property;
+            size++;
+        }
+
+        void replace(int propId, Property property) {
+            int index = Arrays.binarySearch(ids, 0, size, propId);
+            if (index >= 0) {
+                properties[index] = property;
+            }
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.expr;
+
+import java.util.List;
+
+import org.apache.fop.fo.properties.ListProperty;
+import org.apache.fop.fo.properties.Property;
+import org.apache.fop.util.SegmentedLRUCache;
+
+/**
+ * <p>A bounded cache of the results of {@link PropertyParser#parse(String, PropertyInfo)},
+ * keyed by the property ID and the expression text. Only results that do not depend on the
+ * context of the expression are cached, for example absolute lengths, numbers, names and
+ * colors given in hexadecimal notation, but not percentages or lengths in em. The least
+ * recently used results are evicted first.</p>
+ *
+ * <p>The cache is thread-safe, see {@link SegmentedLRUCache}. The cached properties are
+ * immutable, except for lists, of which copies are handed out.</p>
+ */
+final class PropertyParseCache {
+
+    /** The default maximum number of cached results */
+    static final int DEFAULT_SIZE = 4096;
+
+    /** Longer expressions are not cached, they are rarely repeated. */
+    private static final int MAXIMUM_LENGTH = 128;
+
+    private final SegmentedLRUCache<Key, Object> cache;
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of cached results
+     */
+    PropertyParseCache(int maximumSize) {
+        cache = new SegmentedLRUCache<Key, Object>(maximumSize);
+    }
+
+    /**
+     * Creates a cache with the size given by the "org.apache.fop.fo.expr.parse-cache-size"
+     * system property, which defaults to {@link #DEFAULT_SIZE}.
+     * @return the cache, or null if the system property is set to 0 to disable caching
+     */
+    static PropertyParseCache createDefault() {
+        int size = SegmentedLRUCache.getSizeProperty("org.apache.fop.fo.expr.parse-cache-size",
+                DEFAULT_SIZE);
+        return size > 0 ? new PropertyParseCache(size) : null;
+    }
+
+    /**
+     * Looks up the result of parsing an expression.
+     * @param propId the ID of the property the expression is given for
+     * @param expr the expression
+     * @return the result, or null if it is not in the cache
+     */
+    Property get(int propId, String expr) {
+        if (expr.length() > MAXIMUM_LENGTH) {
+            return null;
+        }
+        Object value = cache.get(new Key(propId, expr));
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Property[]) {
+            Property[] elements = (Property[]) value;
+            ListProperty list = new ListProperty(elements[0]);
+            for (int i = 1; i < elements.length; i++) {
+                list.addProperty(elements[i]);
+            }
+            return list;
+        }
+        return (Property) value;
+    }
+
+    /**
+     * Caches the result of parsing an expression, which must not depend on the context of
+     * the expression.
+     * @param propId the ID of the property the expression is given for
+     * @param expr the expression
+     * @param prop the result
+     */
+    void put(int propId, String expr, Property prop) {
+        if (expr.length() > MAXIMUM_LENGTH) {
+            return;
+        }
+        Object value = prop;
+        if (prop.getClass() == ListProperty.class) {
+            List<Property> elements = ((ListProperty) prop).getList();
+            value = elements.toArray(new Property[elements.size()]);
+        }
+        cache.put(new Key(propId, expr), value);
+    }
+
+    /** @return the number of results in this cache */
+    int getSize() {
+        return cache.getSize();
+    }
+
+    /** @return the number of times a result was found in this cache */
+    long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    /** @return the number of times a result was not found in this cache */
+    long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "PropertyParseCache[" + cache + "]";
+    }
+
+    private static final class Key {
+
+        private final int propId;
+        private final String expr;
+
+        Key(int propId, String expr) {
+            this.propId = propId;
+            this.expr = expr;
+        }
+
+        @Override
+        public int hashCode() {
+            return propId * 31 + expr.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return propId == other.propId && expr.equals(other.expr);
+        }
+    }
+}
@@ -19,8 +19,11 @@
 
 package org.apache.fop.fo.expr;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.xmlgraphics.util.UnitConv;
 
@@ -44,9 +47,19 @@ import org.apache.fop.fo.properties.StringProperty;
 public final class PropertyParser extends PropertyTokenizer {
     private PropertyInfo propInfo;    // Maker and propertyList related info
 
+    /** true once the result depends on the context of the expression, and so can't be cached */
+    private boolean contextDependent;
+
     private static final String RELUNIT = "em";
     private static final HashMap FUNCTION_TABLE = new HashMap();
 
+    /** The functions whose result only depends on their arguments */
+    private static final Set<String> CONTEXT_FREE_FUNCTIONS = new HashSet<String>(Arrays.asList(
+            "ceiling", "floor", "round", "min", "max", "abs", "rgb", "cmyk"));
+
+    /** The cache of the results that do not depend on the context, null if disabled */
+    static final PropertyParseCache PARSE_CACHE = PropertyParseCache.createDefault();
+
     static {
         // Initialize the HashMap of XSL-defined functions
         FUNCTION_TABLE.put("ceiling", new CeilingFunction());
@@ -89,7 +102,20 @@ public final class PropertyParser extends PropertyTokenizer {
     public static Property parse(String expr, PropertyInfo propInfo)
             throws PropertyException {
         try {
-            return new PropertyParser(expr, propInfo).parseProperty();
+            PropertyParseCache cache = (propInfo.getPropertyMaker() != null ? PARSE_CACHE : null);
+            int propId = (cache != null ? propInfo.getPropertyMaker().getPropId() : 0);
+            if (cache != null) {
+                Property prop = cache.get(propId, expr);
+                if (prop != null) {
+                    return prop;
+                }
+            }
+            PropertyParser parser = new PropertyParser(expr, propInfo);
+            Property prop = parser.parseProperty();
+            if (cache != null && !parser.contextDependent) {
+                cache.put(propId, expr, prop);
+            }
+            return prop;
         } catch (PropertyException exc) {
             exc.setPropertyInfo(propInfo);
             throw exc;
@@ -270,6 +296,7 @@ public final class PropertyParser extends PropertyTokenizer {
              */
             double pcval = Double.parseDouble(
                     currentTokenValue.substring(0, currentTokenValue.length() - 1)) / 100.0;
+            contextDependent = true;
             PercentBase pcBase = this.propInfo.getPercentBase();
             if (pcBase != null) {
                 if (pcBase.getDimension() == 0) {
@@ -306,11 +333,13 @@ public final class PropertyParser extends PropertyTokenizer {
             String unitPart = currentTokenValue.substring(numLen);
             double numPart = Double.parseDouble(currentTokenValue.substring(0, numLen));
             if (RELUNIT.equals(unitPart)) {
+                contextDependent = true;
                 prop = (Property) NumericOp.multiply(
                                     NumberProperty.getInstance(numPart),
                                     propInfo.currentFontSize());
             } else {
                 if ("px".equals(unitPart)) {
+                    contextDependent = true;
                     //pass the ratio between target-resolution and
                     //the default resolution of 72dpi
                     float resolution = propInfo.getPropertyList().getFObj()
@@ -326,6 +355,7 @@ public final class PropertyParser extends PropertyTokenizer {
             break;
 
         case TOK_COLORSPEC:
+            //only colors in hexadecimal notation, which do not depend on the user agent
             prop = ColorProperty.getInstance(propInfo.getUserAgent(), currentTokenValue);
             break;
 
@@ -335,6 +365,9 @@ public final class PropertyParser extends PropertyTokenizer {
                 throw new PropertyException("no such function: "
                                             + currentTokenValue);
             }
+            if (!CONTEXT_FREE_FUNCTIONS.contains(currentTokenValue)) {
+                contextDependent = true;
+            }
             next();
             // Push new function (for function context: getPercentBase())
             propInfo.pushFunction(function);
@@ -21,6 +21,7 @@ package org.apache.fop.fo.flow;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.Future;
 
 import org.xml.sax.Locator;
 
@@ -37,6 +38,7 @@ import org.apache.fop.fo.FONode;
 import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.ValidationException;
 import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.image.ImagePrefetcher;
 
 /**
  * Class modelling the <a href="http://www.w3.org/TR/xsl/#fo_external-graphic">
@@ -56,6 +58,7 @@ public class ExternalGraphic extends AbstractGraphics {
     private int intrinsicWidth;
     private int intrinsicHeight;
     private Length intrinsicAlignmentAdjust;
+    private Future<ImageInfo> pendingImageInfo;
 
     /**
      * Create a new ExternalGraphic node that is a child
@@ -75,23 +78,54 @@ public class ExternalGraphic extends AbstractGraphics {
         //Additional processing: obtain the image's intrinsic size and baseline information
         url = URISpecification.getURL(src);
         FOUserAgent userAgent = getUserAgent();
+        ImagePrefetcher prefetcher = userAgent.getImagePrefetcher();
+        if (prefetcher != null) {
+            //The image is preloaded while the rest of the document is processed, and its
+            //information is only waited for when it is needed
+            pendingImageInfo = prefetcher.prefetch(url);
+            return;
+        }
         ImageManager manager = userAgent.getImageManager();
         ImageInfo info = null;
         try {
             info = manager.getImageInfo(url, userAgent.getImageSessionContext());
         } catch (ImageException e) {
-            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                    getUserAgent().getEventBroadcaster());
-            eventProducer.imageError(this, url, e, getLocator());
-        } catch (FileNotFoundException fnfe) {
-            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                    getUserAgent().getEventBroadcaster());
-            eventProducer.imageNotFound(this, url, fnfe, getLocator());
+            imageError(e);
         } catch (IOException ioe) {
-            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                    getUserAgent().getEventBroadcaster());
-            eventProducer.imageIOError(this, url, ioe, getLocator());
+            imageError(ioe);
+        }
+        setImageInfo(info);
+    }
+
+    private void resolveImageInfo() {
+        if (pendingImageInfo != null) {
+            Future<ImageInfo> pending = pendingImageInfo;
+            pendingImageInfo = null;
+            ImageInfo info = null;
+            try {
+                info = ImagePrefetcher.getImageInfo(pending);
+            } catch (ImageException e) {
+                imageError(e);
+            } catch (IOException ioe) {
+                imageError(ioe);
+            }
+            setImageInfo(info);
         }
+    }
+
+    private void imageError(Exception e) {
+        ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
+                getUserAgent().getEventBroadcaster());
+        if (e instanceof ImageException) {
+            eventProducer.imageError(this, url, (ImageException) e, getLocator());
+        } else if (e instanceof FileNotFoundException) {
+            eventProducer.imageNotFound(this, url, (FileNotFoundException) e, getLocator());
+        } else {
+            eventProducer.imageIOError(this, url, (IOException) e, getLocator());
+        }
+    }
+
+    private void setImageInfo(ImageInfo info) {
         if (info != null) {
             this.intrinsicWidth = info.getSize().getWidthMpt();
             this.intrinsicHeight = info.getSize().getHeightMpt();
@@ -145,16 +179,19 @@ public class ExternalGraphic extends AbstractGraphics {
 
     /** {@inheritDoc} */
     public int getIntrinsicWidth() {
+        resolveImageInfo();
         return this.intrinsicWidth;
     }
 
     /** {@inheritDoc} */
     public int getIntrinsicHeight() {
+        resolveImageInfo();
         return this.intrinsicHeight;
     }
 
     /** {@inheritDoc} */
     public Length getIntrinsicAlignmentAdjust() {
+        resolveImageInfo();
         return this.intrinsicAlignmentAdjust;
     }
 
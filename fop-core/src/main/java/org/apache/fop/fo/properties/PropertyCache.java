@@ -19,14 +19,20 @@
 
 package org.apache.fop.fo.properties;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,48 +40,85 @@ import org.apache.commons.logging.LogFactory;
 /**
  * Thread-safe cache that minimizes the memory requirements by fetching an instance from the cache
  * that is equal to the given one. Internally the instances are stored in WeakReferences in order to
- * be reclaimed when they are no longer referenced.
+ * be reclaimed when they are no longer referenced. The entries whose instances have been reclaimed
+ * are removed as the garbage collector reports them, so the cache is never scanned. The number of
+ * entries may optionally be bounded, in which case the oldest entries are evicted first.
+ * <p>
+ * The number of hits, misses and evictions is recorded for every cache, and the caches created so
+ * far are available from {@link #getInstances()}.
  * @param <T> The type of values that are cached
  */
 public final class PropertyCache<T> {
 
     private static final Log LOG = LogFactory.getLog(PropertyCache.class);
 
+    private static final List<PropertyCache<?>> INSTANCES = new CopyOnWriteArrayList<PropertyCache<?>>();
+
     /**
      * Determines if the cache is used based on the value of the system property
      * org.apache.fop.fo.properties.use-cache
      */
     private final boolean useCache;
 
+    /**
+     * The maximum number of entries, 0 if the number of entries is not bounded. The default is
+     * given by the system property org.apache.fop.fo.properties.cache-size
+     */
+    private final int maximumSize;
+
     /**
      * The underlying map that stores WeakReferences to the cached entries. The map keys are the
      * hashCode of the cached entries. The map values are a WeakRefence to the cached entries. When
      * two cached entries have the same hash code, the last one is kept but this should be an
      * exception case (otherwise the hashCode() method of T needs to be fixed).
      */
-    private final ConcurrentMap<Integer, WeakReference<T>> map;
+    private final ConcurrentMap<Integer, CacheEntry<T>> map;
 
-    /**
-     * Counts the number of entries put in the map in order to periodically check and remove the
-     * entries whose referents have been reclaimed.
-     */
-    private final AtomicInteger putCounter;
+    /** The queue the entries are put on once their instances have been reclaimed. */
+    private final ReferenceQueue<T> referenceQueue;
 
     /**
-     * Lock to prevent concurrent cleanup of the map.
+     * The entries in the order they were added, if the number of entries is bounded. Entries
+     * removed from the map because their instances have been reclaimed or they have been replaced
+     * stay in the queue, marked as removed, until they are polled or purged.
      */
-    private final Lock cleanupLock;
+    private final Queue<CacheEntry<T>> insertionOrder;
+
+    /** The number of entries in the queue that are still in the map */
+    private final AtomicInteger insertionOrderSize;
+
+    /** The number of entries in the queue that have been marked as removed since the last purge */
+    private final AtomicInteger removedEntryCount;
+
+    private final StripedCounter hitCounter;
+
+    private final StripedCounter missCounter;
+
+    private final StripedCounter evictionCounter;
 
     private final AtomicInteger hashCodeCollisionCounter;
 
+    private volatile String name;
+
     /**
      * Creates a new cache. The "org.apache.fop.fo.properties.use-cache" system
      * property is used to determine whether properties should actually be
      * cached or not. If not, then the {@link #fetch(Object)} method will simply
      * return its argument. To enable the cache, set this property to "true"
-     * (case insensitive).
+     * (case insensitive). The "org.apache.fop.fo.properties.cache-size" system
+     * property gives the maximum number of entries, if set to a positive value.
      */
     public PropertyCache() {
+        this(getDefaultMaximumSize());
+    }
+
+    /**
+     * Creates a new cache holding at most the given number of entries. The
+     * "org.apache.fop.fo.properties.use-cache" system property is used to
+     * determine whether properties should actually be cached or not.
+     * @param maximumSize the maximum number of entries, 0 not to bound it
+     */
+    public PropertyCache(int maximumSize) {
         boolean useCache;
         try {
             useCache = Boolean.valueOf(
@@ -85,20 +128,55 @@ public final class PropertyCache<T> {
             LOG.info("Unable to access org.apache.fop.fo.properties.use-cache"
                    + " due to security restriction; defaulting to 'true'.");
         }
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
         if (useCache) {
-            this.map = new ConcurrentHashMap<Integer, WeakReference<T>>();
-            this.putCounter = new AtomicInteger();
-            this.cleanupLock = new ReentrantLock();
+            this.map = new ConcurrentHashMap<Integer, CacheEntry<T>>();
+            this.referenceQueue = new ReferenceQueue<T>();
             this.hashCodeCollisionCounter = new AtomicInteger();
+            this.hitCounter = new StripedCounter();
+            this.missCounter = new StripedCounter();
+            this.evictionCounter = new StripedCounter();
+            if (maximumSize > 0) {
+                this.insertionOrder = new ConcurrentLinkedQueue<CacheEntry<T>>();
+                this.insertionOrderSize = new AtomicInteger();
+                this.removedEntryCount = new AtomicInteger();
+            } else {
+                this.insertionOrder = null;
+                this.insertionOrderSize = null;
+                this.removedEntryCount = null;
+            }
+            INSTANCES.add(this);
         } else {
             this.map = null;
-            this.putCounter = null;
-            this.cleanupLock = null;
+            this.referenceQueue = null;
             this.hashCodeCollisionCounter = null;
+            this.hitCounter = null;
+            this.missCounter = null;
+            this.evictionCounter = null;
+            this.insertionOrder = null;
+            this.insertionOrderSize = null;
+            this.removedEntryCount = null;
         }
         this.useCache = useCache;
     }
 
+    private static int getDefaultMaximumSize() {
+        try {
+            return Integer.parseInt(
+                    System.getProperty("org.apache.fop.fo.properties.cache-size", "0"));
+        } catch (SecurityException e) {
+            LOG.info("Unable to access org.apache.fop.fo.properties.cache-size"
+                   + " due to security restriction; the caches are not bounded.");
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for org.apache.fop.fo.properties.cache-size: " + e.getMessage()
+                   + "; the caches are not bounded.");
+        }
+        return 0;
+    }
+
     /**
      * Returns a cached version of the given object. If the object is not yet in
      * the cache, it will be added and then returned.
@@ -115,22 +193,25 @@ public final class PropertyCache<T> {
             return null;
         }
 
-        Integer hashCode = obj.hashCode();
+        removeReclaimedEntries();
 
-        WeakReference<T> weakRef = map.get(hashCode);
-        if (weakRef == null) {
-            weakRef = map.putIfAbsent(hashCode, new WeakReference<T>(obj));
-            attemptCleanup();
+        Integer hashCode = obj.hashCode();
 
-            if (weakRef == null) {
+        CacheEntry<T> entry = map.get(hashCode);
+        if (entry == null) {
+            CacheEntry<T> newEntry = new CacheEntry<T>(obj, hashCode, referenceQueue);
+            entry = map.putIfAbsent(hashCode, newEntry);
+            if (entry == null) {
+                added(newEntry);
                 return obj;
             }
             // else another thread added a value, continue.
         }
 
-        T cached = weakRef.get();
+        T cached = entry.get();
         if (cached != null) {
             if (eq(cached, obj)) {
+                hitCounter.increment();
                 return cached;
             } else {
                 /*
@@ -147,8 +228,12 @@ public final class PropertyCache<T> {
         }
 
         // Adds a new or replaces an existing entry with obj that has the same hash code
-        map.put(hashCode, new WeakReference<T>(obj));
-        attemptCleanup();
+        CacheEntry<T> newEntry = new CacheEntry<T>(obj, hashCode, referenceQueue);
+        CacheEntry<T> replaced = map.put(hashCode, newEntry);
+        if (replaced != null) {
+            removed(replaced);
+        }
+        added(newEntry);
         return obj;
 
         /*
@@ -159,31 +244,65 @@ public final class PropertyCache<T> {
          */
     }
 
-
-    private void attemptCleanup() {
-        if ((putCounter.incrementAndGet() % 10000) != 0) {
-            return;
+    private void added(CacheEntry<T> entry) {
+        missCounter.increment();
+        if (name == null) {
+            name = entry.get().getClass().getName();
         }
+        if (insertionOrder != null) {
+            // every entry in the map has been added to the queue, so the map never holds more
+            // entries than the queue
+            insertionOrder.add(entry);
+            int size = insertionOrderSize.incrementAndGet();
+            while (size > maximumSize) {
+                CacheEntry<T> eldest = insertionOrder.poll();
+                if (eldest == null) {
+                    break;
+                }
+                // the entry may already have been reclaimed or replaced, and then it is no
+                // longer counted
+                if (map.remove(eldest.key, eldest)) {
+                    size = insertionOrderSize.decrementAndGet();
+                    if (eldest.get() != null) {
+                        evictionCounter.increment();
+                    }
+                } else {
+                    size = insertionOrderSize.get();
+                }
+            }
+        }
+    }
 
-        // Lock as there is no need for concurrent cleanup and protect us, on JDK5, from
-        // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6312056
-        if (cleanupLock.tryLock()) {
-            try {
-                cleanReclaimedMapEntries();
-            } finally {
-                cleanupLock.unlock();
+    /**
+     * Notes that an entry has been removed from the map because its instance has been reclaimed
+     * or it has been replaced. This is called once for each such entry, by the thread that
+     * removed it.
+     */
+    private void removed(CacheEntry<T> entry) {
+        if (insertionOrder != null) {
+            entry.removed = true;
+            insertionOrderSize.decrementAndGet();
+            // the removed entries are purged from the queue from time to time, so that it does
+            // not grow while the map does not reach its maximum size
+            if (removedEntryCount.incrementAndGet() > maximumSize
+                    && removedEntryCount.getAndSet(0) > maximumSize) {
+                Iterator<CacheEntry<T>> iter = insertionOrder.iterator();
+                while (iter.hasNext()) {
+                    if (iter.next().removed) {
+                        iter.remove();
+                    }
+                }
             }
         }
     }
 
-    private void cleanReclaimedMapEntries() {
-        Iterator<Map.Entry<Integer, WeakReference<T>>> iterator = map.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Integer, WeakReference<T>> entry = iterator.next();
-            WeakReference<T> weakRef = entry.getValue();
-            T r = weakRef.get();
-            if (r == null) {
-                iterator.remove();
+    private void removeReclaimedEntries() {
+        Reference<? extends T> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            CacheEntry<T> entry = (CacheEntry<T>) reference;
+            if (map.remove(entry.key, entry)) {
+                removed(entry);
             }
         }
     }
@@ -191,4 +310,96 @@ public final class PropertyCache<T> {
     private boolean eq(Object p, Object q) {
         return (p == q || p.equals(q));
     }
+
+    /**
+     * Returns the number of entries in this cache, including those whose instances have been
+     * reclaimed but not yet removed.
+     * @return the number of entries
+     */
+    public int getSize() {
+        return useCache ? map.size() : 0;
+    }
+
+    /** @return the maximum number of entries, 0 if it is not bounded */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the number of times an equal instance was found in this cache */
+    public long getHitCount() {
+        return useCache ? hitCounter.get() : 0;
+    }
+
+    /** @return the number of times an instance was added to this cache */
+    public long getMissCount() {
+        return useCache ? missCounter.get() : 0;
+    }
+
+    /**
+     * Returns the number of entries removed from this cache to respect its maximum size. Entries
+     * removed because their instances have been reclaimed are not evictions.
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return useCache ? evictionCounter.get() : 0;
+    }
+
+    /**
+     * Returns the caches in use. Caches are not created if the "org.apache.fop.fo.properties.use-cache"
+     * system property is set to false.
+     * @return an unmodifiable list of caches
+     */
+    public static List<PropertyCache<?>> getInstances() {
+        return Collections.unmodifiableList(new ArrayList<PropertyCache<?>>(INSTANCES));
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "PropertyCache[" + name + ", size=" + getSize() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * A weak reference to a cached instance, which knows its key in the map so that it can be
+     * removed once the instance has been reclaimed.
+     */
+    private static final class CacheEntry<T> extends WeakReference<T> {
+
+        private final Integer key;
+
+        /** Whether the entry has been removed from the map, other than by eviction */
+        private volatile boolean removed;
+
+        CacheEntry(T referent, Integer key, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A counter that spreads its increments over several cells, so that threads updating it
+     * concurrently rarely contend for the same one.
+     */
+    private static final class StripedCounter {
+
+        private static final int STRIPES = 16;
+
+        /** Spacing of the cells in the array, so that two cells don't share a cache line. */
+        private static final int PADDING = 8;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void increment() {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            cells.incrementAndGet(stripe * PADDING);
+        }
+
+        long get() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+    }
 }
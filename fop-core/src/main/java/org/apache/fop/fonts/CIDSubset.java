@@ -71,7 +71,7 @@ public class CIDSubset implements CIDSet {
     }
 
     /** {@inheritDoc} */
-    public int getOriginalGlyphIndex(int index) {
+    public synchronized int getOriginalGlyphIndex(int index) {
         Integer glyphIndex = usedGlyphsIndex.get(index);
         if (glyphIndex != null) {
             return glyphIndex;
@@ -81,7 +81,7 @@ public class CIDSubset implements CIDSet {
     }
 
     /** {@inheritDoc} */
-    public char getUnicode(int index) {
+    public synchronized char getUnicode(int index) {
         Character mapValue = usedCharsIndex.get(index);
         if (mapValue != null) {
             return mapValue;
@@ -91,7 +91,7 @@ public class CIDSubset implements CIDSet {
     }
 
     /** {@inheritDoc} */
-    public int mapChar(int glyphIndex, char unicode) {
+    public synchronized int mapChar(int glyphIndex, char unicode) {
         // Reencode to a new subset font or get the reencoded value
         // IOW, accumulate the accessed characters and build a character map for them
         Integer subsetCharSelector = usedGlyphs.get(glyphIndex);
@@ -114,13 +114,13 @@ public class CIDSubset implements CIDSet {
     }
 
     /** {@inheritDoc} */
-    public char getUnicodeFromGID(int glyphIndex) {
+    public synchronized char getUnicodeFromGID(int glyphIndex) {
         int selector = usedGlyphs.get(glyphIndex);
         return usedCharsIndex.get(selector);
     }
 
     /** {@inheritDoc} */
-    public int getGIDFromChar(char ch) {
+    public synchronized int getGIDFromChar(char ch) {
         return charToGIDs.get(ch);
     }
 
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.awt.Rectangle;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * The metrics of a TrueType or OpenType font loaded as a {@link MultiByteFont}, as stored in
+ * the {@link FontCache}. They allow the font to be rebuilt without parsing the font file,
+ * which is then only read again if the font is embedded. The advanced typographic tables
+ * (GDEF, GSUB, GPOS) are not stored: if they are used, they are read from the font file
+ * without parsing the rest of it.
+ */
+final class CachedFontMetrics {
+
+    private final long lastModified;
+
+    private URI fontURI;
+    private URI embedURI;
+    private String fontName;
+    private String fullName;
+    private String fontSubName;
+    private Set<String> familyNames;
+    private String ttcName;
+    private boolean otfFile;
+    private boolean simulateStyle;
+    private boolean advancedTables;
+    private EmbeddingMode embeddingMode;
+    private CIDFontType cidType;
+    private int capHeight;
+    private int xHeight;
+    private int ascender;
+    private int descender;
+    private int flags;
+    private int weight;
+    private int stemV;
+    private int italicAngle;
+    private int missingWidth;
+    private int[] lineMetrics;
+    private int[] fontBBox;
+    private int[] widths;
+    /** the bounding boxes of the glyphs, as x, y, width and height */
+    private int[] boundingBoxes;
+    /** the cmap segments, as Unicode start, Unicode end and glyph start index */
+    private int[] cmap;
+    private Map<Integer, Map<Integer, Integer>> kerning;
+
+    private CachedFontMetrics(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Captures the metrics of a font.
+     * @param font the font
+     * @param lastModified the last modified date/time of the font file
+     * @return the metrics, or null if the font is of a kind that can't be rebuilt from its
+     *          metrics
+     */
+    static CachedFontMetrics of(CustomFont font, long lastModified) {
+        if (font.getClass() != MultiByteFont.class || font.getFontType() == FontType.TYPE1C) {
+            return null;
+        }
+        MultiByteFont mbf = (MultiByteFont) font;
+        CachedFontMetrics metrics = new CachedFontMetrics(lastModified);
+        metrics.fontURI = mbf.getFontURI();
+        metrics.embedURI = mbf.getEmbedFileURI();
+        metrics.fontName = mbf.getFontName();
+        metrics.fullName = mbf.getFullName();
+        metrics.fontSubName = mbf.getFontSubName();
+        metrics.familyNames = mbf.getFamilyNames();
+        metrics.ttcName = mbf.getTTCName();
+        metrics.otfFile = mbf.isOTFFile();
+        metrics.simulateStyle = mbf.getSimulateStyle();
+        metrics.advancedTables = mbf.getGDEF() != null || mbf.getGSUB() != null
+                || mbf.getGPOS() != null;
+        metrics.embeddingMode = mbf.getEmbeddingMode();
+        metrics.cidType = mbf.getCIDType();
+        metrics.capHeight = mbf.getCapHeight();
+        metrics.xHeight = mbf.getXHeight(1);
+        metrics.ascender = mbf.getAscender();
+        metrics.descender = mbf.getDescender();
+        metrics.flags = mbf.getFlags();
+        metrics.weight = mbf.getWeight();
+        metrics.stemV = mbf.getStemV();
+        metrics.italicAngle = mbf.getItalicAngle();
+        metrics.missingWidth = mbf.getMissingWidth();
+        metrics.lineMetrics = mbf.getLineMetrics();
+        metrics.fontBBox = mbf.getFontBBox();
+        metrics.widths = mbf.width;
+        Rectangle[] bboxes = mbf.boundingBoxes;
+        metrics.boundingBoxes = new int[bboxes.length * 4];
+        for (int i = 0, j = 0; i < bboxes.length; i++) {
+            metrics.boundingBoxes[j++] = bboxes[i].x;
+            metrics.boundingBoxes[j++] = bboxes[i].y;
+            metrics.boundingBoxes[j++] = bboxes[i].width;
+            metrics.boundingBoxes[j++] = bboxes[i].height;
+        }
+        CMapSegment[] segments = mbf.getCMap();
+        metrics.cmap = new int[segments.length * 3];
+        for (int i = 0, j = 0; i < segments.length; i++) {
+            metrics.cmap[j++] = segments[i].getUnicodeStart();
+            metrics.cmap[j++] = segments[i].getUnicodeEnd();
+            metrics.cmap[j++] = segments[i].getGlyphStartIndex();
+        }
+        metrics.kerning = mbf.getKerningInfo();
+        return metrics;
+    }
+
+    /**
+     * Returns the last modified date/time of the font file the metrics were read from.
+     * @return the last modified date/time
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Indicates whether the font has advanced typographic tables.
+     * @return true if the font has a GDEF, GSUB or GPOS table
+     */
+    boolean hasAdvancedTables() {
+        return advancedTables;
+    }
+
+    /**
+     * Creates the font described by these metrics.
+     * @param resourceResolver the resource resolver for the font
+     * @return the font
+     */
+    MultiByteFont createFont(InternalResourceResolver resourceResolver) {
+        MultiByteFont font = new MultiByteFont(resourceResolver, embeddingMode);
+        font.setIsOTFFile(otfFile);
+        font.setTTCName(ttcName);
+        font.setSimulateStyle(simulateStyle);
+        font.setFontURI(fontURI);
+        font.setFontName(fontName);
+        font.setFullName(fullName);
+        if (familyNames != null) {
+            font.setFamilyNames(familyNames);
+        }
+        font.setFontSubFamilyName(fontSubName);
+        font.setCapHeight(capHeight);
+        font.setXHeight(xHeight);
+        font.setAscender(ascender);
+        font.setDescender(descender);
+        font.setFontBBox(fontBBox.clone());
+        font.setUnderlinePosition(lineMetrics[0]);
+        font.setUnderlineThickness(lineMetrics[1]);
+        font.setStrikeoutPosition(lineMetrics[2]);
+        font.setStrikeoutThickness(lineMetrics[3]);
+        font.setFlags(flags);
+        font.setStemV(stemV);
+        font.setItalicAngle(italicAngle);
+        font.setMissingWidth(missingWidth);
+        font.setWeight(weight);
+        font.setCIDType(cidType);
+        font.setWidthArray(widths.clone());
+        Rectangle[] bboxes = new Rectangle[boundingBoxes.length / 4];
+        for (int i = 0, j = 0; i < bboxes.length; i++, j += 4) {
+            bboxes[i] = new Rectangle(boundingBoxes[j], boundingBoxes[j + 1],
+                    boundingBoxes[j + 2], boundingBoxes[j + 3]);
+        }
+        font.setBBoxArray(bboxes);
+        CMapSegment[] segments = new CMapSegment[cmap.length / 3];
+        for (int i = 0, j = 0; i < segments.length; i++, j += 3) {
+            segments[i] = new CMapSegment(cmap[j], cmap[j + 1], cmap[j + 2]);
+        }
+        font.setCMap(segments);
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : kerning.entrySet()) {
+            font.putKerningEntry(entry.getKey(), new HashMap<Integer, Integer>(entry.getValue()));
+        }
+        font.setEmbedURI(embedURI);
+        return font;
+    }
+
+    /**
+     * Writes the metrics.
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(lastModified);
+        FontCache.writeString(out, fontURI != null ? fontURI.toString() : null);
+        FontCache.writeString(out, embedURI != null ? embedURI.toString() : null);
+        FontCache.writeString(out, fontName);
+        FontCache.writeString(out, fullName);
+        FontCache.writeString(out, fontSubName);
+        if (familyNames != null) {
+            out.writeInt(familyNames.size());
+            for (String familyName : familyNames) {
+                FontCache.writeString(out, familyName);
+            }
+        } else {
+            out.writeInt(-1);
+        }
+        FontCache.writeString(out, ttcName);
+        out.writeBoolean(otfFile);
+        out.writeBoolean(simulateStyle);
+        out.writeBoolean(advancedTables);
+        FontCache.writeString(out, embeddingMode.name());
+        FontCache.writeString(out, cidType.name());
+        out.writeInt(capHeight);
+        out.writeInt(xHeight);
+        out.writeInt(ascender);
+        out.writeInt(descender);
+        out.writeInt(flags);
+        out.writeInt(weight);
+        out.writeInt(stemV);
+        out.writeInt(italicAngle);
+        out.writeInt(missingWidth);
+        writeIntArray(out, lineMetrics);
+        writeIntArray(out, fontBBox);
+        writeIntArray(out, widths);
+        writeIntArray(out, boundingBoxes);
+        writeIntArray(out, cmap);
+        out.writeInt(kerning.size());
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : kerning.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Map.Entry<Integer, Integer> pair : entry.getValue().entrySet()) {
+                out.writeInt(pair.getKey());
+                out.writeInt(pair.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads metrics written by {@link #write(DataOutputStream)}.
+     * @param in the buffer to read from
+     * @return the metrics
+     */
+    static CachedFontMetrics read(ByteBuffer in) {
+        CachedFontMetrics metrics = new CachedFontMetrics(in.getLong());
+        metrics.fontURI = toURI(FontCache.readString(in));
+        metrics.embedURI = toURI(FontCache.readString(in));
+        metrics.fontName = FontCache.readString(in);
+        metrics.fullName = FontCache.readString(in);
+        metrics.fontSubName = FontCache.readString(in);
+        int familyNameCount = in.getInt();
+        if (familyNameCount >= 0) {
+            metrics.familyNames = new LinkedHashSet<String>(familyNameCount);
+            for (int i = 0; i < familyNameCount; i++) {
+                metrics.familyNames.add(FontCache.readString(in));
+            }
+        }
+        metrics.ttcName = FontCache.readString(in);
+        metrics.otfFile = in.get() != 0;
+        metrics.simulateStyle = in.get() != 0;
+        metrics.advancedTables = in.get() != 0;
+        metrics.embeddingMode = EmbeddingMode.valueOf(FontCache.readString(in));
+        metrics.cidType = CIDFontType.valueOf(FontCache.readString(in));
+        metrics.capHeight = in.getInt();
+        metrics.xHeight = in.getInt();
+        metrics.ascender = in.getInt();
+        metrics.descender = in.getInt();
+        metrics.flags = in.getInt();
+        metrics.weight = in.getInt();
+        metrics.stemV = in.getInt();
+        metrics.italicAngle = in.getInt();
+        metrics.missingWidth = in.getInt();
+        metrics.lineMetrics = readIntArray(in);
+        metrics.fontBBox = readIntArray(in);
+        metrics.widths = readIntArray(in);
+        metrics.boundingBoxes = readIntArray(in);
+        metrics.cmap = readIntArray(in);
+        int kerningCount = in.getInt();
+        metrics.kerning = new HashMap<Integer, Map<Integer, Integer>>(kerningCount);
+        for (int i = 0; i < kerningCount; i++) {
+            int first = in.getInt();
+            int pairCount = in.getInt();
+            Map<Integer, Integer> pairs = new HashMap<Integer, Integer>(pairCount);
+            for (int j = 0; j < pairCount; j++) {
+                int second = in.getInt();
+                pairs.put(second, in.getInt());
+            }
+            metrics.kerning.put(first, pairs);
+        }
+        return metrics;
+    }
+
+    private static URI toURI(String uri) {
+        return uri != null ? URI.create(uri) : null;
+    }
+
+    private static void writeIntArray(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readIntArray(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * 4);
+        return values;
+    }
+}
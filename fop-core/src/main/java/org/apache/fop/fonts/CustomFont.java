@@ -485,6 +485,7 @@ public abstract class CustomFont extends Typeface
      */
     public void setKerningEnabled(boolean enabled) {
         this.useKerning = enabled;
+        resetKerningTable();
     }
 
     /**
@@ -511,6 +512,7 @@ public abstract class CustomFont extends Typeface
             kerning = new HashMap<Integer, Map<Integer, Integer>>();
         }
         this.kerning.put(key, value);
+        resetKerningTable();
     }
 
     /**
@@ -524,6 +526,7 @@ public abstract class CustomFont extends Typeface
         } else {
             this.kerning = kerningMap;
         }
+        resetKerningTable();
     }
 
     /**
@@ -581,6 +584,16 @@ public abstract class CustomFont extends Typeface
         this.strikeoutThickness = strikeoutThickness;
     }
 
+    /**
+     * Returns the underline and strikeout metrics as they were set, i.e. 0 for the values that
+     * are derived from other metrics.
+     * @return the underline position and thickness, followed by the strikeout position and
+     * thickness
+     */
+    int[] getLineMetrics() {
+        return new int[] {underlinePosition, underlineThickness, strikeoutPosition, strikeoutThickness};
+    }
+
     /**
      * Returns a Map of used Glyphs.
      * @return Map Map of used Glyphs
@@ -99,6 +99,12 @@ public class DefaultFontConfigurator implements FontConfigurator<EmbedFontInfo>
                         referencedFonts, strict);
                 fontManager.updateReferencedFonts(fontInfoList, matcher);
             }
+            // Let the fonts store their metrics in the font cache once they are loaded
+            if (fontCache != null) {
+                for (EmbedFontInfo embedFontInfo : fontInfoList) {
+                    embedFontInfo.setFontCache(fontCache);
+                }
+            }
             // Update font cache if it has changed
             fontManager.saveCache();
             if (log.isDebugEnabled()) {
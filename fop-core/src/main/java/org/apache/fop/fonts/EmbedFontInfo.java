@@ -58,6 +58,9 @@ public class EmbedFontInfo implements Serializable {
 
     private FontUris fontUris;
 
+    /** the cache for the metrics of the font once it is loaded (may be null) */
+    private transient FontCache fontCache;
+
     /**
      * Main constructor
      * @param fontUris the URI of the XML resource containing font metrics
@@ -209,6 +212,23 @@ public class EmbedFontInfo implements Serializable {
         return embedAsType1;
     }
 
+    /**
+     * Returns the cache for the metrics of the font.
+     * @return the font cache, or null if the metrics are not to be cached
+     */
+    public FontCache getFontCache() {
+        return fontCache;
+    }
+
+    /**
+     * Sets the cache the metrics of the font are stored in once it is loaded, so the font
+     * can later be loaded without parsing the font file.
+     * @param fontCache the font cache, or null if the metrics are not to be cached
+     */
+    public void setFontCache(FontCache fontCache) {
+        this.fontCache = fontCache;
+    }
+
     private void readObject(java.io.ObjectInputStream in)
                 throws IOException, ClassNotFoundException {
         in.defaultReadObject();
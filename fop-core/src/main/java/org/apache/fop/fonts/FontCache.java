@@ -19,20 +19,21 @@
 
 package org.apache.fop.fonts;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.io.Serializable;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -46,14 +47,14 @@ import org.apache.fop.util.LogUtil;
 
 /**
  * Fop cache (currently only used for font info caching)
+ * <p>
+ * Besides the font infos found for the font files, the cache holds the metrics of the fonts
+ * that have been loaded, so they can be rebuilt without parsing the font files again (see
+ * {@link CachedFontMetrics}). The cache is stored in a versioned binary format. When the
+ * cache file is loaded it is mapped into memory, and the metrics are only decoded when the
+ * font is actually used.
  */
-public final class FontCache implements Serializable {
-
-    /**
-     * Serialization Version UID. Change this value if you want to make sure the
-     * user's cache file is purged after an update.
-     */
-    private static final long serialVersionUID = 9129238336422194339L;
+public final class FontCache {
 
     /** logging instance */
     private static Log log = LogFactory.getLog(FontCache.class);
@@ -64,8 +65,19 @@ public final class FontCache implements Serializable {
     /** font cache file path */
     private static final String DEFAULT_CACHE_FILENAME = "fop-fonts.cache";
 
+    /** identifies a font cache file ("FOPC") */
+    private static final int MAGIC = 0x464F5043;
+
+    /**
+     * Version of the cache file format. Change this value if you want to make sure the
+     * user's cache file is purged after an update.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String STRING_ENCODING = "UTF-8";
+
     /** has this cache been changed since it was last read? */
-    private transient boolean changed;
+    private boolean changed;
 
     /** change lock */
     private final boolean[] changeLock = new boolean[1];
@@ -73,20 +85,25 @@ public final class FontCache implements Serializable {
     /**
      * master mapping of font url -&gt; font info. This needs to be a list, since a
      * TTC file may contain more than 1 font.
-     * @serial
      */
     private Map<String, CachedFontFile> fontfileMap;
 
     /**
      * mapping of font url -&gt; file modified date (for all fonts that have failed
      * to load)
-     * @serial
      */
     private Map<String, Long> failedFontMap;
 
-    private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
-        ois.defaultReadObject();
-    }
+    /**
+     * mapping of font metrics key -&gt; metrics of a loaded font
+     */
+    private Map<String, CachedFontMetrics> fontMetricsMap;
+
+    /**
+     * mapping of font metrics key -&gt; encoded metrics of a loaded font, as read from the
+     * cache file and not used since
+     */
+    private Map<String, ByteBuffer> encodedFontMetricsMap;
 
     private static File getUserHome() {
         return toDirectory(System.getProperty("user.home"));
@@ -136,7 +153,7 @@ public final class FontCache implements Serializable {
     /**
      * Reads the default font cache file and returns its contents.
      *
-     * @return the font cache deserialized from the file (or null if no cache
+     * @return the font cache read from the file (or null if no cache
      *         file exists or if it could not be read)
      * @deprecated use {@link #loadFrom(File)} instead
      */
@@ -149,7 +166,7 @@ public final class FontCache implements Serializable {
      *
      * @param cacheFile
      *            the cache file
-     * @return the font cache deserialized from the file (or null if no cache
+     * @return the font cache read from the file (or null if no cache
      *         file exists or if it could not be read)
      */
     public static FontCache loadFrom(File cacheFile) {
@@ -159,34 +176,164 @@ public final class FontCache implements Serializable {
                     log.trace("Loading font cache from "
                             + cacheFile.getCanonicalPath());
                 }
-                InputStream in = new BufferedInputStream(new FileInputStream(cacheFile));
-                ObjectInputStream oin = new ObjectInputStream(in);
+                RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
                 try {
-                    return (FontCache) oin.readObject();
+                    //The mapping stays valid after the file has been closed
+                    FileChannel channel = file.getChannel();
+                    return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
                 } finally {
-                    IOUtils.closeQuietly(oin);
+                    file.close();
                 }
-            } catch (ClassNotFoundException e) {
-                // We don't really care about the exception since it's just a
-                // cache file
-                log.warn("Could not read font cache. Discarding font cache file. Reason: "
-                        + e.getMessage());
             } catch (IOException ioe) {
                 // We don't really care about the exception since it's just a
                 // cache file
                 log.warn("I/O exception while reading font cache ("
                         + ioe.getMessage() + "). Discarding font cache file.");
-                try {
-                    cacheFile.delete();
-                } catch (SecurityException ex) {
-                    log.warn("Failed to delete font cache file: "
-                            + cacheFile.getAbsolutePath());
-                }
+            } catch (RuntimeException re) {
+                // BufferUnderflowException, IllegalArgumentException etc. for a
+                // corrupt cache file
+                log.warn("Could not read font cache (" + re
+                        + "). Discarding font cache file.");
+            }
+            try {
+                cacheFile.delete();
+            } catch (SecurityException ex) {
+                log.warn("Failed to delete font cache file: "
+                        + cacheFile.getAbsolutePath());
             }
         }
         return null;
     }
 
+    private static FontCache read(ByteBuffer in) throws IOException {
+        if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported font cache format");
+        }
+        FontCache cache = new FontCache();
+        int fontFileCount = in.getInt();
+        for (int i = 0; i < fontFileCount; i++) {
+            String key = readString(in);
+            CachedFontFile cachedFontFile = new CachedFontFile(in.getLong());
+            int fontCount = in.getInt();
+            for (int j = 0; j < fontCount; j++) {
+                cachedFontFile.put(readEmbedFontInfo(in));
+            }
+            cache.getFontFileMap().put(key, cachedFontFile);
+        }
+        int failedFontCount = in.getInt();
+        for (int i = 0; i < failedFontCount; i++) {
+            String embedUrl = readString(in);
+            cache.getFailedFontMap().put(embedUrl, in.getLong());
+        }
+        int fontMetricsCount = in.getInt();
+        for (int i = 0; i < fontMetricsCount; i++) {
+            String key = readString(in);
+            int length = in.getInt();
+            ByteBuffer encodedMetrics = in.slice();
+            encodedMetrics.limit(length);
+            in.position(in.position() + length);
+            cache.getEncodedFontMetricsMap().put(key, encodedMetrics);
+        }
+        return cache;
+    }
+
+    private static EmbedFontInfo readEmbedFontInfo(ByteBuffer in) {
+        FontUris fontUris = new FontUris(readURI(in), readURI(in), readURI(in), readURI(in));
+        boolean kerning = in.get() != 0;
+        boolean advanced = in.get() != 0;
+        int tripletCount = in.getInt();
+        List<FontTriplet> triplets = new ArrayList<FontTriplet>(tripletCount);
+        for (int i = 0; i < tripletCount; i++) {
+            String name = readString(in);
+            String style = readString(in);
+            int weight = in.getInt();
+            triplets.add(new FontTriplet(name, style, weight, in.getInt()));
+        }
+        String subFontName = readString(in);
+        String postScriptName = readString(in);
+        String encodingMode = readString(in);
+        String embeddingMode = readString(in);
+        boolean simulateStyle = in.get() != 0;
+        boolean embedAsType1 = in.get() != 0;
+        EmbedFontInfo fontInfo = new EmbedFontInfo(fontUris, kerning, advanced, triplets, subFontName,
+                encodingMode != null ? EncodingMode.valueOf(encodingMode) : null,
+                embeddingMode != null ? EmbeddingMode.valueOf(embeddingMode) : null,
+                simulateStyle, embedAsType1);
+        fontInfo.setPostScriptName(postScriptName);
+        return fontInfo;
+    }
+
+    private static void writeEmbedFontInfo(DataOutputStream out, EmbedFontInfo fontInfo)
+            throws IOException {
+        FontUris fontUris = fontInfo.getFontUris();
+        writeURI(out, fontUris.getEmbed());
+        writeURI(out, fontUris.getMetrics());
+        writeURI(out, fontUris.getAfm());
+        writeURI(out, fontUris.getPfm());
+        out.writeBoolean(fontInfo.getKerning());
+        out.writeBoolean(fontInfo.getAdvanced());
+        List<FontTriplet> triplets = fontInfo.getFontTriplets();
+        out.writeInt(triplets.size());
+        for (FontTriplet triplet : triplets) {
+            writeString(out, triplet.getName());
+            writeString(out, triplet.getStyle());
+            out.writeInt(triplet.getWeight());
+            out.writeInt(triplet.getPriority());
+        }
+        writeString(out, fontInfo.getSubFontName());
+        writeString(out, fontInfo.getPostScriptName());
+        EncodingMode encodingMode = fontInfo.getEncodingMode();
+        writeString(out, encodingMode != null ? encodingMode.name() : null);
+        EmbeddingMode embeddingMode = fontInfo.getEmbeddingMode();
+        writeString(out, embeddingMode != null ? embeddingMode.name() : null);
+        out.writeBoolean(fontInfo.getSimulateStyle());
+        out.writeBoolean(fontInfo.getEmbedAsType1());
+    }
+
+    private static URI readURI(ByteBuffer in) {
+        String uri = readString(in);
+        return uri != null ? URI.create(uri) : null;
+    }
+
+    private static void writeURI(DataOutputStream out, URI uri) throws IOException {
+        writeString(out, uri != null ? uri.toString() : null);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     * @param in the buffer to read from
+     * @return the string (may be null)
+     */
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        try {
+            return new String(bytes, STRING_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes a string in the format of the cache file.
+     * @param out the stream to write to
+     * @param s the string (may be null)
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(STRING_ENCODING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
     /**
      * Writes the font cache to disk.
      *
@@ -210,13 +357,21 @@ public final class FontCache implements Serializable {
             if (changed) {
                 try {
                     log.trace("Writing font cache to " + cacheFile.getCanonicalPath());
-                    OutputStream out = new java.io.FileOutputStream(cacheFile);
-                    out = new java.io.BufferedOutputStream(out);
-                    ObjectOutputStream oout = new ObjectOutputStream(out);
+                    //The current cache file may still be mapped into memory, so it is
+                    //replaced rather than overwritten
+                    File tempFile = File.createTempFile(cacheFile.getName(), ".tmp",
+                            cacheFile.getAbsoluteFile().getParentFile());
+                    DataOutputStream out = new DataOutputStream(new java.io.BufferedOutputStream(
+                            new java.io.FileOutputStream(tempFile)));
                     try {
-                        oout.writeObject(this);
+                        write(out);
                     } finally {
-                        IOUtils.closeQuietly(oout);
+                        IOUtils.closeQuietly(out);
+                    }
+                    if (!tempFile.renameTo(cacheFile)
+                            && !(cacheFile.delete() && tempFile.renameTo(cacheFile))) {
+                        tempFile.delete();
+                        log.warn("Failed to replace font cache file: " + cacheFile.getAbsolutePath());
                     }
                 } catch (IOException ioe) {
                     LogUtil.handleException(log, ioe, true);
@@ -227,6 +382,44 @@ public final class FontCache implements Serializable {
         }
     }
 
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(getFontFileMap().size());
+        for (Map.Entry<String, CachedFontFile> entry : getFontFileMap().entrySet()) {
+            writeString(out, entry.getKey());
+            CachedFontFile cachedFontFile = entry.getValue();
+            out.writeLong(cachedFontFile.lastModified());
+            EmbedFontInfo[] fontInfos = cachedFontFile.getEmbedFontInfos();
+            out.writeInt(fontInfos.length);
+            for (EmbedFontInfo fontInfo : fontInfos) {
+                writeEmbedFontInfo(out, fontInfo);
+            }
+        }
+        out.writeInt(getFailedFontMap().size());
+        for (Map.Entry<String, Long> entry : getFailedFontMap().entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeInt(getFontMetricsMap().size() + getEncodedFontMetricsMap().size());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Map.Entry<String, CachedFontMetrics> entry : getFontMetricsMap().entrySet()) {
+            writeString(out, entry.getKey());
+            buffer.reset();
+            entry.getValue().write(new DataOutputStream(buffer));
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        }
+        for (Map.Entry<String, ByteBuffer> entry : getEncodedFontMetricsMap().entrySet()) {
+            writeString(out, entry.getKey());
+            ByteBuffer encodedMetrics = entry.getValue().duplicate();
+            byte[] bytes = new byte[encodedMetrics.remaining()];
+            encodedMetrics.get(bytes);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
     /**
      * creates a key given a font info for the font mapping
      *
@@ -445,6 +638,72 @@ public final class FontCache implements Serializable {
         return failedFontMap;
     }
 
+    /**
+     * Returns the metrics of a font that has been loaded before. If the font file was
+     * modified since the metrics were cached the entry is removed and null is returned.
+     *
+     * @param key
+     *            the key identifying the font and the options it was loaded with
+     * @param lastModified
+     *            the last modified date/time of the font file
+     * @return the metrics or null if there's no cached entry or if it is outdated
+     */
+    CachedFontMetrics getFontMetrics(String key, long lastModified) {
+        synchronized (changeLock) {
+            CachedFontMetrics metrics = getFontMetricsMap().get(key);
+            if (metrics == null) {
+                ByteBuffer encodedMetrics = getEncodedFontMetricsMap().remove(key);
+                if (encodedMetrics == null) {
+                    return null;
+                }
+                metrics = CachedFontMetrics.read(encodedMetrics.duplicate());
+                getFontMetricsMap().put(key, metrics);
+            }
+            if (metrics.getLastModified() != lastModified) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Font metrics removed from cache: " + key);
+                }
+                getFontMetricsMap().remove(key);
+                changed = true;
+                return null;
+            }
+            return metrics;
+        }
+    }
+
+    /**
+     * Adds the metrics of a loaded font to the cache.
+     *
+     * @param key
+     *            the key identifying the font and the options it was loaded with
+     * @param metrics
+     *            the metrics
+     */
+    void addFontMetrics(String key, CachedFontMetrics metrics) {
+        synchronized (changeLock) {
+            if (log.isTraceEnabled()) {
+                log.trace("Font metrics added to cache: " + key);
+            }
+            getEncodedFontMetricsMap().remove(key);
+            getFontMetricsMap().put(key, metrics);
+            changed = true;
+        }
+    }
+
+    private Map<String, CachedFontMetrics> getFontMetricsMap() {
+        if (fontMetricsMap == null) {
+            fontMetricsMap = new HashMap<String, CachedFontMetrics>();
+        }
+        return fontMetricsMap;
+    }
+
+    private Map<String, ByteBuffer> getEncodedFontMetricsMap() {
+        if (encodedFontMetricsMap == null) {
+            encodedFontMetricsMap = new HashMap<String, ByteBuffer>();
+        }
+        return encodedFontMetricsMap;
+    }
+
     /**
      * Clears font cache
      */
@@ -455,6 +714,8 @@ public final class FontCache implements Serializable {
             }
             fontfileMap = null;
             failedFontMap = null;
+            fontMetricsMap = null;
+            encodedFontMetricsMap = null;
             changed = true;
         }
     }
@@ -483,8 +744,7 @@ public final class FontCache implements Serializable {
         }
     }
 
-    private static class CachedFontFile implements Serializable {
-        private static final long serialVersionUID = 4524237324330578883L;
+    private static class CachedFontFile {
 
         /** file modify date (if available) */
         private long lastModified = -1;
@@ -134,7 +134,10 @@ public class FontManager {
     }
 
     /**
-     * Saves the FontCache as necessary
+     * Saves the FontCache as necessary. This is done when the fonts are set up for a document.
+     * The metrics of the fonts loaded while documents are processed are only stored in the
+     * cache file the next time it is saved, so applications may call this once they are done
+     * processing documents.
      *
      * @throws FOPException fop exception
      */
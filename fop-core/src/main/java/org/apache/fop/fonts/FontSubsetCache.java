@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>A bounded cache of font subsets that is shared by the documents created with one
+ * {@link org.apache.fop.apps.FopFactory}, so that documents using the same glyphs of a font
+ * do not subset it again. The subsets are keyed by the font file, the glyphs used and their
+ * order in the subset, the embedding mode and, for CFF fonts, the name embedded in the
+ * subset. A subset may also hold its encoded (i.e. compressed) form, so that it does not need
+ * to be compressed again either.</p>
+ *
+ * <p>The cache is bounded by the number of bytes of the subsets it holds. The least recently
+ * used subsets are evicted first. The cache is thread-safe.</p>
+ */
+public final class FontSubsetCache {
+
+    private static final Log LOG = LogFactory.getLog(FontSubsetCache.class);
+
+    /** The default maximum number of bytes held by the cache */
+    public static final long DEFAULT_SIZE = 16 * 1024 * 1024;
+
+    private final long maximumSize;
+
+    private final Map<Key, Subset> subsets = new LinkedHashMap<Key, Subset>(16, 0.75f, true);
+
+    private long size;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of bytes held by the cache
+     */
+    public FontSubsetCache(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Creates a cache with the size given by the "org.apache.fop.fonts.subset-cache-size"
+     * system property (in bytes), which defaults to {@link #DEFAULT_SIZE}.
+     * @return the cache, or null if the system property is set to 0 to disable caching
+     */
+    public static FontSubsetCache createDefault() {
+        long size = DEFAULT_SIZE;
+        try {
+            size = Long.parseLong(System.getProperty(
+                    "org.apache.fop.fonts.subset-cache-size", Long.toString(DEFAULT_SIZE)));
+        } catch (SecurityException e) {
+            LOG.info("Unable to access org.apache.fop.fonts.subset-cache-size"
+                   + " due to security restriction; defaulting to " + DEFAULT_SIZE + ".");
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for org.apache.fop.fonts.subset-cache-size: "
+                   + e.getMessage() + "; defaulting to " + DEFAULT_SIZE + ".");
+        }
+        return size > 0 ? new FontSubsetCache(size) : null;
+    }
+
+    /**
+     * Looks up the subset of a font for the glyphs it currently uses.
+     * @param font the font
+     * @param embeddedName the font name embedded in the subset
+     * @return the subset, or null if it is not in the cache
+     */
+    public Subset get(MultiByteFont font, String embeddedName) {
+        Key key = createKey(font, embeddedName);
+        Subset subset = null;
+        if (key != null) {
+            synchronized (this) {
+                subset = subsets.get(key);
+            }
+        }
+        if (subset != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return subset;
+    }
+
+    /**
+     * Caches the subset of a font for the glyphs it currently uses.
+     * @param font the font
+     * @param embeddedName the font name embedded in the subset
+     * @param fontBytes the subset
+     * @return the cached subset, or null if the subset of the font cannot be cached
+     */
+    public Subset put(MultiByteFont font, String embeddedName, byte[] fontBytes) {
+        Key key = createKey(font, embeddedName);
+        if (key == null || fontBytes.length > maximumSize) {
+            return null;
+        }
+        Map<Integer, String> glyphNames = font.getUsedGlyphNames();
+        Subset subset = new Subset(fontBytes, glyphNames.isEmpty() ? Collections.<Integer, String>emptyMap()
+                : new LinkedHashMap<Integer, String>(glyphNames));
+        synchronized (this) {
+            Subset previous = subsets.put(key, subset);
+            if (previous != null) {
+                size -= previous.getByteCount();
+            }
+            subset.owner = this;
+            size += subset.getByteCount();
+            evict();
+        }
+        return subset;
+    }
+
+    private synchronized void setEncodedBytes(Subset subset, String encoding, byte[] bytes) {
+        if (subset.owner == this && subset.encodedBytes == null) {
+            subset.encodedBytes = new EncodedBytes(encoding, bytes);
+            size += bytes.length;
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Subset> iter = subsets.values().iterator();
+        while (size > maximumSize && iter.hasNext()) {
+            Subset eldest = iter.next();
+            iter.remove();
+            eldest.owner = null;
+            size -= eldest.getByteCount();
+        }
+    }
+
+    private static Key createKey(MultiByteFont font, String embeddedName) {
+        URI uri = font.getEmbedFileURI();
+        if (uri == null) {
+            return null;
+        }
+        long lastModified = 0;
+        if ("file".equals(uri.getScheme())) {
+            File file = new File(uri);
+            lastModified = file.lastModified();
+        }
+        Map<Integer, Integer> usedGlyphs = font.getUsedGlyphs();
+        long[] glyphs = new long[usedGlyphs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> glyph : usedGlyphs.entrySet()) {
+            glyphs[i++] = ((long) glyph.getKey() << 32) | (glyph.getValue() & 0xFFFFFFFFL);
+        }
+        Arrays.sort(glyphs);
+        return new Key(uri.toString(), lastModified, font.getTTCName(), font.getEmbeddingMode(),
+                font.isOTFFile() ? embeddedName : null, glyphs);
+    }
+
+    /** @return the maximum number of bytes held by this cache */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the number of bytes held by this cache */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /** @return the number of subsets in this cache */
+    public synchronized int getSubsetCount() {
+        return subsets.size();
+    }
+
+    /** @return the number of times a subset was found in this cache */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** @return the number of times a subset was not found in this cache */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "FontSubsetCache[size=" + getSize() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + "]";
+    }
+
+    /** A cached font subset. */
+    public static final class Subset {
+
+        private final byte[] fontBytes;
+
+        private final Map<Integer, String> glyphNames;
+
+        private volatile EncodedBytes encodedBytes;
+
+        /** The cache holding this subset, null once it is evicted */
+        private volatile FontSubsetCache owner;
+
+        private Subset(byte[] fontBytes, Map<Integer, String> glyphNames) {
+            this.fontBytes = fontBytes;
+            this.glyphNames = glyphNames;
+        }
+
+        /**
+         * Returns the subset. The array must not be modified.
+         * @return the subset
+         */
+        public byte[] getFontBytes() {
+            return fontBytes;
+        }
+
+        /**
+         * Returns the glyph names that were mapped when the subset was created.
+         * @return the glyph names, mapped from the glyph indices in the subset
+         * @see MultiByteFont#mapUsedGlyphName(int, String)
+         */
+        public Map<Integer, String> getGlyphNames() {
+            return Collections.unmodifiableMap(glyphNames);
+        }
+
+        /**
+         * Returns the encoded form of the subset.
+         * @param encoding identifies the encoding, for example the filters applied
+         * @return the encoded subset, or null if it is not cached for the given encoding.
+         * The array must not be modified.
+         */
+        public byte[] getEncodedBytes(String encoding) {
+            EncodedBytes encoded = encodedBytes;
+            return encoded != null && encoded.encoding.equals(encoding) ? encoded.bytes : null;
+        }
+
+        /**
+         * Sets the encoded form of the subset. Only one encoded form is held, and none once
+         * the subset is evicted from the cache.
+         * @param encoding identifies the encoding, for example the filters applied
+         * @param bytes the encoded subset, which must not be modified afterwards
+         */
+        public void setEncodedBytes(String encoding, byte[] bytes) {
+            FontSubsetCache cache = owner;
+            if (cache != null) {
+                cache.setEncodedBytes(this, encoding, bytes);
+            }
+        }
+
+        private int getByteCount() {
+            EncodedBytes encoded = encodedBytes;
+            return fontBytes.length + (encoded != null ? encoded.bytes.length : 0);
+        }
+    }
+
+    private static final class EncodedBytes {
+
+        private final String encoding;
+        private final byte[] bytes;
+
+        EncodedBytes(String encoding, byte[] bytes) {
+            this.encoding = encoding;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Key {
+
+        private final String uri;
+        private final long lastModified;
+        private final String ttcName;
+        private final EmbeddingMode embeddingMode;
+        private final String embeddedName;
+        private final long[] glyphs;
+        private final int hash;
+
+        Key(String uri, long lastModified, String ttcName, EmbeddingMode embeddingMode,
+                String embeddedName, long[] glyphs) {
+            this.uri = uri;
+            this.lastModified = lastModified;
+            this.ttcName = ttcName;
+            this.embeddingMode = embeddingMode;
+            this.embeddedName = embeddedName;
+            this.glyphs = glyphs;
+            int h = uri.hashCode() * 31 + (int) (lastModified ^ (lastModified >>> 32));
+            h = h * 31 + (ttcName != null ? ttcName.hashCode() : 0);
+            h = h * 31 + embeddingMode.ordinal();
+            h = h * 31 + (embeddedName != null ? embeddedName.hashCode() : 0);
+            this.hash = h * 31 + Arrays.hashCode(glyphs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && lastModified == other.lastModified
+                    && embeddingMode == other.embeddingMode && uri.equals(other.uri)
+                    && eq(ttcName, other.ttcName) && eq(embeddedName, other.embeddedName)
+                    && Arrays.equals(glyphs, other.glyphs);
+        }
+
+        private static boolean eq(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+}
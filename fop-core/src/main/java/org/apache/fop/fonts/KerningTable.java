@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable kerning table, mapping pairs of characters to the amount of kerning between them.
+ * The pairs are stored in an open-addressing hash table of primitive values, so looking up a
+ * pair involves neither boxing nor any object other than the table's arrays. Characters are
+ * Unicode code points, including those outside the Basic Multilingual Plane.
+ */
+public final class KerningTable {
+
+    /** A table without any kerning pair. */
+    public static final KerningTable EMPTY = new KerningTable(0);
+
+    /** Marks an unused slot. No pair has this key since code points are not negative. */
+    private static final long NO_KEY = -1L;
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    private final int size;
+
+    private KerningTable(int pairCount) {
+        //Keep the load factor at 0.5 at most, so the probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(pairCount, 1) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = pairCount;
+        Arrays.fill(keys, NO_KEY);
+    }
+
+    /**
+     * Creates a kerning table from a kerning map, as returned by
+     * {@link FontMetrics#getKerningInfo()}.
+     * @param kerning the kerning map: the amount of kerning, per second character, per first
+     *          character (may be null)
+     * @return the kerning table
+     */
+    public static KerningTable create(Map<Integer, Map<Integer, Integer>> kerning) {
+        if (kerning == null || kerning.isEmpty()) {
+            return EMPTY;
+        }
+        int pairCount = 0;
+        for (Map<Integer, Integer> pairs : kerning.values()) {
+            pairCount += pairs.size();
+        }
+        KerningTable table = new KerningTable(pairCount);
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                table.put(first.getKey(), second.getKey(), second.getValue());
+            }
+        }
+        return table;
+    }
+
+    private static long key(int ch1, int ch2) {
+        return ((long) ch1 << 32) | (ch2 & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void put(int ch1, int ch2, int value) {
+        if (ch1 < 0) {
+            return;
+        }
+        long key = key(ch1, ch2);
+        int i = slot(key);
+        while (keys[i] != NO_KEY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Returns the amount of kerning between two characters.
+     * @param ch1 the code point of the first character
+     * @param ch2 the code point of the second character
+     * @return the amount of kerning, in font units, 0 if there is no kerning between the
+     *          characters
+     */
+    public int get(int ch1, int ch2) {
+        if (size == 0 || ch1 < 0) {
+            return 0;
+        }
+        long key = key(ch1, ch2);
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != NO_KEY) {
+            if (k == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /** @return the number of kerning pairs in this table */
+    public int size() {
+        return size;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.fop.fonts;
 import java.awt.Rectangle;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.complexscripts.fonts.Positionable;
 import org.apache.fop.complexscripts.fonts.Substitutable;
+import org.apache.fop.fonts.truetype.OFFontLoader;
 
 /**
  * This class is used to defer the loading of a font until it is really used.
@@ -52,8 +54,9 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
     private final String subFontName;
     private final boolean embedded;
     private final InternalResourceResolver resourceResolver;
+    private final FontCache fontCache;
 
-    private boolean isMetricsLoaded;
+    private volatile boolean isMetricsLoaded;
     private Typeface realFont;
     private FontDescriptor realFontDescriptor;
 
@@ -81,6 +84,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         this.subFontName = fontInfo.getSubFontName();
         this.embedded = fontInfo.isEmbedded();
         this.resourceResolver = resourceResolver;
+        this.fontCache = fontInfo.getFontCache();
     }
 
     /** {@inheritDoc} */
@@ -95,12 +99,11 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return sbuf.toString();
     }
 
-    private void load(boolean fail) {
+    private synchronized void load(boolean fail) {
         if (!isMetricsLoaded) {
             try {
                 if (fontUris.getMetrics() != null) {
                     // Use of XML based font metrics is DEPRECATED!
-                    // @todo Possible thread problem here
                     XMLFontMetricsReader reader = null;
                     InputStream in = resourceResolver.getResource(fontUris.getMetrics());
                     InputSource src = new InputSource(in);
@@ -116,8 +119,13 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
                     if (fontUris.getEmbed() == null) {
                         throw new RuntimeException("Cannot load font. No font URIs available.");
                     }
-                    realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                    realFont = loadFromFontCache();
+                    if (realFont == null) {
+                        CustomFont font = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
                                 encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1);
+                        addToFontCache(font);
+                        realFont = font;
+                    }
                 }
                 if (realFont instanceof FontDescriptor) {
                     realFontDescriptor = (FontDescriptor) realFont;
@@ -137,6 +145,52 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         }
     }
 
+    private String getFontCacheKey() {
+        return fontUris.getEmbed() + "|" + subFontName + "|" + embeddingMode.getName() + "|"
+                + encodingMode.getName() + "|" + useKerning + "|" + useAdvanced + "|" + simulateStyle
+                + "|" + embedAsType1;
+    }
+
+    private long getFontFileLastModified() {
+        if (fontCache == null || resourceResolver == null) {
+            return 0;
+        }
+        return FontCache.getLastModified(resourceResolver.resolveFromBase(fontUris.getEmbed()));
+    }
+
+    /**
+     * Builds the font from the metrics stored in the font cache, if available. This avoids
+     * parsing the font file, except for its advanced typographic tables if they are used.
+     */
+    private CustomFont loadFromFontCache() throws IOException {
+        long lastModified = getFontFileLastModified();
+        if (lastModified > 0) {
+            CachedFontMetrics metrics = fontCache.getFontMetrics(getFontCacheKey(), lastModified);
+            if (metrics != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Using cached metrics for font " + fontUris.getEmbed());
+                }
+                MultiByteFont font = metrics.createFont(resourceResolver);
+                if (useAdvanced && metrics.hasAdvancedTables()) {
+                    OFFontLoader.loadAdvancedTables(font, fontUris.getEmbed(), subFontName,
+                            resourceResolver);
+                }
+                return font;
+            }
+        }
+        return null;
+    }
+
+    private void addToFontCache(CustomFont font) {
+        long lastModified = getFontFileLastModified();
+        if (lastModified > 0) {
+            CachedFontMetrics metrics = CachedFontMetrics.of(font, lastModified);
+            if (metrics != null) {
+                fontCache.addFontMetrics(getFontCacheKey(), metrics);
+            }
+        }
+    }
+
     /**
      * Gets the real font.
      * @return the real font
@@ -319,6 +373,13 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return realFont.getKerningInfo();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public int getKernValue(int ch1, int ch2) {
+        load(true);
+        return realFont.getKernValue(ch1, ch2);
+    }
+
     /** {@inheritDoc} */
     public boolean hasFeature(int tableType, String script, String language, String feature) {
         load(true);
@@ -37,6 +37,7 @@ import org.apache.fop.complexscripts.fonts.GlyphPositioningTable;
 import org.apache.fop.complexscripts.fonts.GlyphSubstitutionTable;
 import org.apache.fop.complexscripts.fonts.GlyphTable;
 import org.apache.fop.complexscripts.fonts.Positionable;
+import org.apache.fop.complexscripts.fonts.ShapingCache;
 import org.apache.fop.complexscripts.fonts.Substitutable;
 import org.apache.fop.complexscripts.util.CharAssociation;
 import org.apache.fop.complexscripts.util.CharNormalize;
@@ -65,6 +66,9 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     private GlyphSubstitutionTable gsub;
     private GlyphPositioningTable gpos;
 
+    /* substitution and positioning results of repeated words, null if there is no table or caching is disabled */
+    private ShapingCache shapingCache;
+
     /* dynamic private use (character) mappings */
     private int numMapped;
     private int numUnmapped;
@@ -359,7 +363,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
 
     /** {@inheritDoc} */
     @Override
-    public char mapChar(char c) {
+    public synchronized char mapChar(char c) {
         notifyMapOperation();
         int glyphIndex = findGlyphIndex(c);
         if (glyphIndex == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
@@ -476,6 +480,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public void setGSUB(GlyphSubstitutionTable gsub) {
         if ((this.gsub == null) || (gsub == null)) {
             this.gsub = gsub;
+            initShapingCache();
         } else {
             throw new IllegalStateException("font already associated with GSUB table");
         }
@@ -496,6 +501,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public void setGPOS(GlyphPositioningTable gpos) {
         if ((this.gpos == null) || (gpos == null)) {
             this.gpos = gpos;
+            initShapingCache();
         } else {
             throw new IllegalStateException("font already associated with GPOS table");
         }
@@ -509,6 +515,23 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         return gpos;
     }
 
+    private void initShapingCache() {
+        if (gsub == null && gpos == null) {
+            shapingCache = null;
+        } else if (shapingCache == null) {
+            shapingCache = ShapingCache.createDefault();
+        }
+    }
+
+    /**
+     * Obtain the cache of the substitution and positioning results of this font.
+     * @return the shaping cache or null if the font performs neither substitution nor
+     * positioning, or if caching is disabled
+     */
+    public ShapingCache getShapingCache() {
+        return shapingCache;
+    }
+
     /** {@inheritDoc} */
     public boolean performsSubstitution() {
         return gsub != null;
@@ -518,17 +541,31 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public CharSequence performSubstitution(CharSequence cs, String script, String language, List associations,
                                             boolean retainControls) {
         if (gsub != null) {
+            // input associations are only used if there is one per character
+            boolean cacheable = shapingCache != null
+                    && (associations == null || associations.size() != cs.length());
+            if (cacheable) {
+                CharSequence ocs = shapingCache.getSubstitution(cs, script, language, retainControls, associations);
+                if (ocs != null) {
+                    notifyMapOperation();
+                    return ocs;
+                }
+            }
             CharSequence  ncs = normalize(cs, associations);
             GlyphSequence igs = mapCharsToGlyphs(ncs, associations);
             GlyphSequence ogs = gsub.substitute(igs, script, language);
+            List oal = ogs.getAssociations();
             if (associations != null) {
                 associations.clear();
-                associations.addAll(ogs.getAssociations());
+                associations.addAll(oal);
             }
             if (!retainControls) {
                 ogs = elideControls(ogs);
             }
             CharSequence ocs = mapGlyphsToChars(ogs);
+            if (cacheable) {
+                shapingCache.putSubstitution(cs, script, language, retainControls, ocs, oal);
+            }
             return ocs;
         } else {
             return cs;
@@ -571,9 +608,20 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public int[][]
         performPositioning(CharSequence cs, String script, String language, int fontSize) {
         if (gpos != null) {
+            if (shapingCache != null) {
+                int[][][] cached = new int[1][][];
+                if (shapingCache.getPositioning(cs, script, language, fontSize, cached)) {
+                    notifyMapOperation();
+                    return scaleAdjustments(cached[0], fontSize);
+                }
+            }
             GlyphSequence gs = mapCharsToGlyphs(cs, null);
             int[][] adjustments = new int [ gs.getGlyphCount() ] [ 4 ];
-            if (gpos.position(gs, script, language, fontSize, this.width, adjustments)) {
+            boolean adjusted = gpos.position(gs, script, language, fontSize, this.width, adjustments);
+            if (shapingCache != null) {
+                shapingCache.putPositioning(cs, script, language, fontSize, adjusted ? adjustments : null);
+            }
+            if (adjusted) {
                 return scaleAdjustments(adjustments, fontSize);
             } else {
                 return null;
@@ -113,13 +113,16 @@ public class SingleByteFont extends CustomFont {
                 return size * width[idx];
             }
         } else if (this.additionalEncodings != null) {
-            int encodingIndex = (i / 256) - 1;
-            SimpleSingleByteEncoding encoding = getAdditionalEncoding(encodingIndex);
-            int codePoint = i % 256;
-            NamedCharacter nc = encoding.getCharacterForIndex(codePoint);
-            UnencodedCharacter uc
-                = this.unencodedCharacters.get(nc.getSingleUnicodeValue());
-            return size * uc.getWidth();
+            synchronized (this) {
+                //additional encodings are created by mapChar()
+                int encodingIndex = (i / 256) - 1;
+                SimpleSingleByteEncoding encoding = getAdditionalEncoding(encodingIndex);
+                int codePoint = i % 256;
+                NamedCharacter nc = encoding.getCharacterForIndex(codePoint);
+                UnencodedCharacter uc
+                    = this.unencodedCharacters.get(nc.getSingleUnicodeValue());
+                return size * uc.getWidth();
+            }
         }
         return 0;
     }
@@ -205,7 +208,7 @@ public class SingleByteFont extends CustomFont {
 
     /** {@inheritDoc} */
     @Override
-    public char mapChar(char c) {
+    public synchronized char mapChar(char c) {
         notifyMapOperation();
         char d = lookupChar(c);
         if (d == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
@@ -53,6 +53,9 @@ public abstract class Typeface implements FontMetrics {
 
     private Set<Character> warnedChars;
 
+    /** The kerning table, created from the kerning map when it is first needed */
+    private volatile KerningTable kerningTable;
+
     /**
      * Get the encoding of the font.
      * @return the encoding
@@ -66,6 +69,31 @@ public abstract class Typeface implements FontMetrics {
      */
     public abstract char mapChar(char c);
 
+    /**
+     * Returns the amount of kerning between two characters. Unlike looking the characters up
+     * in the map returned by {@link #getKerningInfo()}, this involves no boxing.
+     * @param ch1 the code point of the first character
+     * @param ch2 the code point of the second character
+     * @return the amount of kerning, in font units, 0 if there is no kerning between the
+     *          characters
+     */
+    public int getKernValue(int ch1, int ch2) {
+        KerningTable table = kerningTable;
+        if (table == null) {
+            table = KerningTable.create(hasKerningInfo() ? getKerningInfo() : null);
+            kerningTable = table;
+        }
+        return table.get(ch1, ch2);
+    }
+
+    /**
+     * Discards the kerning table so it is created again from the kerning map. Must be called
+     * by subclasses when their kerning information changes.
+     */
+    protected void resetKerningTable() {
+        kerningTable = null;
+    }
+
     /**
      * Used for keeping track of character mapping operations in order to determine if a font
      * was used at all or not.
@@ -283,6 +283,34 @@ public class OFFontLoader extends FontLoader {
         }
     }
 
+    /**
+     * Reads the advanced typographic tables (GDEF, GSUB and GPOS) of a font file into a font
+     * whose other metrics are already known, for example from the font cache. Only the tables
+     * and the font header are parsed.
+     * @param font the font to set the tables of
+     * @param fontFileURI the URI of the font file
+     * @param ttcFontName the TrueType sub-font name of TrueType Collection (may be null for
+     *    normal TrueType fonts)
+     * @param resourceResolver the resource resolver to read the font file with
+     * @throws IOException if an I/O error occurs
+     */
+    public static void loadAdvancedTables(MultiByteFont font, URI fontFileURI, String ttcFontName,
+            InternalResourceResolver resourceResolver) throws IOException {
+        InputStream in = resourceResolver.getResource(fontFileURI);
+        try {
+            FontFileReader reader = new FontFileReader(in);
+            String header = readHeader(reader);
+            //The tables are located the same way in CFF based fonts, whose CFF data isn't needed
+            OpenFont otf = new TTFFile(false, true);
+            otf.readAdvancedTables(reader, header, ttcFontName);
+            font.setGDEF(otf.getGDEF());
+            font.setGSUB(otf.getGSUB());
+            font.setGPOS(otf.getGPOS());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
     /**
      * Copy advanced typographic information.
      */
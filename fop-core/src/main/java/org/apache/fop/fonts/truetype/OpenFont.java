@@ -759,6 +759,25 @@ public abstract class OpenFont {
         return true;
     }
 
+    /**
+     * Reads only the advanced typographic tables (GDEF, GSUB and GPOS) of a font, and what they
+     * depend on: the table directory and the font header. The other metrics are not read.
+     *
+     * @param in The FontFileReader to use
+     * @param header the font header (the first four bytes of the file)
+     * @param name The name of the font in a TrueType Collection, ignored otherwise
+     * @throws IOException In case of an I/O problem or if the font is not in the collection
+     */
+    public void readAdvancedTables(FontFileReader in, String header, String name) throws IOException {
+        this.fontFile = in;
+        if (!checkTTC(header, name)) {
+            throw new IOException("Name does not exist in the TrueType collection: " + name);
+        }
+        readDirTabs();
+        readFontHeader();
+        handleCharacterSpacing(in);
+    }
+
     /**
      * Reads a font.
      *
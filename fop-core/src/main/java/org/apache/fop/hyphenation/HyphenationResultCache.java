@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import org.apache.fop.util.SegmentedLRUCache;
+
+/**
+ * <p>A bounded cache of the hyphenations of the words of one hyphenation tree, so that
+ * frequent words are only hyphenated once. The least recently used words are evicted first.</p>
+ * <p>The cache is thread-safe, see {@link SegmentedLRUCache}.</p>
+ */
+public final class HyphenationResultCache {
+
+    /** Stands for words that cannot be hyphenated. */
+    private static final Hyphenation NO_HYPHENATION = new Hyphenation("", new int[0]);
+
+    private final HyphenationLookup hTree;
+
+    private final SegmentedLRUCache<WordKey, Hyphenation> cache;
+
+    /**
+     * Creates a new cache.
+     * @param hTree the hyphenation tree that hyphenates the words which are not in the cache
+     * @param maximumSize the maximum number of words in the cache
+     */
+    public HyphenationResultCache(HyphenationLookup hTree, int maximumSize) {
+        this.cache = new SegmentedLRUCache<WordKey, Hyphenation>(maximumSize);
+        this.hTree = hTree;
+    }
+
+    /**
+     * Hyphenates a word, looking the result up in the cache first.
+     * @param word the word to be hyphenated
+     * @param remainCharCount Minimum number of characters allowed before the hyphenation point
+     * @param pushCharCount Minimum number of characters allowed after the hyphenation point
+     * @return the hyphenated word or null if word is not hyphenated
+     * @see HyphenationLookup#hyphenate(String, int, int)
+     */
+    public Hyphenation hyphenate(String word, int remainCharCount, int pushCharCount) {
+        WordKey key = new WordKey(word, remainCharCount, pushCharCount);
+        Hyphenation hyph = cache.get(key);
+        if (hyph != null) {
+            return hyph == NO_HYPHENATION ? null : hyph;
+        }
+        //hyphenate outside of the lock, a word may occasionally be hyphenated twice
+        hyph = hTree.hyphenate(word, remainCharCount, pushCharCount);
+        cache.put(key, hyph == null ? NO_HYPHENATION : hyph);
+        return hyph;
+    }
+
+    /** @return the hyphenation tree whose results are cached */
+    public HyphenationLookup getHyphenationTree() {
+        return hTree;
+    }
+
+    /** @return the maximum number of words in this cache */
+    public int getMaximumSize() {
+        return cache.getMaximumSize();
+    }
+
+    /** @return the number of words in this cache */
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    /** @return the number of times a word was found in this cache */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    /** @return the number of times a word had to be hyphenated */
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /** @return the ratio of the lookups that were found in this cache, 0 if there was none */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "HyphenationResultCache[" + cache + "]";
+    }
+
+    private static final class WordKey {
+
+        private final String word;
+        private final int remainCharCount;
+        private final int pushCharCount;
+
+        WordKey(String word, int remainCharCount, int pushCharCount) {
+            this.word = word;
+            this.remainCharCount = remainCharCount;
+            this.pushCharCount = pushCharCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return (word.hashCode() * 31 + remainCharCount) * 31 + pushCharCount;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof WordKey)) {
+                return false;
+            }
+            WordKey other = (WordKey) obj;
+            return word.equals(other.word) && remainCharCount == other.remainCharCount
+                    && pushCharCount == other.pushCharCount;
+        }
+    }
+}
@@ -29,7 +29,6 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
@@ -44,7 +43,7 @@ import org.apache.commons.io.IOUtils;
  *
  * This work was originally authored by Carlos Villegas cav@uniscope.co.jp
  */
-public class HyphenationTree extends TernaryTree implements PatternConsumer {
+public class HyphenationTree extends TernaryTree implements PatternConsumer, HyphenationLookup {
 
     private static final long serialVersionUID = -7842107987915665573L;
 
@@ -68,6 +67,9 @@ public class HyphenationTree extends TernaryTree implements PatternConsumer {
      */
     private transient TernaryTree ivalues;
 
+    /** Finds the hyphenation points with the patterns of this tree */
+    private transient HyphenationAlgorithm algorithm;
+
     /** Default constructor. */
     public HyphenationTree() {
         stoplist = new HashMap(23);    // usually a small table
@@ -326,136 +328,9 @@ public class HyphenationTree extends TernaryTree implements PatternConsumer {
      */
     public Hyphenation hyphenate(String word, int remainCharCount,
                                  int pushCharCount) {
-        char[] w = word.toCharArray();
-        if (isMultiPartWord(w, w.length)) {
-            List<char[]> words = splitOnNonCharacters(w);
-            return new Hyphenation(new String(w),
-                    getHyphPointsForWords(words, remainCharCount, pushCharCount));
-        } else {
-            return hyphenate(w, 0, w.length, remainCharCount, pushCharCount);
-        }
-    }
-
-    private boolean isMultiPartWord(char[] w, int len) {
-        int wordParts = 0;
-        for (int i = 0; i < len; i++) {
-            char[] c = new char[2];
-            c[0] = w[i];
-            int nc = classmap.find(c, 0);
-            if (nc > 0) {
-                if (wordParts > 1) {
-                    return true;
-                }
-                wordParts = 1;
-            } else {
-                if (wordParts == 1) {
-                    wordParts++;
-                }
-            }
-        }
-        return false;
-    }
-
-    private List<char[]> splitOnNonCharacters(char[] word) {
-        List<Integer> breakPoints = getNonLetterBreaks(word);
-        if (breakPoints.size() == 0) {
-            return Collections.emptyList();
-        }
-        List<char[]> words = new ArrayList<char[]>();
-        for (int ibreak = 0; ibreak < breakPoints.size(); ibreak++) {
-            char[] newWord = getWordFromCharArray(word, ((ibreak == 0)
-                    ? 0 : breakPoints.get(ibreak - 1)), breakPoints.get(ibreak));
-            words.add(newWord);
-        }
-        if (word.length - breakPoints.get(breakPoints.size() - 1) - 1 > 1) {
-            char[] newWord = getWordFromCharArray(word, breakPoints.get(breakPoints.size() - 1),
-                    word.length);
-            words.add(newWord);
-        }
-        return words;
-    }
-
-    private List<Integer> getNonLetterBreaks(char[] word) {
-        char[] c = new char[2];
-        List<Integer> breakPoints = new ArrayList<Integer>();
-        boolean foundLetter = false;
-        for (int i = 0; i < word.length; i++) {
-            c[0] = word[i];
-            if (classmap.find(c, 0) < 0) {
-                if (foundLetter) {
-                    breakPoints.add(i);
-                }
-            } else {
-                foundLetter = true;
-            }
-        }
-        return breakPoints;
-    }
-
-    private char[] getWordFromCharArray(char[] word, int startIndex, int endIndex) {
-        char[] newWord = new char[endIndex - ((startIndex == 0) ? startIndex : startIndex + 1)];
-        int iChar = 0;
-        for (int i = (startIndex == 0) ? 0 : startIndex + 1; i < endIndex; i++) {
-            newWord[iChar++] = word[i];
-        }
-        return newWord;
-    }
-
-    private int[] getHyphPointsForWords(List<char[]> nonLetterWords, int remainCharCount,
-            int pushCharCount) {
-        int[] breaks = new int[0];
-        for (int iNonLetterWord = 0; iNonLetterWord < nonLetterWords.size(); iNonLetterWord++) {
-            char[] nonLetterWord = nonLetterWords.get(iNonLetterWord);
-            Hyphenation curHyph = hyphenate(nonLetterWord, 0, nonLetterWord.length,
-                    (iNonLetterWord == 0) ? remainCharCount : 1,
-                    (iNonLetterWord == nonLetterWords.size() - 1) ? pushCharCount : 1);
-            if (curHyph == null) {
-                continue;
-            }
-            int[] combined = new int[breaks.length + curHyph.getHyphenationPoints().length];
-            int[] hyphPoints = curHyph.getHyphenationPoints();
-            int foreWordsSize = calcForeWordsSize(nonLetterWords, iNonLetterWord);
-            for (int i = 0; i < hyphPoints.length; i++) {
-                hyphPoints[i] += foreWordsSize;
-            }
-            System.arraycopy(breaks, 0, combined, 0, breaks.length);
-            System.arraycopy(hyphPoints, 0, combined, breaks.length, hyphPoints.length);
-            breaks = combined;
-        }
-        return breaks;
-    }
-
-    private int calcForeWordsSize(List<char[]> nonLetterWords, int iNonLetterWord) {
-        int result = 0;
-        for (int i = 0; i < iNonLetterWord; i++) {
-            result += nonLetterWords.get(i).length + 1;
-        }
-        return result;
+        return getAlgorithm().hyphenate(word, remainCharCount, pushCharCount);
     }
 
-    /**
-     * w = "****nnllllllnnn*****",
-     * where n is a non-letter, l is a letter,
-     * all n may be absent, the first n is at offset,
-     * the first l is at offset + iIgnoreAtBeginning;
-     * word = ".llllll.'\0'***",
-     * where all l in w are copied into word.
-     * In the first part of the routine len = w.length,
-     * in the second part of the routine len = word.length.
-     * Three indices are used:
-     * index(w), the index in w,
-     * index(word), the index in word,
-     * letterindex(word), the index in the letter part of word.
-     * The following relations exist:
-     * index(w) = offset + i - 1
-     * index(word) = i - iIgnoreAtBeginning
-     * letterindex(word) = index(word) - 1
-     * (see first loop).
-     * It follows that:
-     * index(w) - index(word) = offset - 1 + iIgnoreAtBeginning
-     * index(w) = letterindex(word) + offset + iIgnoreAtBeginning
-     */
-
     /**
      * Hyphenate word and return an array of hyphenation points.
      * @param w char array that contains the word
@@ -470,91 +345,26 @@ public class HyphenationTree extends TernaryTree implements PatternConsumer {
      */
     public Hyphenation hyphenate(char[] w, int offset, int len,
                                  int remainCharCount, int pushCharCount) {
-        int i;
-        char[] word = new char[len + 3];
-
-        // normalize word
-        char[] c = new char[2];
-        int iIgnoreAtBeginning = 0;
-        int iLength = len;
-        boolean bEndOfLetters = false;
-        for (i = 1; i <= len; i++) {
-            c[0] = w[offset + i - 1];
-            int nc = classmap.find(c, 0);
-            if (nc < 0) {    // found a non-letter character ...
-                if (i == (1 + iIgnoreAtBeginning)) {
-                    // ... before any letter character
-                    iIgnoreAtBeginning++;
-                } else {
-                    // ... after a letter character
-                    bEndOfLetters = true;
-                }
-                iLength--;
-            } else {
-                if (!bEndOfLetters) {
-                    word[i - iIgnoreAtBeginning] = (char)nc;
-                } else {
-                    return null;
-                }
-            }
-        }
+        return getAlgorithm().hyphenate(w, offset, len, remainCharCount, pushCharCount);
+    }
 
-        len = iLength;
-        if (len < (remainCharCount + pushCharCount)) {
-            // word is too short to be hyphenated
-            return null;
-        }
-        int[] result = new int[len + 1];
-        int k = 0;
-
-        // check exception list first
-        String sw = new String(word, 1, len);
-        if (stoplist.containsKey(sw)) {
-            // assume only simple hyphens (Hyphen.pre="-", Hyphen.post = Hyphen.no = null)
-            ArrayList hw = (ArrayList)stoplist.get(sw);
-            int j = 0;
-            for (i = 0; i < hw.size(); i++) {
-                Object o = hw.get(i);
-                // j = index(sw) = letterindex(word)?
-                // result[k] = corresponding index(w)
-                if (o instanceof String) {
-                    j += ((String)o).length();
-                    if (j >= remainCharCount && j < (len - pushCharCount)) {
-                        result[k++] = j + iIgnoreAtBeginning;
-                    }
+    private HyphenationAlgorithm getAlgorithm() {
+        if (algorithm == null) {
+            algorithm = new HyphenationAlgorithm() {
+                int findClass(char[] c) {
+                    return classmap.find(c, 0);
                 }
-            }
-        } else {
-            // use algorithm to get hyphenation points
-            word[0] = '.';                    // word start marker
-            word[len + 1] = '.';              // word end marker
-            word[len + 2] = 0;                // null terminated
-            byte[] il = new byte[len + 3];    // initialized to zero
-            for (i = 0; i < len + 1; i++) {
-                searchPatterns(word, i, il);
-            }
 
-            // hyphenation points are located where interletter value is odd
-            // i is letterindex(word),
-            // i + 1 is index(word),
-            // result[k] = corresponding index(w)
-            for (i = 0; i < len; i++) {
-                if (((il[i + 1] & 1) == 1) && i >= remainCharCount
-                        && i <= (len - pushCharCount)) {
-                    result[k++] = i + iIgnoreAtBeginning;
+                List getException(String word) {
+                    return (List) stoplist.get(word);
                 }
-            }
-        }
-
 
-        if (k > 0) {
-            // trim result array
-            int[] res = new int[k];
-            System.arraycopy(result, 0, res, 0, k);
-            return new Hyphenation(new String(w, offset, len), res);
-        } else {
-            return null;
+                void searchPatterns(char[] word, int index, byte[] il) {
+                    HyphenationTree.this.searchPatterns(word, index, il);
+                }
+            };
         }
+        return algorithm;
     }
 
     /**
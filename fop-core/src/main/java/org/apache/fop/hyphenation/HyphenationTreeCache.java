@@ -19,37 +19,129 @@
 
 package org.apache.fop.hyphenation;
 
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.fop.util.SegmentedLRUCache;
 
 /**
- * <p>This is a cache for HyphenationTree instances.</p>
+ * <p>This is a cache for hyphenation trees, and for the hyphenations of the words
+ * of each tree.</p>
+ * <p>The cache is thread-safe and lookups don't lock.</p>
  */
 public class HyphenationTreeCache {
 
+    /** The default maximum number of hyphenated words cached per hyphenation tree */
+    public static final int DEFAULT_RESULT_CACHE_SIZE = 4096;
+
     /** Contains the cached hyphenation trees */
-    private Hashtable hyphenTrees = new Hashtable();
+    private final ConcurrentMap<String, HyphenationLookup> hyphenTrees
+            = new ConcurrentHashMap<String, HyphenationLookup>();
     /** Used to avoid multiple error messages for the same language if a pattern file is missing. */
-    private Set missingHyphenationTrees;
+    private final Set<String> missingHyphenationTrees
+            = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** The hyphenated words of each hyphenation tree, which are compared by identity */
+    private final ConcurrentMap<HyphenationLookup, HyphenationResultCache> resultCaches
+            = new ConcurrentHashMap<HyphenationLookup, HyphenationResultCache>();
+
+    private final int resultCacheSize;
+
+    /**
+     * Creates a new cache. The "org.apache.fop.hyphenation.result-cache-size" system property
+     * gives the maximum number of hyphenated words cached per hyphenation tree, 0 not to cache
+     * them. It defaults to {@link #DEFAULT_RESULT_CACHE_SIZE}.
+     */
+    public HyphenationTreeCache() {
+        this(getDefaultResultCacheSize());
+    }
+
+    /**
+     * Creates a new cache.
+     * @param resultCacheSize the maximum number of hyphenated words cached per hyphenation
+     *          tree, 0 not to cache them
+     */
+    public HyphenationTreeCache(int resultCacheSize) {
+        if (resultCacheSize < 0) {
+            throw new IllegalArgumentException("resultCacheSize must not be negative: " + resultCacheSize);
+        }
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    private static int getDefaultResultCacheSize() {
+        return SegmentedLRUCache.getSizeProperty("org.apache.fop.hyphenation.result-cache-size",
+                DEFAULT_RESULT_CACHE_SIZE);
+    }
 
     /**
      * Looks in the cache if a hyphenation tree is available and returns it if it is found.
      * @param lang the language
      * @param country the country (may be null or "none")
-     * @return the HyhenationTree instance or null if it's not in the cache
+     * @return the HyhenationTree instance or null if it's not in the cache, or if its patterns
+     *          are in the binary format, which is not loaded into a {@link HyphenationTree}
+     * @deprecated use {@link #getHyphenationLookup(String, String)}
      */
+    @Deprecated
     public HyphenationTree getHyphenationTree(String lang, String country) {
+        HyphenationLookup hTree = getHyphenationLookup(lang, country);
+        return hTree instanceof HyphenationTree ? (HyphenationTree) hTree : null;
+    }
+
+    /**
+     * Looks in the cache if a hyphenation tree is available and returns it if it is found.
+     * @param lang the language
+     * @param country the country (may be null or "none")
+     * @return the hyphenation tree or null if it's not in the cache
+     */
+    public HyphenationLookup getHyphenationLookup(String lang, String country) {
         String key = constructLlccKey(lang, country);
 
         // first try to find it in the cache
-        if (hyphenTrees.containsKey(key)) {
-            return (HyphenationTree)hyphenTrees.get(key);
-        } else if (hyphenTrees.containsKey(lang)) {
-            return (HyphenationTree)hyphenTrees.get(lang);
-        } else {
-            return null;
+        HyphenationLookup hTree = hyphenTrees.get(key);
+        if (hTree == null) {
+            hTree = hyphenTrees.get(lang);
+        }
+        return hTree;
+    }
+
+    /**
+     * Hyphenates a word with a hyphenation tree, looking the result up in the cache of the
+     * hyphenated words of that tree first.
+     * @param hTree the hyphenation tree
+     * @param word the word to be hyphenated
+     * @param remainCharCount Minimum number of characters allowed before the hyphenation point
+     * @param pushCharCount Minimum number of characters allowed after the hyphenation point
+     * @return the hyphenated word or null if word is not hyphenated
+     */
+    public Hyphenation hyphenate(HyphenationLookup hTree, String word, int remainCharCount,
+            int pushCharCount) {
+        if (resultCacheSize == 0) {
+            return hTree.hyphenate(word, remainCharCount, pushCharCount);
+        }
+        HyphenationResultCache results = resultCaches.get(hTree);
+        if (results == null) {
+            results = new HyphenationResultCache(hTree, resultCacheSize);
+            HyphenationResultCache existing = resultCaches.putIfAbsent(hTree, results);
+            if (existing != null) {
+                results = existing;
+            }
         }
+        return results.hyphenate(word, remainCharCount, pushCharCount);
+    }
+
+    /**
+     * Returns the caches of the hyphenated words, one per hyphenation tree that has been used
+     * to hyphenate words. They give access to the hit rate of each cache.
+     * @return the caches of the hyphenated words
+     */
+    public Collection<HyphenationResultCache> getResultCaches() {
+        return Collections.unmodifiableCollection(
+                new ArrayList<HyphenationResultCache>(resultCaches.values()));
     }
 
     /**
@@ -89,8 +181,19 @@ public class HyphenationTreeCache {
      * Cache a hyphenation tree under its key.
      * @param key the key (ex. "de_CH" or "en")
      * @param hTree the hyphenation tree
+     * @deprecated use {@link #cache(String, HyphenationLookup)}
      */
+    @Deprecated
     public void cache(String key, HyphenationTree hTree) {
+        cache(key, (HyphenationLookup) hTree);
+    }
+
+    /**
+     * Cache a hyphenation tree under its key.
+     * @param key the key (ex. "de_CH" or "en")
+     * @param hTree the hyphenation tree
+     */
+    public void cache(String key, HyphenationLookup hTree) {
         hyphenTrees.put(key, hTree);
     }
 
@@ -101,9 +204,6 @@ public class HyphenationTreeCache {
      * @param key the key (ex. "de_CH" or "en")
      */
     public void noteMissing(String key) {
-        if (missingHyphenationTrees == null) {
-            missingHyphenationTrees = new java.util.HashSet();
-        }
         missingHyphenationTrees.add(key);
     }
 
@@ -115,7 +215,7 @@ public class HyphenationTreeCache {
      * @return true if the hyphenation tree is unavailable
      */
     public boolean isMissing(String key) {
-        return (missingHyphenationTrees != null && missingHyphenationTrees.contains(key));
+        return missingHyphenationTrees.contains(key);
     }
 
 }
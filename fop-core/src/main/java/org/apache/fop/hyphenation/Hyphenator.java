@@ -20,10 +20,13 @@
 package org.apache.fop.hyphenation;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Map;
 
 import org.xml.sax.InputSource;
@@ -47,7 +50,7 @@ public final class Hyphenator {
     /** logging instance */
     private static final Log log = LogFactory.getLog(Hyphenator.class);
 
-    private static HyphenationTreeCache hTreeCache;
+    private static volatile HyphenationTreeCache hTreeCache = new HyphenationTreeCache();
 
     /** Enables a dump of statistics. Note: If activated content is sent to System.out! */
     private static boolean statisticsDump;
@@ -61,10 +64,7 @@ public final class Hyphenator {
     private Hyphenator() { }
 
     /** @return the default (static) hyphenation tree cache */
-    public static synchronized HyphenationTreeCache getHyphenationTreeCache() {
-        if (hTreeCache == null) {
-            hTreeCache = new HyphenationTreeCache();
-        }
+    public static HyphenationTreeCache getHyphenationTreeCache() {
         return hTreeCache;
     }
 
@@ -72,7 +72,7 @@ public final class Hyphenator {
      * Clears the default hyphenation tree cache.<br>
      * This method can be used if the underlying data files are changed at runtime.
      */
-    public static synchronized void clearHyphenationTreeCache() {
+    public static void clearHyphenationTreeCache() {
         hTreeCache = new HyphenationTreeCache();
     }
 
@@ -84,15 +84,48 @@ public final class Hyphenator {
      * @param country the country (may be null or "none")
      * @param resolver resolver to find the hyphenation files
      * @param hyphPatNames the map with user-configured hyphenation pattern file names
-     * @return the hyphenation tree
+     * @return the hyphenation tree, or null if it is not available or if the patterns are
+     *          in the binary format, which is not loaded into a {@link HyphenationTree}
+     * @deprecated use {@link #getHyphenationLookup(String, String, InternalResourceResolver, Map)}
      */
+    @Deprecated
     public static HyphenationTree getHyphenationTree(String lang, String country,
                                                      InternalResourceResolver resolver, Map hyphPatNames) {
-        return getHyphenationTree(lang, country, resolver, hyphPatNames, null);
+        return toHyphenationTree(getHyphenationLookup(lang, country, resolver, hyphPatNames, null));
     }
 
+    /**
+     * @deprecated use {@link #getHyphenationLookup(String, String, InternalResourceResolver, Map,
+     *          EventBroadcaster)}
+     */
+    @Deprecated
     public static HyphenationTree getHyphenationTree(String lang, String country,
                        InternalResourceResolver resourceResolver, Map hyphPatNames, EventBroadcaster eventBroadcaster) {
+        return toHyphenationTree(getHyphenationLookup(lang, country, resourceResolver, hyphPatNames,
+                eventBroadcaster));
+    }
+
+    private static HyphenationTree toHyphenationTree(HyphenationLookup hTree) {
+        return hTree instanceof HyphenationTree ? (HyphenationTree) hTree : null;
+    }
+
+    /**
+     * Returns a hyphenation tree for a given language and country,
+     * with fallback from (lang,country) to (lang).
+     * The hyphenation trees are cached.
+     * @param lang the language
+     * @param country the country (may be null or "none")
+     * @param resolver resolver to find the hyphenation files
+     * @param hyphPatNames the map with user-configured hyphenation pattern file names
+     * @return the hyphenation tree
+     */
+    public static HyphenationLookup getHyphenationLookup(String lang, String country,
+                                                         InternalResourceResolver resolver, Map hyphPatNames) {
+        return getHyphenationLookup(lang, country, resolver, hyphPatNames, null);
+    }
+
+    public static HyphenationLookup getHyphenationLookup(String lang, String country,
+                       InternalResourceResolver resourceResolver, Map hyphPatNames, EventBroadcaster eventBroadcaster) {
         String llccKey = HyphenationTreeCache.constructLlccKey(lang, country);
         HyphenationTreeCache cache = getHyphenationTreeCache();
 
@@ -101,9 +134,9 @@ public final class Hyphenator {
             return null;
         }
 
-        HyphenationTree hTree;
+        HyphenationLookup hTree;
         // first try to find it in the cache
-        hTree = getHyphenationTreeCache().getHyphenationTree(lang, country);
+        hTree = getHyphenationTreeCache().getHyphenationLookup(lang, country);
         if (hTree != null) {
             return hTree;
         }
@@ -113,14 +146,14 @@ public final class Hyphenator {
             key = llccKey;
         }
         if (resourceResolver != null) {
-            hTree = getUserHyphenationTree(key, resourceResolver);
+            hTree = getUserHyphenationLookup(key, resourceResolver);
         }
         if (hTree == null) {
-            hTree = getFopHyphenationTree(key);
+            hTree = getFopHyphenationLookup(key);
         }
 
         if (hTree == null && country != null && !country.equals("none")) {
-            return getHyphenationTree(lang, null, resourceResolver, hyphPatNames, eventBroadcaster);
+            return getHyphenationLookup(lang, null, resourceResolver, hyphPatNames, eventBroadcaster);
         }
 
         // put it into the pattern cache
@@ -140,7 +173,19 @@ public final class Hyphenator {
     }
 
     private static InputStream getResourceStream(String key) {
-        InputStream is = null;
+        URL url = getResourceURL(key, ".hyp");
+        if (url != null) {
+            try {
+                return url.openStream();
+            } catch (IOException ioe) {
+                log.error("I/O error while opening precompiled hyphenation pattern file " + url, ioe);
+            }
+        }
+        return null;
+    }
+
+    private static URL getResourceURL(String key, String extension) {
+        URL url = null;
         // Try to use Context Class Loader to load the properties file.
         try {
             java.lang.reflect.Method getCCL = Thread.class.getMethod(
@@ -149,8 +194,9 @@ public final class Hyphenator {
                 ClassLoader contextClassLoader = (ClassLoader)getCCL.invoke(
                         Thread.currentThread(),
                         new Object[0]);
-                is = contextClassLoader.getResourceAsStream("hyph/" + key
-                                                            + ".hyp");
+                if (contextClassLoader != null) {
+                    url = contextClassLoader.getResource("hyph/" + key + extension);
+                }
             }
         } catch (NoSuchMethodException e) {
             //ignore, fallback further down
@@ -160,12 +206,29 @@ public final class Hyphenator {
             //ignore, fallback further down
         }
 
-        if (is == null) {
-            is = Hyphenator.class.getResourceAsStream("/hyph/" + key
-                                                      + ".hyp");
+        if (url == null) {
+            url = Hyphenator.class.getResource("/hyph/" + key + extension);
         }
 
-        return is;
+        return url;
+    }
+
+    /**
+     * Loads patterns in the binary pattern format, mapping them if they are in a file.
+     * @param uri the location of the patterns
+     * @param in supplies the patterns if they are not in a file
+     * @return the hyphenation tree
+     * @throws IOException if an I/O error occurs or the patterns are not in the binary format
+     */
+    private static HyphenationLookup readMappedHyphenationTree(URI uri, InputStream in)
+            throws IOException {
+        if ("file".equals(uri.getScheme())) {
+            File file = new File(uri);
+            if (file.isFile()) {
+                return MappedHyphenationTree.map(file);
+            }
+        }
+        return MappedHyphenationTree.read(in);
     }
 
     private static HyphenationTree readHyphenationTree(InputStream in) {
@@ -185,10 +248,38 @@ public final class Hyphenator {
      * Returns a hyphenation tree. This method looks in the resources (getResourceStream) for
      * the hyphenation patterns.
      * @param key the language/country key
-     * @return the hyphenation tree or null if it wasn't found in the resources
+     * @return the hyphenation tree or null if it wasn't found in the resources, or if the
+     *          patterns are in the binary format, which is not loaded into a {@link HyphenationTree}
+     * @deprecated use {@link #getFopHyphenationLookup(String)}
      */
+    @Deprecated
     public static HyphenationTree getFopHyphenationTree(String key) {
-        HyphenationTree hTree = null;
+        return toHyphenationTree(getFopHyphenationLookup(key));
+    }
+
+    /**
+     * Returns a hyphenation tree. This method looks in the resources (getResourceStream) for
+     * the hyphenation patterns.
+     * @param key the language/country key
+     * @return the hyphenation tree or null if it wasn't found in the resources
+     */
+    public static HyphenationLookup getFopHyphenationLookup(String key) {
+        HyphenationLookup hTree = null;
+        URL url = getResourceURL(key, MappedHyphenationTree.EXTENSION);
+        if (url != null) {
+            InputStream in = null;
+            try {
+                //the stream is only opened if the patterns cannot be mapped
+                in = "file".equals(url.getProtocol()) ? null : url.openStream();
+                return readMappedHyphenationTree(url.toURI(), in);
+            } catch (IOException ioe) {
+                log.error("I/O error while loading binary hyphenation pattern file " + url, ioe);
+            } catch (URISyntaxException use) {
+                log.error("Invalid location of binary hyphenation pattern file " + url, use);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
         ObjectInputStream ois = null;
         InputStream is = null;
         try {
@@ -212,15 +303,38 @@ public final class Hyphenator {
      * using configuration settings
      * @param key language key for the requested hyphenation file
      * @param resourceResolver resource resolver to find the hyphenation files
-     * @return the requested HypenationTree or null if it is not available
+     * @return the requested HypenationTree or null if it is not available, or if the patterns
+     *          are in the binary format, which is not loaded into a {@link HyphenationTree}
+     * @deprecated use {@link #getUserHyphenationLookup(String, InternalResourceResolver)}
      */
+    @Deprecated
     public static HyphenationTree getUserHyphenationTree(String key,
             InternalResourceResolver resourceResolver) {
-        HyphenationTree hTree = null;
+        return toHyphenationTree(getUserHyphenationLookup(key, resourceResolver));
+    }
+
+    /**
+     * Load tree from serialized file or xml file
+     * using configuration settings
+     * @param key language key for the requested hyphenation file
+     * @param resourceResolver resource resolver to find the hyphenation files
+     * @return the requested hyphenation tree or null if it is not available
+     */
+    public static HyphenationLookup getUserHyphenationLookup(String key,
+            InternalResourceResolver resourceResolver) {
+        HyphenationLookup hTree = null;
         // I use here the following convention. The file name specified in
         // the configuration is taken as the base name. First we try
         // name + ".hyp" assuming a serialized HyphenationTree. If that fails
         // we try name + ".xml", assumming a raw hyphenation pattern file.
+        // Before that, if no file type is given, name + ".hyb" is tried,
+        // assuming patterns in the binary format of MappedHyphenationTree.
+        if (!key.endsWith(HYPTYPE) && !key.endsWith(XMLTYPE)) {
+            hTree = getMappedHyphenationTree(key + MappedHyphenationTree.EXTENSION, resourceResolver);
+            if (hTree != null) {
+                return hTree;
+            }
+        }
 
         // first try serialized object
         String name = key + ".hyp";
@@ -248,21 +362,21 @@ public final class Hyphenator {
         if (key.endsWith(XMLTYPE)) {
             name = key.replace(XMLTYPE, "");
         }
-        hTree = new HyphenationTree();
+        HyphenationTree patterns = new HyphenationTree();
         try {
             InputStream in = getHyphenationTreeStream(name, resourceResolver);
             try {
                 InputSource src = new InputSource(in);
                 src.setSystemId(name);
-                hTree.loadPatterns(src);
+                patterns.loadPatterns(src);
             } finally {
                 IOUtils.closeQuietly(in);
             }
             if (statisticsDump) {
                 System.out.println("Stats: ");
-                hTree.printStats();
+                patterns.printStats();
             }
-            return hTree;
+            return patterns;
         } catch (HyphenationException ex) {
             log.error("Can't load user patterns from XML file " + name + ": " + ex.getMessage());
             return null;
@@ -274,6 +388,29 @@ public final class Hyphenator {
         }
     }
 
+    private static HyphenationLookup getMappedHyphenationTree(String name,
+            InternalResourceResolver resourceResolver) {
+        InputStream in = null;
+        try {
+            URI uri = resourceResolver.resolveFromBase(InternalResourceResolver.cleanURI(name));
+            if (!"file".equals(uri.getScheme())) {
+                in = resourceResolver.getResource(uri);
+            } else if (!new File(uri).isFile()) {
+                return null;
+            }
+            return readMappedHyphenationTree(uri, in);
+        } catch (URISyntaxException use) {
+            log.debug("An exception was thrown while attempting to load " + name, use);
+        } catch (IOException ioe) {
+            if (log.isDebugEnabled()) {
+                log.debug("I/O problem while trying to load " + name, ioe);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return null;
+    }
+
     private static InputStream getHyphenationTreeStream(String name,
             InternalResourceResolver resourceResolver) throws IOException {
         try {
@@ -304,10 +441,11 @@ public final class Hyphenator {
     public static Hyphenation hyphenate(String lang, String country, InternalResourceResolver resourceResolver,
                                         Map hyphPatNames, String word, int leftMin, int rightMin,
                                         EventBroadcaster eventBroadcaster) {
-        HyphenationTree hTree = getHyphenationTree(lang, country, resourceResolver, hyphPatNames, eventBroadcaster);
+        HyphenationLookup hTree = getHyphenationLookup(lang, country, resourceResolver, hyphPatNames,
+                eventBroadcaster);
         if (hTree == null) {
             return null;
         }
-        return hTree.hyphenate(word, leftMin, rightMin);
+        return getHyphenationTreeCache().hyphenate(hTree, word, leftMin, rightMin);
     }
 }
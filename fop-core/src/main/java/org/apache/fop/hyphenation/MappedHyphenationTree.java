@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A hyphenation tree that is read directly from a buffer in the binary pattern format, which
+ * is typically mapped from a file. Unlike a deserialized {@link HyphenationTree}, loading it
+ * involves no parsing and no copying of the patterns: they are looked up in the buffer, so
+ * the patterns of a language only take heap space for the hyphenation exceptions. The
+ * patterns are written in that format by {@link #write(HyphenationTree, OutputStream)}.
+ * <p>
+ * The tree is read-only: no pattern, class or exception can be added to it.
+ */
+public class MappedHyphenationTree implements HyphenationLookup {
+
+    /** The file extension of the binary pattern format */
+    public static final String EXTENSION = ".hyb";
+
+    /** "FHYB" */
+    private static final int MAGIC = 0x46485942;
+
+    private static final int VERSION = 1;
+
+    private static final byte TEXT = 0;
+
+    private static final byte HYPHEN = 1;
+
+    private final MappedNodes patterns;
+
+    private final MappedNodes classes;
+
+    private final ByteBuffer values;
+
+    private final Map exceptions;
+
+    private final HyphenationAlgorithm algorithm = new HyphenationAlgorithm() {
+        int findClass(char[] c) {
+            return classes.find(c, 0);
+        }
+
+        List getException(String word) {
+            return (List) exceptions.get(word);
+        }
+
+        void searchPatterns(char[] word, int index, byte[] il) {
+            MappedHyphenationTree.this.searchPatterns(word, index, il);
+        }
+    };
+
+    /**
+     * Creates a hyphenation tree from a buffer in the binary pattern format.
+     * @param buffer the buffer, whose content must not change while the tree is used
+     * @throws IOException if the buffer doesn't contain patterns in the binary pattern format
+     */
+    public MappedHyphenationTree(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a binary hyphenation pattern file");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary hyphenation pattern version: " + version);
+            }
+            patterns = new MappedNodes(in);
+            classes = new MappedNodes(in);
+            values = slice(in, in.getInt());
+            exceptions = readExceptions(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated binary hyphenation pattern file");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt binary hyphenation pattern file");
+        }
+    }
+
+    /**
+     * Maps a file in the binary pattern format.
+     * @param file the file
+     * @return the hyphenation tree
+     * @throws IOException if the file cannot be mapped or isn't in the binary pattern format
+     */
+    public static MappedHyphenationTree map(File file) throws IOException {
+        //The mapping stays valid after the channel is closed
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            return new MappedHyphenationTree(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads patterns in the binary pattern format from a stream that cannot be mapped, like a
+     * resource in a JAR file.
+     * @param in the stream, which is not closed
+     * @return the hyphenation tree
+     * @throws IOException if an I/O error occurs or the stream isn't in the binary pattern format
+     */
+    public static MappedHyphenationTree read(InputStream in) throws IOException {
+        return new MappedHyphenationTree(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+    }
+
+    /**
+     * Writes the patterns of a hyphenation tree in the binary pattern format.
+     * @param tree the hyphenation tree
+     * @param out the stream to write to, which is not closed
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(HyphenationTree tree, OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(VERSION);
+        writeNodes(tree, dout);
+        writeNodes(tree.classmap, dout);
+        dout.writeInt(tree.vspace.length());
+        dout.write(tree.vspace.getArray(), 0, tree.vspace.length());
+        dout.writeInt(tree.stoplist.size());
+        for (Object o : tree.stoplist.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            writeString((String) entry.getKey(), dout);
+            List parts = (List) entry.getValue();
+            dout.writeInt(parts.size());
+            for (Object part : parts) {
+                if (part instanceof Hyphen) {
+                    Hyphen hyphen = (Hyphen) part;
+                    dout.writeByte(HYPHEN);
+                    writeString(hyphen.preBreak, dout);
+                    writeString(hyphen.noBreak, dout);
+                    writeString(hyphen.postBreak, dout);
+                } else {
+                    dout.writeByte(TEXT);
+                    writeString((String) part, dout);
+                }
+            }
+        }
+        dout.flush();
+    }
+
+    private static void writeNodes(TernaryTree tree, DataOutputStream out) throws IOException {
+        int nodeCount = tree.sc.length;
+        out.writeInt(nodeCount);
+        out.writeInt(tree.length);
+        out.writeChar(tree.root);
+        writeChars(tree.lo, nodeCount, out);
+        writeChars(tree.hi, nodeCount, out);
+        writeChars(tree.eq, nodeCount, out);
+        writeChars(tree.sc, nodeCount, out);
+        out.writeInt(tree.kv.length());
+        writeChars(tree.kv.getArray(), tree.kv.length(), out);
+    }
+
+    private static void writeChars(char[] chars, int length, DataOutputStream out)
+            throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeChar(chars[i]);
+        }
+    }
+
+    private static void writeString(String s, DataOutputStream out) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(s.length());
+            out.writeChars(s);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer in, int length) {
+        ByteBuffer slice = in.slice();
+        slice.limit(length);
+        in.position(in.position() + length);
+        return slice;
+    }
+
+    private static CharBuffer sliceChars(ByteBuffer in, int length) {
+        return slice(in, length * 2).asCharBuffer();
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + length * 2);
+        return new String(chars);
+    }
+
+    private static HashMap readExceptions(ByteBuffer in) {
+        int count = in.getInt();
+        HashMap exceptions = new HashMap(count * 2);
+        for (int i = 0; i < count; i++) {
+            String word = readString(in);
+            int partCount = in.getInt();
+            ArrayList parts = new ArrayList(partCount);
+            for (int j = 0; j < partCount; j++) {
+                if (in.get() == HYPHEN) {
+                    parts.add(new Hyphen(readString(in), readString(in), readString(in)));
+                } else {
+                    parts.add(readString(in));
+                }
+            }
+            exceptions.put(word, parts);
+        }
+        return exceptions;
+    }
+
+    /** {@inheritDoc} */
+    public Hyphenation hyphenate(String word, int remainCharCount, int pushCharCount) {
+        return algorithm.hyphenate(word, remainCharCount, pushCharCount);
+    }
+
+    /** {@inheritDoc} */
+    public Hyphenation hyphenate(char[] w, int offset, int len, int remainCharCount,
+            int pushCharCount) {
+        return algorithm.hyphenate(w, offset, len, remainCharCount, pushCharCount);
+    }
+
+    /** {@inheritDoc} */
+    public String findPattern(String pat) {
+        char[] key = new char[pat.length() + 1];
+        pat.getChars(0, pat.length(), key, 0);
+        int k = patterns.find(key, 0);
+        if (k >= 0) {
+            return unpackValues(k);
+        }
+        return "";
+    }
+
+    private String unpackValues(int k) {
+        StringBuffer buf = new StringBuffer();
+        byte v = values.get(k++);
+        while (v != 0) {
+            char c = (char)((v >>> 4) - 1 + '0');
+            buf.append(c);
+            c = (char)(v & 0x0f);
+            if (c == 0) {
+                break;
+            }
+            c = (char)(c - 1 + '0');
+            buf.append(c);
+            v = values.get(k++);
+        }
+        return buf.toString();
+    }
+
+    /** Same as {@link HyphenationTree#searchPatterns(char[], int, byte[])}, on the buffer. */
+    private void searchPatterns(char[] word, int index, byte[] il) {
+        CharBuffer sc = patterns.sc;
+        CharBuffer lo = patterns.lo;
+        CharBuffer hi = patterns.hi;
+        CharBuffer eq = patterns.eq;
+        int nodeCount = patterns.nodeCount;
+        int i = index;
+        char p;
+        char q;
+        char sp = word[i];
+        p = patterns.root;
+
+        while (p > 0 && p < nodeCount) {
+            if (sc.get(p) == 0xFFFF) {
+                if (patterns.compareKey(word, i, lo.get(p), true) == 0) {
+                    updateValues(eq.get(p), index, il);
+                }
+                return;
+            }
+            int d = sp - sc.get(p);
+            if (d == 0) {
+                if (sp == 0) {
+                    break;
+                }
+                sp = word[++i];
+                p = eq.get(p);
+                q = p;
+
+                // look for a pattern ending at this position by searching for
+                // the null char ( splitchar == 0 )
+                while (q > 0 && q < nodeCount) {
+                    char c = sc.get(q);
+                    if (c == 0xFFFF) {        // stop at compressed branch
+                        break;
+                    }
+                    if (c == 0) {
+                        updateValues(eq.get(q), index, il);
+                        break;
+                    } else {
+                        q = lo.get(q);
+                    }
+                }
+            } else {
+                p = d < 0 ? lo.get(p) : hi.get(p);
+            }
+        }
+    }
+
+    private void updateValues(int k, int index, byte[] il) {
+        int j = index;
+        byte v = values.get(k++);
+        while (v != 0) {
+            byte value = (byte) ((v >>> 4) - 1);
+            if (j < il.length && value > il[j]) {
+                il[j] = value;
+            }
+            j++;
+            if ((v & 0x0f) == 0) {
+                break;
+            }
+            value = (byte) ((v & 0x0f) - 1);
+            if (j < il.length && value > il[j]) {
+                il[j] = value;
+            }
+            j++;
+            v = values.get(k++);
+        }
+    }
+
+    /**
+     * The nodes of a ternary tree, read from a buffer. See {@link TernaryTree} for the meaning
+     * of the fields.
+     */
+    private static final class MappedNodes {
+
+        private final int nodeCount;
+        private final int keyCount;
+        private final char root;
+        private final CharBuffer lo;
+        private final CharBuffer hi;
+        private final CharBuffer eq;
+        private final CharBuffer sc;
+        private final CharBuffer kv;
+
+        MappedNodes(ByteBuffer in) {
+            nodeCount = in.getInt();
+            keyCount = in.getInt();
+            root = in.getChar();
+            lo = sliceChars(in, nodeCount);
+            hi = sliceChars(in, nodeCount);
+            eq = sliceChars(in, nodeCount);
+            sc = sliceChars(in, nodeCount);
+            kv = sliceChars(in, in.getInt());
+        }
+
+        /**
+         * Compares a null terminated key with a key stored in the key array.
+         * @param key the key
+         * @param start the start of the key
+         * @param k the start of the stored key
+         * @param prefix true if the stored key may be a prefix of the key
+         * @return 0 if the keys are equal
+         */
+        int compareKey(char[] key, int start, int k, boolean prefix) {
+            int i = start;
+            char c;
+            while (key[i] == (c = kv.get(k))) {
+                if (c == 0) {
+                    return 0;
+                }
+                i++;
+                k++;
+            }
+            if (prefix && kv.get(k) == 0) {
+                return 0;
+            }
+            return key[i] - kv.get(k);
+        }
+
+        /** Same as {@link TernaryTree#find(char[], int)}. */
+        int find(char[] key, int start) {
+            int d;
+            char p = root;
+            int i = start;
+            char c;
+
+            while (p != 0) {
+                if (sc.get(p) == 0xFFFF) {
+                    if (compareKey(key, i, lo.get(p), false) == 0) {
+                        return eq.get(p);
+                    } else {
+                        return -1;
+                    }
+                }
+                c = key[i];
+                d = c - sc.get(p);
+                if (d == 0) {
+                    if (c == 0) {
+                        return eq.get(p);
+                    }
+                    i++;
+                    p = eq.get(p);
+                } else if (d < 0) {
+                    p = lo.get(p);
+                } else {
+                    p = hi.get(p);
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -19,10 +19,13 @@
 
 package org.apache.fop.hyphenation;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 
 /**
  * <p>Serialize hyphenation patterns.</p>
@@ -33,6 +36,8 @@ public class SerializeHyphPattern {
 
     private boolean errorDump;
 
+    private boolean binary;
+
     /**
      * Controls the amount of error information dumped.
      * @param errorDump True if more error info should be provided
@@ -41,6 +46,16 @@ public class SerializeHyphPattern {
         this.errorDump = errorDump;
     }
 
+    /**
+     * Controls the format of the compiled pattern files. By default, they contain a serialized
+     * {@link HyphenationTree} and have the ".hyp" extension. In the binary format, they can be
+     * mapped by {@link MappedHyphenationTree} and have the ".hyb" extension.
+     * @param binary True if the pattern files should be written in the binary format
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
     /**
      * Compile all xml files in sourceDir, and write output hyp files in targetDir
      * @param sourceDir Directory with pattern xml files
@@ -57,7 +72,7 @@ public class SerializeHyphPattern {
             for (String sourceFile : sourceFiles) {
                 File infile = new File(sourceDir, sourceFile);
                 String outfilename = sourceFile.substring(0, sourceFile.length()
-                        - extension.length()) + ".hyp";
+                        - extension.length()) + (binary ? MappedHyphenationTree.EXTENSION : ".hyp");
                 File outfile = new File(targetDir, outfilename);
                 serializeFile(infile, outfile);
             }
@@ -75,6 +90,15 @@ public class SerializeHyphPattern {
             HyphenationTree hTree = buildPatternFile(infile);
             // serialize class
             try {
+                if (binary) {
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(outfile));
+                    try {
+                        MappedHyphenationTree.write(hTree, out);
+                    } finally {
+                        out.close();
+                    }
+                    return;
+                }
                 // @SuppressFBWarnings("OS_OPEN_STREAM_EXCEPTION_PATH")
                 ObjectOutputStream out = new ObjectOutputStream(
                         new java.io.BufferedOutputStream(
@@ -131,10 +155,12 @@ public class SerializeHyphPattern {
 
     /**
      * Entry point for ant java task
-     * @param args sourceDir, targetDir
+     * @param args sourceDir, targetDir and, optionally, "binary" to write the pattern files in
+     *          the binary format
      */
     public static void main(String[] args) {
         SerializeHyphPattern ser = new SerializeHyphPattern();
+        ser.setBinary(args.length > 2 && "binary".equals(args[2]));
         ser.serializeDir(new File(args[0]), new File(args[1]));
     }
 
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.image;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlgraphics.image.loader.ImageException;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+
+import org.apache.fop.apps.FOUserAgent;
+
+/**
+ * Preloads images in the background, so that fetching them overlaps with the processing of
+ * the rest of the document. The preloaded images end up in the image cache of the
+ * {@link ImageManager}, like images that are preloaded when they are needed.
+ * <p>
+ * The number of images waiting to be preloaded is bounded. Once the bound is reached, images
+ * are preloaded by the thread asking for them.
+ */
+public final class ImagePrefetcher {
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    /** The maximum number of images waiting to be preloaded, per thread */
+    private static final int MAX_QUEUED_PER_THREAD = 16;
+
+    private final ImageManager imageManager;
+
+    private final ImageSessionContext sessionContext;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a new prefetcher.
+     * @param userAgent the user agent of the rendering run
+     * @param threads the number of threads to preload the images on
+     */
+    public ImagePrefetcher(FOUserAgent userAgent, int threads) {
+        this.imageManager = userAgent.getImageManager();
+        this.sessionContext = userAgent.getImageSessionContext();
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * MAX_QUEUED_PER_THREAD),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "FOP Image Prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        //No shutdown is necessary as idle threads go away by themselves
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts preloading an image.
+     * @param uri the URI of the image
+     * @return the pending image information, to be passed to {@link #getImageInfo(Future)}
+     */
+    public Future<ImageInfo> prefetch(final String uri) {
+        return executor.submit(new Callable<ImageInfo>() {
+            public ImageInfo call() throws ImageException, IOException {
+                return imageManager.getImageInfo(uri, sessionContext);
+            }
+        });
+    }
+
+    /**
+     * Waits for an image to be preloaded, and returns its information.
+     * @param pendingInfo the pending image information returned by {@link #prefetch(String)}
+     * @return the image information
+     * @throws ImageException if the image cannot be preloaded
+     * @throws IOException if an I/O error occurs while preloading the image
+     */
+    public static ImageInfo getImageInfo(Future<ImageInfo> pendingInfo)
+            throws ImageException, IOException {
+        try {
+            return pendingInfo.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an image");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof ImageException) {
+                throw (ImageException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
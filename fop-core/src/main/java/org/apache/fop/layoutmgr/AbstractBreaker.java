@@ -217,6 +217,11 @@ public abstract class AbstractBreaker {
     /** blockListIndex of the current BlockSequence in blockLists */
     protected int blockListIndex;
 
+    /** index of the element following the last break committed to while breaking, or -1 */
+    private int committedStartElementIndex = -1;
+    /** index of the last element before the last break committed to while breaking */
+    private int committedEndElementIndex = -1;
+
 
     /** desired text alignment */
     protected int alignment;
@@ -264,6 +269,17 @@ public abstract class AbstractBreaker {
         return false;
     }
 
+    /**
+     * Returns the number of parts the breaking algorithm may look ahead of the last break
+     * it has committed to. If greater than 0, the areas for the parts are added as soon as
+     * their breaks are settled, rather than once the whole sequence has been broken.
+     * @param blockList the element list about to be broken
+     * @return the maximum lookahead in parts, 0 for no limit
+     */
+    protected int getPartLookahead(BlockSequence blockList) {
+        return 0;
+    }
+
     /**
      * Returns the PageProvider if any. PageBreaker overrides this method because each
      * page may have a different available BPD which needs to be accessible to the breaking
@@ -393,6 +409,8 @@ public abstract class AbstractBreaker {
             log.debug("PLM> blockLists.size() = " + blockLists.size());
             for (blockListIndex = 0; blockListIndex < blockLists.size(); blockListIndex++) {
                 blockList = blockLists.get(blockListIndex);
+                committedStartElementIndex = -1;
+                committedEndElementIndex = -1;
 
                 //debug code start
                 if (log.isDebugEnabled()) {
@@ -411,6 +429,15 @@ public abstract class AbstractBreaker {
                          isPartOverflowRecoveryActivated(), autoHeight, isSinglePartFavored());
 
                 alg.setConstantLineWidth(flowBPD);
+                int lookahead = getPartLookahead(blockList);
+                if (lookahead > 0) {
+                    final BlockSequence committedList = blockList;
+                    alg.setCommitListener(lookahead, new PageBreakingAlgorithm.PageBreakingCommitListener() {
+                        public void notifyCommit(PageBreakingAlgorithm algorithm, int partCount) {
+                            addCommittedAreas(algorithm, partCount, committedList);
+                        }
+                    });
+                }
                 int optimalPageCount = alg.findBreakingPoints(blockList, 1, true,
                         BreakingAlgorithm.ALL_BREAKS);
                 boolean ipdChangesOnNextPage = (alg.getIPDdifference() != 0);
@@ -617,12 +644,19 @@ public abstract class AbstractBreaker {
         int startElementIndex = 0;
         int endElementIndex = 0;
         int lastBreak = -1;
+        // continue after the parts added while the algorithm was running, if any
+        boolean continued = (startPart == 0 && committedStartElementIndex >= 0);
+        if (continued) {
+            startElementIndex = committedStartElementIndex;
+            endElementIndex = committedEndElementIndex;
+            lastBreak = committedEndElementIndex;
+        }
         for (int p = startPart; p < startPart + partCount; p++) {
             PageBreakPosition pbp = alg.getPageBreaks().get(p);
 
             // Check the last break position for forced breaks
             int lastBreakClass;
-            if (p == 0) {
+            if (p == 0 && !continued) {
                 lastBreakClass = effectiveList.getStartOn();
             } else {
                 ListElement lastBreakElement = effectiveList.getElement(endElementIndex);
@@ -714,6 +748,29 @@ public abstract class AbstractBreaker {
                     startElementIndex, endElementIndex);
         }
     }
+
+    /**
+     * Adds the areas for the parts the breaking algorithm has committed to while still
+     * running, and releases the elements before the last committed break, which are not
+     * needed any more. The areas for the following parts are added after these ones.
+     * @param alg the breaking algorithm
+     * @param partCount the number of parts committed to
+     * @param blockList the element list being broken
+     */
+    protected void addCommittedAreas(PageBreakingAlgorithm alg, int partCount, BlockSequence blockList) {
+        int releaseStart = Math.max(committedEndElementIndex, 1);
+        addAreas(alg, partCount, blockList, blockList);
+        int breakIndex = alg.getPageBreaks().get(partCount - 1).getLeafPos();
+        committedStartElementIndex = breakIndex + 1;
+        committedEndElementIndex = breakIndex;
+        if (((KnuthElement) blockList.get(breakIndex)).isGlue()) {
+            committedEndElementIndex--;
+        }
+        for (int i = releaseStart; i < committedEndElementIndex; i++) {
+            blockList.set(i, null);
+        }
+    }
+
     /**
      * Notifies the layout managers about the space and conditional length situation based on
      * the break decisions.
@@ -586,6 +586,8 @@ public abstract class BreakingAlgorithm {
                     this.lastRecovered = null;
                 }
                 elementIndex = restartFrom(lastForced, elementIndex);
+            } else {
+                elementHandled(elementIndex);
             }
 
         }
@@ -608,6 +610,88 @@ public abstract class BreakingAlgorithm {
         return line;
     }
 
+    /**
+     * Empty method, hook for subclasses. Called after an element of the sequence has been
+     * handled, as long as there are active nodes left.
+     * @param elementIndex the index of the element
+     */
+    protected void elementHandled(int elementIndex) {
+    }
+
+    /**
+     * Returns the last node that all the active nodes, and all the nodes the algorithm may
+     * restart from after an overflow, descend from. The breaks up to this node will not
+     * change any more, whatever the rest of the sequence.
+     * @return the common ancestor of the active nodes, or null if there is none
+     */
+    protected KnuthNode getCommonAncestor() {
+        KnuthNode ancestor = null;
+        for (int line = startLine; line < endLine; line++) {
+            for (KnuthNode node = getNode(line); node != null; node = node.next) {
+                ancestor = (ancestor == null) ? node : getCommonAncestor(ancestor, node);
+                if (ancestor == null) {
+                    return null;
+                }
+            }
+        }
+        KnuthNode[] recoveryNodes = {lastTooShort, lastTooLong, lastDeactivated, lastRecovered};
+        for (int i = 0; ancestor != null && i < recoveryNodes.length; i++) {
+            if (recoveryNodes[i] != null) {
+                ancestor = getCommonAncestor(ancestor, recoveryNodes[i].previous);
+            }
+        }
+        return ancestor;
+    }
+
+    /**
+     * Returns the last node the two given nodes both descend from.
+     * @param node1 a node
+     * @param node2 another node
+     * @return the common ancestor, or null if there is none
+     */
+    protected static KnuthNode getCommonAncestor(KnuthNode node1, KnuthNode node2) {
+        while (node1 != null && node2 != null && node1 != node2) {
+            if (node1.line >= node2.line) {
+                node1 = node1.previous;
+            } else {
+                node2 = node2.previous;
+            }
+        }
+        return (node1 == node2) ? node1 : null;
+    }
+
+    /**
+     * Deactivates the active nodes that do not descend from the given node, and forgets the
+     * nodes to restart from after an overflow that do not descend from it either. The breaks
+     * up to the given node are then settled.
+     * @param ancestor the node all remaining nodes must descend from
+     */
+    protected void removeNodesNotDescendingFrom(KnuthNode ancestor) {
+        for (int line = startLine; line < endLine; line++) {
+            KnuthNode node = getNode(line);
+            while (node != null) {
+                KnuthNode next = node.next;
+                if (getCommonAncestor(ancestor, node) != ancestor) {
+                    removeNode(line, node);
+                }
+                node = next;
+            }
+        }
+        if (lastTooShort != null && getCommonAncestor(ancestor, lastTooShort.previous) != ancestor) {
+            lastTooShort = null;
+        }
+        if (lastTooLong != null && getCommonAncestor(ancestor, lastTooLong.previous) != ancestor) {
+            lastTooLong = null;
+        }
+        if (lastDeactivated != null
+                && getCommonAncestor(ancestor, lastDeactivated.previous) != ancestor) {
+            lastDeactivated = null;
+        }
+        if (lastRecovered != null && getCommonAncestor(ancestor, lastRecovered.previous) != ancestor) {
+            lastRecovered = null;
+        }
+    }
+
     /**
      * obtain ipd difference
      * @return an integer
@@ -135,6 +135,44 @@ public class PageBreaker extends AbstractBreaker {
         };
     }
 
+    /**
+     * {@inheritDoc}
+     * The lookahead is bounded if the user agent asks for it, unless the parts of the
+     * element list have to be revisited once it has been broken: for a last or only page,
+     * for column balancing or for floats.
+     */
+    protected int getPartLookahead(BlockSequence blockList) {
+        int lookahead = pslm.getFObj().getUserAgent().getPageBreakingLookahead();
+        if (lookahead <= 0 || needColumnBalancing
+                || pslm.getPageSequence().hasPagePositionLast()
+                || pslm.getPageSequence().hasPagePositionOnly()) {
+            return 0;
+        }
+        for (Object element : blockList) {
+            if (element instanceof KnuthBlockBox && ((KnuthBlockBox) element).hasFloatAnchors()) {
+                return 0;
+            }
+        }
+        return lookahead;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The following parts are then counted from the column after the last committed one,
+     * which is where the page provider now makes the element list start.
+     */
+    protected void addCommittedAreas(PageBreakingAlgorithm alg, int partCount, BlockSequence blockList) {
+        boolean spanAll = pageProvider.isSpanAllForCurrentElementList();
+        super.addCommittedAreas(alg, partCount, blockList);
+        int currentPageNum = pslm.getCurrentPageNum();
+        int currentColumn = pslm.getCurrentPV().getCurrentSpan().getCurrentFlowIndex();
+        if (currentColumn + 1 < pslm.getCurrentPV().getCurrentSpan().getColumnCount()) {
+            pageProvider.setStartOfNextElementList(currentPageNum, currentColumn + 1, spanAll);
+        } else {
+            pageProvider.setStartOfNextElementList(currentPageNum + 1, 0, spanAll);
+        }
+    }
+
     /** {@inheritDoc} */
     protected int handleSpanChange(LayoutContext childLC, int nextSequenceStartsOn) {
         needColumnBalancing = false;
@@ -111,6 +111,13 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
     private int previousFootnoteElementIndex = -2;
     private boolean relayingFootnotes;
 
+    //Used to commit to page breaks before the end of the sequence
+    private int lookahead;
+    private PageBreakingCommitListener commitListener;
+    private KnuthNode committedNode;
+    private int checkedStartLine;
+    private int checkedEndLine;
+
     /**
      * Construct a page breaking algorithm.
      * @param topLevelLM the top level layout manager
@@ -147,6 +154,23 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         this.favorSinglePart = favorSinglePart;
     }
 
+    /**
+     * Bounds the lookahead of the algorithm. Once all the active nodes descend from the
+     * same node, the breaks up to that node cannot change any more and are committed to: their
+     * {@link PageBreakPosition}s are passed to the listener, and removed from the
+     * {@link #getPageBreaks() page breaks} afterwards. If the active nodes still have no common
+     * ancestor when they reach the given number of parts after the last committed break, the
+     * active nodes that do not descend from the best one's ancestor at that distance are
+     * deactivated. The resulting breaks are no longer optimal for the whole sequence, but
+     * the parts can be laid out long before the end of the sequence has been reached.
+     * @param lookahead the maximum number of parts after the last committed break
+     * @param commitListener the listener to notify about committed breaks
+     */
+    public void setCommitListener(int lookahead, PageBreakingCommitListener commitListener) {
+        this.lookahead = lookahead;
+        this.commitListener = commitListener;
+    }
+
     /**
      * This class represents a feasible breaking point
      * with extra information about footnotes.
@@ -244,6 +268,9 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
     @Override
     protected void initialize() {
         super.initialize();
+        committedNode = null;
+        checkedStartLine = -1;
+        checkedEndLine = -1;
         insertedFootnotesLength = 0;
         footnoteListIndex = 0;
         footnoteElementIndex = -1;
@@ -286,7 +313,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         KnuthNode node = lastBeforeKeepContextSwitch;
         lastBeforeKeepContextSwitch = null;
         // content would overflow, insert empty page/column(s) and try again
-        while (!pageProvider.endPage(node.line - 1)) {
+        while (!pageProvider.endPage(getRelativePart(node.line - 1))) {
             log.trace("Adding node for empty column");
             node = createNode(
                     node.position,
@@ -317,11 +344,11 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
          * and the other one corresponds to a page-break, return the page-break node
          */
         if (pageProvider != null) {
-            if (pageProvider.endPage(node1.line - 1)
-                    && !pageProvider.endPage(node2.line - 1)) {
+            if (pageProvider.endPage(getRelativePart(node1.line - 1))
+                    && !pageProvider.endPage(getRelativePart(node2.line - 1))) {
                 return node1;
-            } else if (pageProvider.endPage(node2.line - 1)
-                    && !pageProvider.endPage(node1.line - 1)) {
+            } else if (pageProvider.endPage(getRelativePart(node2.line - 1))
+                    && !pageProvider.endPage(getRelativePart(node1.line - 1))) {
                 return node2;
             }
         }
@@ -528,7 +555,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
                     return p.getPenalty() < KnuthPenalty.INFINITE;
                 case Constants.EN_PAGE:
                     return p.getPenalty() < KnuthPenalty.INFINITE
-                            || !pageProvider.endPage(line - 1);
+                            || !pageProvider.endPage(getRelativePart(line - 1));
                 case Constants.EN_AUTO:
                     log.debug("keep is not auto but context is");
                     return true;
@@ -1065,7 +1092,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         if (difference + bestActiveNode.availableShrink < 0) {
             if (!autoHeight) {
                 if (layoutListener != null) {
-                    layoutListener.notifyOverflow(bestActiveNode.line - 1, -difference, getFObj());
+                    layoutListener.notifyOverflow(getRelativePart(bestActiveNode.line - 1), -difference, getFObj());
                 }
             }
         }
@@ -1153,7 +1180,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             }
         }
         assert (bestActiveNode != null);
-        return bestActiveNode.line;
+        return bestActiveNode.line - getCommittedPartCount();
     }
 
     /**
@@ -1176,7 +1203,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
     protected int getLineWidth(int line) {
         int bpd;
         if (pageProvider != null) {
-            bpd = pageProvider.getAvailableBPD(line);
+            bpd = pageProvider.getAvailableBPD(getRelativePart(line));
         } else {
             bpd = super.getLineWidth(line);
         }
@@ -1186,6 +1213,100 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         return bpd;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void calculateBreakPoints(KnuthNode node, KnuthSequence par, int total) {
+        KnuthNode bestActiveNode = node;
+        for (int i = node.line; i > getCommittedPartCount(); i--) {
+            updateData2(bestActiveNode, par, total);
+            bestActiveNode = bestActiveNode.previous;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void elementHandled(int elementIndex) {
+        if (commitListener == null || handlingFloat() || ipdDifference != 0
+                || (startLine == checkedStartLine && endLine == checkedEndLine)) {
+            return;
+        }
+        checkedStartLine = startLine;
+        checkedEndLine = endLine;
+        int committedPartCount = getCommittedPartCount();
+        int lastLine = endLine - 1;
+        while (getNode(lastLine) == null) {
+            lastLine--;
+        }
+        if (lastLine - committedPartCount > lookahead) {
+            KnuthNode bestNode = null;
+            for (KnuthNode node = getNode(lastLine); node != null; node = node.next) {
+                if (bestNode == null || node.totalDemerits < bestNode.totalDemerits) {
+                    bestNode = node;
+                }
+            }
+            KnuthNode ancestor = bestNode;
+            while (ancestor.line > lastLine - lookahead) {
+                ancestor = ancestor.previous;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Lookahead exceeded, keeping only the nodes after " + ancestor);
+            }
+            removeNodesNotDescendingFrom(ancestor);
+            if (lastBeforeKeepContextSwitch != null
+                    && getCommonAncestor(ancestor, lastBeforeKeepContextSwitch) != ancestor) {
+                lastBeforeKeepContextSwitch = null;
+            }
+        }
+        KnuthNode ancestor = getCommonAncestor();
+        if (ancestor != null && lastBeforeKeepContextSwitch != null) {
+            ancestor = getCommonAncestor(ancestor, lastBeforeKeepContextSwitch);
+        }
+        if (ancestor != null && ancestor.line > committedPartCount) {
+            if (log.isDebugEnabled()) {
+                log.debug("Committing to the breaks up to " + ancestor);
+            }
+            calculateBreakPoints(ancestor, par, ancestor.line + 1);
+            committedNode = ancestor;
+            commitListener.notifyCommit(this, ancestor.line - committedPartCount);
+            pageBreaks.clear();
+        }
+    }
+
+    /**
+     * Converts the index of a part in the sequence into the index the page provider knows it
+     * by, which is relative to the first part that has not been committed to.
+     * @param part the index of the part in the sequence
+     * @return the index of the part relative to the last committed break
+     */
+    private int getRelativePart(int part) {
+        return part - getCommittedPartCount();
+    }
+
+    /**
+     * @return the number of parts whose breaks have been committed to before the end of the
+     * sequence
+     */
+    public int getCommittedPartCount() {
+        return (committedNode == null) ? 0 : committedNode.line;
+    }
+
+    /**
+     * Interface to notify about breaks committed to during page breaking.
+     */
+    public interface PageBreakingCommitListener {
+
+        /**
+         * Issued when the breaks of the next parts will not change any more. Their
+         * {@link PageBreakPosition}s are the first ones in the list returned by
+         * {@link PageBreakingAlgorithm#getPageBreaks()}; they are removed from it once
+         * the listener returns.
+         * @param alg the breaking algorithm
+         * @param partCount the number of parts that have been committed to
+         */
+        void notifyCommit(PageBreakingAlgorithm alg, int partCount);
+
+    }
+
     /**
      * Interface to notify about layout events during page breaking.
      */
@@ -1234,7 +1355,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
          */
         calculateBreakPoints(bestNodeForIPDChange, par, bestNodeForIPDChange.line + 1);
         activeLines = null;
-        return bestNodeForIPDChange.line;
+        return bestNodeForIPDChange.line - getCommittedPartCount();
     }
 
     /**
@@ -1275,7 +1396,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         if (pageProvider == null) {
             return 0;
         }
-        return pageProvider.compareIPDs(line);
+        return pageProvider.compareIPDs(getRelativePart(line));
     }
 
     KnuthNode getBestNodeForLastPage() {
@@ -113,6 +113,11 @@ public class PageProvider implements Constants {
         this.lastReportedBPD = -1;
     }
 
+    /** @return true if the current element list is for a column-spanning section */
+    boolean isSpanAllForCurrentElementList() {
+        return spanAllForCurrentElementList;
+    }
+
     /**
      * Sets the index of the last page. This is done as soon as the position of the last page
      * is known or assumed.
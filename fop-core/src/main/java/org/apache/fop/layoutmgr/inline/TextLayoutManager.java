@@ -748,7 +748,7 @@ public class TextLayoutManager extends LeafNodeLayoutManager {
         lineEndBAP = context.getLineEndBorderAndPaddingWidth();
         alignmentContext = context.getAlignmentContext();
 
-        final List returnList = new LinkedList();
+        final List returnList = new ArrayList(1);
         KnuthSequence sequence = new InlineKnuthSequence();
         GlyphMapping mapping = null;
         GlyphMapping prevMapping = null;
@@ -1146,7 +1146,7 @@ public class TextLayoutManager extends LeafNodeLayoutManager {
             return null;
         }
 
-        final LinkedList returnList = new LinkedList();
+        final List returnList = new ArrayList();
 
         for (; returnedIndices[0] <= returnedIndices[1]; returnedIndices[0]++) {
             GlyphMapping mapping = getGlyphMapping(returnedIndices[0]);
@@ -1200,20 +1200,19 @@ public class TextLayoutManager extends LeafNodeLayoutManager {
             if (foText.charAt(mapping.startIndex) != CharUtilities.SPACE
                     || foText.getWhitespaceTreatment() == Constants.EN_PRESERVE) {
                 // a breaking space that needs to be preserved
-                baseList.addAll(getElementsForBreakingSpace(alignment, mapping, auxiliaryPosition, 0,
-                        mainPosition, mapping.areaIPD.getOpt(), true));
+                addElementsForBreakingSpace(baseList, alignment, mapping, auxiliaryPosition, 0,
+                        mainPosition, mapping.areaIPD.getOpt(), true);
             } else {
                 // a (possible block) of breaking spaces
-                baseList.addAll(getElementsForBreakingSpace(alignment, mapping, mainPosition,
-                        mapping.areaIPD.getOpt(), auxiliaryPosition, 0, false));
+                addElementsForBreakingSpace(baseList, alignment, mapping, mainPosition,
+                        mapping.areaIPD.getOpt(), auxiliaryPosition, 0, false);
             }
         }
     }
 
-    private List getElementsForBreakingSpace(int alignment, GlyphMapping mapping, Position pos2,
-                                             int p2WidthOffset, Position pos3,
+    private void addElementsForBreakingSpace(List elements, int alignment, GlyphMapping mapping,
+                                             Position pos2, int p2WidthOffset, Position pos3,
                                              int p3WidthOffset, boolean skipZeroCheck) {
-        List elements = new ArrayList();
 
         switch (alignment) {
         case EN_CENTER:
@@ -1269,26 +1268,24 @@ public class TextLayoutManager extends LeafNodeLayoutManager {
         case EN_JUSTIFY:
             // justified text:
             // the stretch and shrink depends on the space width
-            elements.addAll(getElementsForJustifiedText(mapping, pos2, p2WidthOffset, pos3,
-                    p3WidthOffset, skipZeroCheck, mapping.areaIPD.getShrink()));
+            addElementsForJustifiedText(elements, mapping, pos2, p2WidthOffset, pos3,
+                    p3WidthOffset, skipZeroCheck, mapping.areaIPD.getShrink());
             break;
 
         default:
             // last line justified, the other lines unjustified:
             // use only the space stretch
-            elements.addAll(getElementsForJustifiedText(mapping, pos2, p2WidthOffset, pos3,
-                    p3WidthOffset, skipZeroCheck, 0));
+            addElementsForJustifiedText(elements, mapping, pos2, p2WidthOffset, pos3,
+                    p3WidthOffset, skipZeroCheck, 0);
         }
-        return elements;
     }
 
-    private List getElementsForJustifiedText(GlyphMapping mapping, Position pos2, int p2WidthOffset,
-                                             Position pos3, int p3WidthOffset, boolean skipZeroCheck,
-                                             int shrinkability) {
+    private void addElementsForJustifiedText(List elements, GlyphMapping mapping, Position pos2,
+                                             int p2WidthOffset, Position pos3, int p3WidthOffset,
+                                             boolean skipZeroCheck, int shrinkability) {
 
         int stretchability = mapping.areaIPD.getStretch();
 
-        List elements = new ArrayList();
         if (skipZeroCheck || lineStartBAP != 0 || lineEndBAP != 0) {
             elements.add(new KnuthGlue(lineEndBAP, 0, 0, auxiliaryPosition, false));
             elements.add(makeZeroWidthPenalty(0));
@@ -1301,7 +1298,6 @@ public class TextLayoutManager extends LeafNodeLayoutManager {
             elements.add(new KnuthGlue(mapping.areaIPD.getOpt(), stretchability, shrinkability,
                     pos2, false));
         }
-        return elements;
     }
 
     private void addElementsForAWordFragment(List baseList, int alignment, GlyphMapping mapping,
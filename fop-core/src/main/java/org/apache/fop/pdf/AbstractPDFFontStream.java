@@ -19,12 +19,20 @@
 
 package org.apache.fop.pdf;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.fop.fonts.FontSubsetCache;
 
 /**
  * Base class for PDF font streams.
  */
 public abstract class AbstractPDFFontStream extends AbstractPDFStream {
 
+    /** The cached font subset this stream's data is taken from, if any */
+    private FontSubsetCache.Subset cachedSubset;
+
     /**
      * Main constructor.
      */
@@ -37,4 +45,67 @@ public abstract class AbstractPDFFontStream extends AbstractPDFStream {
         return PDFFilterList.FONT_FILTER;
     }
 
+    /** {@inheritDoc} */
+    protected boolean isParallelEncodingSupported() {
+        return true;
+    }
+
+    /**
+     * Sets the cached font subset this stream's data is taken from. The encoded form of the
+     * stream data is then also taken from the cached subset, or added to it.
+     * @param subset the cached subset
+     */
+    void setCachedSubset(FontSubsetCache.Subset subset) {
+        this.cachedSubset = subset;
+    }
+
+    /** @return the identification of the encoding of the stream data, or null if not cacheable */
+    private String getEncoding() {
+        if (cachedSubset == null || getDocument() == null || getDocument().isEncryptionActive()) {
+            return null;
+        }
+        return getFilterList().getDescription();
+    }
+
+    private byte[] getEncodedBytes(String encoding) throws IOException {
+        byte[] encoded = cachedSubset.getEncodedBytes(encoding);
+        if (encoded == null) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(getSizeHint());
+            OutputStream filteredOutput = getFilterList().applyFilters(bout);
+            outputRawStreamData(filteredOutput);
+            filteredOutput.close();
+            encoded = bout.toByteArray();
+            cachedSubset.setEncodedBytes(encoding, encoded);
+        }
+        return encoded;
+    }
+
+    /** {@inheritDoc} */
+    protected StreamCache encodeStream() throws IOException {
+        String encoding = getEncoding();
+        if (encoding == null) {
+            return super.encodeStream();
+        }
+        byte[] encoded = getEncodedBytes(encoding);
+        StreamCache encodedStream = StreamCacheFactory.getInstance().createStreamCache(encoded.length);
+        encodedStream.write(encoded);
+        return encodedStream;
+    }
+
+    /** {@inheritDoc} */
+    protected int encodeAndWriteStream(OutputStream out, PDFNumber refLength) throws IOException {
+        String encoding = getEncoding();
+        if (encoding == null) {
+            return super.encodeAndWriteStream(out, refLength);
+        }
+        byte[] encoded = getEncodedBytes(encoding);
+        byte[] header = encode("\nstream\n");
+        byte[] trailer = encode("\nendstream");
+        out.write(header);
+        out.write(encoded);
+        out.write(trailer);
+        refLength.setNumber(encoded.length);
+        return header.length + encoded.length + trailer.length;
+    }
+
 }
@@ -22,6 +22,11 @@ package org.apache.fop.pdf;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.io.output.CountingOutputStream;
 
@@ -41,6 +46,9 @@ public abstract class AbstractPDFStream extends PDFObject {
 
     private PDFNumber refLength = new PDFNumber();
 
+    /** The stream data being encoded on another thread ahead of output, if any */
+    private Future<StreamCache> preEncodedStream;
+
     protected AbstractPDFStream() {
         this(true);
     }
@@ -210,6 +218,87 @@ public abstract class AbstractPDFStream extends PDFObject {
         return bytesWritten;
     }
 
+    /**
+     * Indicates whether the stream data may be encoded on another thread before the stream
+     * itself is output. This requires the raw stream data to be complete at the time the
+     * stream is queued for output, and {@link #outputRawStreamData(OutputStream)} must not
+     * depend on any state shared with other objects.
+     * @return true if the stream may be encoded ahead of its output
+     */
+    protected boolean isParallelEncodingSupported() {
+        return false;
+    }
+
+    /**
+     * Indicates whether the stream data is already being encoded ahead of output.
+     * @return true if the encoding has been scheduled
+     */
+    boolean isEncodingScheduled() {
+        return preEncodedStream != null;
+    }
+
+    /**
+     * Starts encoding the stream data on the given executor. The result is picked up when
+     * the stream is output, producing the same bytes as encoding it during output would.
+     * @param executor the executor to encode the stream data on
+     */
+    void scheduleEncoding(ExecutorService executor) {
+        setupFilterList();
+        preEncodedStream = executor.submit(createEncodingTask());
+    }
+
+    /**
+     * Encodes the stream data right away and releases the raw stream data. The result is
+     * picked up when the stream is output, which may happen much later, for example when
+     * the output of a linearized document is deferred to its end.
+     */
+    void encodeAhead() {
+        setupFilterList();
+        FutureTask<StreamCache> task = new FutureTask<StreamCache>(createEncodingTask());
+        task.run();
+        preEncodedStream = task;
+        releaseRawStreamData();
+    }
+
+    private Callable<StreamCache> createEncodingTask() {
+        return new Callable<StreamCache>() {
+            public StreamCache call() throws IOException {
+                return encodeStream();
+            }
+        };
+    }
+
+    /**
+     * Releases the raw stream data once it has been encoded ahead of output. Only called if
+     * {@link #isParallelEncodingSupported()} returns true. Does nothing by default.
+     */
+    protected void releaseRawStreamData() {
+    }
+
+    private StreamCache takePreEncodedStream() throws IOException {
+        if (preEncodedStream == null) {
+            return null;
+        }
+        try {
+            return preEncodedStream.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding stream: " + ie.getMessage());
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            preEncodedStream = null;
+        }
+    }
+
     /**
      * Overload the base object method so we don't have to copy
      * byte arrays around so much
@@ -217,7 +306,11 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     @Override
     public int output(OutputStream stream) throws IOException {
-        setupFilterList();
+        StreamCache preEncoded = takePreEncodedStream();
+        if (preEncoded == null) {
+            //otherwise already done when the encoding was scheduled
+            setupFilterList();
+        }
 
         CountingOutputStream cout = new CountingOutputStream(stream);
         StringBuilder textBuffer = new StringBuilder(64);
@@ -230,7 +323,7 @@ public abstract class AbstractPDFStream extends PDFObject {
             }
             lengthEntry = refLength;
         } else {
-            encodedStream = encodeStream();
+            encodedStream = (preEncoded != null ? preEncoded : encodeStream());
             lengthEntry = encodedStream.getSize();
         }
 
@@ -240,7 +333,13 @@ public abstract class AbstractPDFStream extends PDFObject {
         //Send encoded stream to target OutputStream
         PDFDocument.flushTextBuffer(textBuffer, cout);
         if (encodedStream == null) {
-            encodeAndWriteStream(cout, refLength);
+            if (preEncoded != null) {
+                outputStreamData(preEncoded, cout);
+                refLength.setNumber(preEncoded.getSize());
+                preEncoded.clear();
+            } else {
+                encodeAndWriteStream(cout, refLength);
+            }
         } else {
             outputStreamData(encodedStream, cout);
             encodedStream.clear(); //Encoded stream can now be discarded
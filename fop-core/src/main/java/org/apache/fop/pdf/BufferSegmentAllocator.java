@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out the off-heap buffer segments used by {@link SegmentedStreamCache}. Segment sizes
+ * are powers of two between {@link #MIN_SEGMENT_SIZE} and {@link #MAX_SEGMENT_SIZE}. Released
+ * segments are kept in per-size free lists and handed out again, so the off-heap memory is
+ * recycled between streams instead of being allocated for each of them. The number of bytes
+ * kept in free lists may be bounded; segments released beyond that are left to the garbage
+ * collector.
+ * <p>
+ * Allocators are shared by all stream caches created by a {@link StreamCacheFactory} and
+ * are therefore thread-safe.
+ */
+abstract class BufferSegmentAllocator {
+
+    /** The size of the smallest segment */
+    static final int MIN_SEGMENT_SIZE = 1 << 12;
+
+    /** The size of the largest segment */
+    static final int MAX_SEGMENT_SIZE = 1 << 20;
+
+    private static final int MIN_SHIFT = 12;
+
+    private static final int MAX_SHIFT = 20;
+
+    private final List<List<ByteBuffer>> freeSegments;
+
+    private final long maxPooledBytes;
+
+    private long pooledBytes;
+
+    private boolean closed;
+
+    /**
+     * Creates a new allocator.
+     * @param maxPooledBytes the maximum number of bytes kept in released segments
+     */
+    BufferSegmentAllocator(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        freeSegments = new ArrayList<List<ByteBuffer>>(MAX_SHIFT - MIN_SHIFT + 1);
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            freeSegments.add(new ArrayList<ByteBuffer>());
+        }
+    }
+
+    /**
+     * Returns the size of the segment to allocate so it holds the given number of bytes.
+     * @param size the number of bytes
+     * @return the segment size
+     */
+    static int getSegmentSize(int size) {
+        if (size <= MIN_SEGMENT_SIZE) {
+            return MIN_SEGMENT_SIZE;
+        } else if (size >= MAX_SEGMENT_SIZE) {
+            return MAX_SEGMENT_SIZE;
+        } else {
+            return Integer.highestOneBit(size - 1) << 1;
+        }
+    }
+
+    private List<ByteBuffer> getFreeList(int segmentSize) {
+        return freeSegments.get(Integer.numberOfTrailingZeros(segmentSize) - MIN_SHIFT);
+    }
+
+    /**
+     * Returns an empty segment that holds at least the given number of bytes or, if that
+     * exceeds {@link #MAX_SEGMENT_SIZE}, a segment of the maximum size.
+     * @param size the number of bytes
+     * @return the segment, cleared and ready to be written to
+     * @throws IOException if an I/O error occurs while allocating the segment, or if the
+     *          allocator has been closed
+     */
+    ByteBuffer allocate(int size) throws IOException {
+        int segmentSize = getSegmentSize(size);
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("The buffer segment allocator has been closed");
+            }
+            List<ByteBuffer> freeList = getFreeList(segmentSize);
+            if (!freeList.isEmpty()) {
+                ByteBuffer segment = freeList.remove(freeList.size() - 1);
+                pooledBytes -= segmentSize;
+                segment.clear();
+                return segment;
+            }
+            return allocateSegment(segmentSize);
+        }
+    }
+
+    /**
+     * Gives back a segment that is not used anymore.
+     * @param segment the segment
+     */
+    synchronized void release(ByteBuffer segment) {
+        int segmentSize = segment.capacity();
+        if (!closed && pooledBytes + segmentSize <= maxPooledBytes) {
+            getFreeList(segmentSize).add(segment);
+            pooledBytes += segmentSize;
+        }
+    }
+
+    /**
+     * Releases the resources held by the allocator. The segments kept for reuse are dropped,
+     * and no segment can be allocated afterwards. The segments still in use must not be used
+     * anymore either.
+     * @throws IOException if an I/O error occurs while releasing the resources
+     */
+    synchronized void close() throws IOException {
+        closed = true;
+        for (List<ByteBuffer> freeList : freeSegments) {
+            freeList.clear();
+        }
+        pooledBytes = 0;
+    }
+
+    /**
+     * Allocates a new segment. Called with the allocator's lock held.
+     * @param segmentSize the size of the segment
+     * @return the segment
+     * @throws IOException if an I/O error occurs while allocating the segment
+     */
+    protected abstract ByteBuffer allocateSegment(int segmentSize) throws IOException;
+
+    /**
+     * Allocates segments as direct buffers outside the Java heap.
+     */
+    static class DirectBuffers extends BufferSegmentAllocator {
+
+        /**
+         * Creates a new allocator.
+         * @param maxPooledBytes the maximum number of bytes kept in released segments
+         */
+        DirectBuffers(long maxPooledBytes) {
+            super(maxPooledBytes);
+        }
+
+        /** {@inheritDoc} */
+        protected ByteBuffer allocateSegment(int segmentSize) {
+            return ByteBuffer.allocateDirect(segmentSize);
+        }
+    }
+
+    /**
+     * Allocates segments as memory-mapped regions of a single temporary spill file. The file
+     * grows as segments are allocated. Since regions can't be given back to the file system,
+     * released segments are always kept for reuse. The file is deleted when the allocator is
+     * closed.
+     */
+    static class MappedFile extends BufferSegmentAllocator {
+
+        private final File directory;
+
+        private File file;
+
+        private RandomAccessFile randomAccessFile;
+
+        private FileChannel channel;
+
+        private long fileSize;
+
+        /**
+         * Creates a new allocator. The spill file is only created when the first segment is
+         * allocated.
+         * @param directory the directory to create the spill file in, or null for the
+         *          default temporary-file directory
+         */
+        MappedFile(File directory) {
+            super(Long.MAX_VALUE);
+            this.directory = directory;
+        }
+
+        /** {@inheritDoc} */
+        protected ByteBuffer allocateSegment(int segmentSize) throws IOException {
+            if (channel == null) {
+                file = File.createTempFile("org.apache.fop.pdf.StreamCache-", ".temp", directory);
+                //in case the allocator isn't closed, or the file can't be deleted while mapped
+                file.deleteOnExit();
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                channel = randomAccessFile.getChannel();
+            }
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, segmentSize);
+            fileSize += segmentSize;
+            return segment;
+        }
+
+        /** {@inheritDoc} */
+        synchronized void close() throws IOException {
+            super.close();
+            if (channel != null) {
+                try {
+                    channel.close();
+                    randomAccessFile.close();
+                } finally {
+                    channel = null;
+                    randomAccessFile = null;
+                    //fails on platforms that don't delete files that are still mapped, the
+                    //file is then deleted on exit
+                    file.delete();
+                    file = null;
+                }
+            }
+        }
+    }
+}
@@ -57,6 +57,12 @@ public class ObjectStream extends PDFStream {
         return reference;
     }
 
+    @Override
+    protected boolean isParallelEncodingSupported() {
+        //the compressed objects are only output while the stream data is written
+        return false;
+    }
+
     @Override
     protected void outputRawStreamData(OutputStream out) throws IOException {
         int currentOffset = 0;
@@ -19,6 +19,8 @@
 
 package org.apache.fop.pdf;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,17 +39,40 @@ class ObjectStreamManager {
 
     private final List<CompressedObjectReference> compressedObjectReferences;
 
+    /** The object streams waiting for {@link #flush(OutputStream)}, null if they are trailer objects */
+    private final List<ObjectStream> pendingObjectStreams;
+
     private int numObjectsInStream;
 
     private ObjectStream currentObjectStream;
 
+    /**
+     * Creates a manager whose object streams are output with the trailer objects of the document.
+     * @param pdfDocument the document
+     */
     ObjectStreamManager(PDFDocument pdfDocument) {
+        this(pdfDocument, false);
+    }
+
+    /**
+     * Creates a manager.
+     * @param pdfDocument the document
+     * @param streamed true if the object streams are output by {@link #flush(OutputStream)},
+     * false if they are output with the trailer objects of the document
+     */
+    ObjectStreamManager(PDFDocument pdfDocument, boolean streamed) {
         this.pdfDocument = pdfDocument;
-        createObjectStream();
         compressedObjectReferences = new ArrayList<CompressedObjectReference>();
+        pendingObjectStreams = streamed ? new ArrayList<ObjectStream>() : null;
+        if (!streamed) {
+            createObjectStream();
+        }
     }
 
     void add(CompressedObject compressedObject) {
+        if (currentObjectStream == null) {
+            createObjectStream();
+        }
         if (numObjectsInStream++ == OBJECT_STREAM_CAPACITY) {
             createObjectStream();
             numObjectsInStream = 1;
@@ -55,12 +80,52 @@ class ObjectStreamManager {
         compressedObjectReferences.add(currentObjectStream.addObject(compressedObject));
     }
 
+    /**
+     * Adds an indirect object, which must not be a stream, to the current object stream.
+     * @param object the object
+     */
+    void addIndirectObject(final PDFObject object) {
+        if (object instanceof CompressedObject) {
+            add((CompressedObject) object);
+        } else {
+            add(new CompressedObject() {
+
+                public PDFObjectNumber getObjectNumber() {
+                    return object.getObjectNumber();
+                }
+
+                public int output(OutputStream outputStream) throws IOException {
+                    return object.output(outputStream);
+                }
+            });
+        }
+    }
+
     private void createObjectStream() {
         currentObjectStream = currentObjectStream == null
                 ? new ObjectStream()
                 : new ObjectStream(currentObjectStream);
         pdfDocument.assignObjectNumber(currentObjectStream);
-        pdfDocument.addTrailerObject(currentObjectStream);
+        if (pendingObjectStreams != null) {
+            pendingObjectStreams.add(currentObjectStream);
+        } else {
+            pdfDocument.addTrailerObject(currentObjectStream);
+        }
+    }
+
+    /**
+     * Outputs the object streams holding the objects added since the last flush. The objects
+     * added afterwards go to new object streams.
+     * @param stream the stream to output the object streams to
+     * @throws IOException if an I/O error occurs
+     */
+    void flush(OutputStream stream) throws IOException {
+        for (ObjectStream objectStream : pendingObjectStreams) {
+            pdfDocument.streamIndirectObject(objectStream, stream);
+        }
+        pendingObjectStreams.clear();
+        currentObjectStream = null;
+        numObjectsInStream = 0;
     }
 
     List<CompressedObjectReference> getCompressedObjectReferences() {
@@ -32,10 +32,12 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.fonts.FontSubsetCache;
 import org.apache.fop.pdf.StandardStructureAttributes.Table.Scope;
 import org.apache.fop.pdf.xref.CrossReferenceStream;
 import org.apache.fop.pdf.xref.CrossReferenceTable;
@@ -90,6 +92,9 @@ public class PDFDocument {
     /** the objects themselves */
     protected List<PDFObject> objects = new LinkedList<PDFObject>();
 
+    /** the streams added since the last call to {@link #encodeDeferredStreams()} */
+    private List<AbstractPDFStream> deferredStreams = new ArrayList<AbstractPDFStream>();
+
     /** Controls the PDF version of this document */
     private VersionController versionController;
 
@@ -174,6 +179,15 @@ public class PDFDocument {
 
     private boolean linearizationEnabled;
 
+    private ParallelStreamEncoder streamEncoder;
+
+    /** Packs the objects into object streams in compact output mode, null otherwise */
+    private ObjectStreamManager objectStreams;
+
+    private ExecutorService fontSubsetExecutor;
+
+    private FontSubsetCache fontSubsetCache;
+
     protected boolean outputStarted;
 
     /**
@@ -482,6 +496,9 @@ public class PDFDocument {
 
         //Add object to list
         this.objects.add(obj);
+        if (obj instanceof AbstractPDFStream && isLinearizationEnabled() && !outputStarted) {
+            this.deferredStreams.add((AbstractPDFStream) obj);
+        }
 
         //Add object to special lists where necessary
         if (obj instanceof PDFFunction) {
@@ -918,6 +935,32 @@ public class PDFDocument {
         return xObject;
     }
 
+    /**
+     * Creates a Form XObject whose contents are only completed later, for example at the end
+     * of the document. The Form XObject is assigned an object number, so it can be referenced
+     * right away, but it must only be added to the document with {@link #addObject(PDFObject)}
+     * once its contents have been set with {@link PDFFormXObject#setContents(PDFStream)}
+     * and are complete.
+     *
+     * @param res the PDF resource context to add to, may be null
+     * @param formres a reference to the PDF Resources for the Form XObject data
+     * @return the PDF Form XObject
+     */
+    public PDFFormXObject makeDeferredFormXObject(
+        PDFResourceContext res,
+        PDFReference formres) {
+
+        PDFFormXObject xObject = new PDFFormXObject(
+                ++this.xObjectCount,
+                formres);
+        assignObjectNumber(xObject);
+        this.resources.addXObject(xObject);
+        if (res != null) {
+            res.addXObject(xObject);
+        }
+        return xObject;
+    }
+
     /**
      * Get the root Outlines object. This method does not write
      * the outline to the PDF document, it simply creates a
@@ -989,9 +1032,30 @@ public class PDFDocument {
         //Write out objects until the list is empty. This approach (used with a
         //LinkedList) allows for output() methods to create and register objects
         //on the fly even during serialization.
+        if (isObjectStreamsEnabled()) {
+            //The object streams are flushed once all objects written so far are packed, which
+            //may register new objects again
+            do {
+                outputObjects(stream);
+                objectStreams.flush(stream);
+            } while (this.objects.size() > 0);
+        } else {
+            outputObjects(stream);
+        }
+    }
+
+    private void outputObjects(OutputStream stream) throws IOException {
+        boolean compact = isObjectStreamsEnabled();
         while (this.objects.size() > 0) {
+            if (streamEncoder != null && !isEncryptionActive()) {
+                streamEncoder.encodeAhead(this.objects);
+            }
             PDFObject object = this.objects.remove(0);
-            streamIndirectObject(object, stream);
+            if (compact && !(object instanceof AbstractPDFStream)) {
+                objectStreams.addIndirectObject(object);
+            } else {
+                streamIndirectObject(object, stream);
+            }
         }
     }
 
@@ -1110,13 +1174,23 @@ public class PDFDocument {
     }
 
     private void outputTrailerObjectsAndXref(OutputStream stream) throws IOException {
-        TrailerOutputHelper trailerOutputHelper = mayCompressStructureTreeElements()
-                ? new CompressedTrailerOutputHelper()
-                : new UncompressedTrailerOutputHelper();
+        TrailerOutputHelper trailerOutputHelper;
+        if (isObjectStreamsEnabled()) {
+            trailerOutputHelper = new ObjectStreamTrailerOutputHelper();
+        } else if (mayCompressStructureTreeElements()) {
+            trailerOutputHelper = new CompressedTrailerOutputHelper();
+        } else {
+            trailerOutputHelper = new UncompressedTrailerOutputHelper();
+        }
         if (structureTreeElements != null) {
             trailerOutputHelper.outputStructureTreeElements(stream);
         }
-        streamIndirectObjects(trailerObjects, stream);
+        if (isObjectStreamsEnabled()) {
+            this.objects.addAll(trailerObjects);
+            output(stream);
+        } else {
+            streamIndirectObjects(trailerObjects, stream);
+        }
         TrailerDictionary trailerDictionary = createTrailerDictionary(true);
         long startxref = trailerOutputHelper.outputCrossReferenceObject(stream, trailerDictionary, 0,
                 indirectObjectOffsets.size(), indirectObjectOffsets.size());
@@ -1206,6 +1280,28 @@ public class PDFDocument {
         }
     }
 
+    /**
+     * Packs all the objects into object streams, which are flushed with the objects written
+     * so far, and writes a cross-reference stream.
+     */
+    private class ObjectStreamTrailerOutputHelper implements TrailerOutputHelper {
+
+        public void outputStructureTreeElements(OutputStream stream) {
+            for (PDFStructElem structElem : structureTreeElements) {
+                objectStreams.add(structElem);
+            }
+        }
+
+        public long outputCrossReferenceObject(OutputStream stream,
+                TrailerDictionary trailerDictionary, int first, int last, int size) throws IOException {
+            assert objects.isEmpty();
+            new CrossReferenceStream(PDFDocument.this, ++objectcount, trailerDictionary, position,
+                    indirectObjectOffsets, objectStreams.getCompressedObjectReferences())
+                    .output(stream);
+            return position;
+        }
+    }
+
     long getCurrentFileSize() {
         return position;
     }
@@ -1221,6 +1317,26 @@ public class PDFDocument {
         return fileIDGenerator;
     }
 
+    /**
+     * Encodes the streams added since the last call and releases their raw data, so that the
+     * memory held until the output is reduced. This is used when the output is deferred to the
+     * end of the document, as it is for linearization, and called as the pages are completed,
+     * once the streams added for a page are complete. The encoded data is kept in the stream
+     * caches created by the {@link StreamCacheFactory}, which may keep it off the heap. Does
+     * nothing when encryption is active, as the encryption of a stream depends on its object
+     * number.
+     */
+    public void encodeDeferredStreams() {
+        if (!isEncryptionActive()) {
+            for (AbstractPDFStream stream : this.deferredStreams) {
+                if (!stream.isEncodingScheduled() && stream.isParallelEncodingSupported()) {
+                    stream.encodeAhead();
+                }
+            }
+        }
+        this.deferredStreams.clear();
+    }
+
     public boolean isLinearizationEnabled() {
         return linearizationEnabled;
     }
@@ -1229,4 +1345,77 @@ public class PDFDocument {
         linearizationEnabled = b;
     }
 
+    /**
+     * Enables the compact output mode, in which all objects other than streams are packed into
+     * compressed object streams, which are written as the pages are completed, and the
+     * cross-reference table is replaced by a cross-reference stream. This requires PDF 1.5,
+     * the version of the document is raised if necessary. The mode is not enabled with
+     * encryption, linearization or a profile that requires an earlier PDF version.
+     * @param enabled true to enable the compact output mode
+     */
+    public void setObjectStreamsEnabled(boolean enabled) {
+        objectStreams = null;
+        if (!enabled) {
+            return;
+        }
+        String reason = null;
+        Object profile = getProfile().isObjectStreamAllowed();
+        if (isEncryptionActive()) {
+            reason = "encryption is active";
+        } else if (isLinearizationEnabled()) {
+            reason = "linearization is enabled";
+        } else if (profile != null) {
+            reason = profile + " is enabled";
+        } else if (getPDFVersion().compareTo(Version.V1_5) < 0) {
+            try {
+                versionController.setPDFVersion(Version.V1_5);
+            } catch (IllegalStateException e) {
+                reason = "the PDF version is fixed at " + getPDFVersionString();
+            }
+        }
+        if (reason != null) {
+            log.warn("Object streams are not used because " + reason);
+        } else {
+            objectStreams = new ObjectStreamManager(this, true);
+        }
+    }
+
+    /** @return true if the objects are packed into object streams */
+    public boolean isObjectStreamsEnabled() {
+        return objectStreams != null && !isLinearizationEnabled() && !isEncryptionActive();
+    }
+
+    /**
+     * Sets the number of threads used to compress streams before they are written. While an
+     * object is written, the streams among the next objects waiting for output are already
+     * being compressed on these threads. The output is the same as without compression
+     * threads. Has no effect when encryption is active. The subsets of the embedded fonts are
+     * also created concurrently, on as many threads.
+     * @param threads the number of threads, 0 to compress the streams while they are written
+     */
+    public void setCompressionThreads(int threads) {
+        streamEncoder = (threads > 0 ? new ParallelStreamEncoder(threads) : null);
+        fontSubsetExecutor = (threads > 0
+                ? ParallelStreamEncoder.createExecutor(threads, "FOP PDF Font Subsetter") : null);
+    }
+
+    /** @return the executor to create font subsets on, or null to create them one by one */
+    ExecutorService getFontSubsetExecutor() {
+        return fontSubsetExecutor;
+    }
+
+    /**
+     * Sets the cache of font subsets that is shared with other documents. Fonts whose
+     * subset is found in the cache are neither subset nor compressed again.
+     * @param fontSubsetCache the cache, null to subset the fonts for this document only
+     */
+    public void setFontSubsetCache(FontSubsetCache fontSubsetCache) {
+        this.fontSubsetCache = fontSubsetCache;
+    }
+
+    /** @return the cache of font subsets shared with other documents, or null */
+    public FontSubsetCache getFontSubsetCache() {
+        return fontSubsetCache;
+    }
+
 }
@@ -50,6 +50,11 @@ public class PDFEmbeddedFile extends PDFStream {
         return false;
     }
 
+    /** {@inheritDoc} */
+    protected void releaseRawStreamData() {
+        //the size of the raw data is still needed for the stream dictionary
+    }
+
     /** {@inheritDoc} */
     protected void populateStreamDict(Object lengthEntry) {
         super.populateStreamDict(lengthEntry);
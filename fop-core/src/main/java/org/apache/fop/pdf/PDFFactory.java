@@ -37,6 +37,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -52,6 +56,7 @@ import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.EmbeddingMode;
 import org.apache.fop.fonts.FontDescriptor;
 import org.apache.fop.fonts.FontMetrics;
+import org.apache.fop.fonts.FontSubsetCache;
 import org.apache.fop.fonts.FontType;
 import org.apache.fop.fonts.LazyFont;
 import org.apache.fop.fonts.MultiByteFont;
@@ -82,6 +87,9 @@ public class PDFFactory {
     private int subsetFontCounter = -1;
     private Map<String, PDFDPart> dparts = new HashMap<String, PDFDPart>();
 
+    /** The font subsets being created concurrently, null if they are created one by one */
+    private List<FontSubset> fontSubsets;
+
     /**
      * Creates a new PDFFactory.
      * @param document the parent PDFDocument needed to register the generated
@@ -1303,20 +1311,29 @@ public class PDFFactory {
 
         // Check if the font is embeddable
         if (desc.isEmbeddable()) {
-            AbstractPDFStream stream = makeFontFile(desc, fontPrefix);
-            if (stream != null) {
-                descriptor.setFontFile(desc.getFontType(), stream);
-                getDocument().registerObject(stream);
-            }
-            CustomFont font = getCustomFont(desc);
-            if (font instanceof CIDFont) {
-                CIDFont cidFont = (CIDFont)font;
-                buildCIDSet(descriptor, cidFont);
+            if (fontSubsets != null && isSubsetEmbedded(desc)) {
+                //the font file and the CID set are added once the subset is created
+                startFontSubset(desc, fontPrefix, descriptor);
+            } else {
+                addFontFile(desc, descriptor, makeFontFile(desc, fontPrefix));
             }
         }
         return descriptor;
     }
 
+    private void addFontFile(FontDescriptor desc, PDFFontDescriptor descriptor,
+            AbstractPDFStream stream) {
+        if (stream != null) {
+            descriptor.setFontFile(desc.getFontType(), stream);
+            getDocument().registerObject(stream);
+        }
+        CustomFont font = getCustomFont(desc);
+        if (font instanceof CIDFont) {
+            CIDFont cidFont = (CIDFont)font;
+            buildCIDSet(descriptor, cidFont);
+        }
+    }
+
     private void buildCIDSet(PDFFontDescriptor descriptor, CIDFont cidFont) {
         BitSet cidSet = cidFont.getCIDSet().getGlyphIndices();
         PDFStream pdfStream = makeStream(null, true);
@@ -1368,21 +1385,18 @@ public class PDFFactory {
             AbstractPDFStream embeddedFont = null;
             if (desc.getFontType() == FontType.TYPE0) {
                 MultiByteFont mbfont = (MultiByteFont) font;
-                FontFileReader reader = new FontFileReader(in);
-                byte[] fontBytes;
-                String header = OFFontLoader.readHeader(reader);
                 boolean isCFF = mbfont.isOTFFile();
+                embeddedFont = createFontStream(font, isCFF);
                 if (font.getEmbeddingMode() == EmbeddingMode.FULL) {
-                    fontBytes = reader.getAllBytes();
+                    FontFileReader reader = new FontFileReader(in);
+                    setFontData(embeddedFont, reader.getAllBytes());
                     if (isCFF) {
                         //Ensure version 1.6 for full OTF CFF embedding
                         document.setPDFVersion(Version.V1_6);
                     }
                 } else {
-                    fontBytes = getFontSubsetBytes(reader, mbfont, header, fontPrefix, desc,
-                            isCFF);
+                    setFontSubset(embeddedFont, in, mbfont, fontPrefix, desc, isCFF);
                 }
-                embeddedFont = getFontStream(font, fontBytes, isCFF);
             } else if (desc.getFontType() == FontType.TYPE1) {
                 if (font.getEmbeddingMode() != EmbeddingMode.SUBSET) {
                     embeddedFont = fullyEmbedType1Font(in);
@@ -1399,10 +1413,8 @@ public class PDFFactory {
                 }
             } else if (desc.getFontType() == FontType.TYPE1C) {
                 if (font.getEmbeddingMode() == EmbeddingMode.SUBSET) {
-                    FontFileReader reader = new FontFileReader(in);
-                    String header = OFFontLoader.readHeader(reader);
-                    byte[] fontBytes = getFontSubsetBytes(reader, (MultiByteFont) font, header, fontPrefix, desc, true);
-                    embeddedFont = getFontStream(font, fontBytes, true);
+                    embeddedFont = createFontStream(font, true);
+                    setFontSubset(embeddedFont, in, (MultiByteFont) font, fontPrefix, desc, true);
                 } else {
                     byte[] file = IOUtils.toByteArray(in);
                     PDFCFFStream embeddedFont2 = new PDFCFFStream("Type1C");
@@ -1439,6 +1451,99 @@ public class PDFFactory {
         }
     }
 
+    /**
+     * Lets the fonts made from now on be subset concurrently, if the document has an executor
+     * for that. Their font files are only added by {@link #finishFontSubsets()}.
+     */
+    void startFontSubsets() {
+        if (getDocument().getFontSubsetExecutor() != null) {
+            fontSubsets = new ArrayList<FontSubset>();
+        }
+    }
+
+    /**
+     * Waits for the font subsets started since {@link #startFontSubsets()} and adds their font
+     * files to the font descriptors. Fonts whose subset could not be created are not embedded.
+     */
+    void finishFontSubsets() {
+        if (fontSubsets != null) {
+            List<FontSubset> subsets = fontSubsets;
+            fontSubsets = null;
+            for (FontSubset subset : subsets) {
+                subset.finish();
+            }
+        }
+    }
+
+    private boolean isSubsetEmbedded(FontDescriptor desc) {
+        //Type1C subsets also map the glyph names that the font's encoding is built from,
+        //so they have to be created before the font is completed
+        return desc.getFontType() == FontType.TYPE0
+                && getCustomFont(desc).getEmbeddingMode() != EmbeddingMode.FULL;
+    }
+
+    private void startFontSubset(final FontDescriptor desc, final String fontPrefix,
+            PDFFontDescriptor descriptor) {
+        final MultiByteFont font = (MultiByteFont) getCustomFont(desc);
+        final boolean isCFF = font.isOTFFile();
+        final AbstractPDFStream embeddedFont = createFontStream(font, isCFF);
+        Future<Boolean> embedded = getDocument().getFontSubsetExecutor().submit(
+                new Callable<Boolean>() {
+                    public Boolean call() throws IOException {
+                        InputStream in = font.getInputStream();
+                        if (in == null) {
+                            return Boolean.FALSE;
+                        }
+                        try {
+                            setFontSubset(embeddedFont, in, font, fontPrefix, desc, isCFF);
+                            return Boolean.TRUE;
+                        } finally {
+                            IOUtils.closeQuietly(in);
+                        }
+                    }
+                });
+        fontSubsets.add(new FontSubset(desc, descriptor, embeddedFont, embedded));
+    }
+
+    /** A font subset being created on another thread, and the font file that receives it. */
+    private final class FontSubset {
+
+        private final FontDescriptor desc;
+        private final PDFFontDescriptor descriptor;
+        private final AbstractPDFStream embeddedFont;
+        private final Future<Boolean> embedded;
+
+        FontSubset(FontDescriptor desc, PDFFontDescriptor descriptor, AbstractPDFStream embeddedFont,
+                Future<Boolean> embedded) {
+            this.desc = desc;
+            this.descriptor = descriptor;
+            this.embeddedFont = embeddedFont;
+            this.embedded = embedded;
+        }
+
+        void finish() {
+            boolean done = false;
+            try {
+                done = embedded.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while embedding font [" + desc + "] " + desc.getEmbedFontName());
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof IOException) {
+                    log.error("Failed to embed font [" + desc + "] " + desc.getEmbedFontName(), cause);
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new RuntimeException(cause);
+                }
+            }
+            addFontFile(desc, descriptor, done ? embeddedFont : null);
+        }
+    }
+
     private AbstractPDFStream fullyEmbedType1Font(InputStream in) throws IOException {
         PFBParser parser = new PFBParser();
         PFBData pfb = parser.parsePFB(in);
@@ -1460,17 +1565,52 @@ public class PDFFactory {
         }
     }
 
-    private AbstractPDFStream getFontStream(CustomFont font, byte[] fontBytes, boolean isCFF)
-            throws IOException {
-        AbstractPDFStream embeddedFont;
+    /**
+     * Sets the data of a font file to the subset of a font, which is taken from the font subset
+     * cache if it is there. The font is only read if the subset is not cached.
+     */
+    private void setFontSubset(AbstractPDFStream embeddedFont, InputStream in, MultiByteFont mbfont,
+            String fontPrefix, FontDescriptor desc, boolean isCFF) throws IOException {
+        FontSubsetCache cache = getDocument().getFontSubsetCache();
+        String embeddedName = fontPrefix + desc.getEmbedFontName();
+        FontSubsetCache.Subset subset = (cache != null ? cache.get(mbfont, embeddedName) : null);
+        byte[] fontBytes;
+        if (subset != null) {
+            //replay the side effects of creating the subset
+            for (Map.Entry<Integer, String> glyphName : subset.getGlyphNames().entrySet()) {
+                mbfont.mapUsedGlyphName(glyphName.getKey(), glyphName.getValue());
+            }
+            fontBytes = subset.getFontBytes();
+        } else {
+            FontFileReader reader = new FontFileReader(in);
+            String header = OFFontLoader.readHeader(reader);
+            fontBytes = getFontSubsetBytes(reader, mbfont, header, fontPrefix, desc, isCFF);
+            if (cache != null) {
+                subset = cache.put(mbfont, embeddedName, fontBytes);
+            }
+        }
+        setFontData(embeddedFont, fontBytes);
+        if (subset != null) {
+            ((AbstractPDFFontStream) embeddedFont).setCachedSubset(subset);
+        }
+    }
+
+    private static AbstractPDFStream createFontStream(CustomFont font, boolean isCFF) {
         if (isCFF) {
-            embeddedFont = new PDFCFFStreamType0C(font);
+            return new PDFCFFStreamType0C(font);
+        } else {
+            return new PDFTTFStream(0);
+        }
+    }
+
+    private static void setFontData(AbstractPDFStream embeddedFont, byte[] fontBytes)
+            throws IOException {
+        if (embeddedFont instanceof PDFCFFStreamType0C) {
             ((PDFCFFStreamType0C) embeddedFont).setData(fontBytes, fontBytes.length);
         } else {
-            embeddedFont = new PDFTTFStream(fontBytes.length);
+            ((PDFTTFStream) embeddedFont).setOriginalLength(fontBytes.length);
             ((PDFTTFStream) embeddedFont).setData(fontBytes, fontBytes.length);
         }
-        return embeddedFont;
     }
 
     private CustomFont getCustomFont(FontDescriptor desc) {
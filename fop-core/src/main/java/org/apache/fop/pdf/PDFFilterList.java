@@ -352,6 +352,25 @@ public class PDFFilterList {
         }
     }
 
+    /**
+     * Returns a description of the filters that identifies the encoding they produce.
+     * @return the description, or null if the filters have parameters and are therefore not
+     * described
+     */
+    String getDescription() {
+        if (isDisableAllFilters()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (PDFFilter filter : filters) {
+            if (filter.getDecodeParms() != null) {
+                return null;
+            }
+            sb.append(filter.getName());
+        }
+        return sb.toString();
+    }
+
     /**
      * Applies all registered filters as necessary. The method returns an
      * OutputStream which will receive the filtered contents.
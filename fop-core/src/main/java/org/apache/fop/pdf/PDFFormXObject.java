@@ -45,9 +45,24 @@ public class PDFFormXObject extends PDFXObject {
      */
     public PDFFormXObject(int xnumber, PDFStream contents, PDFReference resources) {
         super(contents.getDictionary());
-        put("Name", new PDFName("Form" + xnumber));
         this.contents = contents;
+        setUp(xnumber, resources);
+    }
+
+    /**
+     * create a FormXObject with the given number whose contents are only set later with
+     * {@link #setContents(PDFStream)}
+     *
+     * @param xnumber the pdf object X number
+     * @param resources the resource PDF reference
+     */
+    public PDFFormXObject(int xnumber, PDFReference resources) {
+        super();
+        setUp(xnumber, resources);
+    }
 
+    private void setUp(int xnumber, PDFReference resources) {
+        put("Name", new PDFName("Form" + xnumber));
         put("Type", new PDFName("XObject"));
         put("Subtype", new PDFName("Form"));
         put("FormType", 1);
@@ -57,6 +72,14 @@ public class PDFFormXObject extends PDFXObject {
         }
     }
 
+    /**
+     * Sets the stream holding the contents of a Form XObject created without contents.
+     * @param contents the form's contents
+     */
+    public void setContents(PDFStream contents) {
+        this.contents = contents;
+    }
+
     /**
      * Sets the bounding box of the Form XObject.
      * @param bbox the bounding box
@@ -153,6 +153,12 @@ public class PDFImageXObject extends PDFXObject {
         pdfimage.outputContents(out);
     }
 
+    /** {@inheritDoc} */
+    protected boolean isParallelEncodingSupported() {
+        //with PDF/VT the image data is also read in output() to generate the GTS_XID
+        return !getDocument().getProfile().isPDFVTActive();
+    }
+
     /** {@inheritDoc} */
     protected int getSizeHint() throws IOException {
         return 0;
@@ -74,6 +74,11 @@ public class PDFLinearization {
             return new PDFFilterList(getDocument().isEncryptionActive());
         }
 
+        @Override
+        protected boolean isParallelEncodingSupported() {
+            return false;
+        }
+
         @Override
         protected void outputRawStreamData(OutputStream os) throws IOException {
             CountingOutputStream bos = new CountingOutputStream(os);
@@ -265,28 +270,47 @@ public class PDFLinearization {
                 page1Children.size() + sizeOfRest + 1, Long.MAX_VALUE, 0);
         doc.position += fakeHeaderTrailerStream.size();
 
-        ByteArrayOutputStream pageStream = new ByteArrayOutputStream();
-        writeObjects(page1Children, pageStream, sizeOfRest + 1);
-        long trailerOffset = doc.position;
-        ByteArrayOutputStream footerTrailerStream = new ByteArrayOutputStream();
-        doc.writeTrailer(footerTrailerStream, 0, sizeOfRest, sizeOfRest, 0, topTrailer);
-        doc.position += footerTrailerStream.size();
-
-        linearDict.put("/L", doc.position);
-
-        PDFDocument.outputIndirectObject(linearDict, stream);
-        CountingOutputStream realTrailer = new CountingOutputStream(stream);
-        doc.writeTrailer(realTrailer, sizeOfRest, page1Children.size() + 1,
-                page1Children.size() + sizeOfRest + 1, trailerOffset, 0);
-        writePadding(fakeHeaderTrailerStream.size() - realTrailer.getCount(), stream);
-        for (PDFObject o : page1Children) {
-            PDFDocument.outputIndirectObject(o, stream);
-            if (o instanceof HintTable) {
-                break;
+        //The objects following the first page are spilled off the heap until the linearization
+        //dictionary and the hint table are known
+        StreamCache pageStream = createSpillCache();
+        try {
+            writeObjects(page1Children, pageStream.getOutputStream(), sizeOfRest + 1);
+            long trailerOffset = doc.position;
+            ByteArrayOutputStream footerTrailerStream = new ByteArrayOutputStream();
+            doc.writeTrailer(footerTrailerStream, 0, sizeOfRest, sizeOfRest, 0, topTrailer);
+            doc.position += footerTrailerStream.size();
+
+            linearDict.put("/L", doc.position);
+
+            PDFDocument.outputIndirectObject(linearDict, stream);
+            CountingOutputStream realTrailer = new CountingOutputStream(stream);
+            doc.writeTrailer(realTrailer, sizeOfRest, page1Children.size() + 1,
+                    page1Children.size() + sizeOfRest + 1, trailerOffset, 0);
+            writePadding(fakeHeaderTrailerStream.size() - realTrailer.getCount(), stream);
+            for (PDFObject o : page1Children) {
+                PDFDocument.outputIndirectObject(o, stream);
+                if (o instanceof HintTable) {
+                    break;
+                }
             }
+            pageStream.outputContents(stream);
+            footerTrailerStream.writeTo(stream);
+        } finally {
+            pageStream.clear();
+        }
+    }
+
+    /**
+     * Creates the stream cache holding the objects following the first page. The configured
+     * stream cache factory is used if it keeps the data off the heap, a temporary file otherwise,
+     * as this holds most of the document.
+     */
+    private static StreamCache createSpillCache() throws IOException {
+        StreamCacheFactory factory = StreamCacheFactory.getInstance();
+        if (factory == StreamCacheFactory.getMemoryInstance()) {
+            return new TempFileStreamCache();
         }
-        stream.write(pageStream.toByteArray());
-        stream.write(footerTrailerStream.toByteArray());
+        return factory.createStreamCache();
     }
 
     private Set<PDFObject> getPage1Children() throws IOException {
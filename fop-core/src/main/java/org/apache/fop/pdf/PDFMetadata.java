@@ -95,6 +95,12 @@ public class PDFMetadata extends PDFStream {
         return length;
     }
 
+    /** {@inheritDoc} */
+    protected boolean isParallelEncodingSupported() {
+        //the XMP packet may still be updated until the stream is output
+        return false;
+    }
+
     /** {@inheritDoc} */
     protected void outputRawStreamData(OutputStream out) throws IOException {
         try {
@@ -233,6 +233,23 @@ public class PDFProfile {
         return null;
     }
 
+    /**
+     * Returns {@code null} if object streams and cross-reference streams are allowed,
+     * otherwise returns the profile that prevents them.
+     *
+     * @return {@code null}, or an object whose {@code toString} method returns the name
+     * of the profile that disallows object streams
+     */
+    public Object isObjectStreamAllowed() {
+        if (pdfAMode.isPart1()) {
+            return getPDFAMode();
+        }
+        if (getPDFXMode() == PDFXMode.PDFX_3_2003) {
+            return getPDFXMode();
+        }
+        return null;
+    }
+
     /** Checks if the right PDF version is set. */
     public void verifyPDFVersion() {
         String err = "PDF version must be 1.4 for {0}";
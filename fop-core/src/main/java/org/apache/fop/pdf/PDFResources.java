@@ -119,6 +119,16 @@ public class PDFResources extends PDFDictionary {
      */
    public void addFonts(PDFDocument doc, FontInfo fontInfo) {
         Map<String, Typeface> usedFonts = fontInfo.getUsedFonts();
+        PDFFactory factory = doc.getFactory();
+        factory.startFontSubsets();
+        try {
+            addUsedFonts(factory, usedFonts);
+        } finally {
+            factory.finishFontSubsets();
+        }
+    }
+
+    private void addUsedFonts(PDFFactory factory, Map<String, Typeface> usedFonts) {
         for (Map.Entry<String, Typeface> e : usedFonts.entrySet()) {
             String f = e.getKey();
             Typeface font = e.getValue();
@@ -134,11 +144,11 @@ public class PDFResources extends PDFDictionary {
                 if (font instanceof Symbol || font instanceof ZapfDingbats) {
                     encoding = null; //Symbolic fonts shouldn't specify an encoding value in PDF
                 }
-                addFont(doc.getFactory().makeFont(
+                addFont(factory.makeFont(
                     f, font.getEmbedFontName(), encoding, font, desc));
             }
         }
-   }
+    }
 
     /**
      * Add an XObject to the resources.
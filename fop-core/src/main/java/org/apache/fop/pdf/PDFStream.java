@@ -182,6 +182,21 @@ public class PDFStream extends AbstractPDFStream {
         data.outputContents(out);
     }
 
+    /** {@inheritDoc} */
+    protected boolean isParallelEncodingSupported() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    protected void releaseRawStreamData() {
+        try {
+            flush();
+            data.clear();
+        } catch (IOException e) {
+            //keep the data, releasing it early is only an optimization
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -39,6 +39,14 @@ public class PDFTTFStream extends AbstractPDFFontStream {
         origLength = len;
     }
 
+    /**
+     * Sets the original length, if it was not known when the stream was created.
+     * @param len original length
+     */
+    void setOriginalLength(int len) {
+        origLength = len;
+    }
+
     /** {@inheritDoc} */
     protected int getSizeHint() throws IOException {
         if (this.ttfData != null) {
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes (i.e. compresses) PDF streams on a pool of threads ahead of their output. While
+ * the document writes its objects one after the other, the streams among the next objects
+ * waiting for output are already being encoded. The objects are still written in order and
+ * the output is identical to what encoding the streams during output produces.
+ */
+class ParallelStreamEncoder {
+
+    /** Streams known to be smaller than this are encoded during output. */
+    private static final int MIN_STREAM_SIZE = 4096;
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private final ThreadPoolExecutor executor;
+
+    /** The number of objects waiting for output that are looked at */
+    private final int lookAhead;
+
+    /**
+     * Creates a new encoder.
+     * @param threads the number of threads to encode streams on
+     */
+    ParallelStreamEncoder(int threads) {
+        executor = createExecutor(threads, "FOP PDF Stream Encoder");
+        lookAhead = threads * 2;
+    }
+
+    /**
+     * Creates a pool of daemon threads whose threads go away when they are idle.
+     * @param threads the maximum number of threads
+     * @param threadName the name of the threads
+     * @return the executor
+     */
+    static ThreadPoolExecutor createExecutor(int threads, final String threadName) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        //No shutdown is necessary as idle threads go away by themselves
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Starts encoding the eligible streams among the first objects waiting for output.
+     * Only a limited number of objects is looked at so the amount of encoded data held in
+     * memory stays bounded.
+     * @param objects the objects waiting for output, in output order
+     * @throws IOException if an I/O error occurs while determining the size of a stream
+     */
+    void encodeAhead(List<PDFObject> objects) throws IOException {
+        int count = 0;
+        for (PDFObject object : objects) {
+            if (count++ == lookAhead) {
+                break;
+            }
+            if (object instanceof AbstractPDFStream) {
+                AbstractPDFStream stream = (AbstractPDFStream) object;
+                if (!stream.isEncodingScheduled() && stream.isParallelEncodingSupported()) {
+                    int sizeHint = stream.getSizeHint();
+                    if (sizeHint == 0 || sizeHint >= MIN_STREAM_SIZE) {
+                        stream.scheduleEncoding(executor);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StreamCache implementation that keeps the bytes outside the Java heap, in a list of
+ * buffer segments obtained from a {@link BufferSegmentAllocator}. The cache grows by adding
+ * segments, so the data is never copied to a bigger buffer, and the segments are given back
+ * to the allocator for reuse when the cache is cleared.
+ */
+public class SegmentedStreamCache implements StreamCache {
+
+    /** The size of the buffer used to transfer the bytes to a stream */
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    private final BufferSegmentAllocator allocator;
+
+    private final int hintSize;
+
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    private int size;
+
+    private OutputStream output;
+
+    /**
+     * Creates a new SegmentedStreamCache.
+     * @param allocator the allocator to obtain the buffer segments from
+     * @param hintSize a hint about the approximate expected size of the buffer, or -1 if
+     *          the size isn't known
+     */
+    SegmentedStreamCache(BufferSegmentAllocator allocator, int hintSize) {
+        this.allocator = allocator;
+        this.hintSize = hintSize;
+    }
+
+    /**
+     * Get the current OutputStream. Do not store it - it may change
+     * from call to call.
+     * @return the output stream containing the data
+     */
+    public OutputStream getOutputStream() {
+        if (output == null) {
+            output = new SegmentOutputStream();
+        }
+        return output;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(byte[] data) throws IOException {
+        getOutputStream().write(data);
+    }
+
+    private ByteBuffer getWritableSegment() throws IOException {
+        ByteBuffer segment = (segments.isEmpty() ? null : segments.get(segments.size() - 1));
+        if (segment == null || !segment.hasRemaining()) {
+            //Grow by doubling, unless the expected size is known
+            segment = allocator.allocate(segments.isEmpty() && hintSize > 0 ? hintSize : size);
+            segments.add(segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Outputs the cached bytes to the given stream.
+     * @param out the output stream to write to
+     * @return the number of bytes written
+     * @throws IOException if there is an IO error writing to the output stream
+     */
+    public int outputContents(OutputStream out) throws IOException {
+        if (size == 0) {
+            return 0;
+        }
+        byte[] transferBuffer = new byte[Math.min(size, TRANSFER_BUFFER_SIZE)];
+        for (ByteBuffer segment : segments) {
+            //Reading through a duplicate leaves the segment's position untouched
+            ByteBuffer data = segment.duplicate();
+            data.flip();
+            while (data.hasRemaining()) {
+                int len = Math.min(data.remaining(), transferBuffer.length);
+                data.get(transferBuffer, 0, len);
+                out.write(transferBuffer, 0, len);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the current size of the stream.
+     * @return the length of the stream
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Clears and resets the cache. The buffer segments are given back to the allocator.
+     */
+    public void clear() {
+        for (ByteBuffer segment : segments) {
+            allocator.release(segment);
+        }
+        segments.clear();
+        size = 0;
+        output = null;
+    }
+
+    private class SegmentOutputStream extends OutputStream {
+
+        /** {@inheritDoc} */
+        public void write(int b) throws IOException {
+            getWritableSegment().put((byte) b);
+            size++;
+        }
+
+        /** {@inheritDoc} */
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer segment = getWritableSegment();
+                int chunk = Math.min(len, segment.remaining());
+                segment.put(b, off, chunk);
+                size += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+    }
+}
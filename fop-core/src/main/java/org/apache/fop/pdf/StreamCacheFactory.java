@@ -19,48 +19,121 @@
 
 package org.apache.fop.pdf;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 
 /**
- * This class is serves as a factory from
+ * This class serves as a factory for {@link StreamCache} instances.
+ * <p>
+ * By default, stream data is kept in byte arrays on the heap. The default factory can be
+ * replaced using {@link #setInstance(StreamCacheFactory)} by one that keeps the data in
+ * direct buffers ({@link #newDirectBufferInstance(long)}) or in a memory-mapped spill file
+ * ({@link #newMappedFileInstance(File)}). Both avoid the repeated growth of large byte arrays,
+ * and the mapped file avoids creating a temporary file per stream. Such a factory holds
+ * resources until it is {@link #close() closed}.
  */
-public final class StreamCacheFactory {
+public final class StreamCacheFactory implements Closeable {
 
-    private static StreamCacheFactory memoryInstance = new StreamCacheFactory();
+    private static StreamCacheFactory memoryInstance = new StreamCacheFactory(null);
+
+    private static volatile StreamCacheFactory instance = memoryInstance;
+
+    /** the allocator for the buffer segments, null to keep the data on the heap */
+    private final BufferSegmentAllocator allocator;
 
     /**
      * Returns an instance of a StreamCacheFactory with the requested features.
      * @return StreamCacheFactory the requested factory
      */
     public static StreamCacheFactory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Sets the factory returned by {@link #getInstance()}, and so the one used for the
+     * streams of all PDF documents created afterwards. The factory set before is not closed,
+     * as the documents still being generated may be using it.
+     * @param factory the factory, null to restore the default factory
+     */
+    public static void setInstance(StreamCacheFactory factory) {
+        instance = (factory != null ? factory : memoryInstance);
+    }
+
+    /**
+     * Returns the factory creating stream caches that keep the data in byte arrays on the heap.
+     * This is the default.
+     * @return the factory
+     */
+    public static StreamCacheFactory getMemoryInstance() {
         return memoryInstance;
     }
 
+    /**
+     * Creates a factory creating stream caches that keep the data in direct buffers outside
+     * the Java heap. The buffers are recycled between streams. Note that the amount of direct
+     * memory available is limited by the JVM (see -XX:MaxDirectMemorySize).
+     * @param maxPooledBytes the maximum number of bytes kept in buffers waiting to be reused
+     * @return the factory
+     */
+    public static StreamCacheFactory newDirectBufferInstance(long maxPooledBytes) {
+        return new StreamCacheFactory(new BufferSegmentAllocator.DirectBuffers(maxPooledBytes));
+    }
+
+    /**
+     * Creates a factory creating stream caches that keep the data in memory-mapped regions of
+     * a single temporary spill file shared by all streams. The regions are recycled between
+     * streams, so the file only grows as large as the data held at the same time. The file
+     * is deleted when the factory is closed.
+     * @param directory the directory to create the spill file in, or null for the default
+     *          temporary-file directory
+     * @return the factory
+     */
+    public static StreamCacheFactory newMappedFileInstance(File directory) {
+        return new StreamCacheFactory(new BufferSegmentAllocator.MappedFile(directory));
+    }
+
     /**
      * Creates a new StreamCacheFactory.
-     * @param cacheToFile True if file shall be cached using a temporary file
+     * @param allocator the allocator for the buffer segments, null to keep the data on the heap
      */
-    private StreamCacheFactory() {
+    private StreamCacheFactory(BufferSegmentAllocator allocator) {
+        this.allocator = allocator;
     }
 
     /**
-     * Get the correct implementation (based on cacheToFile) of
+     * Get the correct implementation (based on the factory's features) of
      * StreamCache.
      * @throws IOException if there is an IO error
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache() throws IOException {
-        return new InMemoryStreamCache();
+        return createStreamCache(-1);
     }
 
     /**
-     * Get the correct implementation (based on cacheToFile) of
+     * Get the correct implementation (based on the factory's features) of
      * StreamCache.
      * @param hintSize a hint about the approximate expected size of the buffer
      * @throws IOException if there is an IO error
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache(int hintSize) throws IOException {
+        if (allocator != null) {
+            return new SegmentedStreamCache(allocator, hintSize);
+        }
         return new InMemoryStreamCache(hintSize);
     }
+
+    /**
+     * Releases the off-heap memory or the spill file held by the factory. The factory and the
+     * stream caches it has created must not be used afterwards. Does nothing for the factory
+     * keeping the data on the heap.
+     * @throws IOException if an I/O error occurs while releasing the resources
+     */
+    public void close() throws IOException {
+        if (allocator != null) {
+            allocator.close();
+        }
+    }
 }
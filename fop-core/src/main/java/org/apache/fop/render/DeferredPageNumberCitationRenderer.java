@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render;
+
+/**
+ * Optional interface for renderers which can render page number citations that are not
+ * resolved yet as placeholders, which are filled in with the page numbers at the end of the
+ * document. A page whose only unresolved references are page number citations can then be
+ * rendered and released right away instead of being held until the citations are resolved.
+ */
+public interface DeferredPageNumberCitationRenderer {
+
+    /**
+     * Indicates whether deferred page number citations are supported for the document being
+     * produced. This is called after the renderer has been started.
+     *
+     * @return true if this renderer supports deferred page number citations
+     * @see org.apache.fop.area.inline.UnresolvedPageNumber#defer()
+     */
+    boolean supportsDeferredPageNumberCitations();
+}
@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.RenderTemplate;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.CustomFontCollection;
 import org.apache.fop.fonts.DefaultFontConfigurator;
@@ -144,7 +145,7 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
         if (rendererConfigParser == null) {
             fontList = Collections.<EmbedFontInfo>emptyList();
         } else {
-            fontList = fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig());
+            fontList = buildFontList(mimeType);
         }
         return createCollectionFromFontList(resolver, fontList);
     }
@@ -163,7 +164,17 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
     }
 
     private List<EmbedFontInfo> buildFontList(String mimeType) throws FOPException {
-        return fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig());
+        RenderTemplate template = userAgent.getRenderTemplate();
+        if (template == null) {
+            return fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig());
+        }
+        //The font configuration is only done once for all the rendering runs using a template
+        List<EmbedFontInfo> fontList = template.getFontList(mimeType);
+        if (fontList == null) {
+            fontList = template.putFontList(mimeType,
+                    fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig()));
+        }
+        return fontList;
     }
 
     public static PrintRendererConfigurator createDefaultInstance(FOUserAgent userAgent) {
@@ -24,6 +24,7 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
@@ -72,6 +73,9 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
     private Dimension currentPageDimensions;
     private BufferedImage currentImage;
 
+    /** Rasterizes the pages on worker threads, null if they are rasterized while painted */
+    private ParallelPageRasterizer rasterizer;
+
     private BitmapRenderingSettings bitmapSettings = new BitmapRenderingSettings();
 
     private double scaleFactor = 1.0;
@@ -153,6 +157,10 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
                         getUserAgent().getOutputFile());
             }
             this.pageCount = 0;
+            if (getSettings().getRasterizationThreads() > 0) {
+                this.rasterizer = new ParallelPageRasterizer(this,
+                        getSettings().getRasterizationThreads());
+            }
         } catch (IOException e) {
             throw new IFException("I/O error in startDocument()", e);
         }
@@ -165,6 +173,10 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
     /** {@inheritDoc} */
     public void endDocument() throws IFException {
         try {
+            if (this.rasterizer != null) {
+                this.rasterizer.finish();
+                this.rasterizer = null;
+            }
             if (this.multiImageWriter != null) {
                 this.multiImageWriter.close();
             }
@@ -228,12 +240,32 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
             bitmapHeight = (int) ((this.currentPageDimensions.height * scale / 1000f) + 0.5f);
         }
 
-        //Set up bitmap to paint on
+        if (this.rasterizer != null) {
+            return this.rasterizer.startPage(this.pageCount - 1,
+                    bitmapWidth, bitmapHeight, scale, offset);
+        }
+
+        //Set up bitmap to paint on. A multi-image writer may hold on to the bitmap until the next
+        //one is written, so the bitmap is only reused when each page is written on its own.
         if (currentImage == null || currentImage.getWidth() != bitmapWidth
-                || currentImage.getHeight() != bitmapHeight) {
+                || currentImage.getHeight() != bitmapHeight || this.multiImageWriter != null) {
             currentImage = createBufferedImage(bitmapWidth, bitmapHeight);
         }
-        Graphics2D graphics2D = this.currentImage.createGraphics();
+        Graphics2D graphics2D = createPageGraphics(this.currentImage, scale, offset);
+        return new Java2DPainter(graphics2D, getContext(), getFontInfo(), this);
+    }
+
+    /**
+     * Sets up a graphics object to paint a page on a bitmap.
+     * @param image the bitmap
+     * @param scale the scale from millipoints to pixels, times 1000
+     * @param offset the offset of the page in the bitmap, or null
+     * @return the graphics object
+     */
+    Graphics2D createPageGraphics(BufferedImage image, double scale, Point2D offset) {
+        int bitmapWidth = image.getWidth();
+        int bitmapHeight = image.getHeight();
+        Graphics2D graphics2D = image.createGraphics();
 
         // draw page background
         if (!getSettings().hasTransparentPageBackground()) {
@@ -246,7 +278,7 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
         graphics2D.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
                 RenderingHints.VALUE_FRACTIONALMETRICS_ON);
         if (getSettings().isAntiAliasingEnabled()
-                && this.currentImage.getColorModel().getPixelSize() > 1) {
+                && image.getColorModel().getPixelSize() > 1) {
             graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                     RenderingHints.VALUE_ANTIALIAS_ON);
             graphics2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
@@ -272,8 +304,7 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
             graphics2D.translate(offset.getX(), offset.getY());
         }
         graphics2D.scale(scale / 1000f, scale / 1000f);
-
-        return new Java2DPainter(graphics2D, getContext(), getFontInfo(), this);
+        return graphics2D;
     }
 
     /**
@@ -288,42 +319,93 @@ public abstract class AbstractBitmapDocumentHandler extends AbstractBinaryWritin
 
     /** {@inheritDoc} */
     public void endPageContent() throws IFException {
+        if (this.rasterizer != null) {
+            this.rasterizer.endPage();
+            return;
+        }
         try {
-            if (this.multiImageWriter == null) {
-                switch (this.pageCount) {
-                case 1:
-                    this.imageWriter.writeImage(
-                            this.currentImage, this.outputStream,
-                            getSettings().getWriterParams());
-                    IOUtils.closeQuietly(this.outputStream);
-                    this.outputStream = null;
-                    break;
-                default:
-                    OutputStream out = this.multiFileUtil.createOutputStream(this.pageCount - 1);
-                    if (out == null) {
-                        BitmapRendererEventProducer eventProducer
-                            = BitmapRendererEventProducer.Provider.get(
-                                    getUserAgent().getEventBroadcaster());
-                        eventProducer.stoppingAfterFirstPageNoFilename(this);
-                    } else {
-                        try {
-                            this.imageWriter.writeImage(
-                                    this.currentImage, out,
-                                    getSettings().getWriterParams());
-                        } finally {
-                            IOUtils.closeQuietly(out);
-                        }
-                    }
-                }
-            } else {
-                this.multiImageWriter.writeImage(this.currentImage,
-                        getSettings().getWriterParams());
-            }
+            writePage(this.currentImage, this.pageCount - 1);
         } catch (IOException ioe) {
             throw new IFException("I/O error while encoding BufferedImage", ioe);
         }
     }
 
+    /**
+     * Indicates whether each page is written to an output of its own, rather than to a
+     * multi-image writer.
+     * @return true if each page is written to an output of its own
+     */
+    boolean isWritingPagesSeparately() {
+        return this.multiImageWriter == null;
+    }
+
+    /**
+     * Encodes the bitmap of a page, to be written with {@link #writePage(byte[], int)}. This
+     * is only possible if each page is written to an output of its own.
+     * @param image the bitmap
+     * @return the encoded bitmap
+     * @throws IOException if an I/O error occurs while encoding the bitmap
+     */
+    byte[] encodePage(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.imageWriter.writeImage(image, out, getSettings().getWriterParams());
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the bitmap of a page.
+     * @param image the bitmap
+     * @param pageIndex the index of the page
+     * @throws IOException if an I/O error occurs while encoding or writing the bitmap
+     */
+    void writePage(BufferedImage image, int pageIndex) throws IOException {
+        if (this.multiImageWriter == null) {
+            OutputStream out = getPageOutputStream(pageIndex);
+            if (out != null) {
+                try {
+                    this.imageWriter.writeImage(image, out, getSettings().getWriterParams());
+                } finally {
+                    IOUtils.closeQuietly(out);
+                }
+            }
+        } else {
+            this.multiImageWriter.writeImage(image, getSettings().getWriterParams());
+        }
+    }
+
+    /**
+     * Writes a page encoded with {@link #encodePage(BufferedImage)}.
+     * @param encodedImage the encoded bitmap
+     * @param pageIndex the index of the page
+     * @throws IOException if an I/O error occurs while writing the bitmap
+     */
+    void writePage(byte[] encodedImage, int pageIndex) throws IOException {
+        OutputStream out = getPageOutputStream(pageIndex);
+        if (out != null) {
+            try {
+                out.write(encodedImage);
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+    }
+
+    private OutputStream getPageOutputStream(int pageIndex) throws IOException {
+        if (pageIndex == 0) {
+            OutputStream out = this.outputStream;
+            this.outputStream = null;
+            return out;
+        }
+        OutputStream out = this.multiFileUtil.createOutputStream(pageIndex);
+        if (out == null) {
+            BitmapRendererEventProducer eventProducer
+                = BitmapRendererEventProducer.Provider.get(
+                        getUserAgent().getEventBroadcaster());
+            eventProducer.stoppingAfterFirstPageNoFilename(this);
+        }
+        return out;
+    }
+
     /** {@inheritDoc} */
     public void endPage() throws IFException {
         this.currentPageDimensions = null;
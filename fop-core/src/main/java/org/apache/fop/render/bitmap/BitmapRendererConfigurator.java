@@ -83,6 +83,9 @@ public class BitmapRendererConfigurator extends Java2DRendererConfigurator {
         if (config.getColorMode() != null) {
             settings.setBufferedImageType(config.getColorMode());
         }
+        if (config.getRasterizationThreads() != null) {
+            settings.setRasterizationThreads(config.getRasterizationThreads());
+        }
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.apache.fop.render.java2d.Java2DRenderingSettings;
 
 import static org.apache.fop.render.bitmap.BitmapRendererOption.ANTI_ALIASING;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.COLOR_MODE;
+import static org.apache.fop.render.bitmap.BitmapRendererOption.RASTERIZATION_THREADS;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.RENDERING_QUALITY;
 
 /**
@@ -44,6 +45,9 @@ public class BitmapRenderingSettings extends Java2DRenderingSettings {
     /** true if qualityRendering is set */
     private boolean qualityRendering = (Boolean) RENDERING_QUALITY.getDefaultValue();
 
+    /** the number of threads pages are rasterized on, 0 to rasterize them while they're painted */
+    private int rasterizationThreads = (Integer) RASTERIZATION_THREADS.getDefaultValue();
+
     /**
      * Default constructor. Initializes the settings to their default values.
      */
@@ -107,6 +111,26 @@ public class BitmapRenderingSettings extends Java2DRenderingSettings {
         return this.qualityRendering;
     }
 
+    /**
+     * Sets the number of threads pages are rasterized and encoded on. By default, each page is
+     * rasterized while it is being painted, and then encoded, before the next page is painted.
+     * With a number of threads, the painting of a page is recorded and the page is rasterized
+     * and encoded on one of the threads while the next pages are painted. The pages are still
+     * written in order, and only twice as many pages as there are threads are in flight.
+     * @param threads the number of threads, 0 to rasterize the pages while they are painted
+     */
+    public void setRasterizationThreads(int threads) {
+        this.rasterizationThreads = threads;
+    }
+
+    /**
+     * Returns the number of threads pages are rasterized and encoded on.
+     * @return the number of threads, 0 if pages are rasterized while they are painted
+     */
+    public int getRasterizationThreads() {
+        return this.rasterizationThreads;
+    }
+
     /**
      * Sets the compression method for the image writer.
      * @param compressionMethod the compression method name
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.bitmap;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.w3c.dom.Document;
+
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFPainter;
+import org.apache.fop.render.intermediate.util.IFDocumentHandlerProxy;
+import org.apache.fop.render.intermediate.util.IFPainterRecorder;
+import org.apache.fop.render.java2d.Java2DPainter;
+
+/**
+ * Rasterizes and encodes the pages of a bitmap document on a pool of threads. The painting of
+ * a page is recorded, and the page is rasterized from the recording on one of the threads
+ * while the next pages are painted. The pages are written in order on the thread painting
+ * them: encoded if each page is written to an output of its own, or as bitmaps, which the
+ * multi-image writer encodes as they are written. At most twice as many pages as there are
+ * threads are in flight, which bounds the memory held by their bitmaps.
+ */
+class ParallelPageRasterizer {
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    /** The maximum number of pages in flight, per thread */
+    private static final int MAX_PAGES_PER_THREAD = 2;
+
+    private final AbstractBitmapDocumentHandler documentHandler;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int maxPages;
+
+    /**
+     * Images are painted one at a time, as the images, and the documents of SVG images in
+     * particular, are shared by the pages they are painted on.
+     */
+    private final Object imageLock = new Object();
+
+    /** The pages being rasterized or waiting to be written, in page order */
+    private final LinkedList<Page> pages = new LinkedList<Page>();
+
+    private Page currentPage;
+
+    /**
+     * Creates a new rasterizer.
+     * @param documentHandler the document handler the pages are rasterized for
+     * @param threads the number of threads to rasterize the pages on
+     */
+    ParallelPageRasterizer(AbstractBitmapDocumentHandler documentHandler, int threads) {
+        this.documentHandler = documentHandler;
+        this.maxPages = threads * MAX_PAGES_PER_THREAD;
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "FOP Page Rasterizer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        //No shutdown is necessary as idle threads go away by themselves
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts recording the painting of a page.
+     * @param pageIndex the index of the page
+     * @param bitmapWidth the width of the bitmap, in pixels
+     * @param bitmapHeight the height of the bitmap, in pixels
+     * @param scale the scale from millipoints to pixels, times 1000
+     * @param offset the offset of the page in the bitmap, or null
+     * @return the painter recording the painting of the page
+     */
+    IFPainter startPage(int pageIndex, int bitmapWidth, int bitmapHeight,
+            double scale, Point2D offset) {
+        IFContext context = documentHandler.getContext();
+        currentPage = new Page(pageIndex, context.getPageNumber(), bitmapWidth, bitmapHeight,
+                scale, offset, new IFPainterRecorder(context));
+        return currentPage.recorder;
+    }
+
+    /**
+     * Starts rasterizing the page recorded since {@link #startPage}, and writes the pages that
+     * are rasterized. If too many pages are in flight, this waits for the first of them to be
+     * rasterized.
+     * @throws IFException if an error occurs while rasterizing or writing a page
+     */
+    void endPage() throws IFException {
+        final Page page = currentPage;
+        currentPage = null;
+        while (pages.size() >= maxPages) {
+            writeFirstPage();
+        }
+        page.rasterized = executor.submit(new Callable<Void>() {
+            public Void call() throws IFException, IOException {
+                rasterize(page);
+                return null;
+            }
+        });
+        pages.add(page);
+        while (!pages.isEmpty() && pages.getFirst().rasterized.isDone()) {
+            writeFirstPage();
+        }
+    }
+
+    /**
+     * Waits for all the pages to be rasterized, and writes them.
+     * @throws IFException if an error occurs while rasterizing or writing a page
+     */
+    void finish() throws IFException {
+        while (!pages.isEmpty()) {
+            writeFirstPage();
+        }
+    }
+
+    private void rasterize(Page page) throws IFException, IOException {
+        BufferedImage image = documentHandler.createBufferedImage(
+                page.bitmapWidth, page.bitmapHeight);
+        Graphics2D graphics2D = documentHandler.createPageGraphics(image, page.scale, page.offset);
+        try {
+            //The painter gets a context of its own, the document handler's context being the
+            //one of the page currently painted
+            final IFContext context = new IFContext(documentHandler.getUserAgent());
+            context.setPageIndex(page.index);
+            context.setPageNumber(page.number);
+            IFDocumentHandler pageHandler = new IFDocumentHandlerProxy(documentHandler) {
+                public IFContext getContext() {
+                    return context;
+                }
+            };
+            page.recorder.replay(new PagePainter(graphics2D, context,
+                    documentHandler.getFontInfo(), pageHandler), context);
+        } finally {
+            graphics2D.dispose();
+        }
+        page.recorder = null;
+        if (documentHandler.isWritingPagesSeparately()) {
+            page.encodedImage = documentHandler.encodePage(image);
+        } else {
+            page.image = image;
+        }
+    }
+
+    private void writeFirstPage() throws IFException {
+        Page page = pages.removeFirst();
+        try {
+            page.rasterized.get();
+            if (page.encodedImage != null) {
+                documentHandler.writePage(page.encodedImage, page.index);
+            } else {
+                documentHandler.writePage(page.image, page.index);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new IFException("Interrupted while rasterizing page " + (page.index + 1), ie);
+        } catch (ExecutionException ee) {
+            cancel();
+            Throwable cause = ee.getCause();
+            if (cause instanceof IFException) {
+                throw (IFException) cause;
+            } else if (cause instanceof IOException) {
+                throw new IFException("I/O error while encoding BufferedImage", (IOException) cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        } catch (IOException ioe) {
+            cancel();
+            throw new IFException("I/O error while encoding BufferedImage", ioe);
+        }
+    }
+
+    private void cancel() {
+        for (Page page : pages) {
+            page.rasterized.cancel(false);
+        }
+        pages.clear();
+    }
+
+    /** A page in flight */
+    private static final class Page {
+
+        private final int index;
+        private final int number;
+        private final int bitmapWidth;
+        private final int bitmapHeight;
+        private final double scale;
+        private final Point2D offset;
+
+        private IFPainterRecorder recorder;
+        private Future<Void> rasterized;
+
+        /** The bitmap, if the page is written as such */
+        private BufferedImage image;
+
+        /** The encoded bitmap, if the page is written to an output of its own */
+        private byte[] encodedImage;
+
+        Page(int index, int number, int bitmapWidth, int bitmapHeight, double scale,
+                Point2D offset, IFPainterRecorder recorder) {
+            this.index = index;
+            this.number = number;
+            this.bitmapWidth = bitmapWidth;
+            this.bitmapHeight = bitmapHeight;
+            this.scale = scale;
+            this.offset = offset;
+            this.recorder = recorder;
+        }
+    }
+
+    /** Paints a page from its recording, one image at a time */
+    private final class PagePainter extends Java2DPainter {
+
+        PagePainter(Graphics2D g2d, IFContext context, FontInfo fontInfo,
+                IFDocumentHandler documentHandler) {
+            super(g2d, context, fontInfo, documentHandler);
+        }
+
+        /** {@inheritDoc} */
+        public void drawImage(String uri, Rectangle rect) throws IFException {
+            synchronized (imageLock) {
+                super.drawImage(uri, rect);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public void drawImage(Document doc, Rectangle rect) throws IFException {
+            synchronized (imageLock) {
+                super.drawImage(doc, rect);
+            }
+        }
+    }
+}
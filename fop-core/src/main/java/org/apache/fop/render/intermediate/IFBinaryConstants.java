@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate;
+
+/**
+ * Constants for the binary intermediate format written by {@link IFBinarySerializer} and read
+ * by {@link IFBinaryParser}.
+ * <p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by one record per
+ * {@link IFDocumentHandler} or {@link IFPainter} event. A record is a one byte opcode followed
+ * by its operands. Integers are written as variable-length quantities (7 bits per byte, signed
+ * values zigzag-encoded), so that small coordinates and glyph adjustments take one or two bytes.
+ * Glyph adjustments are written as sparse arrays, only the glyphs that are adjusted take space.
+ * Strings, colors and border specifications are interned: the first occurrence is written in
+ * full and added to a table, later occurrences only refer to their index in the table. XML
+ * content (extension objects, document navigation and foreign objects) is written as a sequence
+ * of SAX events.
+ */
+interface IFBinaryConstants {
+
+    /** The bytes starting a binary intermediate format file */
+    byte[] MAGIC = {'F', 'O', 'P', 'I', 'F', 'B'};
+
+    /** The version of the binary intermediate format */
+    int VERSION = 1;
+
+    /** Reference to a null value in a table */
+    int REF_NULL = 0;
+    /** Reference to a value that is written in full and added to the table */
+    int REF_NEW = 1;
+    /** The first reference to a value that is already in the table */
+    int REF_FIRST_INDEX = 2;
+
+    byte OP_START_DOCUMENT = 1;
+    byte OP_END_DOCUMENT = 2;
+    byte OP_DOCUMENT_LOCALE = 3;
+    byte OP_START_DOCUMENT_HEADER = 4;
+    byte OP_END_DOCUMENT_HEADER = 5;
+    byte OP_START_DOCUMENT_TRAILER = 6;
+    byte OP_END_DOCUMENT_TRAILER = 7;
+    byte OP_START_PAGE_SEQUENCE = 8;
+    byte OP_END_PAGE_SEQUENCE = 9;
+    byte OP_START_PAGE = 10;
+    byte OP_END_PAGE = 11;
+    byte OP_START_PAGE_HEADER = 12;
+    byte OP_END_PAGE_HEADER = 13;
+    byte OP_START_PAGE_CONTENT = 14;
+    byte OP_END_PAGE_CONTENT = 15;
+    byte OP_START_PAGE_TRAILER = 16;
+    byte OP_END_PAGE_TRAILER = 17;
+    byte OP_XML = 18;
+
+    byte OP_START_VIEWPORT = 32;
+    byte OP_END_VIEWPORT = 33;
+    byte OP_START_GROUP = 34;
+    byte OP_END_GROUP = 35;
+    byte OP_ID = 36;
+    byte OP_FONT = 37;
+    byte OP_TEXT = 38;
+    byte OP_CLIP_RECT = 39;
+    byte OP_CLIP_BACKGROUND = 40;
+    byte OP_FILL_RECT = 41;
+    byte OP_BORDER_RECT = 42;
+    byte OP_LINE = 43;
+    byte OP_IMAGE = 44;
+    byte OP_FOREIGN_IMAGE = 45;
+
+    byte SAX_END = 0;
+    byte SAX_START_PREFIX_MAPPING = 1;
+    byte SAX_END_PREFIX_MAPPING = 2;
+    byte SAX_START_ELEMENT = 3;
+    byte SAX_END_ELEMENT = 4;
+    byte SAX_CHARACTERS = 5;
+
+    /** Flags of the font record, telling which font attributes changed */
+    int FONT_FAMILY = 1;
+    int FONT_STYLE = 2;
+    int FONT_WEIGHT = 4;
+    int FONT_VARIANT = 8;
+    int FONT_SIZE = 16;
+    int FONT_COLOR = 32;
+
+    /** Flags of the text record, telling which optional operands follow */
+    int TEXT_LETTER_SPACING = 1;
+    int TEXT_WORD_SPACING = 2;
+    int TEXT_DX = 4;
+    int TEXT_DP = 8;
+    int TEXT_HYPHENATED = 16;
+
+    /** Kinds of transformation matrices */
+    byte TRANSFORM_IDENTITY = 0;
+    byte TRANSFORM_TRANSLATE = 1;
+    byte TRANSFORM_MATRIX = 2;
+}
@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.fo.ElementMapping;
+import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+import org.apache.fop.util.ColorUtil;
+import org.apache.fop.util.ContentHandlerFactory;
+import org.apache.fop.util.DOMBuilderContentHandlerFactory;
+import org.apache.fop.util.LanguageTags;
+import org.apache.fop.util.XMLConstants;
+
+/**
+ * This is a parser for the binary intermediate format written by {@link IFBinarySerializer}
+ * which converts it into {@link IFDocumentHandler} and {@link IFPainter} events.
+ */
+public class IFBinaryParser implements IFBinaryConstants {
+
+    private DataInputStream in;
+
+    private IFDocumentHandler documentHandler;
+
+    private IFPainter painter;
+
+    private FOUserAgent userAgent;
+
+    /** Receives the XML content, parsing extension objects and document navigation */
+    private ContentHandler xmlHandler;
+
+    private final List<String> strings = new java.util.ArrayList<String>();
+    private final List<Color> colors = new java.util.ArrayList<Color>();
+    private final List<BorderProps> borders = new java.util.ArrayList<BorderProps>();
+
+    /**
+     * Parses a binary intermediate file and paints it.
+     * @param src the input stream of the binary intermediate file
+     * @param documentHandler the intermediate format document handler used to process the IF events
+     * @param userAgent the user agent
+     * @throws IOException if an I/O error occurs or the input is not in the binary intermediate
+     * format
+     * @throws IFException if an IF-related error occurs inside the target document handler
+     */
+    public void parse(InputStream src, IFDocumentHandler documentHandler, FOUserAgent userAgent)
+            throws IOException, IFException {
+        this.in = new DataInputStream(new BufferedInputStream(src));
+        this.documentHandler = documentHandler;
+        this.userAgent = userAgent;
+        try {
+            readHeader();
+            int op;
+            do {
+                op = in.readByte();
+                handleOperation(op);
+            } while (op != OP_END_DOCUMENT);
+        } finally {
+            this.in = null;
+            this.documentHandler = null;
+            this.painter = null;
+            this.xmlHandler = null;
+            strings.clear();
+            colors.clear();
+            borders.clear();
+        }
+    }
+
+    /**
+     * Indicates whether a stream starts like a binary intermediate file. The stream must
+     * support mark/reset, and is reset to where it was.
+     * @param in the input stream
+     * @return true if the stream starts with the binary intermediate format signature
+     * @throws IOException if an I/O error occurs
+     */
+    public static boolean isBinaryIntermediateFormat(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.mark(magic.length);
+        try {
+            int length = 0;
+            int count;
+            while (length < magic.length
+                    && (count = in.read(magic, length, magic.length - length)) >= 0) {
+                length += count;
+            }
+            return length == magic.length && java.util.Arrays.equals(MAGIC, magic);
+        } finally {
+            in.reset();
+        }
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!java.util.Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not a binary intermediate format file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary intermediate format version: " + version);
+        }
+    }
+
+    private void handleOperation(int op) throws IOException, IFException {
+        IFContext context = documentHandler.getContext();
+        switch (op) {
+        case OP_START_DOCUMENT:
+            documentHandler.startDocument();
+            break;
+        case OP_END_DOCUMENT:
+            documentHandler.endDocument();
+            break;
+        case OP_DOCUMENT_LOCALE:
+            documentHandler.setDocumentLocale(LanguageTags.toLocale(readString()));
+            break;
+        case OP_START_DOCUMENT_HEADER:
+            documentHandler.startDocumentHeader();
+            break;
+        case OP_END_DOCUMENT_HEADER:
+            documentHandler.endDocumentHeader();
+            break;
+        case OP_START_DOCUMENT_TRAILER:
+            documentHandler.startDocumentTrailer();
+            break;
+        case OP_END_DOCUMENT_TRAILER:
+            documentHandler.endDocumentTrailer();
+            break;
+        case OP_START_PAGE_SEQUENCE:
+            String id = readText();
+            String language = readString();
+            if (language != null) {
+                context.setLanguage(LanguageTags.toLocale(language));
+            }
+            context.setForeignAttributes(readForeignAttributes());
+            documentHandler.startPageSequence(id);
+            context.resetForeignAttributes();
+            break;
+        case OP_END_PAGE_SEQUENCE:
+            documentHandler.endPageSequence();
+            context.setLanguage(null);
+            break;
+        case OP_START_PAGE:
+            int index = readUnsigned();
+            String name = readText();
+            String pageMasterName = readString();
+            Dimension size = new Dimension(readInt(), readInt());
+            context.setForeignAttributes(readForeignAttributes());
+            documentHandler.startPage(index, name, pageMasterName, size);
+            context.setPageNumber(index + 1);
+            context.resetForeignAttributes();
+            break;
+        case OP_END_PAGE:
+            documentHandler.endPage();
+            break;
+        case OP_START_PAGE_HEADER:
+            documentHandler.startPageHeader();
+            break;
+        case OP_END_PAGE_HEADER:
+            documentHandler.endPageHeader();
+            break;
+        case OP_START_PAGE_CONTENT:
+            painter = documentHandler.startPageContent();
+            break;
+        case OP_END_PAGE_CONTENT:
+            painter = null;
+            context.setID("");
+            documentHandler.endPageContent();
+            break;
+        case OP_START_PAGE_TRAILER:
+            documentHandler.startPageTrailer();
+            break;
+        case OP_END_PAGE_TRAILER:
+            documentHandler.endPageTrailer();
+            break;
+        case OP_XML:
+            handleXML();
+            break;
+        default:
+            handlePainterOperation(op);
+        }
+    }
+
+    private void handlePainterOperation(int op) throws IOException, IFException {
+        IFContext context = documentHandler.getContext();
+        switch (op) {
+        case OP_START_VIEWPORT:
+            AffineTransform[] transforms = readTransforms();
+            Dimension size = new Dimension(readInt(), readInt());
+            Rectangle clipRect = in.readBoolean() ? readRect() : null;
+            painter.startViewport(transforms, size, clipRect);
+            break;
+        case OP_END_VIEWPORT:
+            painter.endViewport();
+            break;
+        case OP_START_GROUP:
+            transforms = readTransforms();
+            painter.startGroup(transforms, readString());
+            break;
+        case OP_END_GROUP:
+            painter.endGroup();
+            break;
+        case OP_ID:
+            context.setID(readText());
+            break;
+        case OP_FONT:
+            int flags = in.readUnsignedByte();
+            String family = (flags & FONT_FAMILY) != 0 ? readString() : null;
+            String style = (flags & FONT_STYLE) != 0 ? readString() : null;
+            Integer weight = (flags & FONT_WEIGHT) != 0 ? Integer.valueOf(readInt()) : null;
+            String variant = (flags & FONT_VARIANT) != 0 ? readString() : null;
+            Integer fontSize = (flags & FONT_SIZE) != 0 ? Integer.valueOf(readInt()) : null;
+            Color color = (flags & FONT_COLOR) != 0 ? readColor() : null;
+            painter.setFont(family, style, weight, variant, fontSize, color);
+            break;
+        case OP_TEXT:
+            handleText();
+            break;
+        case OP_CLIP_RECT:
+            painter.clipRect(readRect());
+            break;
+        case OP_CLIP_BACKGROUND:
+            painter.clipBackground(readRect(), readBorder(), readBorder(), readBorder(), readBorder());
+            break;
+        case OP_FILL_RECT:
+            painter.fillRect(readRect(), readColor());
+            break;
+        case OP_BORDER_RECT:
+            painter.drawBorderRect(readRect(), readBorder(), readBorder(), readBorder(), readBorder(),
+                    readColor());
+            break;
+        case OP_LINE:
+            Point start = new Point(readInt(), readInt());
+            Point end = new Point(readInt(), readInt());
+            int width = readInt();
+            color = readColor();
+            painter.drawLine(start, end, width, color, RuleStyle.valueOf(readString()));
+            break;
+        case OP_IMAGE:
+            String uri = readString();
+            Rectangle rect = readRect();
+            context.setForeignAttributes(readForeignAttributes());
+            painter.drawImage(uri, rect);
+            context.resetForeignAttributes();
+            break;
+        case OP_FOREIGN_IMAGE:
+            rect = readRect();
+            Map<QName, String> foreignAttributes = readForeignAttributes();
+            ForeignObjectBuilder builder = new ForeignObjectBuilder();
+            readXML(builder);
+            context.setForeignAttributes(foreignAttributes);
+            painter.drawImage(builder.getDocument(), rect);
+            context.resetForeignAttributes();
+            break;
+        default:
+            throw new IOException("Invalid operation in binary intermediate format: " + op);
+        }
+    }
+
+    private void handleText() throws IOException, IFException {
+        int flags = in.readUnsignedByte();
+        int x = readInt();
+        int y = readInt();
+        int letterSpacing = (flags & TEXT_LETTER_SPACING) != 0 ? readInt() : 0;
+        int wordSpacing = (flags & TEXT_WORD_SPACING) != 0 ? readInt() : 0;
+        int[][] dp = null;
+        if ((flags & TEXT_DX) != 0) {
+            int[] dx = new int[readUnsigned()];
+            for (int i = -1, count = readUnsigned(); count > 0; count--) {
+                i += readUnsigned() + 1;
+                dx[i] = readInt();
+            }
+            dp = IFUtil.convertDXToDP(dx);
+        } else if ((flags & TEXT_DP) != 0) {
+            dp = new int[readUnsigned()][];
+            for (int i = -1, count = readUnsigned(); count > 0; count--) {
+                i += readUnsigned() + 1;
+                dp[i] = new int[] {readInt(), readInt(), readInt(), readInt()};
+            }
+        }
+        String text = readText();
+        boolean isHyphenated = (flags & TEXT_HYPHENATED) != 0;
+        if (isHyphenated) {
+            documentHandler.getContext().setHyphenated(true);
+        }
+        painter.drawText(x, y, letterSpacing, wordSpacing, dp, text);
+        if (isHyphenated) {
+            documentHandler.getContext().setHyphenated(false);
+        }
+    }
+
+    private void handleXML() throws IOException, IFException {
+        if (xmlHandler == null) {
+            xmlHandler = new IFParser().getContentHandler(documentHandler, userAgent);
+        }
+        readXML(xmlHandler);
+    }
+
+    private void readXML(ContentHandler handler) throws IOException, IFException {
+        try {
+            for (int op = in.readByte(); op != SAX_END; op = in.readByte()) {
+                switch (op) {
+                case SAX_START_PREFIX_MAPPING:
+                    handler.startPrefixMapping(readString(), readString());
+                    break;
+                case SAX_END_PREFIX_MAPPING:
+                    handler.endPrefixMapping(readString());
+                    break;
+                case SAX_START_ELEMENT:
+                    String uri = readString();
+                    String localName = readString();
+                    String qName = readString();
+                    AttributesImpl atts = new AttributesImpl();
+                    for (int i = 0, c = readUnsigned(); i < c; i++) {
+                        atts.addAttribute(readString(), readString(), readString(),
+                                XMLConstants.CDATA, readText());
+                    }
+                    handler.startElement(uri, localName, qName, atts);
+                    break;
+                case SAX_END_ELEMENT:
+                    handler.endElement(readString(), readString(), readString());
+                    break;
+                case SAX_CHARACTERS:
+                    char[] chars = readText().toCharArray();
+                    handler.characters(chars, 0, chars.length);
+                    break;
+                default:
+                    throw new IOException("Invalid XML content in binary intermediate format: " + op);
+                }
+            }
+        } catch (SAXException se) {
+            Throwable cause = se.getCause();
+            if (cause instanceof IFException) {
+                throw (IFException) cause;
+            }
+            throw new IFException("SAX error while handling XML content", se);
+        }
+    }
+
+    //---=== Decoding ===---
+
+    private int readUnsigned() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed integer in binary intermediate format");
+    }
+
+    private int readInt() throws IOException {
+        int value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readText() throws IOException {
+        int length = readUnsigned();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Reads a reference to a table entry.
+     * @param table the table
+     * @return the index of the entry, or -1 for null. If the index equals the size of the table
+     * the entry follows and must be added to the table.
+     */
+    private int readReference(List<?> table) throws IOException {
+        int ref = readUnsigned();
+        if (ref == REF_NULL) {
+            return -1;
+        } else if (ref == REF_NEW) {
+            return table.size();
+        } else if (ref - REF_FIRST_INDEX < table.size()) {
+            return ref - REF_FIRST_INDEX;
+        } else {
+            throw new IOException("Invalid table reference in binary intermediate format: " + ref);
+        }
+    }
+
+    private String readString() throws IOException {
+        int index = readReference(strings);
+        if (index < 0) {
+            return null;
+        } else if (index == strings.size()) {
+            strings.add(readText());
+        }
+        return strings.get(index);
+    }
+
+    private Color readColor() throws IOException, IFException {
+        int index = readReference(colors);
+        if (index < 0) {
+            return null;
+        } else if (index == colors.size()) {
+            try {
+                colors.add(ColorUtil.parseColorString(userAgent, readText()));
+            } catch (PropertyException pe) {
+                throw new IFException("Error parsing a color", pe);
+            }
+        }
+        return colors.get(index);
+    }
+
+    private BorderProps readBorder() throws IOException {
+        int index = readReference(borders);
+        if (index < 0) {
+            return null;
+        } else if (index == borders.size()) {
+            borders.add(BorderProps.valueOf(userAgent, readText()));
+        }
+        return borders.get(index);
+    }
+
+    private Rectangle readRect() throws IOException {
+        return new Rectangle(readInt(), readInt(), readInt(), readInt());
+    }
+
+    private AffineTransform[] readTransforms() throws IOException {
+        AffineTransform[] transforms = new AffineTransform[readUnsigned()];
+        for (int i = 0; i < transforms.length; i++) {
+            byte type = in.readByte();
+            if (type == TRANSFORM_IDENTITY) {
+                transforms[i] = new AffineTransform();
+            } else if (type == TRANSFORM_TRANSLATE) {
+                transforms[i] = AffineTransform.getTranslateInstance(readInt(), readInt());
+            } else {
+                double[] matrix = new double[6];
+                for (int j = 0; j < 6; j++) {
+                    matrix[j] = in.readDouble();
+                }
+                transforms[i] = new AffineTransform(matrix);
+            }
+        }
+        return transforms;
+    }
+
+    private Map<QName, String> readForeignAttributes() throws IOException {
+        int count = readUnsigned();
+        if (count == 0) {
+            return null;
+        }
+        Map<QName, String> foreignAttributes = new java.util.HashMap<QName, String>();
+        for (int i = 0; i < count; i++) {
+            QName qName = new QName(readString(), readString());
+            foreignAttributes.put(qName, readString());
+        }
+        return foreignAttributes;
+    }
+
+    /** Builds the DOM of a foreign object, like {@link IFParser} does. */
+    private class ForeignObjectBuilder extends DefaultHandler {
+
+        private ContentHandler delegate;
+
+        private int depth;
+
+        private Document document;
+
+        Document getDocument() throws IFException {
+            if (document == null) {
+                throw new IFException("Foreign object is missing on image", null);
+            }
+            return document;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+            if (delegate == null) {
+                ContentHandlerFactory factory
+                        = userAgent.getContentHandlerFactoryRegistry().getFactory(uri);
+                if (factory == null) {
+                    DOMImplementation domImplementation = userAgent.getElementMappingRegistry()
+                            .getDOMImplementationForNamespace(uri);
+                    if (domImplementation == null) {
+                        domImplementation = ElementMapping.getDefaultDOMImplementation();
+                    }
+                    factory = new DOMBuilderContentHandlerFactory(uri, domImplementation);
+                }
+                delegate = factory.createContentHandler();
+                delegate.startDocument();
+            }
+            depth++;
+            delegate.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            delegate.endElement(uri, localName, qName);
+            if (--depth == 0) {
+                delegate.endDocument();
+                document = (Document) ((ContentHandlerFactory.ObjectSource) delegate).getObject();
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (delegate != null) {
+                delegate.characters(ch, start, length);
+            }
+        }
+    }
+}
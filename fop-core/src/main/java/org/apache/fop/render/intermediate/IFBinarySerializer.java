@@ -0,0 +1,934 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Paint;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+import org.apache.xmlgraphics.util.QName;
+import org.apache.xmlgraphics.util.XMLizable;
+
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.render.DefaultRendererConfigurator;
+import org.apache.fop.render.intermediate.IFRendererConfig.IFRendererConfigParser;
+import org.apache.fop.render.intermediate.extensions.AbstractAction;
+import org.apache.fop.render.intermediate.extensions.Bookmark;
+import org.apache.fop.render.intermediate.extensions.BookmarkTree;
+import org.apache.fop.render.intermediate.extensions.DocumentNavigationExtensionConstants;
+import org.apache.fop.render.intermediate.extensions.Link;
+import org.apache.fop.render.intermediate.extensions.NamedDestination;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+import org.apache.fop.util.ColorUtil;
+import org.apache.fop.util.DOM2SAX;
+import org.apache.fop.util.GenerationHelperContentHandler;
+import org.apache.fop.util.LanguageTags;
+import org.apache.fop.util.XMLConstants;
+
+/**
+ * IFPainter implementation that serializes the intermediate format to a compact binary
+ * encoding, which is smaller and faster to parse than the XML written by {@link IFSerializer}.
+ * The binary intermediate format is read by {@link IFBinaryParser}, which replays the same
+ * {@link IFDocumentHandler} and {@link IFPainter} events. The structure tree of accessible
+ * documents is not part of the binary format, use the XML format for those.
+ * @see IFBinaryConstants
+ */
+public class IFBinarySerializer extends AbstractBinaryWritingIFDocumentHandler
+        implements IFBinaryConstants, IFPainter, IFDocumentNavigationHandler {
+
+    private IFDocumentHandler mimicHandler;
+
+    private DataOutputStream out;
+
+    /** Holds the intermediate format state */
+    private IFState state;
+
+    private String currentID = "";
+
+    private final Map<String, Integer> strings = new java.util.HashMap<String, Integer>();
+    private final Map<String, Integer> colors = new java.util.HashMap<String, Integer>();
+    private final Map<String, Integer> borders = new java.util.HashMap<String, Integer>();
+
+    /** Writes XML content, such as extension objects, as SAX events */
+    private final GenerationHelperContentHandler xmlHandler = new GenerationHelperContentHandler(
+            new SAXEventWriter(), DocumentNavigationExtensionConstants.NAMESPACE, null);
+
+    private final double[] matrix = new double[6];
+
+    /**
+     * Main constructor.
+     * @param context the intermediate format context
+     */
+    public IFBinarySerializer(IFContext context) {
+        super(context);
+    }
+
+    /** {@inheritDoc} */
+    public boolean supportsPagesOutOfOrder() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public String getMimeType() {
+        return MimeConstants.MIME_FOP_IF_BINARY;
+    }
+
+    /** {@inheritDoc} */
+    public IFDocumentHandlerConfigurator getConfigurator() {
+        if (this.mimicHandler != null) {
+            return getMimickedDocumentHandler().getConfigurator();
+        } else {
+            return new DefaultRendererConfigurator(getUserAgent(), new IFRendererConfigParser());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IFDocumentNavigationHandler getDocumentNavigationHandler() {
+        return this;
+    }
+
+    /**
+     * Tells this serializer to mimic the given document handler (mostly applies to the font set
+     * that is used during layout).
+     * @param targetHandler the document handler to mimic
+     */
+    public void mimicDocumentHandler(IFDocumentHandler targetHandler) {
+        this.mimicHandler = targetHandler;
+    }
+
+    /**
+     * Returns the document handler that is being mimicked by this serializer.
+     * @return the mimicked document handler or null if no such document handler has been set
+     */
+    public IFDocumentHandler getMimickedDocumentHandler() {
+        return this.mimicHandler;
+    }
+
+    /** {@inheritDoc} */
+    public FontInfo getFontInfo() {
+        if (this.mimicHandler != null) {
+            return this.mimicHandler.getFontInfo();
+        } else {
+            return super.getFontInfo();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setFontInfo(FontInfo fontInfo) {
+        if (this.mimicHandler != null) {
+            this.mimicHandler.setFontInfo(fontInfo);
+        } else {
+            super.setFontInfo(fontInfo);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setDefaultFontInfo(FontInfo fontInfo) {
+        if (this.mimicHandler != null) {
+            this.mimicHandler.setDefaultFontInfo(fontInfo);
+        } else {
+            super.setDefaultFontInfo(fontInfo);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startDocument() throws IFException {
+        if (getUserAgent().isAccessibilityEnabled()) {
+            //The structure tree would be silently dropped
+            throw new IFException("The binary intermediate format does not support accessibility."
+                    + " Use the XML intermediate format for tagged output.");
+        }
+        super.startDocument();
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(OP_START_DOCUMENT);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startDocument()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setDocumentLocale(Locale locale) {
+        try {
+            out.writeByte(OP_DOCUMENT_LOCALE);
+            writeString(LanguageTags.toLanguageTag(locale));
+        } catch (IOException ioe) {
+            throw new RuntimeException("Unable to write the document locale.", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startDocumentHeader() throws IFException {
+        writeOperation(OP_START_DOCUMENT_HEADER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endDocumentHeader() throws IFException {
+        writeOperation(OP_END_DOCUMENT_HEADER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startDocumentTrailer() throws IFException {
+        writeOperation(OP_START_DOCUMENT_TRAILER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endDocumentTrailer() throws IFException {
+        writeOperation(OP_END_DOCUMENT_TRAILER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endDocument() throws IFException {
+        try {
+            out.writeByte(OP_END_DOCUMENT);
+            out.flush();
+            out = null;
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in endDocument()", ioe);
+        }
+        assert this.incompleteActions.size() == 0 : "Still holding incomplete actions!";
+        super.endDocument();
+    }
+
+    /** {@inheritDoc} */
+    public void startPageSequence(String id) throws IFException {
+        try {
+            out.writeByte(OP_START_PAGE_SEQUENCE);
+            writeText(id);
+            Locale lang = getContext().getLanguage();
+            writeString(lang != null ? LanguageTags.toLanguageTag(lang) : null);
+            writeForeignAttributes();
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startPageSequence()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endPageSequence() throws IFException {
+        writeOperation(OP_END_PAGE_SEQUENCE);
+    }
+
+    /** {@inheritDoc} */
+    public void startPage(int index, String name, String pageMasterName, Dimension size)
+            throws IFException {
+        try {
+            out.writeByte(OP_START_PAGE);
+            writeUnsigned(index);
+            writeText(name);
+            writeString(pageMasterName);
+            writeInt(size.width);
+            writeInt(size.height);
+            writeForeignAttributes();
+            getContext().setPageIndex(index);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startPage()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startPageHeader() throws IFException {
+        writeOperation(OP_START_PAGE_HEADER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endPageHeader() throws IFException {
+        writeOperation(OP_END_PAGE_HEADER);
+    }
+
+    /** {@inheritDoc} */
+    public IFPainter startPageContent() throws IFException {
+        writeOperation(OP_START_PAGE_CONTENT);
+        this.state = IFState.create();
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    public void endPageContent() throws IFException {
+        this.state = null;
+        currentID = "";
+        writeOperation(OP_END_PAGE_CONTENT);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startPageTrailer() throws IFException {
+        writeOperation(OP_START_PAGE_TRAILER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endPageTrailer() throws IFException {
+        commitNavigation();
+        writeOperation(OP_END_PAGE_TRAILER);
+    }
+
+    /** {@inheritDoc} */
+    public void endPage() throws IFException {
+        writeOperation(OP_END_PAGE);
+        getContext().setPageIndex(-1);
+    }
+
+    //---=== IFPainter ===---
+
+    /** {@inheritDoc} */
+    public void startViewport(AffineTransform transform, Dimension size, Rectangle clipRect)
+            throws IFException {
+        startViewport(new AffineTransform[] {transform}, size, clipRect);
+    }
+
+    /** {@inheritDoc} */
+    public void startViewport(AffineTransform[] transforms, Dimension size, Rectangle clipRect)
+            throws IFException {
+        try {
+            out.writeByte(OP_START_VIEWPORT);
+            writeTransforms(transforms);
+            writeInt(size.width);
+            writeInt(size.height);
+            out.writeBoolean(clipRect != null);
+            if (clipRect != null) {
+                writeRect(clipRect);
+            }
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startViewport()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endViewport() throws IFException {
+        writeOperation(OP_END_VIEWPORT);
+    }
+
+    /** {@inheritDoc} */
+    public void startGroup(AffineTransform[] transforms, String layer) throws IFException {
+        try {
+            out.writeByte(OP_START_GROUP);
+            writeTransforms(transforms);
+            writeString(layer != null && layer.length() > 0 ? layer : null);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startGroup()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void startGroup(AffineTransform transform, String layer) throws IFException {
+        startGroup(transform != null ? new AffineTransform[] {transform} : null, layer);
+    }
+
+    /** {@inheritDoc} */
+    public void endGroup() throws IFException {
+        writeOperation(OP_END_GROUP);
+    }
+
+    /** {@inheritDoc} */
+    public void drawImage(String uri, Rectangle rect) throws IFException {
+        try {
+            writeID();
+            out.writeByte(OP_IMAGE);
+            writeString(uri);
+            writeRect(rect);
+            writeForeignAttributes();
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawImage()", ioe);
+        } finally {
+            ImageSessionContext session = getUserAgent().getImageSessionContext();
+            ImageManager imageManager = getUserAgent().getImageManager();
+            imageManager.closeImage(uri, session);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void drawImage(Document doc, Rectangle rect) throws IFException {
+        try {
+            writeID();
+            out.writeByte(OP_FOREIGN_IMAGE);
+            writeRect(rect);
+            writeForeignAttributes();
+            new DOM2SAX(xmlHandler).writeDocument(doc, true);
+            out.writeByte(SAX_END);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawImage()", ioe);
+        } catch (SAXException e) {
+            throw new IFException("SAX error in drawImage()", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void clipRect(Rectangle rect) throws IFException {
+        try {
+            out.writeByte(OP_CLIP_RECT);
+            writeRect(rect);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in clipRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void clipBackground(Rectangle rect, BorderProps bpsBefore, BorderProps bpsAfter,
+            BorderProps bpsStart, BorderProps bpsEnd) throws IFException {
+        try {
+            out.writeByte(OP_CLIP_BACKGROUND);
+            writeRect(rect);
+            writeBorder(bpsBefore);
+            writeBorder(bpsAfter);
+            writeBorder(bpsStart);
+            writeBorder(bpsEnd);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in clipBackground()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void fillRect(Rectangle rect, Paint fill) throws IFException {
+        if (fill == null) {
+            return;
+        }
+        if (!(fill instanceof Color)) {
+            throw new UnsupportedOperationException("Paint not supported: " + fill);
+        }
+        try {
+            out.writeByte(OP_FILL_RECT);
+            writeRect(rect);
+            writeColor((Color) fill);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in fillRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void drawBorderRect(Rectangle rect, BorderProps top, BorderProps bottom,
+            BorderProps left, BorderProps right, Color innerBackgroundColor) throws IFException {
+        if (top == null && bottom == null && left == null && right == null) {
+            return;
+        }
+        try {
+            out.writeByte(OP_BORDER_RECT);
+            writeRect(rect);
+            writeBorder(top);
+            writeBorder(bottom);
+            writeBorder(left);
+            writeBorder(right);
+            writeColor(innerBackgroundColor);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawBorderRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void drawLine(Point start, Point end, int width, Color color, RuleStyle style)
+            throws IFException {
+        try {
+            writeID();
+            out.writeByte(OP_LINE);
+            writeInt(start.x);
+            writeInt(start.y);
+            writeInt(end.x);
+            writeInt(end.y);
+            writeInt(width);
+            writeColor(color);
+            writeString(style.getName());
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawLine()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void drawText(int x, int y, int letterSpacing, int wordSpacing,
+            int[][] dp, String text) throws IFException {
+        try {
+            writeID();
+            int[] dx = null;
+            if (dp != null) {
+                if (IFUtil.isDPIdentity(dp)) {
+                    dp = null;
+                } else if (IFUtil.isDPOnlyDX(dp)) {
+                    dx = IFUtil.convertDPToDX(dp);
+                    dp = null;
+                }
+            }
+            int flags = (letterSpacing != 0 ? TEXT_LETTER_SPACING : 0)
+                    | (wordSpacing != 0 ? TEXT_WORD_SPACING : 0)
+                    | (dx != null ? TEXT_DX : 0)
+                    | (dp != null ? TEXT_DP : 0)
+                    | (getContext().isHyphenated() ? TEXT_HYPHENATED : 0);
+            out.writeByte(OP_TEXT);
+            out.writeByte(flags);
+            writeInt(x);
+            writeInt(y);
+            if (letterSpacing != 0) {
+                writeInt(letterSpacing);
+            }
+            if (wordSpacing != 0) {
+                writeInt(wordSpacing);
+            }
+            if (dx != null) {
+                writeUnsigned(dx.length);
+                int count = 0;
+                for (int value : dx) {
+                    count += value != 0 ? 1 : 0;
+                }
+                writeUnsigned(count);
+                for (int i = 0, last = -1; i < dx.length; i++) {
+                    if (dx[i] != 0) {
+                        writeUnsigned(i - last - 1);
+                        writeInt(dx[i]);
+                        last = i;
+                    }
+                }
+            } else if (dp != null) {
+                writeUnsigned(dp.length);
+                int count = 0;
+                for (int[] pa : dp) {
+                    count += !IFUtil.isPAIdentity(pa) ? 1 : 0;
+                }
+                writeUnsigned(count);
+                for (int i = 0, last = -1; i < dp.length; i++) {
+                    if (!IFUtil.isPAIdentity(dp[i])) {
+                        writeUnsigned(i - last - 1);
+                        for (int j = 0; j < 4; j++) {
+                            writeInt(dp[i][j]);
+                        }
+                        last = i;
+                    }
+                }
+            }
+            writeText(text);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawText()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setFont(String family, String style, Integer weight, String variant, Integer size,
+            Color color) throws IFException {
+        int flags = 0;
+        if (family != null && !family.equals(state.getFontFamily())) {
+            state.setFontFamily(family);
+            flags |= FONT_FAMILY;
+        }
+        if (style != null && !style.equals(state.getFontStyle())) {
+            state.setFontStyle(style);
+            flags |= FONT_STYLE;
+        }
+        if (weight != null && weight != state.getFontWeight()) {
+            state.setFontWeight(weight);
+            flags |= FONT_WEIGHT;
+        }
+        if (variant != null && !variant.equals(state.getFontVariant())) {
+            state.setFontVariant(variant);
+            flags |= FONT_VARIANT;
+        }
+        if (size != null && size != state.getFontSize()) {
+            state.setFontSize(size);
+            flags |= FONT_SIZE;
+        }
+        if (color != null && !org.apache.xmlgraphics.java2d.color.ColorUtil.isSameColor(
+                color, state.getTextColor())) {
+            state.setTextColor(color);
+            flags |= FONT_COLOR;
+        }
+        if (flags == 0) {
+            return;
+        }
+        try {
+            out.writeByte(OP_FONT);
+            out.writeByte(flags);
+            if ((flags & FONT_FAMILY) != 0) {
+                writeString(family);
+            }
+            if ((flags & FONT_STYLE) != 0) {
+                writeString(style);
+            }
+            if ((flags & FONT_WEIGHT) != 0) {
+                writeInt(weight);
+            }
+            if ((flags & FONT_VARIANT) != 0) {
+                writeString(variant);
+            }
+            if ((flags & FONT_SIZE) != 0) {
+                writeInt(size);
+            }
+            if ((flags & FONT_COLOR) != 0) {
+                writeColor(color);
+            }
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in setFont()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void handleExtensionObject(Object extension) throws IFException {
+        if (extension instanceof XMLizable) {
+            serializeXMLizable((XMLizable) extension);
+        } else {
+            throw new UnsupportedOperationException(
+                    "Extension must implement XMLizable: "
+                            + extension + " (" + extension.getClass().getName() + ")");
+        }
+    }
+
+    /** {@inheritDoc} */
+    public boolean isBackgroundRequired(BorderProps bpsTop, BorderProps bpsBottom,
+            BorderProps bpsLeft, BorderProps bpsRight) {
+        return true;
+    }
+
+    //---=== IFDocumentNavigationHandler ===---
+
+    private Map incompleteActions = new java.util.HashMap();
+    private List completeActions = new java.util.LinkedList();
+
+    private void noteAction(AbstractAction action) {
+        if (action == null) {
+            throw new NullPointerException("action must not be null");
+        }
+        if (!action.isComplete()) {
+            assert action.hasID();
+            incompleteActions.put(action.getID(), action);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void renderNamedDestination(NamedDestination destination) throws IFException {
+        noteAction(destination.getAction());
+
+        AttributesImpl atts = new AttributesImpl();
+        atts.addAttribute("", "name", "name", XMLConstants.CDATA, destination.getName());
+        try {
+            out.writeByte(OP_XML);
+            xmlHandler.startElement(DocumentNavigationExtensionConstants.NAMED_DESTINATION, atts);
+            destination.getAction().toSAX(xmlHandler);
+            xmlHandler.endElement(DocumentNavigationExtensionConstants.NAMED_DESTINATION);
+            out.writeByte(SAX_END);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error serializing named destination", ioe);
+        } catch (SAXException e) {
+            throw new IFException("SAX error serializing named destination", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void renderBookmarkTree(BookmarkTree tree) throws IFException {
+        try {
+            out.writeByte(OP_XML);
+            xmlHandler.startElement(DocumentNavigationExtensionConstants.BOOKMARK_TREE,
+                    new AttributesImpl());
+            for (Object o : tree.getBookmarks()) {
+                Bookmark b = (Bookmark) o;
+                if (b.getAction() != null) {
+                    serializeBookmark(b);
+                }
+            }
+            xmlHandler.endElement(DocumentNavigationExtensionConstants.BOOKMARK_TREE);
+            out.writeByte(SAX_END);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error serializing bookmark tree", ioe);
+        } catch (SAXException e) {
+            throw new IFException("SAX error serializing bookmark tree", e);
+        }
+    }
+
+    private void serializeBookmark(Bookmark bookmark) throws SAXException {
+        noteAction(bookmark.getAction());
+
+        AttributesImpl atts = new AttributesImpl();
+        atts.addAttribute("", "title", "title", XMLConstants.CDATA, bookmark.getTitle());
+        atts.addAttribute("", "starting-state", "starting-state",
+                XMLConstants.CDATA, bookmark.isShown() ? "show" : "hide");
+        xmlHandler.startElement(DocumentNavigationExtensionConstants.BOOKMARK, atts);
+        bookmark.getAction().toSAX(xmlHandler);
+        for (Object o : bookmark.getChildBookmarks()) {
+            Bookmark b = (Bookmark) o;
+            if (b.getAction() != null) {
+                serializeBookmark(b);
+            }
+        }
+        xmlHandler.endElement(DocumentNavigationExtensionConstants.BOOKMARK);
+    }
+
+    /** {@inheritDoc} */
+    public void renderLink(Link link) throws IFException {
+        noteAction(link.getAction());
+
+        AttributesImpl atts = new AttributesImpl();
+        atts.addAttribute("", "rect", "rect",
+                XMLConstants.CDATA, IFUtil.toString(link.getTargetRect()));
+        try {
+            out.writeByte(OP_XML);
+            xmlHandler.startElement(DocumentNavigationExtensionConstants.LINK, atts);
+            link.getAction().toSAX(xmlHandler);
+            xmlHandler.endElement(DocumentNavigationExtensionConstants.LINK);
+            out.writeByte(SAX_END);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error serializing link", ioe);
+        } catch (SAXException e) {
+            throw new IFException("SAX error serializing link", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void addResolvedAction(AbstractAction action) throws IFException {
+        assert action.isComplete();
+        assert action.hasID();
+        AbstractAction noted = (AbstractAction) incompleteActions.remove(action.getID());
+        if (noted != null) {
+            completeActions.add(action);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public int getPageIndex() {
+        return -1;
+    }
+
+    private void commitNavigation() throws IFException {
+        Iterator iter = this.completeActions.iterator();
+        while (iter.hasNext()) {
+            AbstractAction action = (AbstractAction) iter.next();
+            iter.remove();
+            serializeXMLizable(action);
+        }
+    }
+
+    private void serializeXMLizable(XMLizable object) throws IFException {
+        try {
+            out.writeByte(OP_XML);
+            object.toSAX(xmlHandler);
+            out.writeByte(SAX_END);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error serializing object", ioe);
+        } catch (SAXException e) {
+            throw new IFException("SAX error serializing object", e);
+        }
+    }
+
+    //---=== Encoding ===---
+
+    private void writeOperation(byte op) throws IFException {
+        try {
+            out.writeByte(op);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error writing the binary intermediate format", ioe);
+        }
+    }
+
+    private void writeID() throws IOException {
+        String id = getContext().getID();
+        if (!currentID.equals(id)) {
+            out.writeByte(OP_ID);
+            writeText(id);
+            currentID = id;
+        }
+    }
+
+    private void writeUnsigned(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeUnsigned((value << 1) ^ (value >> 31));
+    }
+
+    /** Writes a string that is not interned, null is written as length 0 */
+    private void writeText(String text) throws IOException {
+        if (text == null) {
+            writeUnsigned(0);
+        } else {
+            byte[] bytes = text.getBytes("UTF-8");
+            writeUnsigned(bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    private void writeReference(Map<String, Integer> table, String value) throws IOException {
+        if (value == null) {
+            writeUnsigned(REF_NULL);
+        } else {
+            Integer index = table.get(value);
+            if (index != null) {
+                writeUnsigned(index + REF_FIRST_INDEX);
+            } else {
+                table.put(value, table.size());
+                writeUnsigned(REF_NEW);
+                writeText(value);
+            }
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writeReference(strings, value);
+    }
+
+    private void writeColor(Color color) throws IOException {
+        writeReference(colors, color != null ? ColorUtil.colorToString(color) : null);
+    }
+
+    private void writeBorder(BorderProps border) throws IOException {
+        writeReference(borders, border != null ? border.toString() : null);
+    }
+
+    private void writeRect(Rectangle rect) throws IOException {
+        writeInt(rect.x);
+        writeInt(rect.y);
+        writeInt(rect.width);
+        writeInt(rect.height);
+    }
+
+    private void writeTransforms(AffineTransform[] transforms) throws IOException {
+        if (transforms == null) {
+            writeUnsigned(0);
+            return;
+        }
+        writeUnsigned(transforms.length);
+        for (AffineTransform transform : transforms) {
+            if (transform == null || transform.isIdentity()) {
+                out.writeByte(TRANSFORM_IDENTITY);
+                continue;
+            }
+            transform.getMatrix(matrix);
+            if (matrix[0] == 1 && matrix[3] == 1 && matrix[1] == 0 && matrix[2] == 0
+                    && matrix[4] == (int) matrix[4] && matrix[5] == (int) matrix[5]) {
+                out.writeByte(TRANSFORM_TRANSLATE);
+                writeInt((int) matrix[4]);
+                writeInt((int) matrix[5]);
+            } else {
+                out.writeByte(TRANSFORM_MATRIX);
+                for (double value : matrix) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    private void writeForeignAttributes() throws IOException {
+        Map foreignAttributes = getContext().getForeignAttributes();
+        writeUnsigned(foreignAttributes.size());
+        for (Object o : foreignAttributes.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            QName qName = (QName) entry.getKey();
+            writeString(qName.getNamespaceURI());
+            writeString(qName.getQName());
+            writeString(entry.getValue().toString());
+        }
+    }
+
+    /** Writes the SAX events it receives to the binary intermediate format. */
+    private class SAXEventWriter extends DefaultHandler {
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            try {
+                out.writeByte(SAX_START_PREFIX_MAPPING);
+                writeString(prefix);
+                writeString(uri);
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            try {
+                out.writeByte(SAX_END_PREFIX_MAPPING);
+                writeString(prefix);
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+            try {
+                out.writeByte(SAX_START_ELEMENT);
+                writeString(uri);
+                writeString(localName);
+                writeString(qName);
+                writeUnsigned(atts.getLength());
+                for (int i = 0, c = atts.getLength(); i < c; i++) {
+                    writeString(atts.getURI(i));
+                    writeString(atts.getLocalName(i));
+                    writeString(atts.getQName(i));
+                    writeText(atts.getValue(i));
+                }
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            try {
+                out.writeByte(SAX_END_ELEMENT);
+                writeString(uri);
+                writeString(localName);
+                writeString(qName);
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            try {
+                out.writeByte(SAX_CHARACTERS);
+                writeText(new String(ch, start, length));
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+    }
+}
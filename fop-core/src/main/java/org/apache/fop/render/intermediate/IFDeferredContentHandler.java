@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Rectangle;
+
+/**
+ * Interface to handle content that is placed on a page while the page is painted, but only
+ * painted at the end of the document, for example page numbers that are not known yet when
+ * the page is finished. This is an optional interface for document handler implementations
+ * which support deferred content.
+ */
+public interface IFDeferredContentHandler {
+
+    /**
+     * Indicates whether deferred content is supported for the document being produced.
+     * @return true if deferred content is supported
+     */
+    boolean supportsDeferredContent();
+
+    /**
+     * Places a placeholder for deferred content on the current page. This may only be called
+     * while the content of a page is painted.
+     * @param bounds the bounds of the deferred content, in the current coordinate system
+     * @return the placeholder, to be passed to {@link #startDeferredContent(Object)}
+     * @throws IFException if an error occurs while handling this event
+     */
+    Object placeDeferredContent(Rectangle bounds) throws IFException;
+
+    /**
+     * Starts painting the content of a placeholder. The coordinate system is the one that was
+     * in effect when the placeholder was placed. This may only be called after the last page
+     * has ended and before the document trailer is started, and must be followed by a call
+     * to {@link #endDeferredContent()}.
+     * @param placeholder the placeholder
+     * @return the painter for the content
+     * @throws IFException if an error occurs while handling this event
+     */
+    IFPainter startDeferredContent(Object placeholder) throws IFException;
+
+    /**
+     * Ends painting the content of a placeholder.
+     * @throws IFException if an error occurs while handling this event
+     */
+    void endDeferredContent() throws IFException;
+}
@@ -55,6 +55,7 @@ import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.MimeConstants;
 import org.apache.fop.area.Area;
+import org.apache.fop.area.AreaEventProducer;
 import org.apache.fop.area.AreaTreeObject;
 import org.apache.fop.area.Block;
 import org.apache.fop.area.BlockViewport;
@@ -68,6 +69,7 @@ import org.apache.fop.area.PageViewport;
 import org.apache.fop.area.RegionViewport;
 import org.apache.fop.area.Trait;
 import org.apache.fop.area.inline.AbstractTextArea;
+import org.apache.fop.area.inline.DeferredPageNumber;
 import org.apache.fop.area.inline.ForeignObject;
 import org.apache.fop.area.inline.Image;
 import org.apache.fop.area.inline.InlineArea;
@@ -76,6 +78,7 @@ import org.apache.fop.area.inline.InlineViewport;
 import org.apache.fop.area.inline.Leader;
 import org.apache.fop.area.inline.SpaceArea;
 import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
 import org.apache.fop.area.inline.WordArea;
 import org.apache.fop.datatypes.URISpecification;
 import org.apache.fop.fo.extensions.ExtensionAttachment;
@@ -86,6 +89,7 @@ import org.apache.fop.fonts.FontTriplet;
 import org.apache.fop.fonts.LazyFont;
 import org.apache.fop.fonts.Typeface;
 import org.apache.fop.render.AbstractPathOrientedRenderer;
+import org.apache.fop.render.DeferredPageNumberCitationRenderer;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.intermediate.extensions.AbstractAction;
 import org.apache.fop.render.intermediate.extensions.ActionSet;
@@ -103,7 +107,8 @@ import org.apache.fop.traits.RuleStyle;
  * This renderer implementation is an adapter to the {@link IFPainter} interface. It is used
  * to generate content using FOP's intermediate format.
  */
-public class IFRenderer extends AbstractPathOrientedRenderer {
+public class IFRenderer extends AbstractPathOrientedRenderer
+        implements DeferredPageNumberCitationRenderer {
 
     //TODO Many parts of the Renderer infrastructure are using floats (coordinates in points)
     //instead of ints (in millipoints). A lot of conversion to and from is performed.
@@ -155,6 +160,10 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
 
     private TextUtil textUtil = new TextUtil();
 
+    /** Page numbers painted as placeholders, which are filled in at the end of the document */
+    private List<DeferredPageNumberText> deferredPageNumbers
+            = new java.util.ArrayList<DeferredPageNumberText>();
+
     private Stack<String> ids = new Stack<String>();
 
     /**
@@ -211,6 +220,12 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
                 ? this.documentHandler.supportsPagesOutOfOrder() : false);
     }
 
+    /** {@inheritDoc} */
+    public boolean supportsDeferredPageNumberCitations() {
+        return this.documentHandler instanceof IFDeferredContentHandler
+                && ((IFDeferredContentHandler) this.documentHandler).supportsDeferredContent();
+    }
+
     /**
      * Returns the document navigation handler if available/supported.
      * @return the document navigation handler or null if not supported
@@ -274,6 +289,7 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
                 documentHandler.endPageSequence();
                 this.inPageSequence = false;
             }
+            paintDeferredPageNumbers();
             documentHandler.startDocumentTrailer();
 
             //Wrap up document navigation
@@ -1058,7 +1074,13 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
         textUtil.setStartPosition(rx, bl);
         textUtil.setSpacing(text.getTextLetterSpaceAdjust(), text.getTextWordSpaceAdjust());
         documentHandler.getContext().setHyphenated(text.isHyphenated());
-        super.renderText(text);
+        DeferredPageNumber deferred = (text instanceof UnresolvedPageNumber)
+                ? ((UnresolvedPageNumber) text).getDeferredPageNumber() : null;
+        if (deferred != null) {
+            placeDeferredPageNumber(deferred, text, rx, bl, triplet, size, ct);
+        } else {
+            super.renderText(text);
+        }
 
         textUtil.flush();
         renderTextDecoration(tf, size, text, bl, rx);
@@ -1066,6 +1088,78 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
         resetStructurePointer();
     }
 
+    private void placeDeferredPageNumber(DeferredPageNumber pageNumber, TextArea text,
+            int x, int y, FontTriplet triplet, int size, Color color) {
+        //The page number may turn out to be wider than the space reserved for it
+        Rectangle bounds = new Rectangle(x, y - text.getBaselineOffset(),
+                2 * text.getIPD(), text.getBPD());
+        bounds.grow(size, size);
+        try {
+            Object placeholder = ((IFDeferredContentHandler) documentHandler)
+                    .placeDeferredContent(bounds);
+            deferredPageNumbers.add(new DeferredPageNumberText(placeholder, pageNumber,
+                    currentPageViewport.getPageNumberString(), triplet, size, color, x, y,
+                    text.getTextLetterSpaceAdjust(), text.getTextWordSpaceAdjust()));
+        } catch (IFException e) {
+            handleIFException(e);
+        }
+    }
+
+    private void paintDeferredPageNumbers() throws IFException {
+        if (deferredPageNumbers.isEmpty()) {
+            return;
+        }
+        IFDeferredContentHandler handler = (IFDeferredContentHandler) documentHandler;
+        for (DeferredPageNumberText deferred : deferredPageNumbers) {
+            String text = deferred.pageNumber.getText();
+            IFPainter deferredPainter = handler.startDeferredContent(deferred.placeholder);
+            if (text != null) {
+                FontTriplet triplet = deferred.triplet;
+                deferredPainter.setFont(triplet.getName(), triplet.getStyle(), triplet.getWeight(),
+                        "normal", deferred.size, deferred.color);
+                deferredPainter.drawText(deferred.x, deferred.y, deferred.letterSpacing,
+                        deferred.wordSpacing, null, text);
+            } else {
+                AreaEventProducer eventProducer = AreaEventProducer.Provider.get(
+                        getUserAgent().getEventBroadcaster());
+                eventProducer.unresolvedIDReferenceOnPage(this, deferred.pageNumberString,
+                        deferred.pageNumber.getIDRefs()[0]);
+            }
+            handler.endDeferredContent();
+        }
+        deferredPageNumbers.clear();
+    }
+
+    /** A page number painted as a placeholder, with what is needed to fill it in. */
+    private static final class DeferredPageNumberText {
+
+        private final Object placeholder;
+        private final DeferredPageNumber pageNumber;
+        private final String pageNumberString;
+        private final FontTriplet triplet;
+        private final int size;
+        private final Color color;
+        private final int x;
+        private final int y;
+        private final int letterSpacing;
+        private final int wordSpacing;
+
+        DeferredPageNumberText(Object placeholder, DeferredPageNumber pageNumber,
+                String pageNumberString, FontTriplet triplet, int size, Color color,
+                int x, int y, int letterSpacing, int wordSpacing) {
+            this.placeholder = placeholder;
+            this.pageNumber = pageNumber;
+            this.pageNumberString = pageNumberString;
+            this.triplet = triplet;
+            this.size = size;
+            this.color = color;
+            this.x = x;
+            this.y = y;
+            this.letterSpacing = letterSpacing;
+            this.wordSpacing = wordSpacing;
+        }
+    }
+
     /** {@inheritDoc} */
     protected void renderWord(WordArea word) {
         Font font = getFontFromArea(word.getParentArea());
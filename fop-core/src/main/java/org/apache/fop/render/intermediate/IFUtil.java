@@ -158,12 +158,10 @@ public final class IFUtil {
         if (fontInfo == null) {
             fontInfo = new FontInfo();
         }
-        if (documentHandler instanceof IFSerializer) {
-            IFSerializer serializer = (IFSerializer)documentHandler;
-            if (serializer.getMimickedDocumentHandler() != null) {
-                //Use the mimicked document handler's configurator to set up fonts
-                documentHandler = serializer.getMimickedDocumentHandler();
-            }
+        IFDocumentHandler mimic = getMimickedDocumentHandler(documentHandler);
+        if (mimic != null) {
+            //Use the mimicked document handler's configurator to set up fonts
+            documentHandler = mimic;
         }
         IFDocumentHandlerConfigurator configurator = documentHandler.getConfigurator();
         if (configurator != null) {
@@ -187,21 +185,28 @@ public final class IFUtil {
 
     /**
      * Returns the MIME type of the output format that the given document handler is supposed to
-     * handle. If the document handler is an {@link IFSerializer} it returns the MIME type of the
-     * document handler it is mimicking.
+     * handle. If the document handler is an {@link IFSerializer} or an {@link IFBinarySerializer}
+     * it returns the MIME type of the document handler it is mimicking.
      * @param documentHandler the document handler
      * @return the effective MIME type
      */
     public static String getEffectiveMIMEType(IFDocumentHandler documentHandler) {
-        if (documentHandler instanceof IFSerializer) {
-            IFDocumentHandler mimic = ((IFSerializer)documentHandler).getMimickedDocumentHandler();
-            if (mimic != null) {
-                return mimic.getMimeType();
-            }
+        IFDocumentHandler mimic = getMimickedDocumentHandler(documentHandler);
+        if (mimic != null) {
+            return mimic.getMimeType();
         }
         return documentHandler.getMimeType();
     }
 
+    private static IFDocumentHandler getMimickedDocumentHandler(IFDocumentHandler documentHandler) {
+        if (documentHandler instanceof IFSerializer) {
+            return ((IFSerializer) documentHandler).getMimickedDocumentHandler();
+        } else if (documentHandler instanceof IFBinarySerializer) {
+            return ((IFBinarySerializer) documentHandler).getMimickedDocumentHandler();
+        }
+        return null;
+    }
+
     /**
      * Convert the general gpos 'dp' adjustments to the older 'dx' adjustments.
      * This utility method is used to provide backward compatibility in implementations
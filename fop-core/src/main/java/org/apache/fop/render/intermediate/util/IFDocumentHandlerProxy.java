@@ -20,6 +20,7 @@
 package org.apache.fop.render.intermediate.util;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.util.Locale;
 
 import javax.xml.transform.Result;
@@ -27,6 +28,7 @@ import javax.xml.transform.Result;
 import org.apache.fop.accessibility.StructureTreeEventHandler;
 import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFDeferredContentHandler;
 import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.render.intermediate.IFDocumentHandlerConfigurator;
 import org.apache.fop.render.intermediate.IFDocumentNavigationHandler;
@@ -35,9 +37,9 @@ import org.apache.fop.render.intermediate.IFPainter;
 
 /**
  * This class is a simple proxy that delegates all method calls to another {@link IFDocumentHandler}
- * instance.
+ * instance. Deferred content is passed on if the delegate supports it.
  */
-public class IFDocumentHandlerProxy implements IFDocumentHandler {
+public class IFDocumentHandlerProxy implements IFDocumentHandler, IFDeferredContentHandler {
 
     /** the delegate IFDocumentHandler */
     protected IFDocumentHandler delegate;
@@ -192,4 +194,25 @@ public class IFDocumentHandlerProxy implements IFDocumentHandler {
         this.delegate.handleExtensionObject(extension);
     }
 
+    /** {@inheritDoc} */
+    public boolean supportsDeferredContent() {
+        return this.delegate instanceof IFDeferredContentHandler
+                && ((IFDeferredContentHandler) this.delegate).supportsDeferredContent();
+    }
+
+    /** {@inheritDoc} */
+    public Object placeDeferredContent(Rectangle bounds) throws IFException {
+        return ((IFDeferredContentHandler) this.delegate).placeDeferredContent(bounds);
+    }
+
+    /** {@inheritDoc} */
+    public IFPainter startDeferredContent(Object placeholder) throws IFException {
+        return ((IFDeferredContentHandler) this.delegate).startDeferredContent(placeholder);
+    }
+
+    /** {@inheritDoc} */
+    public void endDeferredContent() throws IFException {
+        ((IFDeferredContentHandler) this.delegate).endDeferredContent();
+    }
+
 }
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Paint;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFPainter;
+import org.apache.fop.render.intermediate.IFUtil;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+
+/**
+ * An {@link IFPainter} that records the calls made to it, so that they can be replayed on
+ * another painter later, possibly on another thread. The arguments that may be changed by the
+ * caller after a call are copied. The foreign attributes of the context in effect when an
+ * image is painted are recorded along with the image.
+ * <p>
+ * Backgrounds are always reported as required, like {@link
+ * org.apache.fop.render.intermediate.AbstractIFPainter} does.
+ */
+public class IFPainterRecorder implements IFPainter {
+
+    private final IFContext context;
+
+    private final List<Call> calls = new ArrayList<Call>();
+
+    /**
+     * Creates a new recorder.
+     * @param context the context of the calls to be recorded
+     */
+    public IFPainterRecorder(IFContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Replays the recorded calls on a painter.
+     * @param painter the painter
+     * @param painterContext the context of the painter, on which the foreign attributes recorded
+     *          for images are set while the images are painted
+     * @throws IFException if an error occurs while painting
+     */
+    public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+        for (Call call : calls) {
+            call.replay(painter, painterContext);
+        }
+    }
+
+    /**
+     * Returns the number of calls recorded.
+     * @return the number of calls
+     */
+    public int getCallCount() {
+        return calls.size();
+    }
+
+    /** A recorded call */
+    private interface Call {
+
+        void replay(IFPainter painter, IFContext painterContext) throws IFException;
+    }
+
+    private static Rectangle copy(Rectangle rect) {
+        return rect != null ? new Rectangle(rect) : null;
+    }
+
+    private static AffineTransform copy(AffineTransform transform) {
+        return transform != null ? new AffineTransform(transform) : null;
+    }
+
+    private Map copyForeignAttributes() {
+        Map foreignAttributes = context.getForeignAttributes();
+        return foreignAttributes.isEmpty() ? Collections.EMPTY_MAP : new HashMap(foreignAttributes);
+    }
+
+    /** {@inheritDoc} */
+    public void startViewport(AffineTransform transform, Dimension size, Rectangle clipRect) {
+        final AffineTransform t = copy(transform);
+        final Dimension s = new Dimension(size);
+        final Rectangle c = copy(clipRect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.startViewport(t, s, c);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void startViewport(AffineTransform[] transforms, Dimension size, Rectangle clipRect) {
+        final AffineTransform[] t = new AffineTransform[transforms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = copy(transforms[i]);
+        }
+        final Dimension s = new Dimension(size);
+        final Rectangle c = copy(clipRect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.startViewport(t, s, c);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void endViewport() {
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.endViewport();
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void startGroup(AffineTransform[] transforms, final String layer) {
+        final AffineTransform[] t = new AffineTransform[transforms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = copy(transforms[i]);
+        }
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.startGroup(t, layer);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void startGroup(AffineTransform transform, final String layer) {
+        final AffineTransform t = copy(transform);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.startGroup(t, layer);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void endGroup() {
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.endGroup();
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void setFont(final String family, final String style, final Integer weight,
+            final String variant, final Integer size, final Color color) {
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.setFont(family, style, weight, variant, size, color);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void drawText(final int x, final int y, final int letterSpacing, final int wordSpacing,
+            int[][] dp, final String text) {
+        final int[][] d = (dp != null ? IFUtil.copyDP(dp, 0, dp.length) : null);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.drawText(x, y, letterSpacing, wordSpacing, d, text);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void clipRect(Rectangle rect) {
+        final Rectangle r = copy(rect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.clipRect(r);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void clipBackground(Rectangle rect, final BorderProps bpsBefore,
+            final BorderProps bpsAfter, final BorderProps bpsStart, final BorderProps bpsEnd) {
+        final Rectangle r = copy(rect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.clipBackground(r, bpsBefore, bpsAfter, bpsStart, bpsEnd);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public boolean isBackgroundRequired(BorderProps bpsBefore, BorderProps bpsAfter,
+            BorderProps bpsStart, BorderProps bpsEnd) {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public void fillRect(Rectangle rect, final Paint fill) {
+        final Rectangle r = copy(rect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.fillRect(r, fill);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void drawBorderRect(Rectangle rect, final BorderProps top, final BorderProps bottom,
+            final BorderProps left, final BorderProps right, final Color innerBackgroundColor) {
+        final Rectangle r = copy(rect);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.drawBorderRect(r, top, bottom, left, right, innerBackgroundColor);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void drawLine(Point start, Point end, final int width, final Color color,
+            final RuleStyle style) {
+        final Point s = new Point(start);
+        final Point e = new Point(end);
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painter.drawLine(s, e, width, color, style);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void drawImage(final String uri, Rectangle rect) {
+        final Rectangle r = copy(rect);
+        final Map foreignAttributes = copyForeignAttributes();
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painterContext.setForeignAttributes(foreignAttributes);
+                try {
+                    painter.drawImage(uri, r);
+                } finally {
+                    painterContext.resetForeignAttributes();
+                }
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public void drawImage(final Document doc, Rectangle rect) {
+        final Rectangle r = copy(rect);
+        final Map foreignAttributes = copyForeignAttributes();
+        calls.add(new Call() {
+            public void replay(IFPainter painter, IFContext painterContext) throws IFException {
+                painterContext.setForeignAttributes(foreignAttributes);
+                try {
+                    painter.drawImage(doc, r);
+                } finally {
+                    painterContext.resetForeignAttributes();
+                }
+            }
+        });
+    }
+}
@@ -121,7 +121,7 @@ public class CustomFontMetricsMapper extends Typeface implements FontMetricsMapp
     }
 
     /** {@inheritDoc} */
-    public final Font getFont(final int size) {
+    public final synchronized Font getFont(final int size) {
         if (this.size == size) {
             return font;
         }
@@ -181,6 +181,12 @@ public class CustomFontMetricsMapper extends Typeface implements FontMetricsMapp
         return typeface.getKerningInfo();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public int getKernValue(int ch1, int ch2) {
+        return typeface.getKernValue(ch1, ch2);
+    }
+
     /** {@inheritDoc} */
     public final int getWidth(final int i, final int size) {
         return typeface.getWidth(i, size);
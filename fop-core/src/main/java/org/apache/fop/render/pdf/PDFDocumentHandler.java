@@ -25,7 +25,9 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -40,14 +42,18 @@ import org.apache.fop.fo.extensions.xmp.XMPMetadata;
 import org.apache.fop.pdf.PDFAnnotList;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFilterList;
+import org.apache.fop.pdf.PDFFormXObject;
 import org.apache.fop.pdf.PDFPage;
 import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.pdf.PDFResourceContext;
 import org.apache.fop.pdf.PDFResources;
 import org.apache.fop.pdf.PDFStream;
 import org.apache.fop.render.extensions.prepress.PageBoundaries;
 import org.apache.fop.render.extensions.prepress.PageScale;
 import org.apache.fop.render.intermediate.AbstractBinaryWritingIFDocumentHandler;
 import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFDeferredContentHandler;
 import org.apache.fop.render.intermediate.IFDocumentHandlerConfigurator;
 import org.apache.fop.render.intermediate.IFDocumentNavigationHandler;
 import org.apache.fop.render.intermediate.IFException;
@@ -59,7 +65,8 @@ import org.apache.fop.render.pdf.extensions.PDFEmbeddedFileAttachment;
 /**
  * {@link org.apache.fop.render.intermediate.IFDocumentHandler} implementation that produces PDF.
  */
-public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
+public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler
+        implements IFDeferredContentHandler {
 
     /** logging instance */
     private static Log log = LogFactory.getLog(PDFDocumentHandler.class);
@@ -98,6 +105,12 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             = new PDFDocumentNavigationHandler(this);
 
     private Map<Integer, PDFArray> pageNumbers = new HashMap<Integer, PDFArray>();
+
+    /** The placeholders for deferred content, which are painted as Form XObjects */
+    private List<DeferredContent> deferredContents = new ArrayList<DeferredContent>();
+
+    /** The placeholder whose content is being painted */
+    private DeferredContent currentDeferredContent;
     private Map<Integer, PDFReference> contents = new HashMap<Integer, PDFReference>();
 
     /**
@@ -183,6 +196,14 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
 
     /** {@inheritDoc} */
     public void endDocument() throws IFException {
+        for (DeferredContent content : deferredContents) {
+            if (!content.painted) {
+                content.form.setContents(pdfDoc.getFactory().makeStream(
+                        PDFFilterList.CONTENT_FILTER, false));
+                pdfDoc.addObject(content.form);
+            }
+        }
+        deferredContents.clear();
         pdfDoc.getResources().addFonts(pdfDoc, fontInfo);
         try {
             if (pdfDoc.isLinearizationEnabled()) {
@@ -299,6 +320,8 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             if (!pdfDoc.isLinearizationEnabled()) {
                 this.generator.flushPDFDoc();
                 this.generator = null;
+            } else {
+                pdfDoc.encodeDeferredStreams();
             }
         } catch (IOException ioe) {
             throw new IFException("I/O error in endPage()", ioe);
@@ -316,6 +339,59 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         currentPage.setContents(contents.get(hash));
     }
 
+    /** {@inheritDoc} */
+    public boolean supportsDeferredContent() {
+        //Objects can't be added once the output of a linearized document has started
+        return !accessEnabled && pdfDoc != null && !pdfDoc.isLinearizationEnabled();
+    }
+
+    /** {@inheritDoc} */
+    public Object placeDeferredContent(Rectangle bounds) throws IFException {
+        //The content stream and its generator are only created once the content is painted
+        PDFFormXObject form = pdfDoc.makeDeferredFormXObject(currentPage,
+                pdfDoc.getResources().makeReference());
+        //The content is painted in the coordinate system in effect where the form is placed
+        form.put("BBox", new PDFArray(form, new double[] {
+                bounds.getMinX() / 1000, bounds.getMinY() / 1000,
+                bounds.getMaxX() / 1000, bounds.getMaxY() / 1000}));
+        generator.endTextObject();
+        generator.add(form.getName() + " Do\n");
+        DeferredContent content = new DeferredContent(form, currentPage);
+        deferredContents.add(content);
+        return content;
+    }
+
+    /** {@inheritDoc} */
+    public IFPainter startDeferredContent(Object placeholder) throws IFException {
+        currentDeferredContent = (DeferredContent) placeholder;
+        this.generator = new PDFContentGenerator(this.pdfDoc, this.outputStream,
+                currentDeferredContent.resourceContext);
+        currentDeferredContent.form.setContents(generator.getStream());
+        return new PDFPainter(this, logicalStructureHandler);
+    }
+
+    /** {@inheritDoc} */
+    public void endDeferredContent() throws IFException {
+        generator.endTextObject();
+        pdfDoc.addObject(currentDeferredContent.form);
+        currentDeferredContent.painted = true;
+        currentDeferredContent = null;
+        this.generator = null;
+    }
+
+    /** A placeholder for deferred content. */
+    private static final class DeferredContent {
+
+        private final PDFFormXObject form;
+        private final PDFResourceContext resourceContext;
+        private boolean painted;
+
+        DeferredContent(PDFFormXObject form, PDFResourceContext resourceContext) {
+            this.form = form;
+            this.resourceContext = resourceContext;
+        }
+    }
+
     /** {@inheritDoc} */
     public void handleExtensionObject(Object extension) throws IFException {
         if (extension instanceof XMPMetadata) {
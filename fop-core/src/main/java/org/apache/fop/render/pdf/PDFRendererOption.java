@@ -93,6 +93,26 @@ public enum PDFRendererOption implements RendererConfigOption {
             return Boolean.valueOf(value);
         }
     },
+    /**
+     * Rendering Options key for the compact output mode, in which the objects are packed into
+     * object streams and a cross-reference stream is written, default: false
+     */
+    OBJECT_STREAMS("object-streams", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the number of threads used to compress streams ahead of
+     * their output, default: 0 (streams are compressed while they are written)
+     */
+    COMPRESSION_THREADS("compression-threads", 0) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
     /** Rendering Options key for the ICC profile for the output intent. */
     OUTPUT_PROFILE("output-profile") {
         @Override
@@ -72,7 +72,9 @@ import org.apache.xmlgraphics.java2d.GraphicsConfigurationWithTransparency;
 
 import org.apache.fop.fonts.Font;
 import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.fonts.FontMetrics;
 import org.apache.fop.fonts.FontSetup;
+import org.apache.fop.fonts.Typeface;
 import org.apache.fop.pdf.BitmapImage;
 import org.apache.fop.pdf.PDFAnnotList;
 import org.apache.fop.pdf.PDFColor;
@@ -1266,8 +1268,7 @@ public class PDFGraphics2D extends AbstractGraphics2D implements NativeImageHand
         applyPaint(getPaint(), true);
         applyAlpha(c.getAlpha(), OPAQUE);
 
-        Map<Integer, Map<Integer, Integer>> kerning = fontState.getKerning();
-        boolean kerningAvailable = (kerning != null && !kerning.isEmpty());
+        boolean kerningAvailable = fontState.hasKerning();
 
         boolean useMultiByte = isMultiByteFont(currentFontName);
 
@@ -1324,9 +1325,7 @@ public class PDFGraphics2D extends AbstractGraphics2D implements NativeImageHand
             }
 
             if (kerningAvailable && (i + 1) < l) {
-                addKerning(currentStream, ((int) ch),
-                           ((int) fontState.mapChar(s.charAt(i + 1))),
-                           kerning, startText, endText);
+                addKerning(fontState, ch, fontState.mapChar(s.charAt(i + 1)), startText, endText);
             }
 
         }
@@ -1397,22 +1396,23 @@ public class PDFGraphics2D extends AbstractGraphics2D implements NativeImageHand
      */
     protected boolean isMultiByteFont(String name) {
         // This assumes that *all* CIDFonts use a /ToUnicode mapping
-        org.apache.fop.fonts.Typeface f
-            = fontInfo.getFonts().get(name);
+        Typeface f = fontInfo.getFonts().get(name);
         return f.isMultiByte();
     }
 
-    private void addKerning(StringWriter buf, Integer ch1, Integer ch2,
-                            Map<Integer, Map<Integer, Integer>> kerning, String startText,
-                            String endText) {
+    private void addKerning(Font fontState, int ch1, int ch2, String startText, String endText) {
         preparePainting();
-        Map<Integer, Integer> kernPair = kerning.get(ch1);
-
-        if (kernPair != null) {
-            Integer width = kernPair.get(ch2);
-            if (width != null) {
-                currentStream.write(endText + (-width) + " " + startText);
-            }
+        int width;
+        FontMetrics metrics = fontState.getFontMetrics();
+        if (metrics instanceof Typeface) {
+            width = ((Typeface) metrics).getKernValue(ch1, ch2);
+        } else {
+            Map<Integer, Integer> kernPair = fontState.getKerning().get(ch1);
+            Integer value = (kernPair != null ? kernPair.get(ch2) : null);
+            width = (value != null ? value : 0);
+        }
+        if (width != 0) {
+            currentStream.write(endText + (-width) + " " + startText);
         }
     }
 
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <p>A bounded, thread-safe map in which the least recently used entries are evicted first.</p>
+ * <p>The map is split into segments, each guarded by its own lock, so that threads looking up
+ * different keys rarely contend. Each segment holds an equal share of the maximum size, so an
+ * entry may be evicted before the map as a whole is full.</p>
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class SegmentedLRUCache<K, V> {
+
+    private static final Log LOG = LogFactory.getLog(SegmentedLRUCache.class);
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final int maximumSize;
+
+    private final Segment<K, V>[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of entries
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentedLRUCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        segments = new Segment[SEGMENT_COUNT];
+        int segmentSize = (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<K, V>(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the cache size given by a system property.
+     * @param propertyName the name of the system property
+     * @param defaultSize the size to return if the system property is not set, cannot be read,
+     *          is not a number or is negative
+     * @return the cache size, 0 or more
+     */
+    public static int getSizeProperty(String propertyName, int defaultSize) {
+        try {
+            int size = Integer.parseInt(System.getProperty(propertyName, Integer.toString(defaultSize)));
+            if (size >= 0) {
+                return size;
+            }
+            LOG.warn("Invalid value for " + propertyName + ": " + size
+                   + " is negative; defaulting to " + defaultSize + ".");
+        } catch (SecurityException e) {
+            LOG.info("Unable to access " + propertyName
+                   + " due to security restriction; defaulting to " + defaultSize + ".");
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for " + propertyName + ": " + e.getMessage()
+                   + "; defaulting to " + defaultSize + ".");
+        }
+        return defaultSize;
+    }
+
+    private Segment<K, V> getSegment(K key) {
+        int hash = key.hashCode();
+        return segments[((hash >>> 16) ^ hash) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Looks up the value of a key, which then becomes the most recently used entry.
+     * @param key the key
+     * @return the value, or null if the key is not in the cache
+     */
+    public V get(K key) {
+        Segment<K, V> segment = getSegment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Adds an entry, evicting the least recently used entry of its segment if it is full.
+     * @param key the key
+     * @param value the value, not null
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = getSegment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /** @return the maximum number of entries in this cache */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the number of entries in this cache */
+    public int getSize() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /** @return the number of times a key was found in this cache */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** @return the number of times a key was not found in this cache */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** @return the ratio of the lookups that were found in this cache, 0 if there was none */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "size=" + getSize() + ", hits=" + getHitCount() + ", misses=" + getMissCount();
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = -6209394283478104519L;
+
+        private final int maximumSize;
+
+        Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maximumSize;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import static org.apache.fop.render.bitmap.BitmapRendererOption.ANTI_ALIASING;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.BACKGROUND_COLOR;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.COLOR_MODE;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.JAVA2D_TRANSPARENT_PAGE_BACKGROUND;
+import static org.apache.fop.render.bitmap.BitmapRendererOption.RASTERIZATION_THREADS;
 import static org.apache.fop.render.bitmap.BitmapRendererOption.RENDERING_QUALITY_ELEMENT;
 
 public class BitmapRendererConfBuilder extends RendererConfBuilder {
@@ -62,6 +63,11 @@ public class BitmapRendererConfBuilder extends RendererConfBuilder {
         return this;
     }
 
+    public BitmapRendererConfBuilder setRasterizationThreads(int threads) {
+        createTextElement(RASTERIZATION_THREADS, String.valueOf(threads));
+        return this;
+    }
+
     public static String getMimeType() {
         return "Bitmap";
     }
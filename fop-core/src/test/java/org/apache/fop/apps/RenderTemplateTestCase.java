@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.fonts.EmbedFontInfo;
+
+/**
+ * Tests {@link RenderTemplate}.
+ */
+public class RenderTemplateTestCase {
+
+    private static final String CONFIG = "<fop version=\"1.0\"><renderers>"
+            + "<renderer mime=\"" + MimeConstants.MIME_PDF + "\"><fonts>"
+            + "<directory>test/resources/fonts/ttf</directory>"
+            + "</fonts></renderer></renderers></fop>";
+
+    private static final String FO = "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+            + "<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+            + " page-width=\"300pt\" page-height=\"200pt\"><fo:region-body/>"
+            + "</fo:simple-page-master></fo:layout-master-set>"
+            + "<fo:page-sequence master-reference=\"page\"><fo:flow flow-name=\"xsl-region-body\">"
+            + "<fo:block font-family=\"DejaVuLGCSerif\">Invoice</fo:block>"
+            + "<fo:block font-family=\"Helvetica\">Total</fo:block>"
+            + "</fo:flow></fo:page-sequence></fo:root>";
+
+    private FopFactory fopFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        fopFactory = new FopConfParser(new ByteArrayInputStream(CONFIG.getBytes("UTF-8")),
+                new File(".").toURI()).getFopFactoryBuilder().build();
+    }
+
+    private static String render(FOUserAgent userAgent, String outputFormat) throws Exception {
+        userAgent.setCreationDate(new Date(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = userAgent.newFop(outputFormat, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new StringReader(FO));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        //the metadata date is always the current time
+        return out.toString("UTF-8").replaceAll("<xmp:MetadataDate>.*</xmp:MetadataDate>", "");
+    }
+
+    @Test
+    public void testFontListIsConfiguredOnce() throws Exception {
+        RenderTemplate template = fopFactory.newRenderTemplate(MimeConstants.MIME_PDF);
+        assertSame(fopFactory, template.getFopFactory());
+        assertEquals(MimeConstants.MIME_PDF, template.getOutputFormat());
+        List<EmbedFontInfo> fontList = template.getFontList(MimeConstants.MIME_PDF);
+        assertNotNull(fontList);
+        assertFalse(fontList.isEmpty());
+
+        for (int i = 0; i < 3; i++) {
+            FOUserAgent userAgent = template.newFOUserAgent();
+            assertSame(template, userAgent.getRenderTemplate());
+            String pdf = render(userAgent, MimeConstants.MIME_PDF);
+            assertTrue(pdf.contains("DejaVuLGCSerif"));
+        }
+        assertSame(fontList, template.getFontList(MimeConstants.MIME_PDF));
+    }
+
+    @Test
+    public void testTemplateProducesSameOutput() throws Exception {
+        RenderTemplate template = fopFactory.newRenderTemplate(MimeConstants.MIME_FOP_IF);
+        String expected = render(fopFactory.newFOUserAgent(), MimeConstants.MIME_FOP_IF);
+        assertEquals(expected, render(template.newFOUserAgent(), MimeConstants.MIME_FOP_IF));
+        assertEquals(expected, render(template.newFOUserAgent(), MimeConstants.MIME_FOP_IF));
+    }
+
+    @Test
+    public void testFormatWithoutAreaTree() throws Exception {
+        RenderTemplate template = fopFactory.newRenderTemplate(MimeConstants.MIME_RTF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = template.newFop(out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(FO)),
+                new SAXResult(fop.getDefaultHandler()));
+        assertTrue(out.toString("UTF-8").contains("Invoice"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUserAgentFromAnotherTemplate() throws Exception {
+        RenderTemplate template = fopFactory.newRenderTemplate(MimeConstants.MIME_PDF);
+        template.newFop(fopFactory.newFOUserAgent(), new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.Date;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.IFRenderer;
+
+/**
+ * Tests that pipelined rendering in {@link RenderPagesModel} produces the same output as
+ * rendering on the layout thread, and the rendering of pages with deferred page number citations.
+ */
+public class RenderPagesModelTestCase {
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static String createFO(int pageCount) {
+        return createFO(pageCount, true);
+    }
+
+    private static String createFO(int pageCount, boolean citeLastPage) {
+        StringBuilder fo = new StringBuilder();
+        fo.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">");
+        fo.append("<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-width=\"200pt\" page-height=\"200pt\">");
+        fo.append("<fo:region-body margin-bottom=\"20pt\"/><fo:region-after extent=\"20pt\"/>");
+        fo.append("</fo:simple-page-master></fo:layout-master-set>");
+        fo.append("<fo:bookmark-tree><fo:bookmark internal-destination=\"last\">");
+        fo.append("<fo:bookmark-title>Last</fo:bookmark-title></fo:bookmark></fo:bookmark-tree>");
+        fo.append("<fo:page-sequence master-reference=\"page\">");
+        fo.append("<fo:static-content flow-name=\"xsl-region-after\"><fo:block>Page "
+                + "<fo:page-number/>");
+        if (citeLastPage) {
+            //every page waits for the last page to be laid out
+            fo.append(" of <fo:page-number-citation ref-id=\"last\"/>");
+        }
+        fo.append("</fo:block></fo:static-content>");
+        fo.append("<fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < pageCount; i++) {
+            fo.append("<fo:block break-before=\"page\">Block " + i + "</fo:block>");
+        }
+        fo.append("<fo:block id=\"last\"><fo:basic-link internal-destination=\"last\">"
+                + "End</fo:basic-link></fo:block>");
+        fo.append("</fo:flow></fo:page-sequence></fo:root>");
+        return fo.toString();
+    }
+
+    private String render(String fo, String mimeType, boolean pipelined) throws Exception {
+        return render(fo, mimeType, pipelined, false);
+    }
+
+    private String render(String fo, String mimeType, boolean pipelined, boolean deferCitations)
+            throws Exception {
+        return render(fopFactory.newFOUserAgent(), fo, mimeType, pipelined, deferCitations);
+    }
+
+    private String render(FOUserAgent userAgent, String fo, String mimeType, boolean pipelined,
+            boolean deferCitations) throws Exception {
+        userAgent.setPipelinedRendering(pipelined);
+        userAgent.setDeferredPageNumberCitations(deferCitations);
+        userAgent.setCreationDate(new Date(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(mimeType, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new StringReader(fo));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        //the metadata date is always the current time
+        return out.toString("UTF-8").replaceAll(
+                "<xmp:MetadataDate>.*</xmp:MetadataDate>", "");
+    }
+
+    @Test
+    public void testPipelinedRenderingProducesSameOutput() throws Exception {
+        String fo = createFO(50);
+        String expected = render(fo, MimeConstants.MIME_FOP_IF, false);
+        assertEquals(expected, render(fo, MimeConstants.MIME_FOP_IF, true));
+    }
+
+    @Test
+    public void testPipelinedRenderingWhileLayingOut() throws Exception {
+        String fo = createFO(50, false);
+        String expected = render(fo, MimeConstants.MIME_FOP_IF, false);
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        RecordingRenderer renderer = new RecordingRenderer(userAgent);
+        userAgent.setRendererOverride(renderer);
+        assertEquals(expected, render(userAgent, fo, MimeConstants.MIME_FOP_IF, true, false));
+        assertEquals(50, renderer.renderedPages);
+        assertEquals("FOP Rendering", renderer.firstPageThread);
+        //the queue of the pipeline is much shorter than the document, so the layout of the
+        //later pages can only be running while the first page is rendered
+        assertTrue(renderer.layoutRunningOnFirstPage);
+    }
+
+    @Test
+    public void testPipelinedRenderingToPDF() throws Exception {
+        String pdf = render(createFO(20), MimeConstants.MIME_PDF, true);
+        assertTrue(pdf.startsWith("%PDF-"));
+        assertTrue(pdf.trim().endsWith("%%EOF"));
+    }
+
+    /** Records on which thread the pages are rendered, and the state of the layout meanwhile */
+    private static final class RecordingRenderer extends IFRenderer {
+
+        private Thread layoutThread;
+        private int renderedPages;
+        private String firstPageThread;
+        private boolean layoutRunningOnFirstPage;
+
+        RecordingRenderer(FOUserAgent userAgent) {
+            super(userAgent);
+        }
+
+        @Override
+        public void startRenderer(OutputStream outputStream) throws IOException {
+            layoutThread = Thread.currentThread();
+            super.startRenderer(outputStream);
+        }
+
+        @Override
+        public void renderPage(PageViewport page) throws IOException, FOPException {
+            if (renderedPages++ == 0) {
+                firstPageThread = Thread.currentThread().getName();
+                for (StackTraceElement element : layoutThread.getStackTrace()) {
+                    if (element.getClassName().startsWith("org.apache.fop.layoutmgr.")) {
+                        layoutRunningOnFirstPage = true;
+                    }
+                }
+            }
+            super.renderPage(page);
+        }
+    }
+
+    private static int count(String s, String sub) {
+        int count = 0;
+        for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testDeferredPageNumberCitations() throws Exception {
+        String fo = createFO(20);
+        String pdf = render(fo, MimeConstants.MIME_PDF, false, true);
+        assertTrue(pdf.trim().endsWith("%%EOF"));
+        //the footers of all but the last page cite the page number of the last page
+        assertEquals(19, count(pdf, "/Subtype /Form"));
+        assertEquals(count(render(fo, MimeConstants.MIME_PDF, true, true), "/Subtype /Form"),
+                count(pdf, "/Subtype /Form"));
+        assertEquals(0, count(render(fo, MimeConstants.MIME_PDF, false, false), "/Subtype /Form"));
+    }
+
+    @Test
+    public void testDeferredPageNumberCitationsNotSupported() throws Exception {
+        //the intermediate format does not support placeholders, so pages wait for the citations
+        String fo = createFO(10);
+        assertEquals(render(fo, MimeConstants.MIME_FOP_IF, false, false),
+                render(fo, MimeConstants.MIME_FOP_IF, false, true));
+    }
+}
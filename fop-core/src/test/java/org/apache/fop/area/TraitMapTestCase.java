@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link TraitMap}.
+ */
+public class TraitMapTestCase {
+
+    @Test
+    public void testAgainstTreeMap() {
+        TraitMap traits = new TraitMap();
+        Map<Integer, Object> expected = new TreeMap<Integer, Object>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(Trait.MAX_TRAIT_KEY + 1);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), traits.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), traits.put(key, Integer.valueOf(i)));
+            }
+            assertEquals(expected.size(), traits.size());
+        }
+        assertEquals(expected, traits);
+        assertEquals(traits, expected);
+        assertEquals(expected.hashCode(), traits.hashCode());
+        //iterated over in the order of the keys, like the tree map the traits used to be held in
+        assertEquals(new ArrayList<Integer>(expected.keySet()), new ArrayList<Integer>(traits.keySet()));
+    }
+
+    @Test
+    public void testPrimitiveAccessors() {
+        TraitMap traits = new TraitMap();
+        assertEquals(-1, traits.getInt(Trait.PADDING_START, -1));
+        assertFalse(traits.getBoolean(Trait.IS_REFERENCE_AREA));
+        traits.putInt(Trait.PADDING_START, 5000);
+        traits.putBoolean(Trait.IS_REFERENCE_AREA, true);
+        traits.put(Trait.PADDING_END, null);
+        assertEquals(5000, traits.getInt(Trait.PADDING_START, -1));
+        assertEquals(-1, traits.getInt(Trait.PADDING_END, -1));
+        assertTrue(traits.contains(Trait.PADDING_END));
+        assertTrue(traits.getBoolean(Trait.IS_REFERENCE_AREA));
+        assertEquals(Boolean.TRUE, traits.get(Trait.IS_REFERENCE_AREA));
+        try {
+            traits.getInt(Trait.IS_REFERENCE_AREA, 0);
+            throw new AssertionError("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        try {
+            traits.put(TraitMap.MAX_KEY + 1, "value");
+            throw new AssertionError("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        assertNull(traits.get(TraitMap.MAX_KEY + 1));
+    }
+
+    @Test
+    public void testIteratorAndClone() {
+        TraitMap traits = new TraitMap();
+        for (int key = 0; key <= TraitMap.MAX_KEY; key++) {
+            traits.putInt(key, key);
+        }
+        TraitMap clone = traits.clone();
+        for (Iterator<Map.Entry<Integer, Object>> iter = traits.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Integer, Object> entry = iter.next();
+            if (entry.getKey() % 2 == 0) {
+                iter.remove();
+            } else {
+                entry.setValue(-entry.getKey());
+            }
+        }
+        assertEquals(TraitMap.MAX_KEY / 2 + 1, traits.size());
+        assertEquals(-3, traits.getInt(3, 0));
+        assertFalse(traits.contains(2));
+        assertEquals(TraitMap.MAX_KEY + 1, clone.size());
+        assertEquals(3, clone.getInt(3, 0));
+    }
+
+    @Test
+    public void testArea() throws Exception {
+        Area area = new Area();
+        area.addTrait(Trait.SPACE_BEFORE, 1000);
+        area.addTrait(Trait.PADDING_BEFORE, 2000);
+        area.addTrait(Trait.IS_VIEWPORT_AREA, Boolean.TRUE);
+        assertEquals(1000, area.getSpaceBefore());
+        assertEquals(0, area.getSpaceAfter());
+        assertEquals(2000, area.getBorderAndPaddingWidthBefore());
+        assertTrue(area.getTraitAsBoolean(Trait.IS_VIEWPORT_AREA));
+        assertFalse(area.getTraitAsBoolean(Trait.IS_REFERENCE_AREA));
+
+        Area clone = (Area) area.clone();
+        clone.addTrait(Trait.SPACE_BEFORE, 3000);
+        assertEquals(1000, area.getSpaceBefore());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream oout = new ObjectOutputStream(out);
+        oout.writeObject(area);
+        oout.close();
+        Area copy = (Area) new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+        assertEquals(area.getTraits(), copy.getTraits());
+    }
+}
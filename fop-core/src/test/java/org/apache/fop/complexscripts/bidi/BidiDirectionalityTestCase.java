@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.bidi;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.fop.traits.Direction;
+
+/**
+ * Tests the directionality pre-scan of {@link UnicodeBidiAlgorithm}, which lets unidirectional
+ * text skip the full resolution.
+ */
+public class BidiDirectionalityTestCase {
+
+    /** Hebrew and Arabic letters, Arabic marks, neutrals, separators, ZWJ and a tab */
+    private static final String RTL_CHARS = "\u05D0\u05D1\u05EA\u0627\u0644\u0645\u064B\u0650"
+            + " .,:-+%#()!?\"\u200D\t\u00A0";
+
+    private static final String LTR_CHARS = "abcXYZ019 .,:-+%#()!?\u00E9\u0301\u200D\t\u00A0";
+
+    @Test
+    public void testDirectionality() {
+        assertEquals(UnicodeBidiAlgorithm.LEFT_TO_RIGHT, UnicodeBidiAlgorithm.getDirectionality(""));
+        assertEquals(UnicodeBidiAlgorithm.LEFT_TO_RIGHT,
+                UnicodeBidiAlgorithm.getDirectionality("Hello, world 2024!"));
+        assertEquals(UnicodeBidiAlgorithm.LEFT_TO_RIGHT,
+                UnicodeBidiAlgorithm.getDirectionality("\uD835\uDC00 math"));
+        assertEquals(UnicodeBidiAlgorithm.RIGHT_TO_LEFT,
+                UnicodeBidiAlgorithm.getDirectionality("\u05E9\u05DC\u05D5\u05DD, \u05E2\u05D5\u05DC\u05DD!"));
+        assertEquals(UnicodeBidiAlgorithm.MIXED,
+                UnicodeBidiAlgorithm.getDirectionality("\u05E9\u05DC\u05D5\u05DD world"));
+        //numbers are not at the paragraph level in right-to-left text
+        assertEquals(UnicodeBidiAlgorithm.MIXED,
+                UnicodeBidiAlgorithm.getDirectionality("\u05E9\u05DC\u05D5\u05DD 2024"));
+        assertEquals(UnicodeBidiAlgorithm.MIXED, UnicodeBidiAlgorithm.getDirectionality("\u0660"));
+        assertEquals(UnicodeBidiAlgorithm.MIXED, UnicodeBidiAlgorithm.getDirectionality("a\u202Bb"));
+        assertEquals(UnicodeBidiAlgorithm.MIXED, UnicodeBidiAlgorithm.getDirectionality("a\uD800"));
+    }
+
+    private static String randomString(Random random, String chars) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = random.nextInt(20); i < n; i++) {
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return sb.toString();
+    }
+
+    private static int[] resolveFully(String s, int defaultLevel) {
+        int[] chars = new int[s.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = s.charAt(i);
+        }
+        return UnicodeBidiAlgorithm.resolveLevels(chars, defaultLevel, new int[chars.length]);
+    }
+
+    @Test
+    public void testRightToLeftSameAsFullResolution() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String s = randomString(random, RTL_CHARS);
+            if (UnicodeBidiAlgorithm.getDirectionality(s) == UnicodeBidiAlgorithm.RIGHT_TO_LEFT) {
+                assertArrayEquals(s, resolveFully(s, 1), UnicodeBidiAlgorithm.resolveLevels(s, Direction.RL));
+            }
+        }
+    }
+
+    @Test
+    public void testLeftToRightNeedsNoResolution() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String s = randomString(random, LTR_CHARS);
+            assertEquals(UnicodeBidiAlgorithm.LEFT_TO_RIGHT, UnicodeBidiAlgorithm.getDirectionality(s));
+            assertNull(UnicodeBidiAlgorithm.resolveLevels(s, Direction.LR));
+            for (int level : resolveFully(s, 0)) {
+                assertEquals(s, 0, level);
+            }
+        }
+    }
+}
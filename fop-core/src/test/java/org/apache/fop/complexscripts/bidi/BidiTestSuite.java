@@ -29,7 +29,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     BidiClassTestCase.class,
-    BidiAlgorithmTestCase.class
+    BidiAlgorithmTestCase.class,
+    BidiDirectionalityTestCase.class
 })
 public class BidiTestSuite {
 }
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.complexscripts.util.GlyphSequence;
+import org.apache.fop.fonts.CMapSegment;
+import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.MultiByteFont;
+
+/**
+ * Test case for {@link ShapingCache}.
+ */
+public class ShapingCacheTestCase {
+
+    @Test
+    public void testSubstitution() {
+        ShapingCache cache = new ShapingCache(100);
+        assertNull(cache.getSubstitution("abc", "arab", "dflt", false, null));
+        List<CharAssociation> associations = new ArrayList<CharAssociation>();
+        CharAssociation ca = new CharAssociation(0, 3);
+        ca.setPredication("key", "value");
+        associations.add(ca);
+        cache.putSubstitution("abc", "arab", "dflt", false, "x", associations);
+
+        List<CharAssociation> result = new ArrayList<CharAssociation>();
+        result.add(new CharAssociation(0, 1));
+        assertEquals("x", cache.getSubstitution("abc", "arab", "dflt", false, result).toString());
+        assertEquals(1, result.size());
+        assertNotSame(ca, result.get(0));
+        assertEquals(3, result.get(0).getCount());
+        assertEquals("value", result.get(0).getPredication("key"));
+        //the script, the language and the control retention are part of the key
+        assertNull(cache.getSubstitution("abc", "latn", "dflt", false, null));
+        assertNull(cache.getSubstitution("abc", "arab", "URD", false, null));
+        assertNull(cache.getSubstitution("abc", "arab", "dflt", true, null));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testPositioning() {
+        ShapingCache cache = new ShapingCache(100);
+        int[][][] result = new int[1][][];
+        assertFalse(cache.getPositioning("ab", "arab", "dflt", 12000, result));
+        int[][] adjustments = {{1, 2, 3, 4}, {5, 6, 7, 8}};
+        cache.putPositioning("ab", "arab", "dflt", 12000, adjustments);
+        cache.putPositioning("cd", "arab", "dflt", 12000, null);
+        adjustments[0][0] = 0;
+
+        assertTrue(cache.getPositioning("ab", "arab", "dflt", 12000, result));
+        assertArrayEquals(new int[] {1, 2, 3, 4}, result[0][0]);
+        assertArrayEquals(new int[] {5, 6, 7, 8}, result[0][1]);
+        //callers may modify the result
+        result[0][1][0] = 0;
+        assertTrue(cache.getPositioning("ab", "arab", "dflt", 12000, result));
+        assertEquals(5, result[0][1][0]);
+
+        assertTrue(cache.getPositioning("cd", "arab", "dflt", 12000, result));
+        assertNull(result[0]);
+        assertFalse(cache.getPositioning("ab", "arab", "dflt", 10000, result));
+    }
+
+    @Test
+    public void testBounded() {
+        ShapingCache cache = new ShapingCache(32);
+        for (int i = 0; i < 1000; i++) {
+            cache.putPositioning("word" + i, "arab", "dflt", 12000, null);
+        }
+        assertTrue(cache.getSize() <= 32);
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longWord.append('a');
+        }
+        ShapingCache other = new ShapingCache(32);
+        other.putPositioning(longWord, "arab", "dflt", 12000, null);
+        assertEquals(0, other.getSize());
+    }
+
+    private static MultiByteFont createFont() {
+        MultiByteFont font = new MultiByteFont(null, EmbeddingMode.AUTO);
+        font.setCMap(new CMapSegment[] {new CMapSegment('a', 'z', 1)});
+        return font;
+    }
+
+    @Test
+    public void testFontSubstitution() {
+        MultiByteFont font = createFont();
+        GlyphSubstitutionTable gsub = mock(GlyphSubstitutionTable.class);
+        when(gsub.substitute(any(GlyphSequence.class), anyString(), anyString())).thenAnswer(
+                new Answer<GlyphSequence>() {
+                    public GlyphSequence answer(InvocationOnMock invocation) {
+                        return (GlyphSequence) invocation.getArguments()[0];
+                    }
+                });
+        font.setGSUB(gsub);
+        assertEquals("word", font.performSubstitution("word", "arab", "dflt", null, false).toString());
+        List associations = new ArrayList();
+        assertEquals("word", font.performSubstitution("word", "arab", "dflt", associations, false).toString());
+        assertEquals(4, associations.size());
+        verify(gsub, times(1)).substitute(any(GlyphSequence.class), anyString(), anyString());
+        assertEquals(1, font.getShapingCache().getHitCount());
+    }
+
+    @Test
+    public void testFontPositioning() {
+        MultiByteFont font = createFont();
+        font.setWidthArray(new int[27]);
+        GlyphPositioningTable gpos = mock(GlyphPositioningTable.class);
+        when(gpos.position(any(GlyphSequence.class), anyString(), anyString(), anyInt(),
+                any(int[].class), any(int[][].class))).thenAnswer(
+                new Answer<Boolean>() {
+                    public Boolean answer(InvocationOnMock invocation) {
+                        int[][] adjustments = (int[][]) invocation.getArguments()[5];
+                        adjustments[0][2] = 100;
+                        return true;
+                    }
+                });
+        font.setGPOS(gpos);
+        int[][] first = font.performPositioning("word", "arab", "dflt", 10000);
+        int[][] second = font.performPositioning("word", "arab", "dflt", 10000);
+        assertEquals(1000, first[0][2]);
+        assertEquals(1000, second[0][2]);
+        assertNotSame(first, second);
+        verify(gpos, times(1)).position(any(GlyphSequence.class), anyString(), anyString(), anyInt(),
+                any(int[].class), any(int[][].class));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.fo.properties.NumberProperty;
+import org.apache.fop.fo.properties.Property;
+
+/**
+ * Test case for {@link StaticPropertyList}.
+ */
+public class StaticPropertyListTestCase {
+
+    @Test
+    public void testExplicit() {
+        StaticPropertyList propertyList = new StaticPropertyList(null, null);
+        Property[] expected = new Property[Constants.PROPERTY_COUNT + 1];
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            int propId = 1 + random.nextInt(Constants.PROPERTY_COUNT);
+            expected[propId] = NumberProperty.getInstance(i);
+            propertyList.putExplicit(propId, expected[propId]);
+        }
+        for (int propId = 1; propId <= Constants.PROPERTY_COUNT; propId++) {
+            assertSame(expected[propId], propertyList.getExplicit(propId));
+        }
+    }
+
+    @Test
+    public void testCachedValueOverwritten() throws Exception {
+        StaticPropertyList propertyList = new StaticPropertyList(null, null);
+        Property first = NumberProperty.getInstance(1);
+        Property second = NumberProperty.getInstance(2);
+        propertyList.putExplicit(Constants.PR_ORPHANS, first);
+        assertSame(first, propertyList.get(Constants.PR_ORPHANS, false, false));
+        propertyList.putExplicit(Constants.PR_ORPHANS, second);
+        assertSame(second, propertyList.get(Constants.PR_ORPHANS, false, false));
+        assertNull(propertyList.getExplicit(Constants.PR_WIDOWS));
+    }
+}
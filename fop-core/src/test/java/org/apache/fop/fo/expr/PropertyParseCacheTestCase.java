@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.expr;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.PropertyList;
+import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.fo.properties.ListProperty;
+import org.apache.fop.fo.properties.Property;
+import org.apache.fop.fo.properties.PropertyMaker;
+import org.apache.fop.fo.properties.StringProperty;
+
+/**
+ * Test case for {@link PropertyParseCache} and its use by {@link PropertyParser}.
+ */
+public class PropertyParseCacheTestCase {
+
+    @Test
+    public void testLists() {
+        PropertyParseCache cache = new PropertyParseCache(100);
+        ListProperty list = new ListProperty(StringProperty.getInstance("Arial"));
+        list.addProperty(StringProperty.getInstance("serif"));
+        cache.put(Constants.PR_FONT_FAMILY, "Arial, serif", list);
+        list.addProperty(StringProperty.getInstance("sans-serif"));
+
+        ListProperty cached = (ListProperty) cache.get(Constants.PR_FONT_FAMILY, "Arial, serif");
+        assertEquals(2, cached.getList().size());
+        //callers may modify the list
+        assertNotSame(cached, cache.get(Constants.PR_FONT_FAMILY, "Arial, serif"));
+        //the property is part of the key
+        assertNull(cache.get(Constants.PR_FONT_STYLE, "Arial, serif"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testBounded() {
+        PropertyParseCache cache = new PropertyParseCache(32);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Constants.PR_WIDTH, i + "pt", FixedLength.getInstance(i * 1000));
+        }
+        assertTrue(cache.getSize() <= 32);
+    }
+
+    private static PropertyInfo createPropertyInfo(int propId) throws PropertyException {
+        PropertyList propertyList = mock(PropertyList.class);
+        Property fontSize = FixedLength.getInstance(12000);
+        when(propertyList.get(Constants.PR_FONT_SIZE)).thenReturn(fontSize);
+        return new PropertyInfo(new PropertyMaker(propId), propertyList);
+    }
+
+    @Test
+    public void testContextFreeResultsCached() throws PropertyException {
+        PropertyParseCache cache = PropertyParser.PARSE_CACHE;
+        assertNotNull(cache);
+        PropertyInfo propInfo = createPropertyInfo(Constants.PR_MARGIN_TOP);
+        String[] exprs = {"10.25pt", "#1A2B3C", "rgb(10, 20, 30)", "max(1pt, 2pt) + 3mm"};
+        for (String expr : exprs) {
+            Property prop = PropertyParser.parse(expr, propInfo);
+            assertSame(expr, prop, cache.get(Constants.PR_MARGIN_TOP, expr));
+        }
+        ListProperty list = (ListProperty) PropertyParser.parse("'a b' c", propInfo);
+        ListProperty cached = (ListProperty) cache.get(Constants.PR_MARGIN_TOP, "'a b' c");
+        assertEquals(list.getList(), cached.getList());
+    }
+
+    @Test
+    public void testContextDependentResultsNotCached() throws PropertyException {
+        PropertyParseCache cache = PropertyParser.PARSE_CACHE;
+        PropertyInfo propInfo = createPropertyInfo(Constants.PR_MARGIN_BOTTOM);
+        assertEquals(18000, PropertyParser.parse("1.5em", propInfo).getLength().getValue());
+        assertNull(cache.get(Constants.PR_MARGIN_BOTTOM, "1.5em"));
+        PropertyParser.parse("3pt + 1em", propInfo);
+        assertNull(cache.get(Constants.PR_MARGIN_BOTTOM, "3pt + 1em"));
+        PropertyParser.parse("50%", propInfo);
+        assertNull(cache.get(Constants.PR_MARGIN_BOTTOM, "50%"));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link PropertyCache}.
+ */
+public class PropertyCacheTestCase {
+
+    @Test
+    public void testEqualInstancesAreShared() {
+        PropertyCache<String> cache = new PropertyCache<String>();
+        String first = new String("value");
+        String second = new String("value");
+        assertNotSame(first, second);
+        assertSame(first, cache.fetch(first));
+        assertSame(first, cache.fetch(second));
+        assertEquals("other", cache.fetch("other"));
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+        assertTrue(PropertyCache.getInstances().contains(cache));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        PropertyCache<Integer> cache = new PropertyCache<Integer>(10);
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            Integer value = new Integer(1000 + i);
+            values.add(value);
+            cache.fetch(value);
+        }
+        assertEquals(10, cache.getSize());
+        assertEquals(100, cache.getMissCount());
+        assertEquals(90, cache.getEvictionCount());
+        // the most recent entries are kept
+        assertSame(values.get(99), cache.fetch(new Integer(1099)));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testReplacedEntriesDoNotCountTowardsTheMaximumSize() {
+        PropertyCache<String> cache = new PropertyCache<String>(2);
+        String first = new String("first");
+        assertSame(first, cache.fetch(first));
+        // "Aa" and "BB" have the same hash code, so the second replaces the first
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        cache.fetch("Aa");
+        cache.fetch("BB");
+        assertEquals(2, cache.getSize());
+        assertEquals(0, cache.getEvictionCount());
+        assertSame(first, cache.fetch(new String("first")));
+        for (int i = 0; i < 10; i++) {
+            cache.fetch(i % 2 == 0 ? "Aa" : "BB");
+        }
+        assertEquals(0, cache.getEvictionCount());
+        assertSame(first, cache.fetch(new String("first")));
+    }
+
+    @Test
+    public void testReclaimedEntriesAreRemoved() throws InterruptedException {
+        PropertyCache<Integer> cache = new PropertyCache<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            cache.fetch(new Integer(1000 + i));
+        }
+        Integer retained = cache.fetch(new Integer(5000));
+        for (int i = 0; i < 100 && cache.getSize() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            // entries are removed when the cache is next used
+            assertSame(retained, cache.fetch(new Integer(5000)));
+        }
+        assertEquals(1, cache.getSize());
+        assertEquals(0, cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+/**
+ * Test case for {@link FontCache}.
+ */
+public class FontCacheTestCase {
+
+    private final InternalResourceResolver resolver = ResourceResolverFactory
+            .createDefaultInternalResourceResolver(new File("test/resources/fonts/ttf").toURI());
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheFile = File.createTempFile("fop-fonts", ".cache");
+    }
+
+    @After
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    private EmbedFontInfo createFontInfo() {
+        FontUris fontUris = new FontUris(URI.create("DejaVuLGCSerif.ttf"), null);
+        EmbedFontInfo fontInfo = new EmbedFontInfo(fontUris, true, false,
+                Collections.singletonList(new FontTriplet("DejaVu", "italic", 700, 2)), null,
+                EncodingMode.CID, EmbeddingMode.SUBSET, false, false);
+        fontInfo.setPostScriptName("DejaVuLGCSerif");
+        return fontInfo;
+    }
+
+    private FontCache saveAndLoad(FontCache cache) throws Exception {
+        cache.saveTo(cacheFile);
+        //the temporary file the cache is written to has replaced the cache file
+        String[] tempFiles = cacheFile.getParentFile().list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(cacheFile.getName()) && name.endsWith(".tmp");
+            }
+        });
+        assertEquals(0, tempFiles.length);
+        FontCache loaded = FontCache.loadFrom(cacheFile);
+        assertNotNull(loaded);
+        assertFalse(loaded.hasChanged());
+        return loaded;
+    }
+
+    @Test
+    public void testFontInfosAreSaved() throws Exception {
+        FontCache cache = new FontCache();
+        EmbedFontInfo fontInfo = createFontInfo();
+        cache.addFont(fontInfo, resolver);
+        cache.registerFailedFont("file:failed.ttf", 42);
+
+        FontCache loaded = saveAndLoad(cache);
+        String key = FontCache.getCacheKey(fontInfo);
+        long lastModified = FontCache.getLastModified(resolver.resolveFromBase(fontInfo.getEmbedURI()));
+        EmbedFontInfo[] fontInfos = loaded.getFontInfos(key, lastModified);
+        assertEquals(1, fontInfos.length);
+        EmbedFontInfo loadedInfo = fontInfos[0];
+        assertEquals(fontInfo.getEmbedURI(), loadedInfo.getEmbedURI());
+        assertNull(loadedInfo.getMetricsURI());
+        assertTrue(loadedInfo.getKerning());
+        assertFalse(loadedInfo.getAdvanced());
+        assertEquals("DejaVuLGCSerif", loadedInfo.getPostScriptName());
+        assertEquals(EncodingMode.CID, loadedInfo.getEncodingMode());
+        assertEquals(EmbeddingMode.SUBSET, loadedInfo.getEmbeddingMode());
+        assertEquals(fontInfo.getFontTriplets(), loadedInfo.getFontTriplets());
+        assertEquals(2, loadedInfo.getFontTriplets().get(0).getPriority());
+        assertTrue(loaded.isFailedFont("file:failed.ttf", 42));
+    }
+
+    @Test
+    public void testFontIsRebuiltFromCachedMetrics() throws Exception {
+        FontCache cache = new FontCache();
+        EmbedFontInfo fontInfo = createFontInfo();
+        fontInfo.setFontCache(cache);
+        MultiByteFont parsed = (MultiByteFont) new LazyFont(fontInfo, resolver, false).getRealFont();
+        assertTrue(cache.hasChanged());
+
+        FontCache loaded = saveAndLoad(cache);
+        fontInfo.setFontCache(loaded);
+        MultiByteFont cached = (MultiByteFont) new LazyFont(fontInfo, resolver, false).getRealFont();
+        assertNotSame(parsed, cached);
+        assertEquals(parsed.getFontName(), cached.getFontName());
+        assertEquals(parsed.getFullName(), cached.getFullName());
+        assertEquals(parsed.getFamilyNames(), cached.getFamilyNames());
+        assertEquals(parsed.getEmbedFileURI(), cached.getEmbedFileURI());
+        assertEquals(parsed.getCIDType(), cached.getCIDType());
+        assertEquals(parsed.getAscender(), cached.getAscender());
+        assertEquals(parsed.getDescender(), cached.getDescender());
+        assertEquals(parsed.getCapHeight(), cached.getCapHeight());
+        assertEquals(parsed.getXHeight(12), cached.getXHeight(12));
+        assertEquals(parsed.getUnderlinePosition(12), cached.getUnderlinePosition(12));
+        assertEquals(parsed.getStrikeoutThickness(12), cached.getStrikeoutThickness(12));
+        assertArrayEquals(parsed.getFontBBox(), cached.getFontBBox());
+        assertArrayEquals(parsed.getWidths(), cached.getWidths());
+        assertArrayEquals(parsed.getCMap(), cached.getCMap());
+        assertEquals(parsed.getKerningInfo(), cached.getKerningInfo());
+        for (char c = 'A'; c <= 'z'; c++) {
+            assertEquals(parsed.mapChar(c), cached.mapChar(c));
+            assertEquals(parsed.getBoundingBox(parsed.mapChar(c), 12),
+                    cached.getBoundingBox(cached.mapChar(c), 12));
+        }
+    }
+
+    @Test
+    public void testAdvancedTablesAreReadWithCachedMetrics() throws Exception {
+        FontCache cache = new FontCache();
+        EmbedFontInfo fontInfo = createFontInfo();
+        fontInfo.setFontCache(cache);
+        MultiByteFont parsed = (MultiByteFont) new LazyFont(fontInfo, resolver, true).getRealFont();
+        assertNotNull(parsed.getGSUB());
+        assertNotNull(parsed.getGPOS());
+
+        FontCache loaded = saveAndLoad(cache);
+        fontInfo.setFontCache(loaded);
+        MultiByteFont cached = (MultiByteFont) new LazyFont(fontInfo, resolver, true).getRealFont();
+        assertNotSame(parsed, cached);
+        assertEquals(parsed.getGDEF() != null, cached.getGDEF() != null);
+        assertNotNull(cached.getGSUB());
+        assertNotNull(cached.getGPOS());
+        String text = "AVAST fine Wave";
+        assertEquals(parsed.performSubstitution(text, "latn", "dflt", null, false).toString(),
+                cached.performSubstitution(text, "latn", "dflt", null, false).toString());
+        int[][] parsedAdjustments = parsed.performPositioning(text, "latn", "dflt", 12000);
+        int[][] cachedAdjustments = cached.performPositioning(text, "latn", "dflt", 12000);
+        assertEquals(parsedAdjustments == null, cachedAdjustments == null);
+        if (parsedAdjustments != null) {
+            for (int i = 0; i < parsedAdjustments.length; i++) {
+                assertArrayEquals(parsedAdjustments[i], cachedAdjustments[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testOutdatedMetricsAreDiscarded() throws Exception {
+        FontCache cache = new FontCache();
+        EmbedFontInfo fontInfo = createFontInfo();
+        fontInfo.setFontCache(cache);
+        new LazyFont(fontInfo, resolver, false).getRealFont();
+        FontCache loaded = saveAndLoad(cache);
+        assertNull(loaded.getFontMetrics("unknown", 1));
+        String key = "DejaVuLGCSerif.ttf|null|subset|cid|true|false|false|false";
+        long lastModified = FontCache.getLastModified(resolver.resolveFromBase(fontInfo.getEmbedURI()));
+        assertNotNull(loaded.getFontMetrics(key, lastModified));
+        assertNull(loaded.getFontMetrics(key, lastModified + 1));
+        assertTrue(loaded.hasChanged());
+        assertNull(loaded.getFontMetrics(key, lastModified));
+    }
+
+    @Test
+    public void testInvalidCacheFileIsDiscarded() throws Exception {
+        FileOutputStream out = new FileOutputStream(cacheFile);
+        try {
+            out.write(new byte[] {(byte) 0xAC, (byte) 0xED, 0, 5, 1, 2, 3});
+        } finally {
+            out.close();
+        }
+        assertNull(FontCache.loadFrom(cacheFile));
+        assertFalse(cacheFile.exists());
+    }
+}
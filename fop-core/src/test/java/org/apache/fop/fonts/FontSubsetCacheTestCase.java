@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URI;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+
+/**
+ * Test case for {@link FontSubsetCache}.
+ */
+public class FontSubsetCacheTestCase {
+
+    private static MultiByteFont loadFont(String chars) throws Exception {
+        InternalResourceResolver rr =
+                ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        URI uri = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf").toURI();
+        MultiByteFont font = (MultiByteFont) OFFontLoader.loadFont(new FontUris(uri, null), null, true,
+                EmbeddingMode.SUBSET, EncodingMode.CID, false, false, rr, false, false);
+        for (int i = 0; i < chars.length(); i++) {
+            font.mapChar(chars.charAt(i));
+        }
+        return font;
+    }
+
+    @Test
+    public void testGlyphSetIsPartOfKey() throws Exception {
+        FontSubsetCache cache = new FontSubsetCache(1000);
+        MultiByteFont font = loadFont("abc");
+        assertNull(cache.get(font, "EAAAAA+DejaVu"));
+        FontSubsetCache.Subset subset = cache.put(font, "EAAAAA+DejaVu", new byte[100]);
+        //the embedded name only matters for CFF fonts
+        assertSame(subset, cache.get(loadFont("abc"), "EAAAAB+DejaVu"));
+        //the order of the glyphs in the subset matters
+        assertNull(cache.get(loadFont("cba"), "EAAAAA+DejaVu"));
+        assertNull(cache.get(loadFont("abcd"), "EAAAAA+DejaVu"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testEncodedBytes() throws Exception {
+        FontSubsetCache cache = new FontSubsetCache(1000);
+        FontSubsetCache.Subset subset = cache.put(loadFont("abc"), "", new byte[100]);
+        assertNull(subset.getEncodedBytes("/FlateDecode"));
+        byte[] encoded = new byte[] {1, 2, 3};
+        subset.setEncodedBytes("/FlateDecode", encoded);
+        assertArrayEquals(encoded, subset.getEncodedBytes("/FlateDecode"));
+        assertNull(subset.getEncodedBytes("/ASCII85Decode/FlateDecode"));
+        assertEquals(103, cache.getSize());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        FontSubsetCache cache = new FontSubsetCache(250);
+        FontSubsetCache.Subset first = cache.put(loadFont("a"), "", new byte[100]);
+        cache.put(loadFont("b"), "", new byte[100]);
+        first.setEncodedBytes("/FlateDecode", new byte[40]);
+        assertEquals(240, cache.getSize());
+        cache.put(loadFont("c"), "", new byte[100]);
+        assertEquals(2, cache.getSubsetCount());
+        assertEquals(200, cache.getSize());
+        assertNull(cache.get(loadFont("a"), ""));
+        //subsets larger than the cache are not cached
+        assertNull(cache.put(loadFont("d"), "", new byte[300]));
+        //evicted subsets do not hold encoded bytes
+        first.setEncodedBytes("/FlateDecode", new byte[40]);
+        assertEquals(200, cache.getSize());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test case for {@link KerningTable}.
+ */
+public class KerningTableTestCase {
+
+    private static void putPair(Map<Integer, Map<Integer, Integer>> kerning, int ch1, int ch2,
+            int value) {
+        Map<Integer, Integer> pairs = kerning.get(ch1);
+        if (pairs == null) {
+            pairs = new HashMap<Integer, Integer>();
+            kerning.put(ch1, pairs);
+        }
+        pairs.put(ch2, value);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(KerningTable.EMPTY, KerningTable.create(null));
+        assertSame(KerningTable.EMPTY,
+                KerningTable.create(new HashMap<Integer, Map<Integer, Integer>>()));
+        assertEquals(0, KerningTable.EMPTY.get('A', 'V'));
+    }
+
+    @Test
+    public void testLookup() {
+        Map<Integer, Map<Integer, Integer>> kerning = new HashMap<Integer, Map<Integer, Integer>>();
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            putPair(kerning, random.nextInt(0x300), random.nextInt(0x300), random.nextInt(400) - 200);
+        }
+        KerningTable table = KerningTable.create(kerning);
+        int pairCount = 0;
+        for (int ch1 = 0; ch1 < 0x300; ch1++) {
+            Map<Integer, Integer> pairs = kerning.get(ch1);
+            for (int ch2 = 0; ch2 < 0x300; ch2++) {
+                Integer value = (pairs != null ? pairs.get(ch2) : null);
+                assertEquals(value != null ? value.intValue() : 0, table.get(ch1, ch2));
+                if (value != null) {
+                    pairCount++;
+                }
+            }
+        }
+        assertEquals(pairCount, table.size());
+        assertEquals(0, table.get(-1, 'A'));
+    }
+
+    @Test
+    public void testSupplementaryCharacters() {
+        Map<Integer, Map<Integer, Integer>> kerning = new HashMap<Integer, Map<Integer, Integer>>();
+        putPair(kerning, 0x1D400, 0x1D401, -120);
+        putPair(kerning, 'A', 0x10000, -30);
+        putPair(kerning, 'A', 'V', -80);
+        KerningTable table = KerningTable.create(kerning);
+        assertEquals(-120, table.get(0x1D400, 0x1D401));
+        assertEquals(-30, table.get('A', 0x10000));
+        assertEquals(-80, table.get('A', 'V'));
+        assertEquals(0, table.get('A', 0));
+        assertEquals(0, table.get(0xD835, 0xDC00));
+    }
+
+    @Test
+    public void testFontKernValue() {
+        MultiByteFont typeface = new MultiByteFont(null, EmbeddingMode.AUTO);
+        Map<Integer, Integer> pairs = new HashMap<Integer, Integer>();
+        pairs.put(0x1D401, -120);
+        pairs.put((int) 'V', -80);
+        typeface.putKerningEntry(0x1D400, pairs);
+        Font font = new Font("F1", null, typeface, 10000);
+        assertEquals(-1200, font.getKernValue(0x1D400, 0x1D401));
+        assertEquals(-800, font.getKernValue(0x1D400, 'V'));
+        assertEquals(0, font.getKernValue('A', 'V'));
+
+        //the table follows changes to the kerning information
+        pairs = new HashMap<Integer, Integer>();
+        pairs.put((int) 'V', -50);
+        typeface.putKerningEntry((int) 'A', pairs);
+        assertEquals(-500, font.getKernValue('A', 'V'));
+        typeface.setKerningEnabled(false);
+        assertEquals(0, font.getKernValue('A', 'V'));
+    }
+}
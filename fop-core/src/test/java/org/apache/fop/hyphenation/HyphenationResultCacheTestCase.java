@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link HyphenationResultCache} and the result caching of
+ * {@link HyphenationTreeCache}.
+ */
+public class HyphenationResultCacheTestCase {
+
+    private static final String PATTERNS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<hyphenation-info>\n"
+            + "<classes>\naA\nbB\ncC\ndD\neE\nhH\niI\nlL\nnN\noO\npP\ntT\nyY\n</classes>\n"
+            + "<patterns>\n1ba 1be 1la 1le 1lo 1na 1ne 1no 1ta 1te 1to 1tio hy3ph he2n 2bl</patterns>\n"
+            + "</hyphenation-info>\n";
+
+    private static HyphenationTree createTree() throws HyphenationException {
+        HyphenationTree tree = new HyphenationTree();
+        tree.loadPatterns(new InputSource(new StringReader(PATTERNS)));
+        return tree;
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        HyphenationTree tree = createTree();
+        HyphenationResultCache cache = new HyphenationResultCache(tree, 100);
+        Hyphenation hyph = cache.hyphenate("hyphenation", 2, 2);
+        assertEquals(tree.hyphenate("hyphenation", 2, 2).toString(), hyph.toString());
+        assertSame(hyph, cache.hyphenate("hyphenation", 2, 2));
+        //the minimum counts are part of the key
+        assertEquals(tree.hyphenate("hyphenation", 4, 4).toString(),
+                cache.hyphenate("hyphenation", 4, 4).toString());
+        //words that cannot be hyphenated are cached as well
+        assertNull(cache.hyphenate("xyz", 1, 1));
+        assertNull(cache.hyphenate("xyz", 1, 1));
+        assertEquals(3, cache.getSize());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.4, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        HyphenationResultCache cache = new HyphenationResultCache(createTree(), 32);
+        for (int i = 0; i < 1000; i++) {
+            cache.hyphenate("table" + i, 2, 2);
+        }
+        assertTrue(cache.getSize() <= 32);
+        assertEquals(1000, cache.getMissCount());
+    }
+
+    @Test
+    public void testTreeCache() throws Exception {
+        HyphenationTree tree = createTree();
+        HyphenationTreeCache treeCache = new HyphenationTreeCache(10);
+        treeCache.hyphenate(tree, "bottle", 1, 1);
+        treeCache.hyphenate(tree, "bottle", 1, 1);
+        assertEquals(1, treeCache.getResultCaches().size());
+        HyphenationResultCache results = treeCache.getResultCaches().iterator().next();
+        assertSame(tree, results.getHyphenationTree());
+        assertEquals(1, results.getHitCount());
+
+        HyphenationTreeCache uncached = new HyphenationTreeCache(0);
+        assertEquals(tree.hyphenate("bottle", 1, 1).toString(),
+                uncached.hyphenate(tree, "bottle", 1, 1).toString());
+        assertTrue(uncached.getResultCaches().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        final HyphenationTree tree = createTree();
+        final HyphenationResultCache cache = new HyphenationResultCache(tree, 64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int i = 0; i < 2000; i++) {
+                            String word = "hyphenation" + (i % 100);
+                            assertEquals(String.valueOf(tree.hyphenate(word, 2, 2)),
+                                    String.valueOf(cache.hyphenate(word, 2, 2)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(16000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getSize() <= 64);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+/**
+ * Test case for {@link MappedHyphenationTree}.
+ */
+public class MappedHyphenationTreeTestCase {
+
+    private static final String PATTERNS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<hyphenation-info>\n"
+            + "<hyphen-min before=\"2\" after=\"2\"/>\n"
+            + "<classes>\naA\nbB\ncC\ndD\neE\nfF\ngG\nhH\niI\njJ\nkK\nlL\nmM\nnN\noO\npP\nqQ\nrR\n"
+            + "sS\ntT\nuU\nvV\nwW\nxX\nyY\nzZ\n</classes>\n"
+            + "<exceptions>\nta-ble\npro-ject\nba<hyphen pre=\"k\" no=\"c\" post=\"k\"/>ken\n</exceptions>\n"
+            + "<patterns>\n"
+            + ".ach4 .ad4der .af1t .al3t .am5at .an5c .ang4 .ani5m .ant4 .an3te .anti5s .ar5s .ar4tie\n"
+            + "1ba 1be 1bi 1bo 1bu 1ca 1ce 1ci 1co 1cu 1da 1de 1di 1do 1du 1fa 1fe 1fi 1fo 1fu 1ga 1ge\n"
+            + "1gi 1go 1gu 1la 1le 1li 1lo 1lu 1ma 1me 1mi 1mo 1mu 1na 1ne 1ni 1no 1nu 1pa 1pe 1pi 1po\n"
+            + "1pu 1ra 1re 1ri 1ro 1ru 1sa 1se 1si 1so 1su 1ta 1te 1ti 1to 1tu 1va 1ve 1vi 1vo 1vu\n"
+            + "2b1b 2c1c 2d1d 2f1f 2g1g 2l1l 2m1m 2n1n 2p1p 2r1r 2s1s 2t1t 4ck n2g 2ng1 s2t 4tion\n"
+            + "hy3ph he2n hena4 hen5at 1na n2at 1tio 2io o2n a4b2l ab3li 2bl e1ca e3cad e5cal\n"
+            + "</patterns>\n"
+            + "</hyphenation-info>\n";
+
+    private static final String[] WORDS = {"hyphenation", "table", "project", "backen", "baken",
+        "Calculation", "antisocial", "addermatic", "bottle", "applicable", "decade", "nation",
+        "letter", "a", "xyz", "abcdefghijklmnopqrstuvwxyz", "multi-part-word", "supercalifragilistic"};
+
+    private File dir;
+
+    private static HyphenationTree createTree() throws HyphenationException {
+        HyphenationTree tree = new HyphenationTree();
+        tree.loadPatterns(new InputSource(new StringReader(PATTERNS)));
+        return tree;
+    }
+
+    private static byte[] write(HyphenationTree tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MappedHyphenationTree.write(tree, out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameHyphenation(HyphenationLookup expected, HyphenationLookup actual) {
+        for (String word : WORDS) {
+            for (int min = 1; min < 4; min++) {
+                Hyphenation e = expected.hyphenate(word, min, min);
+                Hyphenation a = actual.hyphenate(word, min, min);
+                assertEquals(word, String.valueOf(e), String.valueOf(a));
+                if (e != null) {
+                    for (int i = 0; i < e.length(); i++) {
+                        assertEquals(e.getPreHyphenText(i), a.getPreHyphenText(i));
+                        assertEquals(e.getPostHyphenText(i), a.getPostHyphenText(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("hyb", "fop");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        HyphenationTree tree = createTree();
+        MappedHyphenationTree mapped = MappedHyphenationTree.read(new ByteArrayInputStream(write(tree)));
+        assertSameHyphenation(tree, mapped);
+        for (String pattern : new String[] {".ach", "hyph", "tion", "ab", "a", "zzz"}) {
+            assertEquals(tree.findPattern(pattern), mapped.findPattern(pattern));
+        }
+        assertTrue(mapped.hyphenate("hyphenation", 2, 2).length() > 0);
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        HyphenationTree tree = createTree();
+        File file = new File(dir, "test.hyb");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            MappedHyphenationTree.write(tree, out);
+        } finally {
+            out.close();
+        }
+        assertSameHyphenation(tree, MappedHyphenationTree.map(file));
+    }
+
+    @Test
+    public void testHyphenator() throws Exception {
+        HyphenationTree tree = createTree();
+        OutputStream out = new FileOutputStream(new File(dir, "xx.hyb"));
+        try {
+            MappedHyphenationTree.write(tree, out);
+        } finally {
+            out.close();
+        }
+        InternalResourceResolver resourceResolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(dir.toURI());
+        HyphenationLookup loaded = Hyphenator.getUserHyphenationLookup("xx", resourceResolver);
+        assertTrue(loaded instanceof MappedHyphenationTree);
+        assertSameHyphenation(tree, loaded);
+        //the deprecated method only returns patterns loaded into a HyphenationTree
+        assertNull(Hyphenator.getUserHyphenationTree("xx", resourceResolver));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongFormat() throws Exception {
+        new MappedHyphenationTree(ByteBuffer.wrap(new byte[] {'F', 'H', 'Y', 'P', 0, 0, 0, 1}));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws Exception {
+        byte[] data = write(createTree());
+        new MappedHyphenationTree(ByteBuffer.wrap(data, 0, data.length / 2).slice());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+
+/**
+ * Tests {@link ImagePrefetcher}.
+ */
+public class ImagePrefetcherTestCase {
+
+    private static final String[] IMAGES = {"box1.png", "bgimg72dpi.jpg", "bgimg300dpi.png",
+            "circles.svg", "fop-logo-gray-8bit.png", "missing.png"};
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static String createFO() {
+        StringBuilder fo = new StringBuilder();
+        fo.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">");
+        fo.append("<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-width=\"300pt\" page-height=\"400pt\"><fo:region-body/>");
+        fo.append("</fo:simple-page-master></fo:layout-master-set>");
+        fo.append("<fo:page-sequence master-reference=\"page\">");
+        fo.append("<fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < 3; i++) {
+            for (String image : IMAGES) {
+                fo.append("<fo:block>" + image + " <fo:external-graphic src=\"test/resources/images/"
+                        + image + "\" content-width=\"scale-down-to-fit\" width=\"100pt\"/></fo:block>");
+            }
+        }
+        fo.append("</fo:flow></fo:page-sequence></fo:root>");
+        return fo.toString();
+    }
+
+    private String render(int threads, final List<String> events) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setImagePrefetchThreads(threads);
+        userAgent.setCreationDate(new Date(0));
+        userAgent.getEventBroadcaster().addEventListener(new EventListener() {
+            public void processEvent(Event event) {
+                events.add(event.getEventID());
+            }
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new StringReader(createFO()));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        //the metadata date is always the current time
+        return out.toString("UTF-8").replaceAll("<xmp:MetadataDate>.*</xmp:MetadataDate>", "");
+    }
+
+    @Test
+    public void testPrefetchingProducesSameOutput() throws Exception {
+        List<String> expectedEvents = new ArrayList<String>();
+        String expected = render(0, expectedEvents);
+        List<String> events = new ArrayList<String>();
+        assertEquals(expected, render(2, events));
+        assertEquals(expectedEvents, events);
+    }
+
+    @Test
+    public void testGetImageInfo() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(userAgent, 1);
+        Future<ImageInfo> info = prefetcher.prefetch("test/resources/images/box1.png");
+        assertEquals("image/png", ImagePrefetcher.getImageInfo(info).getMimeType());
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testImageNotFound() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(userAgent, 1);
+        ImagePrefetcher.getImageInfo(prefetcher.prefetch("test/resources/images/missing.png"));
+    }
+}
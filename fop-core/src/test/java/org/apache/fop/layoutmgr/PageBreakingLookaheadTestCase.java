@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.layoutmgr.AbstractBreaker.BlockSequence;
+import org.apache.fop.layoutmgr.AbstractBreaker.PageBreakPosition;
+import org.apache.fop.layoutmgr.PageBreakingAlgorithm.PageBreakingCommitListener;
+import org.apache.fop.traits.MinOptMax;
+
+/**
+ * Tests page breaking with a bounded lookahead.
+ */
+public class PageBreakingLookaheadTestCase {
+
+    private static final int LINE_HEIGHT = 12000;
+
+    private static final int LINES_PER_PAGE = 8;
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static BlockSequence createBlockSequence(int lineCount, int stretch, boolean keeps) {
+        BlockSequence sequence = new BlockSequence(Constants.EN_ANY, Constants.EN_BEFORE);
+        for (int i = 0; i < lineCount; i++) {
+            sequence.add(new KnuthBox(LINE_HEIGHT, null, false));
+            if (keeps && i % 5 == 4) {
+                sequence.add(new KnuthPenalty(0, KnuthElement.INFINITE, false, null, false));
+            } else {
+                sequence.add(new KnuthPenalty(0, 0, false, null, false));
+            }
+            sequence.add(new KnuthGlue(0, stretch, 0, null, false));
+        }
+        sequence.endBlockSequence(null);
+        return sequence;
+    }
+
+    private static PageBreakingAlgorithm createAlgorithm() {
+        PageBreakingAlgorithm alg = new PageBreakingAlgorithm(null, null, null,
+                Constants.EN_START, Constants.EN_START, MinOptMax.ZERO, true, false, false);
+        alg.setConstantLineWidth(LINE_HEIGHT * LINES_PER_PAGE);
+        return alg;
+    }
+
+    private static List<Integer> getLeafPositions(List<PageBreakPosition> pageBreaks) {
+        List<Integer> leafPositions = new ArrayList<Integer>();
+        for (PageBreakPosition pbp : pageBreaks) {
+            leafPositions.add(pbp.getLeafPos());
+        }
+        return leafPositions;
+    }
+
+    private static List<Integer> findBreaks(BlockSequence sequence, int lookahead,
+            final List<Integer> commitSizes) {
+        final List<Integer> breaks = new ArrayList<Integer>();
+        PageBreakingAlgorithm alg = createAlgorithm();
+        if (lookahead > 0) {
+            alg.setCommitListener(lookahead, new PageBreakingCommitListener() {
+                public void notifyCommit(PageBreakingAlgorithm alg, int partCount) {
+                    assertEquals(partCount, alg.getPageBreaks().size());
+                    breaks.addAll(getLeafPositions(alg.getPageBreaks()));
+                    commitSizes.add(partCount);
+                }
+            });
+        }
+        int partCount = alg.findBreakingPoints(sequence, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        assertEquals(breaks.size(), alg.getCommittedPartCount());
+        assertEquals(partCount, alg.getPageBreaks().size());
+        breaks.addAll(getLeafPositions(alg.getPageBreaks()));
+        return breaks;
+    }
+
+    @Test
+    public void testSettledBreaksAreCommitted() {
+        List<Integer> commitSizes = new ArrayList<Integer>();
+        List<Integer> expected = findBreaks(createBlockSequence(400, 0, false), 0, commitSizes);
+        assertEquals(400 / LINES_PER_PAGE, expected.size());
+        assertEquals(expected, findBreaks(createBlockSequence(400, 0, false), 2, commitSizes));
+        //every break but the last two is settled as soon as the following one has been found
+        assertEquals(expected.size() - 2, commitSizes.size());
+        for (int commitSize : commitSizes) {
+            assertEquals(1, commitSize);
+        }
+    }
+
+    @Test
+    public void testLookaheadIsBounded() {
+        List<Integer> commitSizes = new ArrayList<Integer>();
+        BlockSequence sequence = createBlockSequence(400, 2000, true);
+        List<Integer> breaks = findBreaks(sequence, 2, commitSizes);
+        assertTrue(commitSizes.size() > 10);
+        for (int commitSize : commitSizes) {
+            assertTrue(commitSize <= 3);
+        }
+        int previousBreak = 0;
+        for (int leafPos : breaks) {
+            assertTrue(leafPos > previousBreak);
+            //no break inside a keep, and no page holds more than fits
+            assertTrue(((KnuthElement) sequence.get(leafPos)).getPenalty() < KnuthElement.INFINITE);
+            previousBreak = leafPos;
+        }
+        assertEquals(sequence.size() - 1, previousBreak);
+    }
+
+    private static String createFO() {
+        StringBuilder fo = new StringBuilder();
+        fo.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">");
+        fo.append("<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-width=\"300pt\" page-height=\"200pt\">");
+        fo.append("<fo:region-body margin-bottom=\"20pt\"/><fo:region-after extent=\"20pt\"/>");
+        fo.append("</fo:simple-page-master></fo:layout-master-set>");
+        fo.append("<fo:page-sequence master-reference=\"page\">");
+        fo.append("<fo:static-content flow-name=\"xsl-region-after\"><fo:block>Page "
+                + "<fo:page-number/> <fo:retrieve-marker retrieve-class-name=\"row\"/>"
+                + "</fo:block></fo:static-content>");
+        fo.append("<fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < 20; i++) {
+            fo.append("<fo:block space-before=\"6pt\">Paragraph " + i);
+            for (int w = 0; w < 30; w++) {
+                fo.append(" word");
+            }
+            if (i % 4 == 0) {
+                fo.append("<fo:footnote><fo:inline>" + i + "</fo:inline><fo:footnote-body>"
+                        + "<fo:block>Note " + i + "</fo:block></fo:footnote-body></fo:footnote>");
+            }
+            fo.append("</fo:block>");
+        }
+        fo.append("<fo:table width=\"100%\" table-layout=\"fixed\">");
+        fo.append("<fo:table-header><fo:table-row><fo:table-cell><fo:block>Header</fo:block>"
+                + "</fo:table-cell></fo:table-row></fo:table-header><fo:table-body>");
+        for (int i = 0; i < 300; i++) {
+            fo.append("<fo:table-row><fo:table-cell><fo:block><fo:marker marker-class-name=\"row\">"
+                    + i + "</fo:marker>Row " + i + "</fo:block></fo:table-cell></fo:table-row>");
+        }
+        fo.append("</fo:table-body></fo:table>");
+        fo.append("<fo:block break-before=\"page\">Last</fo:block>");
+        fo.append("</fo:flow></fo:page-sequence></fo:root>");
+        return fo.toString();
+    }
+
+    private String render(String fo, int lookahead) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setPageBreakingLookahead(lookahead);
+        userAgent.setCreationDate(new Date(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new StringReader(fo));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        //the metadata date is always the current time
+        return out.toString("UTF-8").replaceAll(
+                "<xmp:MetadataDate>.*</xmp:MetadataDate>", "");
+    }
+
+    @Test
+    public void testBoundedLookaheadProducesSameOutput() throws Exception {
+        String fo = createFO();
+        String expected = render(fo, 0);
+        assertEquals(expected, render(fo, 3));
+    }
+}
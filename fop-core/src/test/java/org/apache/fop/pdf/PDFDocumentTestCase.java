@@ -21,9 +21,11 @@ package org.apache.fop.pdf;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Date;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -59,4 +61,32 @@ public class PDFDocumentTestCase {
         PDFDocument.flushTextBuffer(textBuffer, out);
         assertEquals(fullString, out.toString());
     }
+
+    /**
+     * Tests that compressing streams on separate threads produces the same output as
+     * compressing them while they are written.
+     * @throws IOException when an I/O error occurs
+     */
+    @Test
+    public void testCompressionThreads() throws IOException {
+        byte[] expected = outputDocumentWithStreams(0);
+        assertArrayEquals(expected, outputDocumentWithStreams(3));
+    }
+
+    private byte[] outputDocumentWithStreams(int compressionThreads) throws IOException {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        doc.getInfo().setCreationDate(new Date(0));
+        doc.setCompressionThreads(compressionThreads);
+        for (int i = 0; i < 20; i++) {
+            PDFStream stream = new PDFStream(i % 2 == 0);
+            stream.setDocument(doc);
+            for (int j = 0; j < 1000 * (i + 1); j++) {
+                stream.add("BT /F1 12 Tf " + j + " " + i + " Td (Stream " + i + ") Tj ET\n");
+            }
+            doc.registerObject(stream);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.output(out);
+        return out.toByteArray();
+    }
 }
@@ -23,9 +23,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
 
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.xmlgraphics.io.ResourceResolver;
@@ -36,6 +44,9 @@ import org.apache.fop.fonts.CIDSet;
 import org.apache.fop.fonts.CIDSubset;
 import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.EncodingMode;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.fonts.FontSubsetCache;
 import org.apache.fop.fonts.FontUris;
 import org.apache.fop.fonts.MultiByteFont;
 import org.apache.fop.fonts.truetype.OFFontLoader;
@@ -113,4 +124,110 @@ public class PDFFactoryTestCase {
         assertTrue(bos.toString().contains("/Subtype /Type1\n"));
         assertTrue(bos.toString().contains("/Subtype /Type1C"));
     }
+
+    /**
+     * Tests that subsetting the fonts concurrently produces the same objects as subsetting
+     * them one after the other. The font files and CID sets are registered once the subsets are
+     * done, so they are numbered differently.
+     * @throws IOException when an I/O error occurs
+     */
+    @Test
+    public void testParallelFontSubsets() throws IOException {
+        byte[] expected = outputDocumentWithFonts(0, null);
+        String pdf = new String(expected, "ISO-8859-1");
+        assertTrue(pdf.contains("/FontFile2"));
+        //the OpenType CFF font is embedded as Type1C, which is still subset serially
+        assertTrue(pdf.contains("/Subtype /Type1C"));
+        assertEquals(getObjects(expected), getObjects(outputDocumentWithFonts(3, null)));
+    }
+
+    /**
+     * Tests that a font whose subset cannot be created concurrently is not embedded, and that
+     * no font file is left in the document for it.
+     * @throws IOException when an I/O error occurs
+     */
+    @Test
+    public void testFailedParallelFontSubset() throws IOException {
+        File fontFile = File.createTempFile("font", ".ttf");
+        try {
+            FileUtils.copyFile(new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf"), fontFile);
+            FontInfo serialFontInfo = createFontInfo(fontFile.toURI());
+            FontInfo parallelFontInfo = createFontInfo(fontFile.toURI());
+            //the font can no longer be read when it is subset
+            assertTrue(fontFile.delete());
+            byte[] expected = outputDocument(0, null, serialFontInfo);
+            assertFalse(new String(expected, "ISO-8859-1").contains("/FontFile2"));
+            assertEquals(getObjects(expected), getObjects(outputDocument(2, null, parallelFontInfo)));
+        } finally {
+            fontFile.delete();
+        }
+    }
+
+    /**
+     * Tests that the font subsets of one document are reused for the next, and that this
+     * produces the same documents.
+     * @throws IOException when an I/O error occurs
+     */
+    @Test
+    public void testFontSubsetCache() throws IOException {
+        byte[] expected = outputDocumentWithFonts(0, null);
+        FontSubsetCache cache = new FontSubsetCache(FontSubsetCache.DEFAULT_SIZE);
+        assertArrayEquals(expected, outputDocumentWithFonts(0, cache));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getSubsetCount());
+        long size = cache.getSize();
+        assertArrayEquals(expected, outputDocumentWithFonts(0, cache));
+        assertEquals(getObjects(expected), getObjects(outputDocumentWithFonts(2, cache)));
+        assertEquals(6, cache.getHitCount());
+        //the encoded subsets were cached along with the subsets
+        assertEquals(size, cache.getSize());
+    }
+
+    private byte[] outputDocumentWithFonts(int threads, FontSubsetCache cache) throws IOException {
+        String[] fonts = {"ttf/DejaVuLGCSerif.ttf", "otf/SourceSansProBold.otf", "ttf/DroidSansMono.ttf"};
+        URI[] uris = new URI[fonts.length];
+        for (int i = 0; i < fonts.length; i++) {
+            uris[i] = new File("test/resources/fonts/" + fonts[i]).toURI();
+        }
+        return outputDocument(threads, cache, createFontInfo(uris));
+    }
+
+    private FontInfo createFontInfo(URI... uris) throws IOException {
+        InternalResourceResolver rr =
+                ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        FontInfo fontInfo = new FontInfo();
+        for (int i = 0; i < uris.length; i++) {
+            CustomFont font = OFFontLoader.loadFont(new FontUris(uris[i], null), null, true,
+                    EmbeddingMode.SUBSET, EncodingMode.CID, false, false, rr, false, false);
+            for (char c = 'A'; c < 'z'; c += i + 1) {
+                font.mapChar(c);
+            }
+            fontInfo.addMetrics("F" + i, font);
+            fontInfo.useFont("F" + i);
+        }
+        return fontInfo;
+    }
+
+    private byte[] outputDocument(int threads, FontSubsetCache cache, FontInfo fontInfo)
+            throws IOException {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        doc.getInfo().setCreationDate(new Date(0));
+        doc.setCompressionThreads(threads);
+        doc.setFontSubsetCache(cache);
+        doc.getResources().addFonts(doc, fontInfo);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.output(out);
+        return out.toByteArray();
+    }
+
+    /** Returns the objects of a document in sorted order, without their numbers. */
+    private static List<String> getObjects(byte[] pdf) throws IOException {
+        String s = new String(pdf, "ISO-8859-1");
+        List<String> objects = new ArrayList<String>();
+        for (String object : s.substring(0, s.lastIndexOf("endobj")).split("endobj")) {
+            objects.add(object.trim().replaceAll("\\d+ 0 (obj|R)", "$1"));
+        }
+        Collections.sort(objects);
+        return objects;
+    }
 }
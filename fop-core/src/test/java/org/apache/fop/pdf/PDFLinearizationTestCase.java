@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +70,45 @@ public class PDFLinearizationTestCase {
         checkPDF(data);
     }
 
+    @Test
+    public void testDeferredStreams() throws IOException {
+        byte[] expected = outputPages(false);
+        byte[] data = outputPages(true);
+        //the file identifiers depend on the time
+        String fileID = "/ID \\[<\\w+> <\\w+>\\]";
+        Assert.assertEquals(new String(expected, "ISO-8859-1").replaceAll(fileID, ""),
+                new String(data, "ISO-8859-1").replaceAll(fileID, ""));
+        Assert.assertTrue(getFirstObj(data).startsWith("<<  /Linearized 1"));
+    }
+
+    private byte[] outputPages(boolean encodeDeferredStreams) throws IOException {
+        PDFDocument doc = new PDFDocument("");
+        doc.getInfo().setCreationDate(new Date(0));
+        doc.setLinearizationEnabled(true);
+        PDFResources resources = new PDFResources(doc);
+        PDFResourceContext context = new PDFResourceContext(resources);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PDFContentGenerator gen = null;
+        for (int i = 0; i < 3; i++) {
+            gen = new PDFContentGenerator(doc, out, context);
+            for (int j = 0; j < 100; j++) {
+                gen.getStream().add("BT /F1 12 Tf 72 " + j + " Td (Page " + i + ") Tj ET\n");
+            }
+            Rectangle2D.Float f = new Rectangle2D.Float();
+            PDFPage page = new PDFPage(resources, i, f, f, f, f);
+            doc.registerObject(page);
+            doc.registerObject(gen.getStream());
+            page.setContents(new PDFReference(gen.getStream()));
+            if (encodeDeferredStreams) {
+                doc.encodeDeferredStreams();
+                //the raw data is released once encoded
+                Assert.assertEquals(0, gen.getStream().getDataLength());
+            }
+        }
+        gen.flushPDFDoc();
+        return out.toByteArray();
+    }
+
     @Test
     public void testImage() throws Exception {
         String fopxconf = "<fop version=\"1.0\"><renderers>"
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the compact output mode of {@link PDFDocument}, in which the objects are packed into
+ * object streams.
+ */
+public class PDFObjectStreamsTestCase {
+
+    private static final int PAGE_COUNT = 5;
+
+    private static final int ELEMENTS_PER_PAGE = 300;
+
+    @Test
+    public void testObjectStreams() throws Exception {
+        PDFDocument doc = createDocument(true);
+        assertTrue(doc.isObjectStreamsEnabled());
+        assertEquals(Version.V1_5, doc.getPDFVersion());
+        byte[] pdf = outputTaggedDocument(doc);
+        String text = new String(pdf, "ISO-8859-1");
+        assertTrue(text.contains("/Type /ObjStm"));
+        assertFalse(text.contains("\nxref\n"));
+
+        Map<Integer, String> objs = readObjects(pdf);
+        int structElems = 0;
+        boolean catalog = false;
+        for (String obj : objs.values()) {
+            if (obj.contains("/S /P")) {
+                structElems++;
+            }
+            if (obj.contains("/Type /Catalog")) {
+                assertTrue(obj, obj.contains("/Version /1.5"));
+                catalog = true;
+            }
+        }
+        assertTrue(catalog);
+        assertEquals(PAGE_COUNT * ELEMENTS_PER_PAGE, structElems);
+        //the object streams are flushed as the pages are completed
+        assertTrue(text.split("/Type /ObjStm").length > PAGE_COUNT);
+    }
+
+    @Test
+    public void testSmallerOutput() throws Exception {
+        byte[] uncompressed = outputTaggedDocument(createDocument(false));
+        byte[] compact = outputTaggedDocument(createDocument(true));
+        assertTrue(compact.length + " " + uncompressed.length, compact.length * 2 < uncompressed.length);
+        assertTrue(new String(uncompressed, "ISO-8859-1").contains("\nxref\n"));
+    }
+
+    @Test
+    public void testNotEnabled() throws Exception {
+        PDFDocument doc = new PDFDocument("Apache FOP",
+                VersionController.getFixedVersionController(Version.V1_4));
+        doc.setObjectStreamsEnabled(true);
+        assertFalse(doc.isObjectStreamsEnabled());
+        assertEquals(Version.V1_4, doc.getPDFVersion());
+
+        doc = createDocument(false);
+        doc.getProfile().setPDFAMode(PDFAMode.PDFA_1B);
+        doc.setObjectStreamsEnabled(true);
+        assertFalse(doc.isObjectStreamsEnabled());
+
+        doc = createDocument(false);
+        doc.setLinearizationEnabled(true);
+        doc.setObjectStreamsEnabled(true);
+        assertFalse(doc.isObjectStreamsEnabled());
+    }
+
+    private static PDFDocument createDocument(boolean objectStreams) {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        doc.getInfo().setCreationDate(new Date(0));
+        doc.setObjectStreamsEnabled(objectStreams);
+        return doc;
+    }
+
+    private static byte[] outputTaggedDocument(PDFDocument doc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        doc.getRoot().makeTagged();
+        PDFStructTreeRoot structTreeRoot = doc.makeStructTreeRoot(new PDFParentTree());
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            PDFPage page = doc.getFactory().makePage(doc.getResources(), 595, 842, i);
+            PDFStream content = doc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, true);
+            content.add("BT /F1 12 Tf 72 72 Td (Page " + i + ") Tj ET\n");
+            page.setContents(new PDFReference(content));
+            doc.addObject(page);
+            for (int j = 0; j < ELEMENTS_PER_PAGE; j++) {
+                PDFStructElem elem = new PDFStructElem(structTreeRoot, StandardStructureTypes.Paragraphlike.P);
+                elem.put("T", "Paragraph " + j + " of page " + i);
+                doc.registerStructureElement(elem);
+                structTreeRoot.addKid(elem);
+            }
+            doc.output(out);
+        }
+        doc.outputTrailer(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads all the objects of a file with a cross-reference stream, checking the entries of
+     * the cross-reference stream.
+     */
+    private static Map<Integer, String> readObjects(byte[] pdf) throws Exception {
+        String text = new String(pdf, "ISO-8859-1");
+        int startxref = text.lastIndexOf("startxref\n") + "startxref\n".length();
+        int xrefOffset = Integer.parseInt(text.substring(startxref, text.indexOf('\n', startxref)));
+        assertTrue(text.substring(xrefOffset, text.indexOf("stream", xrefOffset)).contains("/Type /XRef"));
+        byte[] xref = readStream(pdf, xrefOffset);
+        assertEquals(0, xref.length % 11);
+        Map<Integer, String> objs = new HashMap<Integer, String>();
+        for (int n = 1; n < xref.length / 11; n++) {
+            int type = xref[n * 11];
+            long field2 = 0;
+            for (int i = 1; i <= 8; i++) {
+                field2 = field2 << 8 | (xref[n * 11 + i] & 0xff);
+            }
+            int field3 = (xref[n * 11 + 9] & 0xff) << 8 | (xref[n * 11 + 10] & 0xff);
+            if (type == 1) {
+                assertTrue(text.startsWith(n + " 0 obj", (int) field2));
+                objs.put(n, text.substring((int) field2, text.indexOf("endobj", (int) field2)));
+            } else {
+                assertEquals(2, type);
+                objs.put(n, readCompressedObject(pdf, xref, (int) field2, field3, n));
+            }
+        }
+        return objs;
+    }
+
+    private static String readCompressedObject(byte[] pdf, byte[] xref, int objectStream, int index,
+            int number) throws Exception {
+        int offset = 0;
+        for (int i = 1; i <= 8; i++) {
+            offset = offset << 8 | (xref[objectStream * 11 + i] & 0xff);
+        }
+        String dict = new String(pdf, offset, 200, "ISO-8859-1");
+        int first = Integer.parseInt(dict.replaceFirst("(?s).*/First (\\d+).*", "$1"));
+        String content = new String(readStream(pdf, offset), "ISO-8859-1");
+        String[] header = content.substring(0, first).trim().split("\\s+");
+        assertEquals(String.valueOf(number), header[index * 2]);
+        int start = first + Integer.parseInt(header[index * 2 + 1]);
+        int end = index * 2 + 3 < header.length
+                ? first + Integer.parseInt(header[index * 2 + 3])
+                : content.length();
+        return content.substring(start, end);
+    }
+
+    private static byte[] readStream(byte[] pdf, int offset) throws IOException, DataFormatException {
+        String text = new String(pdf, "ISO-8859-1");
+        int dataStart = text.indexOf("\nstream\n", offset);
+        String dict = text.substring(offset, dataStart);
+        assertTrue(dict, dict.contains("/Filter /FlateDecode"));
+        int length = Integer.parseInt(dict.replaceFirst("(?s).*/Length (\\d+).*", "$1"));
+        Inflater inflater = new Inflater();
+        inflater.setInput(pdf, dataStart + "\nstream\n".length(), length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        while (!inflater.finished()) {
+            int n = inflater.inflate(buf);
+            assertFalse(n == 0 && inflater.needsInput());
+            out.write(buf, 0, n);
+        }
+        inflater.end();
+        return out.toByteArray();
+    }
+}
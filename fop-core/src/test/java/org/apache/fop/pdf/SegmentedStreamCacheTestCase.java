@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Test case for {@link SegmentedStreamCache} and {@link BufferSegmentAllocator}.
+ */
+public class SegmentedStreamCacheTestCase {
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+    private void testCache(StreamCache cache) throws IOException {
+        byte[] data = createData(3 * BufferSegmentAllocator.MAX_SEGMENT_SIZE + 17);
+        OutputStream out = cache.getOutputStream();
+        out.write(data[0]);
+        out.write(data, 1, 100);
+        out.write(data, 101, data.length - 101);
+        assertEquals(data.length, cache.getSize());
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        assertEquals(data.length, cache.outputContents(result));
+        assertArrayEquals(data, result.toByteArray());
+
+        //the contents can be output more than once
+        result.reset();
+        cache.outputContents(result);
+        assertArrayEquals(data, result.toByteArray());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        result.reset();
+        assertEquals(0, cache.outputContents(result));
+
+        cache.write(new byte[] {1, 2, 3});
+        result.reset();
+        cache.outputContents(result);
+        assertArrayEquals(new byte[] {1, 2, 3}, result.toByteArray());
+    }
+
+    @Test
+    public void testDirectBuffers() throws IOException {
+        StreamCacheFactory factory = StreamCacheFactory.newDirectBufferInstance(1 << 24);
+        try {
+            testCache(factory.createStreamCache());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File directory = File.createTempFile("fop-streamcache", "");
+        directory.delete();
+        directory.mkdir();
+        try {
+            StreamCacheFactory factory = StreamCacheFactory.newMappedFileInstance(directory);
+            StreamCache cache = factory.createStreamCache(100);
+            testCache(cache);
+            assertEquals(1, directory.list().length);
+            factory.close();
+            //the spill file is deleted when the factory is closed
+            assertEquals(0, directory.list().length);
+            try {
+                factory.createStreamCache().write(new byte[] {1});
+                fail("IOException expected");
+            } catch (IOException e) {
+                //expected
+            }
+        } finally {
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testSegmentSize() {
+        assertEquals(BufferSegmentAllocator.MIN_SEGMENT_SIZE, BufferSegmentAllocator.getSegmentSize(-1));
+        assertEquals(BufferSegmentAllocator.MIN_SEGMENT_SIZE, BufferSegmentAllocator.getSegmentSize(100));
+        assertEquals(8192, BufferSegmentAllocator.getSegmentSize(4097));
+        assertEquals(8192, BufferSegmentAllocator.getSegmentSize(8192));
+        assertEquals(BufferSegmentAllocator.MAX_SEGMENT_SIZE,
+                BufferSegmentAllocator.getSegmentSize(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSegmentsAreReused() throws IOException {
+        BufferSegmentAllocator allocator = new BufferSegmentAllocator.DirectBuffers(8192);
+        ByteBuffer segment = allocator.allocate(5000);
+        assertEquals(8192, segment.capacity());
+        segment.put((byte) 1);
+        allocator.release(segment);
+        ByteBuffer reused = allocator.allocate(6000);
+        assertSame(segment, reused);
+        assertEquals(0, reused.position());
+
+        //the pool is full, the second segment is left to the garbage collector
+        ByteBuffer other = allocator.allocate(8000);
+        allocator.release(reused);
+        allocator.release(other);
+        assertSame(reused, allocator.allocate(8000));
+        assertEquals(8192, allocator.allocate(8000).capacity());
+    }
+}
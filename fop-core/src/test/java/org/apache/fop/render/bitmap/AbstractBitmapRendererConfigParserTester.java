@@ -122,4 +122,13 @@ public class AbstractBitmapRendererConfigParserTester
         parseConfig(createRenderer());
         assertEquals(BufferedImage.TYPE_INT_ARGB, (int) conf.getColorMode());
     }
+
+    @Test
+    public void testRasterizationThreads() throws Exception {
+        parseConfig(createRenderer().setRasterizationThreads(4));
+        assertEquals(4, (int) conf.getRasterizationThreads());
+
+        parseConfig(createRenderer());
+        assertEquals(0, (int) conf.getRasterizationThreads());
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.bitmap;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.IFContext;
+
+/**
+ * Tests that rasterizing pages on several threads produces the same bitmaps as rasterizing
+ * them while they are painted.
+ */
+public class ParallelPageRasterizerTestCase {
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static String createFO(int pageCount) {
+        StringBuilder fo = new StringBuilder();
+        fo.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">");
+        fo.append("<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-width=\"200pt\" page-height=\"200pt\">");
+        fo.append("<fo:region-body margin-top=\"40pt\"/><fo:region-before extent=\"40pt\"/>");
+        fo.append("</fo:simple-page-master></fo:layout-master-set>");
+        fo.append("<fo:page-sequence master-reference=\"page\">");
+        fo.append("<fo:static-content flow-name=\"xsl-region-before\"><fo:block>"
+                + "<fo:instream-foreign-object><svg xmlns=\"http://www.w3.org/2000/svg\""
+                + " width=\"30\" height=\"30\"><circle cx=\"15\" cy=\"15\" r=\"10\"/></svg>"
+                + "</fo:instream-foreign-object> Page <fo:page-number/></fo:block>"
+                + "</fo:static-content>");
+        fo.append("<fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < pageCount; i++) {
+            fo.append("<fo:block break-before=\"page\" border=\"1pt solid black\">Block " + i
+                    + " <fo:leader leader-pattern=\"rule\" leader-length=\"50pt\"/></fo:block>");
+        }
+        fo.append("</fo:flow></fo:page-sequence></fo:root>");
+        return fo.toString();
+    }
+
+    private byte[] render(String fo, String mimeType, int threads) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        AbstractBitmapDocumentHandler documentHandler = MimeConstants.MIME_TIFF.equals(mimeType)
+                ? new TIFFDocumentHandler(new IFContext(userAgent))
+                : new PNGDocumentHandler(new IFContext(userAgent));
+        documentHandler.getSettings().setBufferedImageType(BufferedImage.TYPE_BYTE_GRAY);
+        documentHandler.getSettings().setRasterizationThreads(threads);
+        userAgent.setDocumentHandlerOverride(documentHandler);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(mimeType, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new StringReader(fo));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testMultiPageTIFF() throws Exception {
+        String fo = createFO(12);
+        byte[] expected = render(fo, MimeConstants.MIME_TIFF, 0);
+        assertTrue(Arrays.equals(expected, render(fo, MimeConstants.MIME_TIFF, 3)));
+        assertTrue(Arrays.equals(expected, render(fo, MimeConstants.MIME_TIFF, 1)));
+    }
+
+    @Test
+    public void testPNG() throws Exception {
+        //without an output file, only the first page is written
+        String fo = createFO(5);
+        byte[] expected = render(fo, MimeConstants.MIME_PNG, 0);
+        assertTrue(Arrays.equals(expected, render(fo, MimeConstants.MIME_PNG, 2)));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedLRUCacheTestCase {
+
+    @Test
+    public void testGetAndPut() {
+        SegmentedLRUCache<String, Integer> cache = new SegmentedLRUCache<String, Integer>(100);
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        //keys that are multiples of 16 below 65536 all fall into the first segment
+        SegmentedLRUCache<Integer, Integer> cache = new SegmentedLRUCache<Integer, Integer>(32);
+        cache.put(0, 0);
+        cache.put(16, 16);
+        cache.get(0);
+        cache.put(32, 32);
+        assertNull(cache.get(16));
+        assertEquals(Integer.valueOf(0), cache.get(0));
+        assertEquals(Integer.valueOf(32), cache.get(32));
+    }
+
+    @Test
+    public void testBounded() {
+        SegmentedLRUCache<Integer, Integer> cache = new SegmentedLRUCache<Integer, Integer>(32);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.getSize() <= 32);
+        assertEquals(32, cache.getMaximumSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumSizeMustBePositive() {
+        new SegmentedLRUCache<String, String>(0);
+    }
+
+    @Test
+    public void testSizeProperty() {
+        String name = SegmentedLRUCacheTestCase.class.getName() + ".size";
+        assertEquals(10, SegmentedLRUCache.getSizeProperty(name, 10));
+        System.setProperty(name, "20");
+        try {
+            assertEquals(20, SegmentedLRUCache.getSizeProperty(name, 10));
+            System.setProperty(name, "many");
+            assertEquals(10, SegmentedLRUCache.getSizeProperty(name, 10));
+            System.setProperty(name, "-1");
+            assertEquals(10, SegmentedLRUCache.getSizeProperty(name, 10));
+            System.setProperty(name, "0");
+            assertEquals(0, SegmentedLRUCache.getSizeProperty(name, 10));
+        } finally {
+            System.clearProperty(name);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamSource;
@@ -70,6 +71,13 @@ public class DefaultEventBroadcaster implements EventBroadcaster {
     private static List<EventModel> eventModels = new java.util.ArrayList();
     private Map proxies = new java.util.HashMap();
 
+    /**
+     * The producer models found so far, by interface name, so that every broadcaster doesn't
+     * have to search the event models again.
+     */
+    private static final Map<String, EventProducerModel> PRODUCER_MODELS
+            = new ConcurrentHashMap<String, EventProducerModel>();
+
     /**
      * Loads an event model and returns its instance.
      * @param resourceBaseClass base class to use for loading resources
@@ -102,7 +110,18 @@ public class DefaultEventBroadcaster implements EventBroadcaster {
         eventModels.add(eventModel);
     }
 
-    private static synchronized EventProducerModel getEventProducerModel(Class clazz) {
+    private static EventProducerModel getEventProducerModel(Class clazz) {
+        EventProducerModel producerModel = PRODUCER_MODELS.get(clazz.getName());
+        if (producerModel == null) {
+            producerModel = findEventProducerModel(clazz);
+            if (producerModel != null) {
+                PRODUCER_MODELS.put(clazz.getName(), producerModel);
+            }
+        }
+        return producerModel;
+    }
+
+    private static synchronized EventProducerModel findEventProducerModel(Class clazz) {
         for (Object eventModel1 : eventModels) {
             EventModel eventModel = (EventModel) eventModel1;
             EventProducerModel producerModel = eventModel.getProducer(clazz);